@@ -0,0 +1,187 @@
+#ifndef AUDIOEDITOR_BIQUAD_H
+#define AUDIOEDITOR_BIQUAD_H
+
+#include <cctype>
+#include <cmath>
+#include <cstddef>
+#include <cstdint>
+#include <stdexcept>
+#include <string>
+#include <vector>
+
+// Biquad filter engine (RBJ Audio EQ Cookbook designs) with independent state
+// per channel and cascaded sections for steeper slopes.
+
+enum BiquadType {
+    BIQUAD_LOWPASS,
+    BIQUAD_HIGHPASS,
+    BIQUAD_BANDPASS,
+    BIQUAD_NOTCH,
+    BIQUAD_LOWSHELF,
+    BIQUAD_HIGHSHELF,
+    BIQUAD_PEAKING
+};
+
+// Normalised coefficients (a0 == 1)
+struct BiquadCoeffs {
+    float b0, b1, b2, a1, a2;
+};
+
+static BiquadCoeffs designBiquad(BiquadType type, double sampleRate, double frequency, double q, double gainDb) {
+    if (frequency <= 0 || frequency >= sampleRate / 2) {
+        throw invalid_argument("Cutoff frequency must be between 0 and half the sample rate.");
+    }
+    if (q <= 0) {
+        throw invalid_argument("Q must be greater than 0.");
+    }
+
+    double w0 = 2 * M_PI * frequency / sampleRate;
+    double cosW = cos(w0);
+    double alpha = sin(w0) / (2 * q);
+    double A = pow(10.0, gainDb / 40.0);
+    double sqrtA2Alpha = 2 * sqrt(A) * alpha;
+    double b0, b1, b2, a0, a1, a2;
+
+    switch (type) {
+        case BIQUAD_LOWPASS:
+            b0 = (1 - cosW) / 2; b1 = 1 - cosW; b2 = (1 - cosW) / 2;
+            a0 = 1 + alpha; a1 = -2 * cosW; a2 = 1 - alpha;
+            break;
+        case BIQUAD_HIGHPASS:
+            b0 = (1 + cosW) / 2; b1 = -(1 + cosW); b2 = (1 + cosW) / 2;
+            a0 = 1 + alpha; a1 = -2 * cosW; a2 = 1 - alpha;
+            break;
+        case BIQUAD_BANDPASS: // Constant 0 dB peak gain
+            b0 = alpha; b1 = 0; b2 = -alpha;
+            a0 = 1 + alpha; a1 = -2 * cosW; a2 = 1 - alpha;
+            break;
+        case BIQUAD_NOTCH:
+            b0 = 1; b1 = -2 * cosW; b2 = 1;
+            a0 = 1 + alpha; a1 = -2 * cosW; a2 = 1 - alpha;
+            break;
+        case BIQUAD_LOWSHELF:
+            b0 = A * ((A + 1) - (A - 1) * cosW + sqrtA2Alpha);
+            b1 = 2 * A * ((A - 1) - (A + 1) * cosW);
+            b2 = A * ((A + 1) - (A - 1) * cosW - sqrtA2Alpha);
+            a0 = (A + 1) + (A - 1) * cosW + sqrtA2Alpha;
+            a1 = -2 * ((A - 1) + (A + 1) * cosW);
+            a2 = (A + 1) + (A - 1) * cosW - sqrtA2Alpha;
+            break;
+        case BIQUAD_HIGHSHELF:
+            b0 = A * ((A + 1) + (A - 1) * cosW + sqrtA2Alpha);
+            b1 = -2 * A * ((A - 1) + (A + 1) * cosW);
+            b2 = A * ((A + 1) + (A - 1) * cosW - sqrtA2Alpha);
+            a0 = (A + 1) - (A - 1) * cosW + sqrtA2Alpha;
+            a1 = 2 * ((A - 1) - (A + 1) * cosW);
+            a2 = (A + 1) - (A - 1) * cosW - sqrtA2Alpha;
+            break;
+        case BIQUAD_PEAKING:
+        default:
+            b0 = 1 + alpha * A; b1 = -2 * cosW; b2 = 1 - alpha * A;
+            a0 = 1 + alpha / A; a1 = -2 * cosW; a2 = 1 - alpha / A;
+            break;
+    }
+
+    BiquadCoeffs c;
+    c.b0 = static_cast<float>(b0 / a0);
+    c.b1 = static_cast<float>(b1 / a0);
+    c.b2 = static_cast<float>(b2 / a0);
+    c.a1 = static_cast<float>(a1 / a0);
+    c.a2 = static_cast<float>(a2 / a0);
+    return c;
+}
+
+// Parses the filter type argument of op 7. Single letters keep the old L/H form.
+static BiquadType parseBiquadType(string name) {
+    for (size_t i = 0; i < name.size(); ++i) name[i] = static_cast<char>(toupper(name[i]));
+    if (name == "L" || name == "LP" || name == "LPF" || name == "LOW") return BIQUAD_LOWPASS;
+    if (name == "H" || name == "HP" || name == "HPF" || name == "HIGH") return BIQUAD_HIGHPASS;
+    if (name == "B" || name == "BP" || name == "BPF") return BIQUAD_BANDPASS;
+    if (name == "N" || name == "NOTCH") return BIQUAD_NOTCH;
+    if (name == "LS" || name == "LOWSHELF") return BIQUAD_LOWSHELF;
+    if (name == "HS" || name == "HIGHSHELF") return BIQUAD_HIGHSHELF;
+    if (name == "P" || name == "PK" || name == "PEAK" || name == "PEAKING") return BIQUAD_PEAKING;
+    throw invalid_argument("Invalid filter type!");
+}
+
+// A cascade of biquad sections applied to every channel, each channel keeping
+// its own transposed direct form II state.
+class BiquadCascade {
+public:
+    BiquadCascade() : numChannels(0) {}
+
+    // Butterworth section Qs are used for LP/HP cascades when q <= 0
+    void design(BiquadType type, double sampleRate, double frequency, double q, double gainDb,
+                int sections, size_t channels) {
+        if (sections < 1) sections = 1;
+        numChannels = channels;
+        coeffs.clear();
+        for (int k = 0; k < sections; ++k) {
+            double sectionQ = q;
+            if (sectionQ <= 0) {
+                bool butterworth = type == BIQUAD_LOWPASS || type == BIQUAD_HIGHPASS;
+                sectionQ = butterworth ? 1.0 / (2 * cos((2 * k + 1) * M_PI / (4.0 * sections))) : M_SQRT1_2;
+            }
+            coeffs.push_back(designBiquad(type, sampleRate, frequency, sectionQ, gainDb));
+        }
+        reset();
+    }
+
+    // Uses precomputed sections instead of a cookbook design
+    void assign(const vector<BiquadCoeffs> &sections, size_t channels) {
+        numChannels = channels;
+        coeffs = sections;
+        reset();
+    }
+
+    void reset() {
+        state.assign(coeffs.size() * numChannels * 2, 0.0f);
+    }
+
+    size_t channels() const { return numChannels; }
+
+    // Frames after which the state left over from any earlier input has
+    // decayed below tolerance (relative), from the slowest pole of each section
+    size_t settleFrames(double tolerance = 1e-5) const {
+        double frames = 0;
+        for (size_t s = 0; s < coeffs.size(); ++s) {
+            double a1 = coeffs[s].a1, a2 = coeffs[s].a2;
+            double disc = a1 * a1 - 4 * a2;
+            double radius = disc < 0 ? sqrt(a2) : (fabs(a1) + sqrt(disc)) / 2;
+            if (radius >= 1) return SIZE_MAX; // Not stable, never settles
+            if (radius > 0) frames += log(tolerance) / log(radius);
+        }
+        return static_cast<size_t>(ceil(frames));
+    }
+
+    // Filters interleaved float frames in place. Sections are applied one at a
+    // time over the whole block so coefficients and state stay in registers.
+    void process(float *interleaved, size_t frames) {
+        for (size_t s = 0; s < coeffs.size(); ++s) {
+            const float b0 = coeffs[s].b0, b1 = coeffs[s].b1, b2 = coeffs[s].b2;
+            const float a1 = coeffs[s].a1, a2 = coeffs[s].a2;
+            for (size_t ch = 0; ch < numChannels; ++ch) {
+                float *z = &state[(s * numChannels + ch) * 2];
+                float z1 = z[0], z2 = z[1];
+                float *p = interleaved + ch;
+                for (size_t i = 0; i < frames; ++i, p += numChannels) {
+                    float x = *p;
+                    float y = b0 * x + z1;
+                    z1 = b1 * x - a1 * y + z2;
+                    z2 = b2 * x - a2 * y;
+                    *p = y;
+                }
+                // Flush denormals left behind by decaying tails
+                z[0] = fabsf(z1) < 1e-20f ? 0.0f : z1;
+                z[1] = fabsf(z2) < 1e-20f ? 0.0f : z2;
+            }
+        }
+    }
+
+private:
+    vector<BiquadCoeffs> coeffs;
+    vector<float> state;
+    size_t numChannels;
+};
+
+#endif // AUDIOEDITOR_BIQUAD_H
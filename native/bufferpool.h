@@ -0,0 +1,232 @@
+#ifndef AUDIOEDITOR_BUFFERPOOL_H
+#define AUDIOEDITOR_BUFFERPOOL_H
+
+#include <cstdint>
+#include <cstdlib>
+#include <cstring>
+#include <mutex>
+#include <new>
+#include <type_traits>
+#include <vector>
+
+// Reusable sample buffers shared by every op.
+//
+// Buffers come from size classes four to an octave (so a request wastes at
+// most a quarter of its size), start on a 64-byte boundary for the SIMD
+// kernels, and go back to a per-class free list when released instead of to
+// the allocator. A run of ops on similar files then reuses the same memory
+// rather than mapping and faulting in fresh pages every time. The cache is
+// capped; blocks beyond the cap are freed.
+
+struct BufferPoolStats {
+    uint64_t requests;        // Buffers handed out
+    uint64_t hits;            // ... served from the cache
+    uint64_t misses;          // ... that needed a new allocation
+    uint64_t bytesInUse;      // Capacity currently lent out
+    uint64_t peakBytesInUse;
+    uint64_t bytesCached;     // Capacity sitting in the free lists
+};
+
+class BufferPool {
+public:
+    static const size_t kAlignment = 64;
+    static const size_t kMinClassBytes = 4096;
+
+    explicit BufferPool(size_t cacheLimitBytes) : cacheLimit(cacheLimitBytes) {
+        memset(&counters, 0, sizeof(counters));
+    }
+
+    ~BufferPool() {
+        for (size_t c = 0; c < freeLists.size(); ++c) {
+            for (size_t i = 0; i < freeLists[c].size(); ++i) freeAligned(freeLists[c][i]);
+        }
+    }
+
+    // Returns an aligned block of at least bytes; *capacity receives its
+    // real size, which must be passed back to release()
+    void *acquire(size_t bytes, size_t *capacity) {
+        size_t classBytes;
+        size_t index = classIndex(bytes, &classBytes);
+        *capacity = classBytes;
+        {
+            lock_guard<mutex> lock(poolMutex);
+            ++counters.requests;
+            counters.bytesInUse += classBytes;
+            if (counters.bytesInUse > counters.peakBytesInUse) counters.peakBytesInUse = counters.bytesInUse;
+            if (index < freeLists.size() && !freeLists[index].empty()) {
+                void *block = freeLists[index].back();
+                freeLists[index].pop_back();
+                ++counters.hits;
+                counters.bytesCached -= classBytes;
+                return block;
+            }
+            ++counters.misses;
+        }
+        void *block = allocateAligned(classBytes);
+        if (block == NULL) {
+            lock_guard<mutex> lock(poolMutex);
+            counters.bytesInUse -= classBytes;
+            throw bad_alloc();
+        }
+        return block;
+    }
+
+    void release(void *block, size_t capacity) {
+        if (block == NULL) return;
+        size_t classBytes;
+        size_t index = classIndex(capacity, &classBytes);
+        {
+            lock_guard<mutex> lock(poolMutex);
+            counters.bytesInUse -= classBytes;
+            if (counters.bytesCached + classBytes <= cacheLimit) {
+                if (freeLists.size() <= index) freeLists.resize(index + 1);
+                freeLists[index].push_back(block);
+                counters.bytesCached += classBytes;
+                return;
+            }
+        }
+        freeAligned(block);
+    }
+
+    BufferPoolStats stats() const {
+        lock_guard<mutex> lock(poolMutex);
+        return counters;
+    }
+
+private:
+    BufferPool(const BufferPool &);
+    BufferPool &operator=(const BufferPool &);
+
+    // 4 KB, then 2^e + k * 2^(e-2) for k = 1..4 in every octave above it
+    static size_t classIndex(size_t bytes, size_t *classBytes) {
+        if (bytes <= kMinClassBytes) {
+            *classBytes = kMinClassBytes;
+            return 0;
+        }
+        size_t e = 12;
+        while ((static_cast<size_t>(1) << (e + 1)) < bytes) ++e;
+        size_t base = static_cast<size_t>(1) << e;
+        size_t quarter = base >> 2;
+        size_t steps = (bytes - base + quarter - 1) / quarter;
+        *classBytes = base + steps * quarter;
+        return 1 + (e - 12) * 4 + (steps - 1);
+    }
+
+    static void *allocateAligned(size_t bytes) {
+#ifdef _WIN32
+        return _aligned_malloc(bytes, kAlignment);
+#else
+        void *block = NULL;
+        return posix_memalign(&block, kAlignment, bytes) == 0 ? block : NULL;
+#endif
+    }
+
+    static void freeAligned(void *block) {
+#ifdef _WIN32
+        _aligned_free(block);
+#else
+        free(block);
+#endif
+    }
+
+    mutable mutex poolMutex;
+    vector<vector<void *> > freeLists;
+    size_t cacheLimit;
+    BufferPoolStats counters;
+};
+
+// The library-wide pool, keeping up to 256 MB of released buffers
+static BufferPool &bufferPool() {
+    static BufferPool pool(static_cast<size_t>(256) << 20);
+    return pool;
+}
+
+// A std::vector-like array of plain values borrowed from bufferPool() and
+// handed back when it goes out of scope. Unlike std::vector, the sized
+// constructor leaves the contents uninitialised; pass a value to fill.
+template <class T>
+class PooledBuffer {
+    static_assert(is_trivially_copyable<T>::value, "PooledBuffer holds plain values only");
+
+public:
+    PooledBuffer() : ptr(NULL), count(0), capacityBytes(0) {}
+
+    explicit PooledBuffer(size_t n) : ptr(NULL), count(0), capacityBytes(0) { reserveExact(n); count = n; }
+
+    PooledBuffer(size_t n, const T &value) : ptr(NULL), count(0), capacityBytes(0) { assign(n, value); }
+
+    PooledBuffer(PooledBuffer &&other) noexcept
+        : ptr(other.ptr), count(other.count), capacityBytes(other.capacityBytes) {
+        other.ptr = NULL;
+        other.count = 0;
+        other.capacityBytes = 0;
+    }
+
+    PooledBuffer &operator=(PooledBuffer &&other) noexcept {
+        swap(other);
+        return *this;
+    }
+
+    ~PooledBuffer() { bufferPool().release(ptr, capacityBytes); }
+
+    T *data() { return ptr; }
+    const T *data() const { return ptr; }
+    size_t size() const { return count; }
+    bool empty() const { return count == 0; }
+    T *begin() { return ptr; }
+    T *end() { return ptr + count; }
+    const T *begin() const { return ptr; }
+    const T *end() const { return ptr + count; }
+    T &operator[](size_t i) { return ptr[i]; }
+    const T &operator[](size_t i) const { return ptr[i]; }
+
+    // Keeps the contents; new elements are zero, as with std::vector
+    void resize(size_t n) {
+        if (n > count) {
+            reserve(n);
+            memset(static_cast<void *>(ptr + count), 0, (n - count) * sizeof(T));
+        }
+        count = n;
+    }
+
+    void assign(size_t n, const T &value) {
+        if (n * sizeof(T) > capacityBytes) {
+            count = 0;
+            reserveExact(n);
+        }
+        for (size_t i = 0; i < n; ++i) ptr[i] = value;
+        count = n;
+    }
+
+    // Grows geometrically so repeated resizes stay amortised
+    void reserve(size_t n) {
+        if (n * sizeof(T) <= capacityBytes) return;
+        reserveExact(max(n, 2 * count));
+    }
+
+    void swap(PooledBuffer &other) {
+        std::swap(ptr, other.ptr);
+        std::swap(count, other.count);
+        std::swap(capacityBytes, other.capacityBytes);
+    }
+
+private:
+    PooledBuffer(const PooledBuffer &);
+    PooledBuffer &operator=(const PooledBuffer &);
+
+    void reserveExact(size_t n) {
+        if (n * sizeof(T) <= capacityBytes) return;
+        size_t capacity;
+        T *grown = static_cast<T *>(bufferPool().acquire(n * sizeof(T), &capacity));
+        if (count > 0) memcpy(static_cast<void *>(grown), ptr, count * sizeof(T));
+        bufferPool().release(ptr, capacityBytes);
+        ptr = grown;
+        capacityBytes = capacity;
+    }
+
+    T *ptr;
+    size_t count;
+    size_t capacityBytes;
+};
+
+#endif // AUDIOEDITOR_BUFFERPOOL_H
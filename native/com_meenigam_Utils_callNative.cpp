@@ -43,3 +43,75 @@ JNIEXPORT void JNICALL Java_com_meenigam_Utils_callNative_sayHello
     utilityBelt(extractedInt, extractedString, extractedString, extractedArray);
 }
 
+static jobjectArray toJavaStrings(JNIEnv *env, const std::vector<std::string> &values) {
+    jclass stringClass = env->FindClass("java/lang/String");
+    jobjectArray array = env->NewObjectArray(static_cast<jsize>(values.size()), stringClass, NULL);
+    for (size_t i = 0; i < values.size(); ++i) {
+        jstring value = env->NewStringUTF(values[i].c_str());
+        env->SetObjectArrayElement(array, static_cast<jsize>(i), value);
+        env->DeleteLocalRef(value);
+    }
+    return array;
+}
+
+static std::string fromJavaString(JNIEnv *env, jstring value) {
+    if (value == NULL) return std::string();
+    const char *chars = env->GetStringUTFChars(value, 0);
+    std::string result(chars);
+    env->ReleaseStringUTFChars(value, chars);
+    return result;
+}
+
+static std::vector<std::string> fromJavaStrings(JNIEnv *env, jobjectArray values) {
+    std::vector<std::string> result;
+    jsize count = values == NULL ? 0 : env->GetArrayLength(values);
+    for (jsize i = 0; i < count; ++i) {
+        jstring element = (jstring) env->GetObjectArrayElement(values, i);
+        result.push_back(fromJavaString(env, element));
+        env->DeleteLocalRef(element);
+    }
+    return result;
+}
+
+JNIEXPORT jboolean JNICALL Java_com_meenigam_Utils_callNative_process
+  (JNIEnv *env, jobject obj, jstring inputArg, jstring outputArg, jint operation, jobjectArray paramsArg) {
+    return utilityBelt(operation, fromJavaString(env, inputArg), fromJavaString(env, outputArg),
+                       fromJavaStrings(env, paramsArg)) ? JNI_TRUE : JNI_FALSE;
+}
+
+JNIEXPORT jobjectArray JNICALL Java_com_meenigam_Utils_callNative_analyze
+  (JNIEnv *env, jobject obj, jstring pathArg, jint operation, jobjectArray paramsArg) {
+    return toJavaStrings(env, analysisBelt(operation, fromJavaString(env, pathArg), fromJavaStrings(env, paramsArg)));
+}
+
+JNIEXPORT jobjectArray JNICALL Java_com_meenigam_Utils_callNative_bufferPoolStats
+  (JNIEnv *env, jclass cls) {
+    return toJavaStrings(env, bufferPoolReport());
+}
+
+JNIEXPORT void JNICALL Java_com_meenigam_Utils_callNative_gainKernel
+  (JNIEnv *env, jclass cls, jshortArray samples, jfloat gain) {
+    jsize length = env->GetArrayLength(samples);
+    jshort *data = static_cast<jshort *>(env->GetPrimitiveArrayCritical(samples, 0));
+    kernels().gain(data, length, gain);
+    env->ReleasePrimitiveArrayCritical(samples, data, 0);
+}
+
+JNIEXPORT void JNICALL Java_com_meenigam_Utils_callNative_mixKernel
+  (JNIEnv *env, jclass cls, jshortArray dst, jshortArray src, jfloat scale) {
+    jsize length = min(env->GetArrayLength(dst), env->GetArrayLength(src));
+    jshort *dstData = static_cast<jshort *>(env->GetPrimitiveArrayCritical(dst, 0));
+    jshort *srcData = static_cast<jshort *>(env->GetPrimitiveArrayCritical(src, 0));
+    kernels().mixAccumulate(dstData, srcData, length, scale);
+    env->ReleasePrimitiveArrayCritical(src, srcData, JNI_ABORT);  // Source is read-only
+    env->ReleasePrimitiveArrayCritical(dst, dstData, 0);
+}
+
+JNIEXPORT jint JNICALL Java_com_meenigam_Utils_callNative_peakKernel
+  (JNIEnv *env, jclass cls, jshortArray samples) {
+    jsize length = env->GetArrayLength(samples);
+    jshort *data = static_cast<jshort *>(env->GetPrimitiveArrayCritical(samples, 0));
+    jint peak = kernels().peak(data, length);
+    env->ReleasePrimitiveArrayCritical(samples, data, JNI_ABORT);
+    return peak;
+}
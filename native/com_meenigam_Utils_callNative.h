@@ -15,6 +15,54 @@ extern "C" {
 JNIEXPORT void JNICALL Java_com_meenigam_Utils_callNative_sayHello
   (JNIEnv *, jobject, jstring, jint, jobjectArray);
 
+/*
+ * Class:     com_meenigam_Utils_callNative
+ * Method:    process
+ * Signature: (Ljava/lang/String;Ljava/lang/String;I[Ljava/lang/String;)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_meenigam_Utils_callNative_process
+  (JNIEnv *, jobject, jstring, jstring, jint, jobjectArray);
+
+/*
+ * Class:     com_meenigam_Utils_callNative
+ * Method:    analyze
+ * Signature: (Ljava/lang/String;I[Ljava/lang/String;)[Ljava/lang/String;
+ */
+JNIEXPORT jobjectArray JNICALL Java_com_meenigam_Utils_callNative_analyze
+  (JNIEnv *, jobject, jstring, jint, jobjectArray);
+
+/*
+ * Class:     com_meenigam_Utils_callNative
+ * Method:    bufferPoolStats
+ * Signature: ()[Ljava/lang/String;
+ */
+JNIEXPORT jobjectArray JNICALL Java_com_meenigam_Utils_callNative_bufferPoolStats
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     com_meenigam_Utils_callNative
+ * Method:    gainKernel
+ * Signature: ([SF)V
+ */
+JNIEXPORT void JNICALL Java_com_meenigam_Utils_callNative_gainKernel
+  (JNIEnv *, jclass, jshortArray, jfloat);
+
+/*
+ * Class:     com_meenigam_Utils_callNative
+ * Method:    mixKernel
+ * Signature: ([S[SF)V
+ */
+JNIEXPORT void JNICALL Java_com_meenigam_Utils_callNative_mixKernel
+  (JNIEnv *, jclass, jshortArray, jshortArray, jfloat);
+
+/*
+ * Class:     com_meenigam_Utils_callNative
+ * Method:    peakKernel
+ * Signature: ([S)I
+ */
+JNIEXPORT jint JNICALL Java_com_meenigam_Utils_callNative_peakKernel
+  (JNIEnv *, jclass, jshortArray);
+
 #ifdef __cplusplus
 }
 #endif
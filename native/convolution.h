@@ -0,0 +1,222 @@
+#ifndef AUDIOEDITOR_CONVOLUTION_H
+#define AUDIOEDITOR_CONVOLUTION_H
+
+#include <algorithm>
+#include <cmath>
+#include <cstdint>
+#include <cstring>
+#include <stdexcept>
+#include <vector>
+
+// Uniformly partitioned FFT convolution (overlap-save) and the convolution
+// reverb built on it.
+//
+// The impulse response is cut into partitions of blockSize samples, each
+// transformed once up front. Every input block is transformed once, pushed
+// into a frequency-domain delay line, and multiplied against all partition
+// spectra. The cost per block is one FFT round trip plus one complex
+// multiply-accumulate per partition bin, whatever the position in the file,
+// so multi-second IRs run at a predictable rate.
+
+class PartitionedConvolver {
+public:
+    PartitionedConvolver(const float *impulse, size_t impulseLength, size_t blockSize)
+        : block(blockSize), fft(2 * blockSize), bins(blockSize + 1), newest(0) {
+        if (!isPowerOfTwo(blockSize)) {
+            throw invalid_argument("Convolution block size must be a power of two.");
+        }
+        partitions = impulseLength == 0 ? 1 : (impulseLength + block - 1) / block;
+
+        vector<float> padded(2 * block, 0.0f);
+        partitionSpectra.resize(partitions * bins);
+        for (size_t p = 0; p < partitions; ++p) {
+            fill(padded.begin(), padded.end(), 0.0f);
+            size_t start = p * block;
+            size_t count = start < impulseLength ? min(block, impulseLength - start) : 0;
+            if (count > 0) memcpy(padded.data(), impulse + start, count * sizeof(float));
+            fft.forward(padded.data(), &partitionSpectra[p * bins]);
+        }
+
+        Complex zero = {0.0f, 0.0f};
+        delayLine.assign(partitions * bins, zero);
+        accumulator.assign(bins, zero);
+        window.assign(2 * block, 0.0f);
+        timeBuffer.resize(2 * block);
+    }
+
+    size_t blockSize() const { return block; }
+
+    // Convolves exactly blockSize new input samples into blockSize outputs
+    void processBlock(const float *input, float *output) {
+        // Slide the 2B input window and transform it into the newest slot
+        memmove(window.data(), window.data() + block, block * sizeof(float));
+        memcpy(window.data() + block, input, block * sizeof(float));
+        newest = newest == 0 ? partitions - 1 : newest - 1;
+        fft.forward(window.data(), &delayLine[newest * bins]);
+
+        Complex zero = {0.0f, 0.0f};
+        fill(accumulator.begin(), accumulator.end(), zero);
+        for (size_t p = 0; p < partitions; ++p) {
+            size_t slot = (newest + p) % partitions; // Input spectrum from p blocks ago
+            complexMultiplyAccumulate(accumulator.data(), &delayLine[slot * bins], &partitionSpectra[p * bins], bins);
+        }
+
+        // Overlap-save: the second half of the circular result is the linear part
+        fft.inverse(accumulator.data(), timeBuffer.data());
+        memcpy(output, timeBuffer.data() + block, block * sizeof(float));
+    }
+
+private:
+    size_t block;
+    RealFFT fft;
+    size_t bins;
+    size_t partitions;
+    size_t newest;                   // Delay line slot of the most recent block
+    vector<Complex> partitionSpectra;
+    vector<Complex> delayLine;       // Ring of past input spectra
+    vector<Complex> accumulator;
+    vector<float> window;
+    vector<float> timeBuffer;
+};
+
+// Built-in room impulse responses for reverb levels 1-3
+enum ReverbRoom {
+    REVERB_SMALL = 1,
+    REVERB_MEDIUM = 2,
+    REVERB_LARGE = 3
+};
+
+// Synthesises a stereo room response: a few early reflections followed by
+// decorrelated noise with an exponential RT60 decay that darkens over time.
+// Returned planar, each channel normalised to unit energy.
+static vector<vector<float> > builtInImpulse(ReverbRoom room, uint32_t sampleRate) {
+    double rt60, preDelay;
+    switch (room) {
+        case REVERB_SMALL: rt60 = 0.4; preDelay = 0.005; break;
+        case REVERB_MEDIUM: rt60 = 1.2; preDelay = 0.015; break;
+        case REVERB_LARGE: rt60 = 2.8; preDelay = 0.030; break;
+        default: throw runtime_error("Invalid reverb level");
+    }
+    size_t length = static_cast<size_t>((preDelay + rt60) * sampleRate);
+    size_t start = static_cast<size_t>(preDelay * sampleRate);
+    vector<vector<float> > impulse(2, vector<float>(length, 0.0f));
+
+    uint32_t seed = 0x9E3779B9u * static_cast<uint32_t>(room);
+    for (size_t ch = 0; ch < 2; ++ch) {
+        vector<float> &ir = impulse[ch];
+        float lowpass = 0;
+        for (size_t i = start; i < length; ++i) {
+            double t = static_cast<double>(i - start) / sampleRate;
+            seed = seed * 1664525u + 1013904223u; // LCG, deterministic per room
+            float noise = static_cast<float>(static_cast<int32_t>(seed) / 2147483648.0);
+            // -60 dB after rt60 seconds
+            float envelope = static_cast<float>(exp(-6.9078 * t / rt60));
+            // High frequencies die away faster than low ones
+            float damping = static_cast<float>(0.15 + 0.8 * (1 - exp(-3 * t / rt60)));
+            lowpass += (1 - damping) * (noise - lowpass);
+            ir[i] = lowpass * envelope;
+        }
+        // Early reflections, slightly different per side
+        static const double reflectionTimes[4] = {0.007, 0.011, 0.017, 0.023};
+        static const float reflectionGains[4] = {0.8f, 0.6f, 0.45f, 0.35f};
+        double roomScale = rt60 / 1.2;
+        for (int r = 0; r < 4; ++r) {
+            size_t at = start + static_cast<size_t>((reflectionTimes[r] * roomScale + ch * 0.0013) * sampleRate);
+            if (at < length) ir[at] += reflectionGains[r];
+        }
+
+        double energy = 0;
+        for (size_t i = 0; i < length; ++i) energy += ir[i] * ir[i];
+        float scale = energy > 0 ? static_cast<float>(1.0 / sqrt(energy)) : 1.0f;
+        for (size_t i = 0; i < length; ++i) ir[i] *= scale;
+    }
+    return impulse;
+}
+
+// Streams interleaved audio through one partitioned convolver per channel.
+// Mono IRs are shared by every channel; otherwise channel c uses IR channel
+// c % irChannels. Output is dry + wet * wetGain and runs on for the length
+// of the IR after the input ends.
+class ConvolutionReverb {
+public:
+    ConvolutionReverb(size_t channels, const vector<vector<float> > &impulse, float wetGain,
+                      size_t blockSize = 2048)
+        : numChannels(channels), wet(wetGain), block(blockSize), filled(0),
+          tailLength(impulse.empty() ? 0 : impulse[0].size()) {
+        if (channels == 0 || impulse.empty()) {
+            throw invalid_argument("Reverb needs audio and impulse channels.");
+        }
+        for (size_t ch = 0; ch < channels; ++ch) {
+            const vector<float> &ir = impulse[ch % impulse.size()];
+            convolvers.push_back(new PartitionedConvolver(ir.data(), ir.size(), block));
+        }
+        pendingIn.assign(channels, vector<float>(block, 0.0f));
+        wetOut.resize(block);
+    }
+
+    ~ConvolutionReverb() {
+        for (size_t ch = 0; ch < convolvers.size(); ++ch) delete convolvers[ch];
+    }
+
+    size_t tailFrames() const { return tailLength; }
+
+    // Output frames a process() call can produce for inputFrames of input
+    size_t maxOutputFrames(size_t inputFrames) const {
+        return (inputFrames / block + 1) * block;
+    }
+
+    // Pushes interleaved input; output arrives in whole blocks
+    size_t process(const float *data, size_t frames, float *output) {
+        size_t produced = 0;
+        size_t consumed = 0;
+        while (consumed < frames) {
+            size_t take = min(block - filled, frames - consumed);
+            for (size_t ch = 0; ch < numChannels; ++ch) {
+                const float *src = data + consumed * numChannels + ch;
+                float *dst = &pendingIn[ch][filled];
+                for (size_t i = 0; i < take; ++i, src += numChannels) dst[i] = *src;
+            }
+            filled += take;
+            consumed += take;
+            if (filled == block) {
+                runBlock(output + produced * numChannels);
+                produced += block;
+                filled = 0;
+            }
+        }
+        return produced;
+    }
+
+    // Pushes silence so the remaining input and the IR tail come out;
+    // call until the caller has collected the output length it needs
+    size_t flush(float *output) {
+        vector<float> silence((block - filled) * numChannels, 0.0f);
+        return process(silence.data(), block - filled, output);
+    }
+
+private:
+    ConvolutionReverb(const ConvolutionReverb &);
+    ConvolutionReverb &operator=(const ConvolutionReverb &);
+
+    void runBlock(float *output) {
+        for (size_t ch = 0; ch < numChannels; ++ch) {
+            convolvers[ch]->processBlock(pendingIn[ch].data(), wetOut.data());
+            const float *dry = pendingIn[ch].data();
+            float *dst = output + ch;
+            for (size_t i = 0; i < block; ++i, dst += numChannels) {
+                *dst = dry[i] + wet * wetOut[i];
+            }
+        }
+    }
+
+    size_t numChannels;
+    float wet;
+    size_t block;
+    size_t filled;
+    size_t tailLength;
+    vector<PartitionedConvolver *> convolvers;
+    vector<vector<float> > pendingIn;
+    vector<float> wetOut;
+};
+
+#endif // AUDIOEDITOR_CONVOLUTION_H
@@ -0,0 +1,377 @@
+#ifndef AUDIOEDITOR_DYNAMICS_H
+#define AUDIOEDITOR_DYNAMICS_H
+
+#include <algorithm>
+#include <cctype>
+#include <cmath>
+#include <cstdint>
+#include <cstring>
+#include <stdexcept>
+#include <string>
+#include <vector>
+
+#ifdef __SSE2__
+#include <emmintrin.h>
+#endif
+
+// Dynamics engine: compressor, downward expander, gate and true-peak limiter.
+//
+// Detection is stereo-linked (the loudest channel drives one gain for all)
+// and runs in the log domain: the level is converted to dB once per frame,
+// the static curve gives the gain reduction in dB, and that is smoothed by a
+// branching attack/release follower whose coefficients are computed once.
+// dB <-> linear conversions use polynomial log2/exp2 approximations, so no
+// pow()/log() is called per sample. The audio is delayed through a ring
+// buffer by the lookahead so the gain can move before a transient arrives.
+
+enum DynamicsMode {
+    DYNAMICS_COMPRESSOR,
+    DYNAMICS_EXPANDER,
+    DYNAMICS_GATE,
+    DYNAMICS_LIMITER
+};
+
+static DynamicsMode parseDynamicsMode(string name) {
+    for (size_t i = 0; i < name.size(); ++i) name[i] = static_cast<char>(toupper(name[i]));
+    if (name == "C" || name == "COMP" || name == "COMPRESSOR") return DYNAMICS_COMPRESSOR;
+    if (name == "E" || name == "EXP" || name == "EXPANDER") return DYNAMICS_EXPANDER;
+    if (name == "G" || name == "GATE") return DYNAMICS_GATE;
+    if (name == "L" || name == "LIM" || name == "LIMITER") return DYNAMICS_LIMITER;
+    throw invalid_argument("Invalid dynamics mode!");
+}
+
+struct DynamicsSettings {
+    DynamicsMode mode;
+    double thresholdDb;  // Limiter: output ceiling in dBTP
+    double ratio;        // N:1 above threshold (compressor), 1:N below it (expander)
+    double attackMs;
+    double releaseMs;
+    double lookaheadMs;
+    double kneeDb;       // Soft knee width, compressor and expander
+    double makeupDb;
+    double rangeDb;      // Deepest reduction the expander and gate apply
+
+    DynamicsSettings()
+        : mode(DYNAMICS_COMPRESSOR), thresholdDb(-18), ratio(4), attackMs(10), releaseMs(100),
+          lookaheadMs(0), kneeDb(6), makeupDb(0), rangeDb(-80) {}
+};
+
+// log2 and 2^x to about 2e-4 (0.001 dB), plenty for gain computation
+static inline float fastLog2(float x) {
+    union { float f; uint32_t i; } v = {x};
+    float exponent = static_cast<float>(static_cast<int>((v.i >> 23) & 255) - 127);
+    v.i = (v.i & 0x007FFFFF) | 0x3F800000; // Mantissa in [1, 2)
+    float m = v.f;
+    return exponent - 2.4968462f + (4.0285482f + (-2.0812144f + (0.62887373f - 0.079158179f * m) * m) * m) * m;
+}
+
+static inline float fastExp2(float x) {
+    if (x < -126.0f) return 0.0f;
+    if (x > 126.0f) x = 126.0f;
+    float whole = floorf(x);
+    float f = x - whole;
+    float p = 1.0f + f * (0.69314718f + f * (0.24022651f + f * (0.05550411f + f * (0.00961813f + f * 0.00133336f))));
+    union { uint32_t i; float f; } v;
+    v.i = static_cast<uint32_t>(static_cast<int>(whole) + 127) << 23;
+    return p * v.f;
+}
+
+static const float kDbPerLog2 = 6.0205999f;   // 20 * log10(2)
+
+// Inter-sample peak estimate: each channel is interpolated at three points
+// between consecutive samples (4x oversampling) with a 12-tap windowed sinc,
+// in the manner of ITU-R BS.1770 true-peak metering. The reported peak
+// belongs to the sample latency() frames back.
+class TruePeakDetector {
+public:
+    static const size_t kTaps = 12;
+    static const size_t kPhases = 4;
+
+    explicit TruePeakDetector(size_t channels) : numChannels(channels), position(0) {
+        const double beta = 6.0;
+        const double windowNorm = besselI0(beta);
+        for (size_t p = 1; p < kPhases; ++p) {
+            double offset = static_cast<double>(p) / kPhases;
+            double sum = 0;
+            for (size_t k = 0; k < kTaps; ++k) {
+                double t = static_cast<double>(k) - (kTaps / 2 - 1) - offset;
+                double u = t / (kTaps / 2);
+                double window = fabs(u) >= 1 ? 0 : besselI0(beta * sqrt(1 - u * u)) / windowNorm;
+                double sinc = t == 0 ? 1.0 : sin(M_PI * t) / (M_PI * t);
+                coeffs[k][p - 1] = static_cast<float>(sinc * window);
+                sum += coeffs[k][p - 1];
+            }
+            for (size_t k = 0; k < kTaps; ++k) coeffs[k][p - 1] = static_cast<float>(coeffs[k][p - 1] / sum);
+        }
+        for (size_t k = 0; k < kTaps; ++k) coeffs[k][kPhases - 1] = k == kTaps / 2 - 1 ? 1.0f : 0.0f;
+        // Each channel's history is written twice so the taps are always contiguous
+        history.assign(numChannels * 2 * kTaps, 0.0f);
+    }
+
+    static size_t latency() { return kTaps / 2; }
+
+    void reset() {
+        fill(history.begin(), history.end(), 0.0f);
+        position = 0;
+    }
+
+    // Takes one interleaved frame, returns the largest absolute sample or
+    // inter-sample value across channels
+    float push(const float *frame) {
+        float peak = 0;
+        for (size_t ch = 0; ch < numChannels; ++ch) {
+            float *h = &history[ch * 2 * kTaps];
+            h[position] = h[position + kTaps] = frame[ch];
+            const float *taps = h + position + 1; // Oldest to newest
+            // The three phases are accumulated side by side; the fourth lane
+            // has zero taps except 1 at the centre, so it carries the sample itself
+#ifdef __SSE2__
+            // Three independent accumulators keep the adds from serialising
+            __m128 s0 = _mm_setzero_ps(), s1 = _mm_setzero_ps(), s2 = _mm_setzero_ps();
+            for (size_t k = 0; k < kTaps; k += 3) {
+                s0 = _mm_add_ps(s0, _mm_mul_ps(_mm_set1_ps(taps[k]), _mm_loadu_ps(coeffs[k])));
+                s1 = _mm_add_ps(s1, _mm_mul_ps(_mm_set1_ps(taps[k + 1]), _mm_loadu_ps(coeffs[k + 1])));
+                s2 = _mm_add_ps(s2, _mm_mul_ps(_mm_set1_ps(taps[k + 2]), _mm_loadu_ps(coeffs[k + 2])));
+            }
+            __m128 sums = _mm_add_ps(_mm_add_ps(s0, s1), s2);
+            const __m128 absMask = _mm_castsi128_ps(_mm_set1_epi32(0x7FFFFFFF));
+            sums = _mm_and_ps(sums, absMask);
+            sums = _mm_max_ps(sums, _mm_shuffle_ps(sums, sums, _MM_SHUFFLE(1, 0, 3, 2)));
+            sums = _mm_max_ps(sums, _mm_shuffle_ps(sums, sums, _MM_SHUFFLE(2, 3, 0, 1)));
+            float v = _mm_cvtss_f32(sums);
+            if (v > peak) peak = v;
+#else
+            float sums[kPhases] = {0, 0, 0, 0};
+            for (size_t k = 0; k < kTaps; ++k) {
+                const float t = taps[k];
+                for (size_t p = 0; p < kPhases; ++p) sums[p] += t * coeffs[k][p];
+            }
+            for (size_t p = 0; p < kPhases; ++p) {
+                float v = fabsf(sums[p]);
+                if (v > peak) peak = v;
+            }
+#endif
+        }
+        position = position + 1 == kTaps ? 0 : position + 1;
+        return peak;
+    }
+
+private:
+    size_t numChannels;
+    size_t position;
+    float coeffs[kTaps][kPhases]; // Per tap: phases 1/4, 2/4, 3/4, then 0
+    vector<float> history;
+};
+
+class DynamicsProcessor {
+public:
+    DynamicsProcessor(size_t channels, uint32_t sampleRate, const DynamicsSettings &settings)
+        : numChannels(channels), settings(settings), truePeak(channels), envelopeDb(0),
+          heldDb(0), boxSum(0), boxScale(1), boxSlot(0), ringPosition(0), primed(0) {
+        if (channels == 0) {
+            throw invalid_argument("Dynamics needs at least one channel.");
+        }
+        if (!(settings.ratio >= 1)) {
+            throw invalid_argument("Ratio must be at least 1.");
+        }
+        if (settings.attackMs < 0 || settings.releaseMs < 0 || settings.lookaheadMs < 0 || settings.lookaheadMs > 100) {
+            throw invalid_argument("Attack and release must be positive and lookahead at most 100 ms.");
+        }
+        limiter = settings.mode == DYNAMICS_LIMITER;
+        attackCoeff = timeCoefficient(settings.attackMs, sampleRate);
+        releaseCoeff = timeCoefficient(settings.releaseMs, sampleRate);
+        slope = static_cast<float>(1.0 / settings.ratio - 1.0);
+        expandSlope = static_cast<float>(settings.ratio - 1.0);
+        threshold = static_cast<float>(settings.thresholdDb);
+        knee = static_cast<float>(settings.kneeDb > 0 ? settings.kneeDb : 0);
+        range = static_cast<float>(settings.rangeDb < 0 ? settings.rangeDb : -80);
+        makeup = static_cast<float>(pow(10.0, settings.makeupDb / 20.0));
+
+        lookahead = static_cast<size_t>(settings.lookaheadMs * sampleRate / 1000.0 + 0.5);
+        if (limiter) {
+            // The limiter ramps down across the lookahead window, so it needs one
+            if (lookahead == 0) lookahead = static_cast<size_t>(sampleRate * 0.005 + 0.5);
+            // A peak's required gain enters the box average lookahead - 1
+            // frames before the peak itself reaches the output
+            delay = lookahead - 1 + TruePeakDetector::latency();
+            minValues.resize(lookahead + 1);
+            minIndices.resize(lookahead + 1);
+            boxWindow.assign(lookahead, 0.0f);
+            boxScale = 1.0f / lookahead;
+        } else {
+            delay = lookahead;
+        }
+        ring.assign((delay + 1) * numChannels, 0.0f);
+        minHead = minTail = 0;
+        frameCounter = 0;
+    }
+
+    size_t latency() const { return delay; }
+
+    // Frames after which two processors fed the same input agree to about
+    // 0.01 dB whatever gain state they started in: the slower smoothing time
+    // constant decays by 60 dB, plus the lookahead windows
+    size_t settleFrames() const {
+        float slowest = max(attackCoeff, releaseCoeff);
+        double frames = slowest > 0 ? log(1e-3) / log(slowest) : 0;
+        return static_cast<size_t>(ceil(frames)) + 2 * delay + 1;
+    }
+
+    size_t maxOutputFrames(size_t inputFrames) const { return inputFrames + delay; }
+
+    // Processes interleaved input; the first latency() frames of the stream
+    // are absorbed, so the output lines up with the input
+    size_t process(const float *input, size_t frames, float *output) {
+        size_t produced = 0;
+        const size_t slots = delay + 1;
+        for (size_t i = 0; i < frames; ++i) {
+            const float *frame = input + i * numChannels;
+            float gainDb = limiter ? limiterGain(frame) : followerGain(frame);
+
+            float *slot = &ring[ringPosition * numChannels];
+            memcpy(slot, frame, numChannels * sizeof(float));
+            ringPosition = ringPosition + 1 == slots ? 0 : ringPosition + 1;
+
+            if (primed < delay) {
+                ++primed;
+                continue;
+            }
+            // The oldest frame in the ring is the one this gain was computed for
+            const float *delayed = &ring[ringPosition * numChannels];
+            float gain = fastExp2(gainDb / kDbPerLog2) * makeup;
+            float *out = output + produced * numChannels;
+            for (size_t ch = 0; ch < numChannels; ++ch) out[ch] = delayed[ch] * gain;
+            ++produced;
+        }
+        return produced;
+    }
+
+    // Pushes latency() frames of silence to release the delayed tail
+    size_t flush(float *output) {
+        vector<float> silence((delay > 0 ? delay : 1) * numChannels, 0.0f);
+        return process(silence.data(), delay, output);
+    }
+
+private:
+    static float timeCoefficient(double ms, uint32_t sampleRate) {
+        return ms <= 0 ? 0.0f : static_cast<float>(exp(-1000.0 / (ms * sampleRate)));
+    }
+
+    static inline float levelDb(float peak) {
+        return fastLog2(peak > 1e-10f ? peak : 1e-10f) * kDbPerLog2;
+    }
+
+    // Static curve: gain change in dB (<= 0) for an input level in dB
+    float curve(float x) const {
+        float over = x - threshold;
+        switch (settings.mode) {
+            case DYNAMICS_COMPRESSOR:
+                if (2 * over <= -knee) return 0;
+                if (2 * over < knee) {
+                    float k = over + knee / 2;
+                    return slope * k * k / (2 * knee);
+                }
+                return slope * over;
+            case DYNAMICS_EXPANDER: {
+                float g;
+                if (2 * over >= knee) return 0;
+                if (2 * over > -knee) {
+                    float k = over - knee / 2;
+                    g = -expandSlope * k * k / (2 * knee);
+                } else {
+                    g = expandSlope * over;
+                }
+                return g < range ? range : g;
+            }
+            case DYNAMICS_GATE:
+                return over < 0 ? range : 0;
+            default:
+                return over > 0 ? -over : 0;
+        }
+    }
+
+    // Compressor, expander and gate: branching attack/release smoothing of
+    // the gain reduction in dB. A compressor attacks when the reduction
+    // deepens; an expander or gate attacks when it opens, so zero crossings
+    // of a loud signal fall under the slow release instead of closing it.
+    float followerGain(const float *frame) {
+        float peak = 0;
+        for (size_t ch = 0; ch < numChannels; ++ch) {
+            float a = fabsf(frame[ch]);
+            if (a > peak) peak = a;
+        }
+        float target = curve(levelDb(peak));
+        bool attacking = settings.mode == DYNAMICS_COMPRESSOR ? target < envelopeDb : target > envelopeDb;
+        float coeff = attacking ? attackCoeff : releaseCoeff;
+        envelopeDb = target + coeff * (envelopeDb - target);
+        return envelopeDb;
+    }
+
+    // Brickwall limiter: the required reduction is held at its minimum over
+    // the lookahead window (sliding minimum), released smoothly, then
+    // averaged over the same window. The average at a peak's output time
+    // covers only values at or below what that peak needs, so the ceiling
+    // holds while the gain ramps instead of stepping.
+    float limiterGain(const float *frame) {
+        float required = curve(levelDb(truePeak.push(frame)));
+
+        // Monotonic deque of (value, index) for the sliding minimum
+        const size_t last = lookahead; // Deque capacity is lookahead + 1
+        if (minHead != minTail && minIndices[minHead] + lookahead <= frameCounter) {
+            minHead = minHead == last ? 0 : minHead + 1;
+        }
+        while (minTail != minHead) {
+            size_t back = minTail == 0 ? last : minTail - 1;
+            if (minValues[back] < required) break;
+            minTail = back;
+        }
+        minValues[minTail] = required;
+        minIndices[minTail] = frameCounter;
+        minTail = minTail == last ? 0 : minTail + 1;
+        float held = minValues[minHead];
+        ++frameCounter;
+
+        // Instant attack (the box filter already ramps), smooth release
+        heldDb = held < heldDb ? held : held + releaseCoeff * (heldDb - held);
+
+        boxSum += heldDb - boxWindow[boxSlot];
+        boxWindow[boxSlot] = heldDb;
+        if (++boxSlot == lookahead) {
+            // Re-sum once per window so rounding cannot accumulate
+            boxSlot = 0;
+            boxSum = 0;
+            for (size_t i = 0; i < lookahead; ++i) boxSum += boxWindow[i];
+        }
+        return boxSum * boxScale;
+    }
+
+    size_t numChannels;
+    DynamicsSettings settings;
+    bool limiter;
+    TruePeakDetector truePeak;
+    float attackCoeff;
+    float releaseCoeff;
+    float slope;        // 1/ratio - 1, compressor gain per dB over
+    float expandSlope;  // ratio - 1, expander gain per dB under
+    float threshold;
+    float knee;
+    float range;
+    float makeup;
+    float envelopeDb;
+    float heldDb;
+    float boxSum;
+    float boxScale;     // 1 / lookahead
+    size_t boxSlot;
+    vector<float> boxWindow;
+    vector<float> minValues;
+    vector<uint64_t> minIndices;
+    size_t minHead, minTail;
+    uint64_t frameCounter;
+    size_t lookahead;
+    size_t delay;
+    vector<float> ring;           // (delay + 1) interleaved frames
+    size_t ringPosition;
+    size_t primed;
+};
+
+#endif // AUDIOEDITOR_DYNAMICS_H
@@ -0,0 +1,300 @@
+#ifndef AUDIOEDITOR_EFFECTCHAIN_H
+#define AUDIOEDITOR_EFFECTCHAIN_H
+
+#include <cstdint>
+#include <cstdlib>
+#include <cstring>
+#include <string>
+#include <vector>
+
+// Fused effect chains.
+//
+// Every streaming effect in the library is a push engine (process, flush,
+// maxOutputFrames), so a chain is run block by block: each block read from
+// the file goes through all stages while it is still in cache, and only the
+// final result is converted and written. Stages that keep the length and
+// work sample-wise (gain, biquads) run in place on the block; consecutive
+// gains are folded into one. Length-changing stages (resampling, stretching,
+// reverb tails) are driven to their exact output length, flushing each
+// stage once everything upstream of it is finished.
+
+// "name:arg:arg" as passed from Java, split into the name and its arguments.
+// rest is everything after the name as given, for arguments that may
+// themselves contain ':' (a reverb's impulse response path, say C:\ir.wav)
+struct ChainStep {
+    string name;
+    vector<string> args;
+    string rest;
+};
+
+static ChainStep parseChainStep(const string &spec) {
+    ChainStep step;
+    size_t colon = spec.find(':');
+    step.name = spec.substr(0, colon);
+    for (size_t i = 0; i < step.name.size(); ++i) step.name[i] = static_cast<char>(tolower(step.name[i]));
+    if (step.name.empty()) {
+        throw invalid_argument("Empty effect chain step.");
+    }
+    if (colon == string::npos) return step;
+
+    step.rest = spec.substr(colon + 1);
+    size_t start = 0;
+    while (true) {
+        size_t end = step.rest.find(':', start);
+        step.args.push_back(step.rest.substr(start, end == string::npos ? string::npos : end - start));
+        if (end == string::npos) break;
+        start = end + 1;
+    }
+    return step;
+}
+
+// Splits a reverb step's "<1-3 or IR path>[:wet]": the wet level is taken
+// off the end only when it is a number, so the path keeps any ':' in it
+static void splitReverbStep(const ChainStep &step, string &reverb, string &wet) {
+    reverb = step.rest;
+    wet.clear();
+    size_t colon = step.rest.rfind(':');
+    if (colon == string::npos || colon == 0) return;
+    string last = step.rest.substr(colon + 1);
+    if (last.empty()) {
+        reverb = step.rest.substr(0, colon);
+        return;
+    }
+    char *end = NULL;
+    strtod(last.c_str(), &end);
+    if (end != NULL && *end == '\0') {
+        reverb = step.rest.substr(0, colon);
+        wet = last;
+    }
+}
+
+class ChainStage {
+public:
+    virtual ~ChainStage() {}
+
+    // Stages that keep length and can work on the block where it is
+    virtual bool inPlace() const { return false; }
+    virtual void processInPlace(float *, size_t) {}
+
+    virtual size_t maxOutputFrames(size_t inputFrames) const { return inputFrames; }
+    virtual uint64_t outputLength(uint64_t inputFrames) const { return inputFrames; }
+    virtual size_t process(const float *, size_t, float *) { return 0; }
+    virtual size_t flush(float *) { return 0; }
+};
+
+class GainStage : public ChainStage {
+public:
+    GainStage(size_t channels, float gain) : numChannels(channels), gain(gain) {}
+
+    bool inPlace() const { return true; }
+
+    void processInPlace(float *data, size_t frames) {
+        for (size_t i = 0, n = frames * numChannels; i < n; ++i) data[i] *= gain;
+    }
+
+    float value() const { return gain; }
+    void fold(float other) { gain *= other; }
+
+private:
+    size_t numChannels;
+    float gain;
+};
+
+class FilterStage : public ChainStage {
+public:
+    explicit FilterStage(const BiquadCascade &filter) : filter(filter) {}
+
+    bool inPlace() const { return true; }
+    void processInPlace(float *data, size_t frames) { filter.process(data, frames); }
+
+private:
+    BiquadCascade filter;
+};
+
+// Adapts any push engine; its output length is ceil(input * ratio) + extra,
+// or round(input * ratio) + extra when rounded is set
+template <class Engine>
+class EngineStage : public ChainStage {
+public:
+    EngineStage(Engine *engine, double ratio = 1.0, uint64_t extra = 0, bool rounded = false)
+        : engine(engine), ratio(ratio), extra(extra), rounded(rounded) {}
+
+    ~EngineStage() { delete engine; }
+
+    size_t maxOutputFrames(size_t inputFrames) const { return engine->maxOutputFrames(inputFrames); }
+
+    uint64_t outputLength(uint64_t inputFrames) const {
+        if (ratio == 1.0) return inputFrames + extra;
+        double scaled = inputFrames * ratio;
+        return static_cast<uint64_t>(rounded ? llround(scaled) : ceil(scaled - 1e-9)) + extra;
+    }
+
+    size_t process(const float *input, size_t frames, float *output) {
+        return engine->process(input, frames, output);
+    }
+
+    size_t flush(float *output) { return engine->flush(output); }
+
+private:
+    EngineStage(const EngineStage &);
+    EngineStage &operator=(const EngineStage &);
+
+    Engine *engine;
+    double ratio;
+    uint64_t extra;
+    bool rounded;
+};
+
+// Receives the chain's output
+class ChainSink {
+public:
+    virtual ~ChainSink() {}
+    virtual void consume(const float *data, size_t frames) = 0;
+};
+
+class EffectChain {
+public:
+    EffectChain(size_t channels) : numChannels(channels) {}
+
+    ~EffectChain() {
+        for (size_t i = 0; i < stages.size(); ++i) delete stages[i];
+    }
+
+    // Takes ownership; a gain directly after another gain is folded into it
+    void add(ChainStage *stage) {
+        GainStage *gain = dynamic_cast<GainStage *>(stage);
+        GainStage *previous = stages.empty() ? NULL : dynamic_cast<GainStage *>(stages.back());
+        if (gain != NULL && previous != NULL) {
+            previous->fold(gain->value());
+            delete stage;
+            return;
+        }
+        stages.push_back(stage);
+    }
+
+    size_t size() const { return stages.size(); }
+
+    uint64_t outputLength(uint64_t inputFrames) const {
+        for (size_t i = 0; i < stages.size(); ++i) inputFrames = stages[i]->outputLength(inputFrames);
+        return inputFrames;
+    }
+
+    // Streams the whole file through the chain into sink
+    void run(WavReader &reader, ChainSink &sink) {
+        const size_t count = stages.size();
+        PooledBuffer<int16_t> pcm(kStreamBlockFrames * numChannels);
+        PooledBuffer<float> block(kStreamBlockFrames * numChannels);
+
+        // Output buffer and exact output length of every stage
+        vector<PooledBuffer<float> > buffers(count);
+        vector<uint64_t> expected(count);
+        vector<uint64_t> emitted(count, 0);
+        size_t capacity = kStreamBlockFrames;
+        uint64_t length = reader.totalFrames();
+        for (size_t i = 0; i < count; ++i) {
+            if (!stages[i]->inPlace()) {
+                capacity = stages[i]->maxOutputFrames(capacity);
+                buffers[i].resize(capacity * numChannels);
+            }
+            length = stages[i]->outputLength(length);
+            expected[i] = length;
+        }
+
+        size_t frames;
+        while ((frames = reader.read(pcm.data(), kStreamBlockFrames)) > 0) {
+            kernels().int16ToFloat(pcm.data(), block.data(), frames * numChannels);
+            push(0, block.data(), frames, buffers, expected, emitted, sink);
+        }
+
+        // Flush from the first unfinished stage onwards
+        for (size_t i = 0; i < count; ++i) {
+            while (emitted[i] < expected[i]) {
+                float *out = buffers[i].empty() ? block.data() : buffers[i].data();
+                size_t produced = stages[i]->inPlace() ? 0 : stages[i]->flush(out);
+                if (produced == 0) {
+                    // Nothing left inside the stage: pad with silence
+                    size_t room = buffers[i].empty() ? kStreamBlockFrames : buffers[i].size() / numChannels;
+                    produced = static_cast<size_t>(min<uint64_t>(room, expected[i] - emitted[i]));
+                    fill(out, out + produced * numChannels, 0.0f);
+                }
+                produced = static_cast<size_t>(min<uint64_t>(produced, expected[i] - emitted[i]));
+                emitted[i] += produced;
+                push(i + 1, out, produced, buffers, expected, emitted, sink);
+            }
+        }
+    }
+
+private:
+    EffectChain(const EffectChain &);
+    EffectChain &operator=(const EffectChain &);
+
+    // Runs frames of stage-from input through the rest of the chain
+    void push(size_t from, float *data, size_t frames, vector<PooledBuffer<float> > &buffers,
+              const vector<uint64_t> &expected, vector<uint64_t> &emitted, ChainSink &sink) {
+        for (size_t i = from; i < stages.size() && frames > 0; ++i) {
+            if (stages[i]->inPlace()) {
+                stages[i]->processInPlace(data, frames);
+            } else {
+                size_t produced = stages[i]->process(data, frames, buffers[i].data());
+                data = buffers[i].data();
+                frames = produced;
+            }
+            frames = static_cast<size_t>(min<uint64_t>(frames, expected[i] - emitted[i]));
+            emitted[i] += frames;
+        }
+        if (frames > 0) sink.consume(data, frames);
+    }
+
+    size_t numChannels;
+    vector<ChainStage *> stages;
+};
+
+// Sinks for the write pass and the analysis passes of global ops
+
+class WriterSink : public ChainSink {
+public:
+    WriterSink(WavWriter &writer, size_t channels) : writer(writer), numChannels(channels) {}
+
+    void consume(const float *data, size_t frames) {
+        if (pcm.size() < frames * numChannels) pcm.resize(frames * numChannels);
+        kernels().floatToInt16(data, pcm.data(), frames * numChannels);
+        writer.write(pcm.data(), frames);
+    }
+
+private:
+    WavWriter &writer;
+    size_t numChannels;
+    PooledBuffer<int16_t> pcm;
+};
+
+class PeakSink : public ChainSink {
+public:
+    explicit PeakSink(size_t channels) : numChannels(channels), maxPeak(0) {}
+
+    void consume(const float *data, size_t frames) {
+        for (size_t i = 0, n = frames * numChannels; i < n; ++i) {
+            float a = fabsf(data[i]);
+            if (a > maxPeak) maxPeak = a;
+        }
+    }
+
+    float peak() const { return maxPeak; }
+
+private:
+    size_t numChannels;
+    float maxPeak;
+};
+
+class LoudnessSink : public ChainSink {
+public:
+    LoudnessSink(size_t channels, uint32_t sampleRate) : meter(channels, sampleRate) {}
+
+    void consume(const float *data, size_t frames) { meter.process(data, frames); }
+
+    LoudnessStats finish() { return meter.finish(); }
+
+private:
+    LoudnessMeter meter;
+};
+
+#endif // AUDIOEDITOR_EFFECTCHAIN_H
@@ -0,0 +1,262 @@
+#ifndef AUDIOEDITOR_FFT_H
+#define AUDIOEDITOR_FFT_H
+
+#include <cmath>
+#include <cstddef>
+#include <cstdint>
+#include <stdexcept>
+#include <vector>
+
+#ifdef __SSE2__
+#include <emmintrin.h>
+#endif
+
+// Radix-2 FFTs with the twiddle factors and bit-reversal permutation
+// computed once per size. A plain struct is used instead of std::complex so
+// the butterflies compile to straight multiply/adds without the NaN/Inf
+// recovery calls std::complex multiplication brings in.
+
+struct Complex {
+    float re, im;
+};
+
+static inline bool isPowerOfTwo(size_t n) {
+    return n != 0 && (n & (n - 1)) == 0;
+}
+
+static inline size_t nextPowerOfTwo(size_t n) {
+    size_t p = 1;
+    while (p < n) p <<= 1;
+    return p;
+}
+
+class FFT {
+public:
+    explicit FFT(size_t size) : n(size) {
+        if (!isPowerOfTwo(n)) {
+            throw invalid_argument("FFT size must be a power of two.");
+        }
+        // Stage with half-length h reads its h twiddles from offset h - 1,
+        // so every butterfly pass walks the table contiguously
+        twiddles.resize(n > 1 ? n - 1 : 1);
+        for (size_t h = 1; h < n; h <<= 1) {
+            for (size_t k = 0; k < h; ++k) {
+                double angle = -M_PI * k / h;
+                twiddles[h - 1 + k].re = static_cast<float>(cos(angle));
+                twiddles[h - 1 + k].im = static_cast<float>(sin(angle));
+            }
+        }
+        // Same table laid out for the SIMD butterflies: (re, re) and (-im, im) per twiddle
+        twiddleRe.resize(2 * twiddles.size());
+        twiddleIm.resize(2 * twiddles.size());
+        for (size_t k = 0; k < twiddles.size(); ++k) {
+            twiddleRe[2 * k] = twiddleRe[2 * k + 1] = twiddles[k].re;
+            twiddleIm[2 * k] = -twiddles[k].im;
+            twiddleIm[2 * k + 1] = twiddles[k].im;
+        }
+        bitReverse.resize(n);
+        size_t bits = 0;
+        while ((static_cast<size_t>(1) << bits) < n) ++bits;
+        for (size_t i = 0; i < n; ++i) {
+            size_t r = 0;
+            for (size_t b = 0; b < bits; ++b) {
+                if (i & (static_cast<size_t>(1) << b)) r |= static_cast<size_t>(1) << (bits - 1 - b);
+            }
+            bitReverse[i] = static_cast<uint32_t>(r);
+        }
+    }
+
+    size_t size() const { return n; }
+
+    // Unnormalised forward transform, in place
+    void forward(Complex *data) const { transform(data, false); }
+
+    // Inverse transform scaled by 1/n, in place
+    void inverse(Complex *data) const {
+        transform(data, true);
+        const float scale = 1.0f / n;
+        for (size_t i = 0; i < n; ++i) {
+            data[i].re *= scale;
+            data[i].im *= scale;
+        }
+    }
+
+private:
+    void transform(Complex *data, bool inverse) const {
+        for (size_t i = 0; i < n; ++i) {
+            size_t j = bitReverse[i];
+            if (j > i) {
+                Complex t = data[i];
+                data[i] = data[j];
+                data[j] = t;
+            }
+        }
+        const float sign = inverse ? -1.0f : 1.0f;
+        size_t len = 2;
+        if (n >= 4) {
+            // The first two stages only use the twiddles 1 and -i (forward) /
+            // +i (inverse), so they are fused into one radix-4 pass
+            for (size_t start = 0; start < n; start += 4) {
+                Complex *a = data + start;
+                float s0r = a[0].re + a[1].re, s0i = a[0].im + a[1].im;
+                float d0r = a[0].re - a[1].re, d0i = a[0].im - a[1].im;
+                float s1r = a[2].re + a[3].re, s1i = a[2].im + a[3].im;
+                float d1r = a[2].re - a[3].re, d1i = a[2].im - a[3].im;
+                // d1 * (-i * sign)
+                float rr = sign * d1i, ri = -sign * d1r;
+                a[0].re = s0r + s1r; a[0].im = s0i + s1i;
+                a[2].re = s0r - s1r; a[2].im = s0i - s1i;
+                a[1].re = d0r + rr; a[1].im = d0i + ri;
+                a[3].re = d0r - rr; a[3].im = d0i - ri;
+            }
+            len = 8;
+        }
+#ifdef __SSE2__
+        // Two butterflies per register; SSE2 is part of the x86-64 baseline
+        const __m128 imagSign = _mm_set1_ps(sign);
+        for (; len <= n; len <<= 1) {
+            size_t half = len / 2;
+            const float *stageRe = &twiddleRe[2 * (half - 1)];
+            const float *stageIm = &twiddleIm[2 * (half - 1)];
+            for (size_t start = 0; start < n; start += len) {
+                float *a = reinterpret_cast<float *>(data + start);
+                float *b = a + 2 * half;
+                for (size_t j = 0; j < 2 * half; j += 4) {
+                    __m128 bv = _mm_loadu_ps(b + j);
+                    __m128 swapped = _mm_shuffle_ps(bv, bv, _MM_SHUFFLE(2, 3, 0, 1));
+                    __m128 wr = _mm_loadu_ps(stageRe + j);
+                    __m128 wi = _mm_mul_ps(_mm_loadu_ps(stageIm + j), imagSign);
+                    __m128 v = _mm_add_ps(_mm_mul_ps(bv, wr), _mm_mul_ps(swapped, wi));
+                    __m128 av = _mm_loadu_ps(a + j);
+                    _mm_storeu_ps(a + j, _mm_add_ps(av, v));
+                    _mm_storeu_ps(b + j, _mm_sub_ps(av, v));
+                }
+            }
+        }
+#endif
+        for (; len <= n; len <<= 1) {
+            size_t half = len / 2;
+            const Complex *stage = &twiddles[half - 1];
+            for (size_t start = 0; start < n; start += len) {
+                Complex *a = data + start;
+                Complex *b = a + half;
+                for (size_t j = 0; j < half; ++j) {
+                    const Complex &w = stage[j];
+                    float wi = sign * w.im;
+                    float vr = b[j].re * w.re - b[j].im * wi;
+                    float vi = b[j].re * wi + b[j].im * w.re;
+                    b[j].re = a[j].re - vr;
+                    b[j].im = a[j].im - vi;
+                    a[j].re += vr;
+                    a[j].im += vi;
+                }
+            }
+        }
+    }
+
+    size_t n;
+    vector<Complex> twiddles;     // Per-stage e^(-pi*i*k/h), k < h
+    vector<float> twiddleRe;
+    vector<float> twiddleIm;
+    vector<uint32_t> bitReverse;
+};
+
+// acc[k] += a[k] * b[k] over n bins, the inner loop of FFT convolution
+static inline void complexMultiplyAccumulate(Complex *acc, const Complex *a, const Complex *b, size_t n) {
+    size_t k = 0;
+#ifdef __SSE2__
+    const __m128 sign = _mm_setr_ps(-1.0f, 1.0f, -1.0f, 1.0f);
+    for (; k + 2 <= n; k += 2) {
+        __m128 av = _mm_loadu_ps(reinterpret_cast<const float *>(a + k));
+        __m128 bv = _mm_loadu_ps(reinterpret_cast<const float *>(b + k));
+        __m128 bRe = _mm_shuffle_ps(bv, bv, _MM_SHUFFLE(2, 2, 0, 0));
+        __m128 bIm = _mm_shuffle_ps(bv, bv, _MM_SHUFFLE(3, 3, 1, 1));
+        __m128 aSwapped = _mm_shuffle_ps(av, av, _MM_SHUFFLE(2, 3, 0, 1));
+        __m128 product = _mm_add_ps(_mm_mul_ps(av, bRe), _mm_mul_ps(_mm_mul_ps(aSwapped, bIm), sign));
+        float *out = reinterpret_cast<float *>(acc + k);
+        _mm_storeu_ps(out, _mm_add_ps(_mm_loadu_ps(out), product));
+    }
+#endif
+    for (; k < n; ++k) {
+        acc[k].re += a[k].re * b[k].re - a[k].im * b[k].im;
+        acc[k].im += a[k].re * b[k].im + a[k].im * b[k].re;
+    }
+}
+
+// Real-input FFT of size n computed with one complex FFT of size n/2.
+// The spectrum holds the n/2 + 1 non-negative frequency bins.
+class RealFFT {
+public:
+    explicit RealFFT(size_t size) : n(size), half(size / 2), work(size / 2) {
+        if (!isPowerOfTwo(n) || n < 4) {
+            throw invalid_argument("Real FFT size must be a power of two of at least 4.");
+        }
+        twiddles.resize(n / 2);
+        for (size_t k = 0; k < n / 2; ++k) {
+            double angle = -2 * M_PI * k / n;
+            twiddles[k].re = static_cast<float>(cos(angle));
+            twiddles[k].im = static_cast<float>(sin(angle));
+        }
+    }
+
+    size_t size() const { return n; }
+    size_t bins() const { return n / 2 + 1; }
+
+    void forward(const float *input, Complex *spectrum) {
+        const size_t m = n / 2;
+        for (size_t k = 0; k < m; ++k) {
+            work[k].re = input[2 * k];
+            work[k].im = input[2 * k + 1];
+        }
+        half.forward(work.data());
+
+        spectrum[0].re = work[0].re + work[0].im;
+        spectrum[0].im = 0;
+        spectrum[m].re = work[0].re - work[0].im;
+        spectrum[m].im = 0;
+        for (size_t k = 1; k < m; ++k) {
+            const Complex &z = work[k];
+            const Complex &zc = work[m - k];
+            // Split into the spectra of the even and odd samples
+            float evenRe = 0.5f * (z.re + zc.re);
+            float evenIm = 0.5f * (z.im - zc.im);
+            float oddRe = 0.5f * (z.im + zc.im);
+            float oddIm = -0.5f * (z.re - zc.re);
+            const Complex &w = twiddles[k];
+            spectrum[k].re = evenRe + oddRe * w.re - oddIm * w.im;
+            spectrum[k].im = evenIm + oddRe * w.im + oddIm * w.re;
+        }
+    }
+
+    // Inverse of forward(), including the 1/n scale
+    void inverse(const Complex *spectrum, float *output) {
+        const size_t m = n / 2;
+        for (size_t k = 0; k < m; ++k) {
+            const Complex &x = spectrum[k];
+            const Complex &xc = spectrum[m - k];
+            float evenRe = 0.5f * (x.re + xc.re);
+            float evenIm = 0.5f * (x.im - xc.im);
+            float diffRe = 0.5f * (x.re - xc.re);
+            float diffIm = 0.5f * (x.im + xc.im);
+            // odd = diff * conj(w)
+            const Complex &w = twiddles[k];
+            float oddRe = diffRe * w.re + diffIm * w.im;
+            float oddIm = diffIm * w.re - diffRe * w.im;
+            work[k].re = evenRe - oddIm;
+            work[k].im = evenIm + oddRe;
+        }
+        half.inverse(work.data());
+        for (size_t k = 0; k < m; ++k) {
+            output[2 * k] = work[k].re;
+            output[2 * k + 1] = work[k].im;
+        }
+    }
+
+private:
+    size_t n;
+    FFT half;
+    vector<Complex> work;
+    vector<Complex> twiddles; // e^(-2*pi*i*k/n), k < n/2
+};
+
+#endif // AUDIOEDITOR_FFT_H
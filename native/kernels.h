@@ -0,0 +1,655 @@
+#ifndef AUDIOEDITOR_KERNELS_H
+#define AUDIOEDITOR_KERNELS_H
+
+#include <cstddef>
+#include <cstdint>
+#include <cmath>
+#include <cstdlib>
+#include <cstring>
+
+#if defined(__GNUC__) && (defined(__x86_64__) || defined(__i386__))
+#define AE_KERNELS_X86 1
+#include <immintrin.h>
+#endif
+
+#if defined(__aarch64__) && defined(__ARM_NEON)
+#define AE_KERNELS_NEON 1
+#include <arm_neon.h>
+#endif
+
+// Sample kernels used by the per-sample loops in main.h.
+//
+// Every kernel has a scalar reference implementation and, where the target
+// supports it, SSE2 / AVX2 / AVX-512 (x86) or NEON (ARM) variants. The
+// variant set is chosen once when the library is loaded, based on the CPU we
+// are running on, so a single binary runs everywhere and still uses the
+// widest vectors available.
+//
+// All kernels work in float and round to nearest (the default FP rounding
+// mode) after clamping to the int16 range, so every variant produces
+// bit-identical output to the scalar reference. The one exception is dot,
+// whose vector variants sum in a different order and may differ in the last
+// few bits.
+
+struct SampleKernels {
+    // samples[i] = clamp(samples[i] * gain)
+    void (*gain)(int16_t *samples, size_t count, float gain);
+    // dst[i] = clamp(dst[i] + src[i] * scale)
+    void (*mixAccumulate)(int16_t *dst, const int16_t *src, size_t count, float scale);
+    // dst[i] = clamp(src[i] * 32768), src is normalised to [-1, 1)
+    void (*floatToInt16)(const float *src, int16_t *dst, size_t count);
+    // dst[i] = src[i] / 32768
+    void (*int16ToFloat)(const int16_t *src, float *dst, size_t count);
+    // max |samples[i]|, returned as int32 so that -32768 reports 32768
+    int32_t (*peak)(const int16_t *samples, size_t count);
+    // sum(samples[i]^2), exact in integers, for RMS and silence scans
+    uint64_t (*sumSquares)(const int16_t *samples, size_t count);
+    // sum(a[i] * b[i]), used by the FIR and resampler inner loops
+    float (*dot)(const float *a, const float *b, size_t count);
+    const char *name;
+};
+
+static const float kInt16Max = 32767.0f;
+static const float kInt16Min = -32768.0f;
+
+// ---------------------------------------------------------------------------
+// Scalar reference
+// ---------------------------------------------------------------------------
+
+static inline int16_t clampToInt16(float value) {
+    if (value > kInt16Max) value = kInt16Max;
+    if (value < kInt16Min) value = kInt16Min;
+    return static_cast<int16_t>(lrintf(value));
+}
+
+static void gainScalar(int16_t *samples, size_t count, float gain) {
+    for (size_t i = 0; i < count; ++i) {
+        samples[i] = clampToInt16(samples[i] * gain);
+    }
+}
+
+static void mixAccumulateScalar(int16_t *dst, const int16_t *src, size_t count, float scale) {
+    for (size_t i = 0; i < count; ++i) {
+        dst[i] = clampToInt16(dst[i] + src[i] * scale);
+    }
+}
+
+static void floatToInt16Scalar(const float *src, int16_t *dst, size_t count) {
+    for (size_t i = 0; i < count; ++i) {
+        dst[i] = clampToInt16(src[i] * 32768.0f);
+    }
+}
+
+static void int16ToFloatScalar(const int16_t *src, float *dst, size_t count) {
+    const float scale = 1.0f / 32768.0f;
+    for (size_t i = 0; i < count; ++i) {
+        dst[i] = src[i] * scale;
+    }
+}
+
+static int32_t peakScalar(const int16_t *samples, size_t count) {
+    int32_t maxValue = 0;
+    int32_t minValue = 0;
+    for (size_t i = 0; i < count; ++i) {
+        if (samples[i] > maxValue) maxValue = samples[i];
+        if (samples[i] < minValue) minValue = samples[i];
+    }
+    return maxValue > -minValue ? maxValue : -minValue;
+}
+
+static uint64_t sumSquaresScalar(const int16_t *samples, size_t count) {
+    uint64_t sum = 0;
+    for (size_t i = 0; i < count; ++i) {
+        sum += static_cast<uint64_t>(static_cast<int32_t>(samples[i]) * samples[i]);
+    }
+    return sum;
+}
+
+static float dotScalar(const float *a, const float *b, size_t count) {
+    float sum = 0.0f;
+    for (size_t i = 0; i < count; ++i) {
+        sum += a[i] * b[i];
+    }
+    return sum;
+}
+
+static const SampleKernels kScalarKernels = {
+    gainScalar, mixAccumulateScalar, floatToInt16Scalar, int16ToFloatScalar, peakScalar, sumSquaresScalar, dotScalar,
+    "scalar"
+};
+
+#ifdef AE_KERNELS_X86
+
+// ---------------------------------------------------------------------------
+// SSE2 (baseline on x86-64)
+// ---------------------------------------------------------------------------
+
+__attribute__((target("sse2")))
+static inline __m128 clampPs128(__m128 v) {
+    return _mm_min_ps(_mm_max_ps(v, _mm_set1_ps(kInt16Min)), _mm_set1_ps(kInt16Max));
+}
+
+// Sign-extend 8 int16 lanes into two float vectors (SSE2 has no cvtepi16).
+__attribute__((target("sse2")))
+static inline void widenSse2(__m128i v, __m128 &lo, __m128 &hi) {
+    lo = _mm_cvtepi32_ps(_mm_srai_epi32(_mm_unpacklo_epi16(v, v), 16));
+    hi = _mm_cvtepi32_ps(_mm_srai_epi32(_mm_unpackhi_epi16(v, v), 16));
+}
+
+__attribute__((target("sse2")))
+static inline __m128i narrowSse2(__m128 lo, __m128 hi) {
+    return _mm_packs_epi32(_mm_cvtps_epi32(clampPs128(lo)), _mm_cvtps_epi32(clampPs128(hi)));
+}
+
+__attribute__((target("sse2")))
+static void gainSse2(int16_t *samples, size_t count, float gain) {
+    const __m128 g = _mm_set1_ps(gain);
+    size_t i = 0;
+    for (; i + 8 <= count; i += 8) {
+        __m128 lo, hi;
+        widenSse2(_mm_loadu_si128(reinterpret_cast<const __m128i *>(samples + i)), lo, hi);
+        _mm_storeu_si128(reinterpret_cast<__m128i *>(samples + i), narrowSse2(_mm_mul_ps(lo, g), _mm_mul_ps(hi, g)));
+    }
+    gainScalar(samples + i, count - i, gain);
+}
+
+__attribute__((target("sse2")))
+static void mixAccumulateSse2(int16_t *dst, const int16_t *src, size_t count, float scale) {
+    const __m128 s = _mm_set1_ps(scale);
+    size_t i = 0;
+    for (; i + 8 <= count; i += 8) {
+        __m128 dLo, dHi, sLo, sHi;
+        widenSse2(_mm_loadu_si128(reinterpret_cast<const __m128i *>(dst + i)), dLo, dHi);
+        widenSse2(_mm_loadu_si128(reinterpret_cast<const __m128i *>(src + i)), sLo, sHi);
+        __m128 lo = _mm_add_ps(dLo, _mm_mul_ps(sLo, s));
+        __m128 hi = _mm_add_ps(dHi, _mm_mul_ps(sHi, s));
+        _mm_storeu_si128(reinterpret_cast<__m128i *>(dst + i), narrowSse2(lo, hi));
+    }
+    mixAccumulateScalar(dst + i, src + i, count - i, scale);
+}
+
+__attribute__((target("sse2")))
+static void floatToInt16Sse2(const float *src, int16_t *dst, size_t count) {
+    const __m128 s = _mm_set1_ps(32768.0f);
+    size_t i = 0;
+    for (; i + 8 <= count; i += 8) {
+        __m128 lo = _mm_mul_ps(_mm_loadu_ps(src + i), s);
+        __m128 hi = _mm_mul_ps(_mm_loadu_ps(src + i + 4), s);
+        _mm_storeu_si128(reinterpret_cast<__m128i *>(dst + i), narrowSse2(lo, hi));
+    }
+    floatToInt16Scalar(src + i, dst + i, count - i);
+}
+
+__attribute__((target("sse2")))
+static void int16ToFloatSse2(const int16_t *src, float *dst, size_t count) {
+    const __m128 s = _mm_set1_ps(1.0f / 32768.0f);
+    size_t i = 0;
+    for (; i + 8 <= count; i += 8) {
+        __m128 lo, hi;
+        widenSse2(_mm_loadu_si128(reinterpret_cast<const __m128i *>(src + i)), lo, hi);
+        _mm_storeu_ps(dst + i, _mm_mul_ps(lo, s));
+        _mm_storeu_ps(dst + i + 4, _mm_mul_ps(hi, s));
+    }
+    int16ToFloatScalar(src + i, dst + i, count - i);
+}
+
+__attribute__((target("sse2")))
+static int32_t peakSse2(const int16_t *samples, size_t count) {
+    __m128i maxV = _mm_setzero_si128();
+    __m128i minV = _mm_setzero_si128();
+    size_t i = 0;
+    for (; i + 8 <= count; i += 8) {
+        __m128i v = _mm_loadu_si128(reinterpret_cast<const __m128i *>(samples + i));
+        maxV = _mm_max_epi16(maxV, v);
+        minV = _mm_min_epi16(minV, v);
+    }
+    int16_t maxLanes[8], minLanes[8];
+    _mm_storeu_si128(reinterpret_cast<__m128i *>(maxLanes), maxV);
+    _mm_storeu_si128(reinterpret_cast<__m128i *>(minLanes), minV);
+    int32_t result = peakScalar(samples + i, count - i);
+    for (int lane = 0; lane < 8; ++lane) {
+        if (maxLanes[lane] > result) result = maxLanes[lane];
+        if (-static_cast<int32_t>(minLanes[lane]) > result) result = -static_cast<int32_t>(minLanes[lane]);
+    }
+    return result;
+}
+
+// madd adds two squares per int32 lane; at most 2^31, so the lanes are
+// read as unsigned and widened into 64-bit accumulators
+__attribute__((target("sse2")))
+static uint64_t sumSquaresSse2(const int16_t *samples, size_t count) {
+    const __m128i zero = _mm_setzero_si128();
+    __m128i acc = _mm_setzero_si128();
+    size_t i = 0;
+    for (; i + 8 <= count; i += 8) {
+        __m128i v = _mm_loadu_si128(reinterpret_cast<const __m128i *>(samples + i));
+        __m128i squares = _mm_madd_epi16(v, v);
+        acc = _mm_add_epi64(acc, _mm_unpacklo_epi32(squares, zero));
+        acc = _mm_add_epi64(acc, _mm_unpackhi_epi32(squares, zero));
+    }
+    uint64_t lanes[2];
+    _mm_storeu_si128(reinterpret_cast<__m128i *>(lanes), acc);
+    return lanes[0] + lanes[1] + sumSquaresScalar(samples + i, count - i);
+}
+
+__attribute__((target("sse2")))
+static inline float horizontalSum128(__m128 v) {
+    __m128 shuf = _mm_shuffle_ps(v, v, _MM_SHUFFLE(2, 3, 0, 1));
+    __m128 sums = _mm_add_ps(v, shuf);
+    shuf = _mm_movehl_ps(shuf, sums);
+    return _mm_cvtss_f32(_mm_add_ss(sums, shuf));
+}
+
+__attribute__((target("sse2")))
+static float dotSse2(const float *a, const float *b, size_t count) {
+    __m128 acc0 = _mm_setzero_ps();
+    __m128 acc1 = _mm_setzero_ps();
+    size_t i = 0;
+    for (; i + 8 <= count; i += 8) {
+        acc0 = _mm_add_ps(acc0, _mm_mul_ps(_mm_loadu_ps(a + i), _mm_loadu_ps(b + i)));
+        acc1 = _mm_add_ps(acc1, _mm_mul_ps(_mm_loadu_ps(a + i + 4), _mm_loadu_ps(b + i + 4)));
+    }
+    return horizontalSum128(_mm_add_ps(acc0, acc1)) + dotScalar(a + i, b + i, count - i);
+}
+
+static const SampleKernels kSse2Kernels = {
+    gainSse2, mixAccumulateSse2, floatToInt16Sse2, int16ToFloatSse2, peakSse2, sumSquaresSse2, dotSse2, "sse2"
+};
+
+// ---------------------------------------------------------------------------
+// AVX2
+// ---------------------------------------------------------------------------
+
+__attribute__((target("avx2")))
+static inline __m256 clampPs256(__m256 v) {
+    return _mm256_min_ps(_mm256_max_ps(v, _mm256_set1_ps(kInt16Min)), _mm256_set1_ps(kInt16Max));
+}
+
+__attribute__((target("avx2")))
+static inline __m256 loadWidenAvx2(const int16_t *p) {
+    return _mm256_cvtepi32_ps(_mm256_cvtepi16_epi32(_mm_loadu_si128(reinterpret_cast<const __m128i *>(p))));
+}
+
+// packs_epi32 works per 128-bit lane; permute restores sample order.
+__attribute__((target("avx2")))
+static inline void narrowStoreAvx2(int16_t *p, __m256 lo, __m256 hi) {
+    __m256i packed = _mm256_packs_epi32(_mm256_cvtps_epi32(clampPs256(lo)), _mm256_cvtps_epi32(clampPs256(hi)));
+    _mm256_storeu_si256(reinterpret_cast<__m256i *>(p), _mm256_permute4x64_epi64(packed, 0xD8));
+}
+
+__attribute__((target("avx2")))
+static void gainAvx2(int16_t *samples, size_t count, float gain) {
+    const __m256 g = _mm256_set1_ps(gain);
+    size_t i = 0;
+    for (; i + 16 <= count; i += 16) {
+        __m256 lo = _mm256_mul_ps(loadWidenAvx2(samples + i), g);
+        __m256 hi = _mm256_mul_ps(loadWidenAvx2(samples + i + 8), g);
+        narrowStoreAvx2(samples + i, lo, hi);
+    }
+    gainSse2(samples + i, count - i, gain);
+}
+
+__attribute__((target("avx2")))
+static void mixAccumulateAvx2(int16_t *dst, const int16_t *src, size_t count, float scale) {
+    const __m256 s = _mm256_set1_ps(scale);
+    size_t i = 0;
+    for (; i + 16 <= count; i += 16) {
+        __m256 lo = _mm256_add_ps(loadWidenAvx2(dst + i), _mm256_mul_ps(loadWidenAvx2(src + i), s));
+        __m256 hi = _mm256_add_ps(loadWidenAvx2(dst + i + 8), _mm256_mul_ps(loadWidenAvx2(src + i + 8), s));
+        narrowStoreAvx2(dst + i, lo, hi);
+    }
+    mixAccumulateSse2(dst + i, src + i, count - i, scale);
+}
+
+__attribute__((target("avx2")))
+static void floatToInt16Avx2(const float *src, int16_t *dst, size_t count) {
+    const __m256 s = _mm256_set1_ps(32768.0f);
+    size_t i = 0;
+    for (; i + 16 <= count; i += 16) {
+        narrowStoreAvx2(dst + i, _mm256_mul_ps(_mm256_loadu_ps(src + i), s), _mm256_mul_ps(_mm256_loadu_ps(src + i + 8), s));
+    }
+    floatToInt16Sse2(src + i, dst + i, count - i);
+}
+
+__attribute__((target("avx2")))
+static void int16ToFloatAvx2(const int16_t *src, float *dst, size_t count) {
+    const __m256 s = _mm256_set1_ps(1.0f / 32768.0f);
+    size_t i = 0;
+    for (; i + 8 <= count; i += 8) {
+        _mm256_storeu_ps(dst + i, _mm256_mul_ps(loadWidenAvx2(src + i), s));
+    }
+    int16ToFloatScalar(src + i, dst + i, count - i);
+}
+
+__attribute__((target("avx2")))
+static int32_t peakAvx2(const int16_t *samples, size_t count) {
+    __m256i maxV = _mm256_setzero_si256();
+    __m256i minV = _mm256_setzero_si256();
+    size_t i = 0;
+    for (; i + 16 <= count; i += 16) {
+        __m256i v = _mm256_loadu_si256(reinterpret_cast<const __m256i *>(samples + i));
+        maxV = _mm256_max_epi16(maxV, v);
+        minV = _mm256_min_epi16(minV, v);
+    }
+    int16_t maxLanes[16], minLanes[16];
+    _mm256_storeu_si256(reinterpret_cast<__m256i *>(maxLanes), maxV);
+    _mm256_storeu_si256(reinterpret_cast<__m256i *>(minLanes), minV);
+    int32_t result = peakSse2(samples + i, count - i);
+    for (int lane = 0; lane < 16; ++lane) {
+        if (maxLanes[lane] > result) result = maxLanes[lane];
+        if (-static_cast<int32_t>(minLanes[lane]) > result) result = -static_cast<int32_t>(minLanes[lane]);
+    }
+    return result;
+}
+
+__attribute__((target("avx2")))
+static uint64_t sumSquaresAvx2(const int16_t *samples, size_t count) {
+    const __m256i zero = _mm256_setzero_si256();
+    __m256i acc = _mm256_setzero_si256();
+    size_t i = 0;
+    for (; i + 16 <= count; i += 16) {
+        __m256i v = _mm256_loadu_si256(reinterpret_cast<const __m256i *>(samples + i));
+        __m256i squares = _mm256_madd_epi16(v, v);
+        acc = _mm256_add_epi64(acc, _mm256_unpacklo_epi32(squares, zero));
+        acc = _mm256_add_epi64(acc, _mm256_unpackhi_epi32(squares, zero));
+    }
+    uint64_t lanes[4];
+    _mm256_storeu_si256(reinterpret_cast<__m256i *>(lanes), acc);
+    return lanes[0] + lanes[1] + lanes[2] + lanes[3] + sumSquaresSse2(samples + i, count - i);
+}
+
+// Separate mul + add: AVX2 does not imply FMA. The tail uses a masked load
+// instead of falling through to the SSE2 variant, since dot is called on
+// short filter rows where the tail is a large share of the work.
+__attribute__((target("avx2")))
+static float dotAvx2(const float *a, const float *b, size_t count) {
+    static const int32_t kMaskSource[16] = {-1, -1, -1, -1, -1, -1, -1, -1, 0, 0, 0, 0, 0, 0, 0, 0};
+    __m256 acc0 = _mm256_setzero_ps();
+    __m256 acc1 = _mm256_setzero_ps();
+    size_t i = 0;
+    for (; i + 16 <= count; i += 16) {
+        acc0 = _mm256_add_ps(acc0, _mm256_mul_ps(_mm256_loadu_ps(a + i), _mm256_loadu_ps(b + i)));
+        acc1 = _mm256_add_ps(acc1, _mm256_mul_ps(_mm256_loadu_ps(a + i + 8), _mm256_loadu_ps(b + i + 8)));
+    }
+    for (; i + 8 <= count; i += 8) {
+        acc0 = _mm256_add_ps(acc0, _mm256_mul_ps(_mm256_loadu_ps(a + i), _mm256_loadu_ps(b + i)));
+    }
+    if (i < count) {
+        __m256i mask = _mm256_loadu_si256(reinterpret_cast<const __m256i *>(kMaskSource + 8 - (count - i)));
+        acc1 = _mm256_add_ps(acc1, _mm256_mul_ps(_mm256_maskload_ps(a + i, mask), _mm256_maskload_ps(b + i, mask)));
+    }
+    __m256 acc = _mm256_add_ps(acc0, acc1);
+    __m128 sum = _mm_add_ps(_mm256_castps256_ps128(acc), _mm256_extractf128_ps(acc, 1));
+    sum = _mm_add_ps(sum, _mm_movehl_ps(sum, sum));
+    sum = _mm_add_ss(sum, _mm_shuffle_ps(sum, sum, 1));
+    return _mm_cvtss_f32(sum);
+}
+
+static const SampleKernels kAvx2Kernels = {
+    gainAvx2, mixAccumulateAvx2, floatToInt16Avx2, int16ToFloatAvx2, peakAvx2, sumSquaresAvx2, dotAvx2, "avx2"
+};
+
+// ---------------------------------------------------------------------------
+// AVX-512 (F + BW)
+// ---------------------------------------------------------------------------
+
+__attribute__((target("avx512f,avx512bw")))
+static inline __m512 clampPs512(__m512 v) {
+    return _mm512_min_ps(_mm512_max_ps(v, _mm512_set1_ps(kInt16Min)), _mm512_set1_ps(kInt16Max));
+}
+
+__attribute__((target("avx512f,avx512bw")))
+static inline __m512 loadWidenAvx512(const int16_t *p) {
+    return _mm512_cvtepi32_ps(_mm512_cvtepi16_epi32(_mm256_loadu_si256(reinterpret_cast<const __m256i *>(p))));
+}
+
+__attribute__((target("avx512f,avx512bw")))
+static inline void narrowStoreAvx512(int16_t *p, __m512 v) {
+    _mm256_storeu_si256(reinterpret_cast<__m256i *>(p), _mm512_cvtsepi32_epi16(_mm512_cvtps_epi32(clampPs512(v))));
+}
+
+__attribute__((target("avx512f,avx512bw")))
+static void gainAvx512(int16_t *samples, size_t count, float gain) {
+    const __m512 g = _mm512_set1_ps(gain);
+    size_t i = 0;
+    for (; i + 32 <= count; i += 32) {
+        __m512 lo = _mm512_mul_ps(loadWidenAvx512(samples + i), g);
+        __m512 hi = _mm512_mul_ps(loadWidenAvx512(samples + i + 16), g);
+        narrowStoreAvx512(samples + i, lo);
+        narrowStoreAvx512(samples + i + 16, hi);
+    }
+    gainAvx2(samples + i, count - i, gain);
+}
+
+__attribute__((target("avx512f,avx512bw")))
+static void mixAccumulateAvx512(int16_t *dst, const int16_t *src, size_t count, float scale) {
+    const __m512 s = _mm512_set1_ps(scale);
+    size_t i = 0;
+    for (; i + 32 <= count; i += 32) {
+        __m512 lo = _mm512_add_ps(loadWidenAvx512(dst + i), _mm512_mul_ps(loadWidenAvx512(src + i), s));
+        __m512 hi = _mm512_add_ps(loadWidenAvx512(dst + i + 16), _mm512_mul_ps(loadWidenAvx512(src + i + 16), s));
+        narrowStoreAvx512(dst + i, lo);
+        narrowStoreAvx512(dst + i + 16, hi);
+    }
+    mixAccumulateAvx2(dst + i, src + i, count - i, scale);
+}
+
+__attribute__((target("avx512f,avx512bw")))
+static void floatToInt16Avx512(const float *src, int16_t *dst, size_t count) {
+    const __m512 s = _mm512_set1_ps(32768.0f);
+    size_t i = 0;
+    for (; i + 16 <= count; i += 16) {
+        narrowStoreAvx512(dst + i, _mm512_mul_ps(_mm512_loadu_ps(src + i), s));
+    }
+    floatToInt16Avx2(src + i, dst + i, count - i);
+}
+
+__attribute__((target("avx512f,avx512bw")))
+static void int16ToFloatAvx512(const int16_t *src, float *dst, size_t count) {
+    const __m512 s = _mm512_set1_ps(1.0f / 32768.0f);
+    size_t i = 0;
+    for (; i + 16 <= count; i += 16) {
+        _mm512_storeu_ps(dst + i, _mm512_mul_ps(loadWidenAvx512(src + i), s));
+    }
+    int16ToFloatAvx2(src + i, dst + i, count - i);
+}
+
+__attribute__((target("avx512f,avx512bw")))
+static int32_t peakAvx512(const int16_t *samples, size_t count) {
+    __m512i maxV = _mm512_setzero_si512();
+    __m512i minV = _mm512_setzero_si512();
+    size_t i = 0;
+    for (; i + 32 <= count; i += 32) {
+        __m512i v = _mm512_loadu_si512(samples + i);
+        maxV = _mm512_max_epi16(maxV, v);
+        minV = _mm512_min_epi16(minV, v);
+    }
+    int16_t maxLanes[32], minLanes[32];
+    _mm512_storeu_si512(maxLanes, maxV);
+    _mm512_storeu_si512(minLanes, minV);
+    int32_t result = peakAvx2(samples + i, count - i);
+    for (int lane = 0; lane < 32; ++lane) {
+        if (maxLanes[lane] > result) result = maxLanes[lane];
+        if (-static_cast<int32_t>(minLanes[lane]) > result) result = -static_cast<int32_t>(minLanes[lane]);
+    }
+    return result;
+}
+
+__attribute__((target("avx512f,avx512bw")))
+static uint64_t sumSquaresAvx512(const int16_t *samples, size_t count) {
+    const __m512i zero = _mm512_setzero_si512();
+    __m512i acc = _mm512_setzero_si512();
+    size_t i = 0;
+    for (; i + 32 <= count; i += 32) {
+        __m512i v = _mm512_loadu_si512(samples + i);
+        __m512i squares = _mm512_madd_epi16(v, v);
+        acc = _mm512_add_epi64(acc, _mm512_unpacklo_epi32(squares, zero));
+        acc = _mm512_add_epi64(acc, _mm512_unpackhi_epi32(squares, zero));
+    }
+    return static_cast<uint64_t>(_mm512_reduce_add_epi64(acc)) + sumSquaresAvx2(samples + i, count - i);
+}
+
+__attribute__((target("avx512f,avx512bw")))
+static float dotAvx512(const float *a, const float *b, size_t count) {
+    __m512 acc = _mm512_setzero_ps();
+    size_t i = 0;
+    for (; i + 16 <= count; i += 16) {
+        acc = _mm512_fmadd_ps(_mm512_loadu_ps(a + i), _mm512_loadu_ps(b + i), acc);
+    }
+    if (i < count) {
+        __mmask16 mask = static_cast<__mmask16>((1u << (count - i)) - 1);
+        acc = _mm512_fmadd_ps(_mm512_maskz_loadu_ps(mask, a + i), _mm512_maskz_loadu_ps(mask, b + i), acc);
+    }
+    return _mm512_reduce_add_ps(acc);
+}
+
+static const SampleKernels kAvx512Kernels = {
+    gainAvx512, mixAccumulateAvx512, floatToInt16Avx512, int16ToFloatAvx512, peakAvx512, sumSquaresAvx512, dotAvx512,
+    "avx512"
+};
+
+#endif // AE_KERNELS_X86
+
+#ifdef AE_KERNELS_NEON
+
+// ---------------------------------------------------------------------------
+// NEON (baseline on AArch64)
+// ---------------------------------------------------------------------------
+
+static inline float32x4_t clampNeon(float32x4_t v) {
+    return vminq_f32(vmaxq_f32(v, vdupq_n_f32(kInt16Min)), vdupq_n_f32(kInt16Max));
+}
+
+static inline int16x8_t narrowNeon(float32x4_t lo, float32x4_t hi) {
+    return vcombine_s16(vqmovn_s32(vcvtnq_s32_f32(clampNeon(lo))), vqmovn_s32(vcvtnq_s32_f32(clampNeon(hi))));
+}
+
+static void gainNeon(int16_t *samples, size_t count, float gain) {
+    size_t i = 0;
+    for (; i + 8 <= count; i += 8) {
+        int16x8_t v = vld1q_s16(samples + i);
+        float32x4_t lo = vmulq_n_f32(vcvtq_f32_s32(vmovl_s16(vget_low_s16(v))), gain);
+        float32x4_t hi = vmulq_n_f32(vcvtq_f32_s32(vmovl_s16(vget_high_s16(v))), gain);
+        vst1q_s16(samples + i, narrowNeon(lo, hi));
+    }
+    gainScalar(samples + i, count - i, gain);
+}
+
+static void mixAccumulateNeon(int16_t *dst, const int16_t *src, size_t count, float scale) {
+    size_t i = 0;
+    for (; i + 8 <= count; i += 8) {
+        int16x8_t d = vld1q_s16(dst + i);
+        int16x8_t s = vld1q_s16(src + i);
+        float32x4_t lo = vmlaq_n_f32(vcvtq_f32_s32(vmovl_s16(vget_low_s16(d))), vcvtq_f32_s32(vmovl_s16(vget_low_s16(s))), scale);
+        float32x4_t hi = vmlaq_n_f32(vcvtq_f32_s32(vmovl_s16(vget_high_s16(d))), vcvtq_f32_s32(vmovl_s16(vget_high_s16(s))), scale);
+        vst1q_s16(dst + i, narrowNeon(lo, hi));
+    }
+    mixAccumulateScalar(dst + i, src + i, count - i, scale);
+}
+
+static void floatToInt16Neon(const float *src, int16_t *dst, size_t count) {
+    size_t i = 0;
+    for (; i + 8 <= count; i += 8) {
+        float32x4_t lo = vmulq_n_f32(vld1q_f32(src + i), 32768.0f);
+        float32x4_t hi = vmulq_n_f32(vld1q_f32(src + i + 4), 32768.0f);
+        vst1q_s16(dst + i, narrowNeon(lo, hi));
+    }
+    floatToInt16Scalar(src + i, dst + i, count - i);
+}
+
+static void int16ToFloatNeon(const int16_t *src, float *dst, size_t count) {
+    const float scale = 1.0f / 32768.0f;
+    size_t i = 0;
+    for (; i + 8 <= count; i += 8) {
+        int16x8_t v = vld1q_s16(src + i);
+        vst1q_f32(dst + i, vmulq_n_f32(vcvtq_f32_s32(vmovl_s16(vget_low_s16(v))), scale));
+        vst1q_f32(dst + i + 4, vmulq_n_f32(vcvtq_f32_s32(vmovl_s16(vget_high_s16(v))), scale));
+    }
+    int16ToFloatScalar(src + i, dst + i, count - i);
+}
+
+static int32_t peakNeon(const int16_t *samples, size_t count) {
+    int16x8_t maxV = vdupq_n_s16(0);
+    int16x8_t minV = vdupq_n_s16(0);
+    size_t i = 0;
+    for (; i + 8 <= count; i += 8) {
+        int16x8_t v = vld1q_s16(samples + i);
+        maxV = vmaxq_s16(maxV, v);
+        minV = vminq_s16(minV, v);
+    }
+    int32_t result = peakScalar(samples + i, count - i);
+    int32_t maxLane = vmaxvq_s16(maxV);
+    int32_t minLane = -static_cast<int32_t>(vminvq_s16(minV));
+    if (maxLane > result) result = maxLane;
+    if (minLane > result) result = minLane;
+    return result;
+}
+
+static uint64_t sumSquaresNeon(const int16_t *samples, size_t count) {
+    uint64x2_t acc = vdupq_n_u64(0);
+    size_t i = 0;
+    for (; i + 8 <= count; i += 8) {
+        int16x8_t v = vld1q_s16(samples + i);
+        // Each square is at most 2^30, so the int32 products read as unsigned
+        acc = vpadalq_u32(acc, vreinterpretq_u32_s32(vmull_s16(vget_low_s16(v), vget_low_s16(v))));
+        acc = vpadalq_u32(acc, vreinterpretq_u32_s32(vmull_s16(vget_high_s16(v), vget_high_s16(v))));
+    }
+    return vaddvq_u64(acc) + sumSquaresScalar(samples + i, count - i);
+}
+
+static float dotNeon(const float *a, const float *b, size_t count) {
+    float32x4_t acc0 = vdupq_n_f32(0.0f);
+    float32x4_t acc1 = vdupq_n_f32(0.0f);
+    size_t i = 0;
+    for (; i + 8 <= count; i += 8) {
+        acc0 = vmlaq_f32(acc0, vld1q_f32(a + i), vld1q_f32(b + i));
+        acc1 = vmlaq_f32(acc1, vld1q_f32(a + i + 4), vld1q_f32(b + i + 4));
+    }
+    return vaddvq_f32(vaddq_f32(acc0, acc1)) + dotScalar(a + i, b + i, count - i);
+}
+
+static const SampleKernels kNeonKernels = {
+    gainNeon, mixAccumulateNeon, floatToInt16Neon, int16ToFloatNeon, peakNeon, sumSquaresNeon, dotNeon, "neon"
+};
+
+#endif // AE_KERNELS_NEON
+
+// ---------------------------------------------------------------------------
+// Runtime dispatch
+// ---------------------------------------------------------------------------
+
+// AUDIOEDITOR_KERNELS=scalar|sse2|avx2|avx512|neon caps the selection, which
+// is handy when comparing variants against the scalar reference.
+static const SampleKernels *selectKernels() {
+    const char *requested = getenv("AUDIOEDITOR_KERNELS");
+    bool forceScalar = requested != NULL && strcmp(requested, "scalar") == 0;
+    if (forceScalar) {
+        return &kScalarKernels;
+    }
+#ifdef AE_KERNELS_X86
+    __builtin_cpu_init();
+    bool capped = requested != NULL;
+    if (__builtin_cpu_supports("avx512f") && __builtin_cpu_supports("avx512bw")
+        && (!capped || strcmp(requested, "avx512") == 0)) {
+        return &kAvx512Kernels;
+    }
+    if (__builtin_cpu_supports("avx2") && (!capped || strcmp(requested, "sse2") != 0)) {
+        return &kAvx2Kernels;
+    }
+    if (__builtin_cpu_supports("sse2")) {
+        return &kSse2Kernels;
+    }
+#endif
+#ifdef AE_KERNELS_NEON
+    return &kNeonKernels;
+#endif
+    return &kScalarKernels;
+}
+
+static const SampleKernels *gKernels = selectKernels();
+
+static inline const SampleKernels &kernels() {
+    return *gKernels;
+}
+
+#endif // AUDIOEDITOR_KERNELS_H
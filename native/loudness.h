@@ -0,0 +1,278 @@
+#ifndef AUDIOEDITOR_LOUDNESS_H
+#define AUDIOEDITOR_LOUDNESS_H
+
+#include <cmath>
+#include <cstdint>
+#include <cstring>
+#include <stdexcept>
+#include <vector>
+
+// Loudness measurement to ITU-R BS.1770-4 / EBU R128 (Tech 3341, 3342).
+//
+// Input is K-weighted per channel (high shelf plus RLB high-pass, reusing
+// the biquad engine) and the channel-weighted mean square is summed into
+// 100 ms sub-blocks. Overlapping 400 ms gating blocks (momentary) and 3 s
+// windows (short-term) are formed from the last 4 and 30 sub-blocks. Gated
+// values go into fixed 0.01 LU histograms, so integrated loudness and
+// loudness range come out of a single pass in constant memory, whatever
+// the length of the file. True peak uses the limiter's 4x detector.
+
+struct LoudnessStats {
+    double integrated;     // LUFS, -HUGE_VAL when everything is gated away
+    double momentaryMax;   // Loudest 400 ms block, LUFS
+    double shortTermMax;   // Loudest 3 s window, LUFS
+    double range;          // LRA, LU
+    double truePeak;       // dBTP
+    double samplePeak;     // dBFS
+};
+
+class LoudnessMeter {
+public:
+    LoudnessMeter(size_t channels, uint32_t sampleRate)
+        : numChannels(channels), sampleRate(sampleRate), truePeak(channels),
+          blockHistogram(kHistogramBins), shortTermHistogram(kHistogramBins),
+          subBlockIndex(0), subBlockFrames(0), subBlockEnergy(0), framesSeen(0),
+          peak(0), inter(0), momentaryMax(-HUGE_VAL), shortTermMax(-HUGE_VAL) {
+        if (channels == 0) {
+            throw invalid_argument("Loudness needs at least one channel.");
+        }
+        if (sampleRate < 8000) {
+            throw invalid_argument("Loudness needs a sample rate of at least 8 kHz.");
+        }
+        kWeighting.assign(kWeightingFilter(sampleRate), channels);
+
+        // L, R, C get 1, LFE is ignored and surrounds get +1.5 dB
+        weights.assign(channels, 1.0f);
+        if (channels >= 5) {
+            weights[3] = 0.0f;
+            for (size_t ch = 4; ch < channels; ++ch) weights[ch] = 1.41f;
+        }
+        subBlocks.assign(kShortTermSubBlocks, SubBlock());
+        nextSubBlockEnd = subBlockBoundary(1);
+    }
+
+    // Feeds interleaved float frames
+    void process(const float *data, size_t frames) {
+        if (scratch.size() < frames * numChannels) scratch.resize(frames * numChannels);
+        memcpy(scratch.data(), data, frames * numChannels * sizeof(float));
+        kWeighting.process(scratch.data(), frames);
+
+        for (size_t i = 0; i < frames; ++i) {
+            const float *raw = data + i * numChannels;
+            const float *weighted = &scratch[i * numChannels];
+            float energy = 0;
+            for (size_t ch = 0; ch < numChannels; ++ch) {
+                energy += weights[ch] * weighted[ch] * weighted[ch];
+                float a = fabsf(raw[ch]);
+                if (a > peak) peak = a;
+            }
+            float tp = truePeak.push(raw);
+            if (tp > inter) inter = tp;
+
+            subBlockEnergy += energy;
+            ++subBlockFrames;
+            if (++framesSeen == nextSubBlockEnd) closeSubBlock();
+        }
+    }
+
+    // Results so far; the true-peak detector's last few samples are
+    // flushed, so call once at the end of the stream
+    LoudnessStats finish() {
+        vector<float> silence(numChannels, 0.0f);
+        for (size_t i = 0; i < TruePeakDetector::latency(); ++i) {
+            float tp = truePeak.push(silence.data());
+            if (tp > inter) inter = tp;
+        }
+
+        LoudnessStats stats;
+        stats.integrated = integratedLoudness();
+        stats.momentaryMax = momentaryMax;
+        stats.shortTermMax = shortTermMax;
+        stats.range = loudnessRange();
+        stats.truePeak = inter > 0 ? 20 * log10(inter) : -HUGE_VAL;
+        stats.samplePeak = peak > 0 ? 20 * log10(peak) : -HUGE_VAL;
+        return stats;
+    }
+
+private:
+    static const size_t kMomentarySubBlocks = 4;   // 400 ms
+    static const size_t kShortTermSubBlocks = 30;  // 3 s
+    static const int kHistogramBins = 8000;        // -70 to +10 LUFS in 0.01 LU
+    static constexpr double kAbsoluteGate = -70.0;
+
+    struct SubBlock {
+        double energy;
+        size_t frames;
+        SubBlock() : energy(0), frames(0) {}
+    };
+
+    struct HistogramBin {
+        uint64_t count;
+        double energy;  // Sum of the mean squares that fell in this bin
+        HistogramBin() : count(0), energy(0) {}
+    };
+
+    // BS.1770 pre-filter (high shelf) and RLB high-pass re-derived for the
+    // sample rate through the bilinear transform
+    static vector<BiquadCoeffs> kWeightingFilter(double sampleRate) {
+        vector<BiquadCoeffs> sections(2);
+        double f0 = 1681.974450955533, gainDb = 3.999843853973347, q = 0.7071752369554196;
+        double k = tan(M_PI * f0 / sampleRate);
+        double vh = pow(10.0, gainDb / 20.0);
+        double vb = pow(vh, 0.4996667741545416);
+        double a0 = 1.0 + k / q + k * k;
+        sections[0].b0 = static_cast<float>((vh + vb * k / q + k * k) / a0);
+        sections[0].b1 = static_cast<float>(2.0 * (k * k - vh) / a0);
+        sections[0].b2 = static_cast<float>((vh - vb * k / q + k * k) / a0);
+        sections[0].a1 = static_cast<float>(2.0 * (k * k - 1.0) / a0);
+        sections[0].a2 = static_cast<float>((1.0 - k / q + k * k) / a0);
+
+        f0 = 38.13547087602444;
+        q = 0.5003270373238773;
+        k = tan(M_PI * f0 / sampleRate);
+        a0 = 1.0 + k / q + k * k;
+        sections[1].b0 = 1.0f;
+        sections[1].b1 = -2.0f;
+        sections[1].b2 = 1.0f;
+        sections[1].a1 = static_cast<float>(2.0 * (k * k - 1.0) / a0);
+        sections[1].a2 = static_cast<float>((1.0 - k / q + k * k) / a0);
+        return sections;
+    }
+
+    static double toLoudness(double meanSquare) {
+        return meanSquare > 0 ? -0.691 + 10 * log10(meanSquare) : -HUGE_VAL;
+    }
+
+    static int binOf(double loudness) {
+        int bin = static_cast<int>(floor((loudness - kAbsoluteGate) * 100));
+        return bin < 0 ? 0 : bin >= kHistogramBins ? kHistogramBins - 1 : bin;
+    }
+
+    // Absolute frame position of the end of sub-block n, exact for any rate
+    uint64_t subBlockBoundary(uint64_t n) const {
+        return (n * sampleRate + 5) / 10;
+    }
+
+    void closeSubBlock() {
+        SubBlock &slot = subBlocks[subBlockIndex % kShortTermSubBlocks];
+        slot.energy = subBlockEnergy;
+        slot.frames = subBlockFrames;
+        ++subBlockIndex;
+        subBlockEnergy = 0;
+        subBlockFrames = 0;
+        nextSubBlockEnd = subBlockBoundary(subBlockIndex + 1);
+
+        if (subBlockIndex >= kMomentarySubBlocks) {
+            double meanSquare = windowMeanSquare(kMomentarySubBlocks);
+            double loudness = toLoudness(meanSquare);
+            if (loudness > momentaryMax) momentaryMax = loudness;
+            if (loudness > kAbsoluteGate) {
+                HistogramBin &bin = blockHistogram[binOf(loudness)];
+                ++bin.count;
+                bin.energy += meanSquare;
+            }
+        }
+        if (subBlockIndex >= kShortTermSubBlocks) {
+            double meanSquare = windowMeanSquare(kShortTermSubBlocks);
+            double loudness = toLoudness(meanSquare);
+            if (loudness > shortTermMax) shortTermMax = loudness;
+            if (loudness > kAbsoluteGate) {
+                HistogramBin &bin = shortTermHistogram[binOf(loudness)];
+                ++bin.count;
+                bin.energy += meanSquare;
+            }
+        }
+    }
+
+    // Mean square over the last count sub-blocks
+    double windowMeanSquare(size_t count) const {
+        double energy = 0;
+        size_t frames = 0;
+        for (size_t i = 1; i <= count; ++i) {
+            const SubBlock &b = subBlocks[(subBlockIndex - i) % kShortTermSubBlocks];
+            energy += b.energy;
+            frames += b.frames;
+        }
+        return frames > 0 ? energy / frames : 0;
+    }
+
+    // Mean square of the histogram bins at or above fromBin
+    static double gatedMean(const vector<HistogramBin> &histogram, int fromBin, uint64_t *count) {
+        double energy = 0;
+        uint64_t n = 0;
+        for (int i = fromBin; i < kHistogramBins; ++i) {
+            energy += histogram[i].energy;
+            n += histogram[i].count;
+        }
+        *count = n;
+        return n > 0 ? energy / n : 0;
+    }
+
+    // First bin whose centre lies above the relative gate
+    static int relativeGateBin(double gate) {
+        int bin = static_cast<int>(ceil((gate - kAbsoluteGate) * 100 - 0.5));
+        return bin < 0 ? 0 : bin;
+    }
+
+    double integratedLoudness() const {
+        uint64_t count;
+        double absoluteMean = gatedMean(blockHistogram, 0, &count);
+        if (count == 0) return -HUGE_VAL;
+        double gate = toLoudness(absoluteMean) - 10;
+        double relativeMean = gatedMean(blockHistogram, relativeGateBin(gate), &count);
+        return count > 0 ? toLoudness(relativeMean) : -HUGE_VAL;
+    }
+
+    // EBU Tech 3342: spread between the 10th and 95th percentile of the
+    // short-term loudness, after a -20 LU relative gate
+    double loudnessRange() const {
+        uint64_t count;
+        double absoluteMean = gatedMean(shortTermHistogram, 0, &count);
+        if (count == 0) return 0;
+        int from = relativeGateBin(toLoudness(absoluteMean) - 20);
+        gatedMean(shortTermHistogram, from, &count);
+        if (count == 0) return 0;
+
+        uint64_t lowRank = static_cast<uint64_t>((count - 1) * 0.10 + 0.5);
+        uint64_t highRank = static_cast<uint64_t>((count - 1) * 0.95 + 0.5);
+        double low = 0, high = 0;
+        uint64_t seen = 0;
+        bool haveLow = false;
+        for (int i = from; i < kHistogramBins; ++i) {
+            uint64_t n = shortTermHistogram[i].count;
+            if (n == 0) continue;
+            double centre = kAbsoluteGate + (i + 0.5) / 100;
+            if (!haveLow && seen + n > lowRank) {
+                low = centre;
+                haveLow = true;
+            }
+            if (seen + n > highRank) {
+                high = centre;
+                break;
+            }
+            seen += n;
+        }
+        return high - low;
+    }
+
+    size_t numChannels;
+    uint32_t sampleRate;
+    BiquadCascade kWeighting;
+    TruePeakDetector truePeak;
+    vector<float> weights;
+    vector<float> scratch;
+    vector<SubBlock> subBlocks;                   // Ring of the last 30 sub-blocks
+    vector<HistogramBin> blockHistogram;          // 400 ms blocks above -70 LUFS
+    vector<HistogramBin> shortTermHistogram;      // 3 s windows above -70 LUFS
+    uint64_t subBlockIndex;                       // Completed sub-blocks
+    size_t subBlockFrames;
+    double subBlockEnergy;
+    uint64_t framesSeen;
+    uint64_t nextSubBlockEnd;
+    float peak;
+    float inter;                                  // Largest true-peak value
+    double momentaryMax;
+    double shortTermMax;
+};
+
+#endif // AUDIOEDITOR_LOUDNESS_H
@@ -3,9 +3,11 @@
 #include <fstream>
 #include <iomanip>
 #include <iostream>
+#include <sstream>
 #include <string>
 #include <vector>
 #include <string.h>
+#include "kernels.h"
 using namespace std;
 
 // Struct to store WAV file header information
@@ -132,14 +134,8 @@ void displayWAVHeader(const WAVHeader &header) {
     }
 }
 
-// Function to write the WAV file with the looped audio
-void writeWAVFile(const string &filePath, const WAVHeader &header, const vector<char> &data) {
-    ofstream file(filePath, ios::binary);
-    if (!file.is_open()) {
-        throw runtime_error("Failed to open output file.");
-    }
-
-    // Write the WAV header
+// Function to write the canonical 44-byte WAV header
+void writeWAVHeader(ostream &file, const WAVHeader &header) {
     file.write(reinterpret_cast<const char *>(&header.riffHeader), 4);
     file.write(reinterpret_cast<const char *>(&header.chunkSize), 4);
     file.write(reinterpret_cast<const char *>(&header.waveHeader), 4);
@@ -153,13 +149,50 @@ void writeWAVFile(const string &filePath, const WAVHeader &header, const vector<
     file.write(reinterpret_cast<const char *>(&header.bitsPerSample), sizeof(header.bitsPerSample));
     file.write(reinterpret_cast<const char *>(header.dataHeader), 4);
     file.write(reinterpret_cast<const char *>(&header.dataSize), sizeof(header.dataSize));
+}
+
+// Function to write the WAV file with the looped audio
+void writeWAVFile(const string &filePath, const WAVHeader &header, const char *data, size_t size) {
+    ofstream file(filePath, ios::binary);
+    if (!file.is_open()) {
+        throw runtime_error("Failed to open output file.");
+    }
+
+    // Write the WAV header
+    writeWAVHeader(file, header);
 
     // Write the looped audio data
-    file.write(data.data(), data.size());
+    file.write(data, size);
 
     file.close();
 }
 
+// Block-wise effects build on the WAV helpers above
+#include "bufferpool.h"
+#include "wavstream.h"
+#include "biquad.h"
+#include "resampler.h"
+#include "fft.h"
+#include "timestretch.h"
+#include "pitchshift.h"
+#include "convolution.h"
+#include "dynamics.h"
+#include "loudness.h"
+#include "effectchain.h"
+#include "parallel.h"
+#include "silence.h"
+#include "spectrogram.h"
+
+// Fills buffer from file; whatever a short read leaves is silence, as with
+// the zero-filled vectors these ops used before the pool
+template <class T>
+void readSamples(ifstream &file, PooledBuffer<T> &buffer) {
+    size_t bytes = buffer.size() * sizeof(T);
+    file.read(reinterpret_cast<char *>(buffer.data()), static_cast<streamsize>(bytes));
+    size_t got = file.gcount() > 0 ? static_cast<size_t>(file.gcount()) : 0;
+    memset(reinterpret_cast<char *>(buffer.data()) + got, 0, bytes - got);
+}
+
 // Function to loop the audio data
 void loopAudio(const string &inputFilePath, int loopCount, const string &outputFilePath) {
     if (loopCount <= 0) {
@@ -173,23 +206,25 @@ void loopAudio(const string &inputFilePath, int loopCount, const string &outputF
     ifstream file(inputFilePath, ios::binary);
     file.seekg(pos, ios::beg); // Skip the header and "fmt" chunk
 
-    vector<char> audioData(header.dataSize);
-    file.read(audioData.data(), audioData.size());
+    PooledBuffer<char> audioData(header.dataSize);
+    readSamples(file, audioData);
     file.close();
 
-    // Create the looped audio data
-    vector<char> loopedData(audioData.size() * loopCount);
-    for (int i = 0; i < loopCount; ++i) {
-        copy(audioData.begin(), audioData.end(), loopedData.begin() + i * audioData.size());
-    }
-
     // Update the header for the new data size
     WAVHeader outputHeader = header;
-    outputHeader.dataSize = loopedData.size();
-    outputHeader.chunkSize = sizeof(WAVHeader) + loopedData.size();
+    outputHeader.dataSize = audioData.size() * loopCount;
+    outputHeader.chunkSize = sizeof(WAVHeader) + outputHeader.dataSize;
 
-    // Write the looped audio to the output WAV file
-    writeWAVFile(outputFilePath, outputHeader, loopedData);
+    // Write the audio loopCount times rather than building the looped copy
+    ofstream outFile(outputFilePath, ios::binary);
+    if (!outFile.is_open()) {
+        throw runtime_error("Failed to open output file.");
+    }
+    writeWAVHeader(outFile, outputHeader);
+    for (int i = 0; i < loopCount; ++i) {
+        outFile.write(audioData.data(), audioData.size());
+    }
+    outFile.close();
 }
 
 // Function to trim the audio based on a split time in milliseconds
@@ -206,24 +241,25 @@ void trimAudio(const string &inputFilePath, int splitTimeMs, const string &outpu
     int splitSample = (splitTimeMs / 1000.0) * header.sampleRate * header.numChannels; // Convert ms to samples
 
     // Read the audio data
-    vector<char> audioData(header.dataSize);
-    file.read(audioData.data(), audioData.size());
+    PooledBuffer<char> audioData(header.dataSize);
+    readSamples(file, audioData);
     file.close();
 
-    // Split the audio into left and right parts
-    vector<char> leftPart(audioData.begin(), audioData.begin() + splitSample * bytesPerSample);
-    vector<char> rightPart(audioData.begin() + splitSample * bytesPerSample, audioData.end());
+    // The left and right parts are written straight from the buffer
+    size_t splitByte = splitSample * bytesPerSample;
+    const char *leftPart = audioData.data();
+    const char *rightPart = audioData.data() + splitByte;
 
     // Write the selected part to the output file
     if (choice == 1) {
-        header.dataSize = leftPart.size();
-        header.chunkSize = sizeof(WAVHeader) + leftPart.size();
-        writeWAVFile(outputFilePath, header, leftPart);
+        header.dataSize = splitByte;
+        header.chunkSize = sizeof(WAVHeader) + header.dataSize;
+        writeWAVFile(outputFilePath, header, leftPart, header.dataSize);
         cout << "Left part saved to: " << outputFilePath << endl;
     } else if (choice == 2) {
-        header.dataSize = rightPart.size();
-        header.chunkSize = sizeof(WAVHeader) + rightPart.size();
-        writeWAVFile(outputFilePath, header, rightPart);
+        header.dataSize = audioData.size() - splitByte;
+        header.chunkSize = sizeof(WAVHeader) + header.dataSize;
+        writeWAVFile(outputFilePath, header, rightPart, header.dataSize);
         cout << "Right part saved to: " << outputFilePath << endl;
     } else {
         cout << "Invalid choice.\n";
@@ -237,22 +273,15 @@ void ampScale(string input, string output, double factor) {
 
     ifstream inFile(input, ios::binary);
 
-    vector<int16_t> aData(header.dataSize / sizeof(int16_t));
+    PooledBuffer<int16_t> aData(header.dataSize / sizeof(int16_t));
     inFile.seekg(pos);
-    inFile.read(reinterpret_cast<char *>(aData.data()), header.dataSize);
+    readSamples(inFile, aData);
     inFile.close();
 
-    for (auto &sample : aData) {
-        int32_t newSample = static_cast<int32_t>(sample * factor);
-
-        // Capping limits
-        if (newSample > 32767)
-            newSample = 32767;
-        else if (newSample < -32768)
-            newSample = -32768;
-
-        sample = static_cast<int16_t>(newSample);
-    }
+    // Scale and clamp in one vectorised pass, split across the cores
+    parallelRanges(aData.size(), 1, [&](size_t begin, size_t end) {
+        kernels().gain(aData.data() + begin, end - begin, static_cast<float>(factor));
+    });
 
     ofstream outFile(output, ios::binary);
 
@@ -270,350 +299,514 @@ void ampScale(string input, string output, double factor) {
 }
 
 // Function to dynamically add or reduce bits based on manipulation factor
-void frequencyManipulator(const string &input, const string &output, float manipulationFactor) {
-    WAVHeader header;
-    streampos pos = readWAVFile(input, header);
-
+void frequencyManipulator(const string &input, const string &output, double manipulationFactor,
+                          int quality = RESAMPLE_HIGH) {
     if (manipulationFactor <= 0) {
         throw invalid_argument("Manipulation factor must be greater than 0.");
     }
 
-    // Read audio data
-    ifstream inFile(input, ios::binary);
-    inFile.seekg(pos);
-    vector<int16_t> audioData(header.dataSize / sizeof(int16_t));
-    inFile.read(reinterpret_cast<char *>(audioData.data()), header.dataSize);
-    inFile.close();
-
-    // Adjust audio data
-    vector<int16_t> adjustedData;
-    if (manipulationFactor > 1) {
-        // Downsample: Skip samples
-        size_t step = static_cast<size_t>(manipulationFactor);
-        for (size_t i = 0; i < audioData.size(); i += step) {
-            adjustedData.push_back(audioData[i]);
-        }
-    } else {
-        // Calculate step size for interpolation
-        float step = 1 / manipulationFactor;
-
-        for (size_t i = 0; i < audioData.size() - 1; ++i) {
-            adjustedData.push_back(audioData[i]); // Add the original sample
-            // Calculate and add interpolated samples
-            for (float pos = 1; pos < step; ++pos) {
-                float fraction = pos / step;
-                int16_t interpolated = audioData[i] + static_cast<int16_t>((audioData[i + 1] - audioData[i]) * fraction);
-                adjustedData.push_back(interpolated);
-            }
+    WavReader reader(input);
+    size_t channels = reader.channels();
+    PolyphaseResampler resampler(channels, manipulationFactor, quality);
+    size_t remaining = resampler.totalOutputFrames(reader.totalFrames());
+
+    // Buffers are sized once; output for the largest block the resampler can emit
+    PooledBuffer<int16_t> pcm(kStreamBlockFrames * channels);
+    PooledBuffer<float> block(kStreamBlockFrames * channels);
+    PooledBuffer<float> resampled(resampler.maxOutputFrames(kStreamBlockFrames) * channels);
+    PooledBuffer<int16_t> pcmOut(resampled.size());
+    WavWriter writer(output, reader.header());
+
+    size_t frames;
+    bool flushed = false;
+    while (remaining > 0 && !flushed) {
+        size_t produced;
+        if ((frames = reader.read(pcm.data(), kStreamBlockFrames)) > 0) {
+            kernels().int16ToFloat(pcm.data(), block.data(), frames * channels);
+            produced = resampler.process(block.data(), frames, resampled.data());
+        } else {
+            produced = resampler.flush(resampled.data());
+            flushed = true;
         }
+        if (produced > remaining) produced = remaining;
+        kernels().floatToInt16(resampled.data(), pcmOut.data(), produced * channels);
+        writer.write(pcmOut.data(), produced);
+        remaining -= produced;
     }
+    writer.close();
+}
 
-    // Update header with new data size
-    header.dataSize = adjustedData.size() * sizeof(int16_t);
-    header.chunkSize = 36 + header.dataSize;
+// Stretches the clip to targetDurationMs without changing its pitch
+void time_scalar(const string &input, const string &output, double targetDurationMs) {
+    WavReader reader(input);
+    size_t channels = reader.channels();
+    double currentDurationMs = reader.totalFrames() * 1000.0 / reader.sampleRate();
+    if (targetDurationMs <= 0 || currentDurationMs <= 0) {
+        throw invalid_argument("Duration must be greater than 0.");
+    }
 
-    // Write to output file
-    ofstream outFile(output, ios::binary);
-    if (!outFile.is_open()) {
-        throw runtime_error("Failed to open output WAV file.");
+    WsolaStretcher stretcher(channels, reader.sampleRate(), targetDurationMs / currentDurationMs);
+    size_t remaining = static_cast<size_t>(llround(targetDurationMs * reader.sampleRate() / 1000.0));
+
+    PooledBuffer<int16_t> pcm(kStreamBlockFrames * channels);
+    PooledBuffer<float> block(kStreamBlockFrames * channels);
+    PooledBuffer<float> stretched(stretcher.maxOutputFrames(kStreamBlockFrames) * channels);
+    PooledBuffer<int16_t> pcmOut(stretched.size());
+    WavWriter writer(output, reader.header());
+
+    while (remaining > 0) {
+        size_t produced;
+        size_t frames = reader.read(pcm.data(), kStreamBlockFrames);
+        if (frames > 0) {
+            kernels().int16ToFloat(pcm.data(), block.data(), frames * channels);
+            produced = stretcher.process(block.data(), frames, stretched.data());
+        } else {
+            produced = stretcher.flush(stretched.data());
+        }
+        if (produced > remaining) produced = remaining;
+        kernels().floatToInt16(stretched.data(), pcmOut.data(), produced * channels);
+        writer.write(pcmOut.data(), produced);
+        remaining -= produced;
     }
+    writer.close();
 
-    outFile.write(reinterpret_cast<char *>(&header), sizeof(WAVHeader));
-    outFile.write(reinterpret_cast<char *>(adjustedData.data()), header.dataSize);
-    outFile.close();
+    cout << "Time scaled to " << targetDurationMs << " ms. Output written to " << output << endl;
 }
 
-// Function to dynamically add or reduce bits based on manipulation factor
-void time_scalar(const string &input, const string &output, int timeToBeScaled) {
-    WAVHeader header;
-    streampos pos = readWAVFile(input, header);
-
-    // Read audio data
-    ifstream inFile(input, ios::binary);
-    inFile.seekg(pos);
-    vector<int16_t> audioData(header.dataSize / sizeof(int16_t));
-    inFile.read(reinterpret_cast<char *>(audioData.data()), header.dataSize);
-    inFile.close();
-
-    float manipulationFactor = (audioData.size() * 1000 / header.sampleRate) / (2 * (timeToBeScaled * 1.0f));
-    if (manipulationFactor <= 0) {
-        throw invalid_argument("Manipulation factor must be greater than 0.");
-    }
-
-    cout << manipulationFactor << endl;
-    // Adjust audio data
-    vector<int16_t> adjustedData;
-    if (manipulationFactor > 1) {
-        // Downsample: Skip samples
-        size_t step = static_cast<size_t>(manipulationFactor);
-        for (size_t i = 0; i < audioData.size(); i += step) {
-            adjustedData.push_back(audioData[i]);
-        }
-    } else {
-        // Calculate step size for interpolation
-        float step = 1 / manipulationFactor;
-
-        for (size_t i = 0; i < audioData.size() - 1; ++i) {
-            adjustedData.push_back(audioData[i]); // Add the original sample
-            // Calculate and add interpolated samples
-            for (float pos = 1; pos < step; ++pos) {
-                float fraction = pos / step;
-                int16_t interpolated = audioData[i] + static_cast<int16_t>((audioData[i + 1] - audioData[i]) * fraction);
-                adjustedData.push_back(interpolated);
-            }
+// Shifts the pitch by the given number of semitones, keeping the duration
+void pitchShift(const string &input, const string &output, double semitones) {
+    WavReader reader(input);
+    size_t channels = reader.channels();
+    PitchShifter shifter(channels, reader.sampleRate(), semitones);
+    size_t remaining = reader.totalFrames();
+
+    PooledBuffer<int16_t> pcm(kStreamBlockFrames * channels);
+    PooledBuffer<float> block(kStreamBlockFrames * channels);
+    PooledBuffer<float> shifted(shifter.maxOutputFrames(kStreamBlockFrames) * channels);
+    PooledBuffer<int16_t> pcmOut(shifted.size());
+    WavWriter writer(output, reader.header());
+
+    while (remaining > 0) {
+        size_t produced;
+        size_t frames = reader.read(pcm.data(), kStreamBlockFrames);
+        if (frames > 0) {
+            kernels().int16ToFloat(pcm.data(), block.data(), frames * channels);
+            produced = shifter.process(block.data(), frames, shifted.data());
+        } else {
+            produced = shifter.flush(shifted.data());
         }
+        if (produced > remaining) produced = remaining;
+        kernels().floatToInt16(shifted.data(), pcmOut.data(), produced * channels);
+        writer.write(pcmOut.data(), produced);
+        remaining -= produced;
     }
+    writer.close();
 
-    // Update header with new data size
-    header.dataSize = adjustedData.size() * sizeof(int16_t);
-    header.chunkSize = 36 + header.dataSize;
+    cout << "Pitch shifted by " << semitones << " semitones. Output written to " << output << endl;
+}
 
-    // Write to output file
-    ofstream outFile(output, ios::binary);
-    if (!outFile.is_open()) {
-        throw runtime_error("Failed to open output WAV file.");
+// threshold, ratio, [mode], [attack ms], [release ms], [lookahead ms], [knee dB], [makeup dB]
+DynamicsSettings dynamicsSettingsFromParams(const vector<string> &params) {
+    DynamicsSettings settings;
+    // Thresholds above 0 are linear amplitudes (0.5 is -6 dBFS), the rest dBFS
+    double threshold = stod(params.at(0));
+    settings.thresholdDb = threshold > 0 ? 20 * log10(threshold) : threshold;
+    settings.ratio = stod(params.at(1));
+    if (params.size() > 2 && !params[2].empty()) settings.mode = parseDynamicsMode(params[2]);
+    if (settings.mode == DYNAMICS_LIMITER) {
+        settings.attackMs = 0;
+        settings.releaseMs = 50;
+        settings.lookaheadMs = 5;
     }
+    if (params.size() > 3 && !params[3].empty()) settings.attackMs = stod(params[3]);
+    if (params.size() > 4 && !params[4].empty()) settings.releaseMs = stod(params[4]);
+    if (params.size() > 5 && !params[5].empty()) settings.lookaheadMs = stod(params[5]);
+    if (params.size() > 6 && !params[6].empty()) settings.kneeDb = stod(params[6]);
+    if (params.size() > 7 && !params[7].empty()) settings.makeupDb = stod(params[7]);
+    return settings;
+}
 
-    outFile.write(reinterpret_cast<char *>(&header), sizeof(WAVHeader));
-    outFile.write(reinterpret_cast<char *>(adjustedData.data()), header.dataSize);
-    outFile.close();
+// cutoff, type, [Q], [gain dB], [sections]
+void designFilterFromParams(BiquadCascade &filter, const vector<string> &params, double sampleRate, size_t channels) {
+    double cutoffFrequency = stod(params.at(0));
+    BiquadType filterType = parseBiquadType(params.at(1));
+    double q = params.size() > 2 && !params[2].empty() ? stod(params[2]) : 0.0;
+    double gainDb = params.size() > 3 && !params[3].empty() ? stod(params[3]) : 0.0;
+    int sections = params.size() > 4 && !params[4].empty() ? stoi(params[4]) : 1;
+    filter.design(filterType, sampleRate, cutoffFrequency, q, gainDb, sections, channels);
 }
 
+// Compressor, expander, gate or limiter over the whole file, see dynamics.h
 void applyCompression(const string &inputFilePath, const string &outputFilePath,
-                      double threshold, double ratio) {
-    WAVHeader header;
-    streampos pos = readWAVFile(inputFilePath, header);
-
-    double attack = 0.01;
-    double release = 0.1;
-
-    vector<int16_t> audioData(header.dataSize / sizeof(int16_t));
-    ifstream inFile(inputFilePath, ios::binary);
-    inFile.seekg(pos);
-    inFile.read(reinterpret_cast<char *>(audioData.data()), header.dataSize);
-    inFile.close();
-
-    double gain = 1.0;
-    double attackCoeff = exp(-1.0 / (header.sampleRate * attack));
-    double releaseCoeff = exp(-1.0 / (header.sampleRate * release));
-
-    for (size_t i = 0; i < audioData.size(); ++i) {
-        double sample = audioData[i] / 32768.0; // Normalize to [-1, 1]
-        double absSample = fabs(sample);
-
-        if (absSample > threshold) {
-            double overThreshold = absSample / threshold;
-            double targetGain = pow(overThreshold, -ratio);
-            gain = gain < targetGain ? gain + (1 - attackCoeff) * (targetGain - gain)
-                                     : gain + (1 - releaseCoeff) * (targetGain - gain);
-        } else {
-            gain = gain + (1 - releaseCoeff) * (1.0 - gain);
-        }
-
-        audioData[i] = static_cast<int16_t>(sample * gain * 32768);
-    }
-
-    ofstream outFile(outputFilePath, ios::binary);
-    outFile.write(reinterpret_cast<char *>(&header), sizeof(header));
-    outFile.write(reinterpret_cast<char *>(audioData.data()), header.dataSize);
-    outFile.close();
+                      const DynamicsSettings &settings) {
+    WavReader reader(inputFilePath);
+    size_t channels = reader.channels();
+    uint32_t sampleRate = reader.sampleRate();
+    DynamicsProcessor probe(channels, sampleRate, settings);
+    WavWriter writer(outputFilePath, reader.header());
+
+    processChunked(reader, writer, probe.settleFrames(), probe.latency(), [&]() -> ChainStage * {
+        return new EngineStage<DynamicsProcessor>(new DynamicsProcessor(channels, sampleRate, settings));
+    });
+    writer.close();
 
     cout << "Compression applied. Output written to " << outputFilePath << endl;
 }
 
-void applyLowPassFilter(const string &inputFilePath, const string &outputFilePath, double cutoffFrequency) {
+// Biquad filter over the whole file; params as for designFilterFromParams
+void applyBiquadFilter(const string &inputFilePath, const string &outputFilePath, const vector<string> &params) {
 
-    WAVHeader header;
-    streampos pos = readWAVFile(inputFilePath, header);
+    WavReader reader(inputFilePath);
+    BiquadCascade filter;
+    designFilterFromParams(filter, params, reader.sampleRate(), reader.channels());
+    WavWriter writer(outputFilePath, reader.header());
 
-    vector<int16_t> audioData(header.dataSize / sizeof(int16_t));
-    ifstream inFile(inputFilePath, ios::binary);
-    inFile.seekg(pos);
-    inFile.read(reinterpret_cast<char *>(audioData.data()), header.dataSize);
-    inFile.close();
+    processChunked(reader, writer, filter.settleFrames(), 0, [&]() -> ChainStage * {
+        return new FilterStage(filter);
+    });
+    writer.close();
 
-    double RC = 1.0 / (2 * M_PI * cutoffFrequency);
-    double dt = 1.0 / header.sampleRate;
-    double alpha = dt / (RC + dt);
+    cout << "Biquad filter applied. Output written to " << outputFilePath << endl;
+}
 
-    int16_t prevSample = audioData[0];
-    for (size_t i = 1; i < audioData.size(); ++i) {
-        audioData[i] = static_cast<int16_t>(alpha * audioData[i] + (1 - alpha) * prevSample);
-        prevSample = audioData[i];
+// Measures loudness and peaks of a whole file in one streaming pass
+LoudnessStats measureLoudness(const string &input) {
+    WavReader reader(input);
+    size_t channels = reader.channels();
+    LoudnessMeter meter(channels, reader.sampleRate());
+    PooledBuffer<int16_t> pcm(kStreamBlockFrames * channels);
+    PooledBuffer<float> block(kStreamBlockFrames * channels);
+
+    size_t frames;
+    while ((frames = reader.read(pcm.data(), kStreamBlockFrames)) > 0) {
+        kernels().int16ToFloat(pcm.data(), block.data(), frames * channels);
+        meter.process(block.data(), frames);
     }
-
-    ofstream outFile(outputFilePath, ios::binary);
-    outFile.write(reinterpret_cast<char *>(&header), sizeof(header));
-    outFile.write(reinterpret_cast<char *>(audioData.data()), header.dataSize);
-    outFile.close();
-
-    cout << "Low-pass filter applied. Output written to " << outputFilePath << endl;
+    return meter.finish();
 }
 
-void applyHighPassFilter(const string &inputFilePath, const string &outputFilePath, double cutoffFrequency) {
-
-    WAVHeader header;
-    streampos pos = readWAVFile(inputFilePath, header);
-
-    vector<int16_t> audioData(header.dataSize / sizeof(int16_t));
-    ifstream inFile(inputFilePath, ios::binary);
-    inFile.seekg(pos);
-    inFile.read(reinterpret_cast<char *>(audioData.data()), header.dataSize);
-    inFile.close();
-
-    double RC = 1.0 / (2 * M_PI * cutoffFrequency);
-    double dt = 1.0 / header.sampleRate;
-    double alpha = RC / (RC + dt);
-
-    int16_t prevSample = audioData[0];
-    int16_t prevFiltered = audioData[0];
-    for (size_t i = 1; i < audioData.size(); ++i) {
-        int16_t currentSample = audioData[i];
-        audioData[i] = static_cast<int16_t>(alpha * (prevFiltered + currentSample - prevSample));
-        prevSample = currentSample;
-        prevFiltered = audioData[i];
+// Streams the file through a constant gain, each block split across the cores
+void applyStreamingGain(const string &input, const string &output, float gain) {
+    WavReader reader(input);
+    size_t channels = reader.channels();
+    WavWriter writer(output, reader.header());
+    PooledBuffer<int16_t> pcm(kParallelChunkFrames * channels);
+
+    size_t frames;
+    while ((frames = reader.read(pcm.data(), kParallelChunkFrames)) > 0) {
+        parallelRanges(frames * channels, 1, [&](size_t begin, size_t end) {
+            kernels().gain(pcm.data() + begin, end - begin, gain);
+        });
+        writer.write(pcm.data(), frames);
     }
-
-    ofstream outFile(outputFilePath, ios::binary);
-    outFile.write(reinterpret_cast<char *>(&header), sizeof(header));
-    outFile.write(reinterpret_cast<char *>(audioData.data()), header.dataSize);
-    outFile.close();
-
-    cout << "High-pass filter applied. Output written to " << outputFilePath << endl;
+    writer.close();
 }
 
-void normalize(string input, string output) {
-
-    WAVHeader header;
-    streampos pos = readWAVFile(input, header);
-
-    ifstream inFile(input, ios::binary);
-
-    vector<int16_t> aData(header.dataSize / sizeof(int16_t));
-    inFile.seekg(pos);
-    inFile.read(reinterpret_cast<char *>(aData.data()), header.dataSize);
-    inFile.close();
-
-    int16_t maxSample = 0;
-    for (auto &sample : aData) {
-        if (abs(sample) > maxSample)
-            maxSample = abs(sample);
+// Peak normalisation to targetDb dBFS: one pass for the peak, one for the gain
+void normalize(const string &input, const string &output, double targetDb = 0) {
+    int32_t maxSample = 0;
+    {
+        WavReader reader(input);
+        PooledBuffer<int16_t> pcm(kParallelChunkFrames * reader.channels());
+        mutex peakMutex;
+        size_t frames;
+        while ((frames = reader.read(pcm.data(), kParallelChunkFrames)) > 0) {
+            parallelRanges(frames * reader.channels(), 1, [&](size_t begin, size_t end) {
+                // Peak is returned as int32 so a -32768 sample reports 32768
+                int32_t rangePeak = kernels().peak(pcm.data() + begin, end - begin);
+                lock_guard<mutex> lock(peakMutex);
+                if (rangePeak > maxSample) maxSample = rangePeak;
+            });
+        }
     }
 
     cout << maxSample << endl;
 
-    float currDb = 20 * log10(maxSample / 32768.0);
-    float ratio = pow(10, (0 - currDb) / 20.0);
-
-    for (auto &sample : aData) {
-
-        int32_t newSample = static_cast<int32_t>(sample * ratio);
-        if (newSample > 32767)
-            newSample = 32767;
-        if (newSample < -32768)
-            newSample = -32768;
+    float gain = 1.0f;
+    if (maxSample > 0) {
+        double currDb = 20 * log10(maxSample / 32768.0);
+        gain = static_cast<float>(pow(10, (targetDb - currDb) / 20.0));
+    }
+    applyStreamingGain(input, output, gain);
+}
 
-        sample = static_cast<int16_t>(newSample);
+// Loudness normalisation to targetLufs integrated loudness. The gain is
+// reduced if it would push the true peak above ceilingDbtp.
+void normalizeLoudness(const string &input, const string &output, double targetLufs = -16,
+                       double ceilingDbtp = -1) {
+    LoudnessStats stats = measureLoudness(input);
+    if (!(stats.integrated > -HUGE_VAL)) {
+        throw runtime_error("File is too quiet to measure its loudness.");
+    }
+    double gainDb = targetLufs - stats.integrated;
+    if (stats.truePeak + gainDb > ceilingDbtp) {
+        gainDb = ceilingDbtp - stats.truePeak;
+        cout << "Gain limited by the " << ceilingDbtp << " dBTP ceiling; result is "
+             << stats.integrated + gainDb << " LUFS" << endl;
     }
+    applyStreamingGain(input, output, static_cast<float>(pow(10, gainDb / 20.0)));
 
-    ofstream outFile(output, ios::binary);
+    cout << "Loudness normalized from " << stats.integrated << " LUFS by " << gainDb
+         << " dB. Output written to " << output << endl;
+}
 
-    if (!outFile) {
-        std::cerr << "Error opening output file." << std::endl;
-        return;
+// Reads an impulse response WAV as planar float channels at sampleRate,
+// scaled to unit energy so the wet level does not depend on the recording
+vector<vector<float> > loadImpulse(const string &path, uint32_t sampleRate) {
+    WavReader reader(path);
+    size_t channels = reader.channels();
+    PooledBuffer<int16_t> pcm(kStreamBlockFrames * channels);
+    PooledBuffer<float> samples;
+    size_t frames;
+    while ((frames = reader.read(pcm.data(), kStreamBlockFrames)) > 0) {
+        size_t held = samples.size();
+        samples.resize(held + frames * channels);
+        kernels().int16ToFloat(pcm.data(), &samples[held], frames * channels);
+    }
+    size_t total = samples.size() / channels;
+
+    if (reader.sampleRate() != sampleRate && total > 0) {
+        PolyphaseResampler resampler(channels, static_cast<double>(reader.sampleRate()) / sampleRate);
+        size_t expected = resampler.totalOutputFrames(total);
+        PooledBuffer<float> resampled(resampler.maxOutputFrames(total) * channels);
+        size_t produced = resampler.process(samples.data(), total, resampled.data());
+        while (produced < expected) {
+            PooledBuffer<float> tail(resampler.maxOutputFrames(0) * channels);
+            size_t more = resampler.flush(tail.data());
+            if (more == 0) break;
+            if (produced + more > resampled.size() / channels) resampled.resize((produced + more) * channels);
+            memcpy(&resampled[produced * channels], tail.data(), more * channels * sizeof(float));
+            produced += more;
+        }
+        if (produced > expected) produced = expected;
+        resampled.resize(produced * channels);
+        samples.swap(resampled);
+        total = produced;
+    }
+    if (total == 0) {
+        throw runtime_error("Impulse response is empty: " + path);
     }
 
-    outFile.write(reinterpret_cast<char *>(&header), sizeof(header));
-    outFile.write(reinterpret_cast<char *>(aData.data()), header.dataSize);
-    outFile.close();
-
-    return;
+    vector<vector<float> > impulse(channels, vector<float>(total));
+    double maxEnergy = 0;
+    for (size_t ch = 0; ch < channels; ++ch) {
+        double energy = 0;
+        for (size_t i = 0; i < total; ++i) {
+            float v = samples[i * channels + ch];
+            impulse[ch][i] = v;
+            energy += v * v;
+        }
+        if (energy > maxEnergy) maxEnergy = energy;
+    }
+    if (maxEnergy > 0) {
+        float scale = static_cast<float>(1.0 / sqrt(maxEnergy));
+        for (size_t ch = 0; ch < channels; ++ch) {
+            for (size_t i = 0; i < total; ++i) impulse[ch][i] *= scale;
+        }
+    }
+    return impulse;
 }
 
-// Function to apply reverb effect on the audio data
-void applyReverb(string input, string output, int reverbLevel) {
-    // Read the WAV file
-    WAVHeader header;
-    streampos pos = readWAVFile(input, header);
-
-    int sampleRate = header.sampleRate;
-
-    // Read the audio data into a vector
-    ifstream inputFile(input, ios::binary);
-    inputFile.seekg(pos);
-    vector<char> audioData(header.dataSize);
-    inputFile.read(audioData.data(), header.dataSize);
-    inputFile.close();
-
-    // Convert audio data to int16_t
-    vector<int16_t> audio(audioData.size() / 2);
-    for (size_t i = 0; i < audio.size(); ++i) {
-        audio[i] = *reinterpret_cast<int16_t *>(&audioData[i * 2]);
-    }
-
-    // Define delay times (in samples) and decay factors for different reverb levels
-    int delaySamples = 0;
-    float decay = 0.0f;
-
-    if (reverbLevel == 1) {
-        delaySamples = static_cast<int>(sampleRate * 0.05); // 50ms delay
-        decay = 0.3f;                                       // Low reverb
-    } else if (reverbLevel == 2) {
-        delaySamples = static_cast<int>(sampleRate * 0.1); // 100ms delay
-        decay = 0.5f;                                      // Medium reverb
-    } else if (reverbLevel == 3) {
-        delaySamples = static_cast<int>(sampleRate * 0.2); // 200ms delay
-        decay = 0.7f;                                      // High reverb
-    } else {
+// Impulse response for a reverb setting ("1"-"3" or a WAV path); a wetGain
+// below 0 is replaced by the default for the room
+vector<vector<float> > reverbImpulse(const string &reverb, uint32_t sampleRate, double &wetGain) {
+    vector<vector<float> > impulse;
+    if (reverb == "1" || reverb == "2" || reverb == "3") {
+        ReverbRoom room = static_cast<ReverbRoom>(reverb[0] - '0');
+        impulse = builtInImpulse(room, sampleRate);
+        if (wetGain < 0) wetGain = room == REVERB_SMALL ? 0.25 : room == REVERB_MEDIUM ? 0.35 : 0.45;
+    } else if (!reverb.empty() && reverb.find_first_not_of("0123456789") == string::npos) {
         throw runtime_error("Invalid reverb level");
+    } else {
+        impulse = loadImpulse(reverb, sampleRate);
+        if (wetGain < 0) wetGain = 0.35;
+    }
+    if (wetGain > 4) {
+        throw invalid_argument("Reverb wet level must be between 0 and 4.");
     }
+    return impulse;
+}
 
-    // Apply the reverb effect
-    for (size_t i = delaySamples; i < audioData.size(); ++i) {
-        // Mix the original sample with a delayed version of itself
-        int32_t delayedSample = static_cast<int32_t>(audioData[i - delaySamples]);
-        int32_t mixedSample = static_cast<int32_t>(audioData[i]) + static_cast<int32_t>(delayedSample * decay);
+// Convolution reverb. reverb is "1", "2" or "3" for the built-in small,
+// medium and large rooms, or the path of an impulse response WAV. wetGain
+// below 0 picks the default for the room. The output keeps the reverb tail,
+// so it is longer than the input by the length of the impulse response.
+void applyReverb(const string &input, const string &output, const string &reverb, double wetGain = -1) {
+    WavReader reader(input);
+    size_t channels = reader.channels();
+    vector<vector<float> > impulse = reverbImpulse(reverb, reader.sampleRate(), wetGain);
+
+    ConvolutionReverb convolver(channels, impulse, static_cast<float>(wetGain));
+    size_t remaining = reader.totalFrames() + convolver.tailFrames();
+
+    PooledBuffer<int16_t> pcm(kStreamBlockFrames * channels);
+    PooledBuffer<float> block(kStreamBlockFrames * channels);
+    PooledBuffer<float> wet(convolver.maxOutputFrames(kStreamBlockFrames) * channels);
+    PooledBuffer<int16_t> pcmOut(wet.size());
+    WavWriter writer(output, reader.header());
+
+    while (remaining > 0) {
+        size_t produced;
+        size_t frames = reader.read(pcm.data(), kStreamBlockFrames);
+        if (frames > 0) {
+            kernels().int16ToFloat(pcm.data(), block.data(), frames * channels);
+            produced = convolver.process(block.data(), frames, wet.data());
+        } else {
+            produced = convolver.flush(wet.data());
+        }
+        if (produced > remaining) produced = remaining;
+        kernels().floatToInt16(wet.data(), pcmOut.data(), produced * channels);
+        writer.write(pcmOut.data(), produced);
+        remaining -= produced;
+    }
+    writer.close();
+}
+
+// One stage of an effect chain from its step, see applyEffectChain
+ChainStage *buildChainStage(const ChainStep &step, size_t channels, uint32_t sampleRate) {
+    const vector<string> &args = step.args;
+    if (step.name == "gain") {
+        return new GainStage(channels, static_cast<float>(stod(args.at(0))));
+    }
+    if (step.name == "filter") {
+        BiquadCascade filter;
+        designFilterFromParams(filter, args, sampleRate, channels);
+        return new FilterStage(filter);
+    }
+    if (step.name == "compress") {
+        DynamicsSettings settings = dynamicsSettingsFromParams(args);
+        return new EngineStage<DynamicsProcessor>(new DynamicsProcessor(channels, sampleRate, settings));
+    }
+    if (step.name == "resample") {
+        double factor = stod(args.at(0));
+        if (factor <= 0) {
+            throw invalid_argument("Manipulation factor must be greater than 0.");
+        }
+        int quality = args.size() > 1 && !args[1].empty() ? stoi(args[1]) : RESAMPLE_HIGH;
+        return new EngineStage<PolyphaseResampler>(new PolyphaseResampler(channels, factor, quality), 1.0 / factor);
+    }
+    if (step.name == "stretch") {
+        double ratio = stod(args.at(0));
+        return new EngineStage<WsolaStretcher>(new WsolaStretcher(channels, sampleRate, ratio), ratio, 0, true);
+    }
+    if (step.name == "pitch") {
+        return new EngineStage<PitchShifter>(new PitchShifter(channels, sampleRate, stod(args.at(0))));
+    }
+    if (step.name == "reverb") {
+        string level;
+        string wet;
+        splitReverbStep(step, level, wet);
+        if (level.empty()) {
+            throw invalid_argument("Reverb needs a room (1-3) or an impulse response path.");
+        }
+        double wetGain = !wet.empty() ? stod(wet) : -1;
+        vector<vector<float> > impulse = reverbImpulse(level, sampleRate, wetGain);
+        ConvolutionReverb *reverb = new ConvolutionReverb(channels, impulse, static_cast<float>(wetGain));
+        return new EngineStage<ConvolutionReverb>(reverb, 1.0, reverb->tailFrames());
+    }
+    throw invalid_argument("Unknown effect chain step: " + step.name);
+}
 
-        // Ensure the mixed sample is within the 16-bit PCM range
-        if (mixedSample > 32767) mixedSample = 32767;
-        if (mixedSample < -32768) mixedSample = -32768;
+// Builds the chain for steps [0, count)
+static void buildEffectChain(EffectChain &chain, const vector<ChainStep> &steps, size_t count,
+                             size_t channels, uint32_t sampleRate) {
+    for (size_t i = 0; i < count; ++i) chain.add(buildChainStage(steps[i], channels, sampleRate));
+}
 
-        audioData[i] = static_cast<int16_t>(mixedSample);
+// Runs a list of effects over the file in as few passes as possible. Each
+// spec is "name:arg:arg", with the arguments of the matching op:
+//   gain:<factor>                  filter:<cutoff>:<type>[:Q:gainDb:sections]
+//   compress:<threshold>:<ratio>[:mode:attack:release:lookahead:knee:makeup]
+//   resample:<factor>[:quality]    stretch:<duration ratio>
+//   pitch:<semitones>              reverb:<1-3 or IR path>[:wet]
+//   normalize[:peak[:dBFS]]        normalize:lufs[:target[:ceiling dBTP]]
+// An IR path may contain ':'; only a number after its last ':' is the wet level.
+// Everything streams through a single pass, except that each normalize
+// needs one analysis pass over the steps before it to find its gain.
+void applyEffectChain(const string &input, const string &output, const vector<string> &specs) {
+    if (specs.empty()) {
+        throw invalid_argument("Effect chain is empty.");
     }
+    vector<ChainStep> steps;
+    for (size_t i = 0; i < specs.size(); ++i) steps.push_back(parseChainStep(specs[i]));
 
-    // Write the modified audio data to the output file
-    ofstream outFile(output, ios::binary);
+    WAVHeader header;
+    size_t channels;
+    uint32_t sampleRate;
+    {
+        WavReader probe(input);
+        header = probe.header();
+        channels = probe.channels();
+        sampleRate = probe.sampleRate();
+    }
 
-    if (!outFile) {
-        cerr << "Error opening output file." << endl;
-        return;
+    // Resolve every normalize into the gain it needs at that point of the chain
+    size_t passes = 1;
+    for (size_t k = 0; k < steps.size(); ++k) {
+        if (steps[k].name != "normalize") continue;
+        const vector<string> &args = steps[k].args;
+        string mode = args.empty() || args[0].empty() ? "PEAK" : args[0];
+        for (size_t c = 0; c < mode.size(); ++c) mode[c] = static_cast<char>(toupper(mode[c]));
+
+        EffectChain prefix(channels);
+        buildEffectChain(prefix, steps, k, channels, sampleRate);
+        WavReader reader(input);
+        double gainDb;
+        if (mode == "PEAK") {
+            double targetDb = args.size() > 1 && !args[1].empty() ? stod(args[1]) : 0.0;
+            PeakSink sink(channels);
+            prefix.run(reader, sink);
+            gainDb = sink.peak() > 0 ? targetDb - 20 * log10(sink.peak()) : 0.0;
+        } else if (mode == "LUFS") {
+            double targetLufs = args.size() > 1 && !args[1].empty() ? stod(args[1]) : -16.0;
+            double ceilingDbtp = args.size() > 2 && !args[2].empty() ? stod(args[2]) : -1.0;
+            LoudnessSink sink(channels, sampleRate);
+            prefix.run(reader, sink);
+            LoudnessStats stats = sink.finish();
+            if (!(stats.integrated > -HUGE_VAL)) {
+                throw runtime_error("Audio is too quiet to measure its loudness.");
+            }
+            gainDb = targetLufs - stats.integrated;
+            if (stats.truePeak + gainDb > ceilingDbtp) gainDb = ceilingDbtp - stats.truePeak;
+        } else {
+            throw invalid_argument("Invalid normalize mode: " + args[0]);
+        }
+        ostringstream gain;
+        gain << setprecision(9) << pow(10, gainDb / 20.0);
+        steps[k].name = "gain";
+        steps[k].args.assign(1, gain.str());
+        ++passes;
     }
 
-    outFile.write(reinterpret_cast<char *>(&header), sizeof(header));
-    outFile.write(reinterpret_cast<char *>(audio.data()), header.dataSize);
-    cout << "Output file created successfully." << endl;
-    outFile.close();
+    EffectChain chain(channels);
+    buildEffectChain(chain, steps, steps.size(), channels, sampleRate);
+    WavReader reader(input);
+    WavWriter writer(output, header);
+    WriterSink sink(writer, channels);
+    chain.run(reader, sink);
+    writer.close();
 
-    return;
+    cout << "Effect chain of " << specs.size() << " steps ran as " << chain.size() << " stages in "
+         << passes << (passes == 1 ? " pass" : " passes") << ". Output written to " << output << endl;
 }
 
 void superimposeWAVFiles(const string &baseFilePath, const string &overlayFilePath, const string &outputFilePath, int offsetMs) {
     WAVHeader baseHeader, overlayHeader;
 
-    // Read the base WAV file
+    // Read the base WAV file straight into 16-bit samples
     streampos pos = readWAVFile(baseFilePath, baseHeader);
     ifstream baseFile(baseFilePath, ios::binary);
     baseFile.seekg(pos); // Seek to the start of the audio data
-    vector<char> baseData(baseHeader.dataSize);
-    baseFile.read(baseData.data(), baseHeader.dataSize);
+    PooledBuffer<int16_t> baseAudio(baseHeader.dataSize / sizeof(int16_t));
+    readSamples(baseFile, baseAudio);
     baseFile.close();
 
-    // Read the overlay WAV file
-    readWAVFile(overlayFilePath, overlayHeader);
+    // Read the overlay WAV file from its own data chunk
+    streampos overlayPos = readWAVFile(overlayFilePath, overlayHeader);
     ifstream overlayFile(overlayFilePath, ios::binary);
-    overlayFile.seekg(pos); // Seek to the start of the audio data
-    vector<char> overlayData(overlayHeader.dataSize);
-    overlayFile.read(overlayData.data(), overlayHeader.dataSize);
+    overlayFile.seekg(overlayPos);
+    PooledBuffer<int16_t> overlayAudio(overlayHeader.dataSize / sizeof(int16_t));
+    readSamples(overlayFile, overlayAudio);
     overlayFile.close();
 
     // Ensure the two files are compatible
@@ -622,49 +815,25 @@ void superimposeWAVFiles(const string &baseFilePath, const string &overlayFilePa
         throw runtime_error("The sample rate or channel count of the two WAV files do not match.");
     }
 
-    // Calculate offset in bytes
-    int offsetBytes = (offsetMs / 1000.0) * baseHeader.byteRate;
+    // Calculate offset in samples, aligned to a whole frame so channels stay in place
+    size_t offsetFrames = static_cast<size_t>(offsetMs / 1000.0 * baseHeader.sampleRate);
+    size_t offsetSamples = offsetFrames * baseHeader.numChannels;
 
     // Ensure the base file can accommodate the overlay at the offset
-    if (offsetBytes + overlayData.size() > baseData.size()) {
-        baseData.resize(offsetBytes + overlayData.size(), 0); // Extend with silence
-        baseHeader.dataSize = baseData.size();
+    if (offsetSamples + overlayAudio.size() > baseAudio.size()) {
+        baseAudio.resize(offsetSamples + overlayAudio.size()); // Extend with silence
+        baseHeader.dataSize = baseAudio.size() * sizeof(int16_t);
         baseHeader.chunkSize = baseHeader.dataSize + sizeof(WAVHeader) - 8;
     }
 
-    // Convert char data to int16_t (16-bit PCM data)
-    vector<int16_t> baseAudio(baseData.size() / 2);
-    vector<int16_t> overlayAudio(overlayData.size() / 2);
-
-    // Convert to 16-bit audio samples
-    for (size_t i = 0; i < baseAudio.size(); ++i) {
-        baseAudio[i] = *reinterpret_cast<int16_t *>(&baseData[i * 2]);
-    }
-
-    for (size_t i = 0; i < overlayAudio.size(); ++i) {
-        overlayAudio[i] = *reinterpret_cast<int16_t *>(&overlayData[i * 2]);
-    }
-
     // Set a scaling factor for the overlay (for louder overlay)
     float overlayScale = 1.0f; // 1.0 means no scaling, adjust as needed
 
-    // Superimpose the audio data with adjusted scaling for overlay
-    for (size_t i = 0; i < overlayAudio.size(); ++i) {
-        size_t index = offsetBytes / 2 + i;
-        if (index >= baseAudio.size()) break;
-
-        int16_t baseSample = baseAudio[index];
-        int16_t overlaySample = overlayAudio[i];
-
-        // Apply scaling to overlay and mix with the base sample
-        int32_t mixedSample = baseSample + static_cast<int32_t>(overlaySample * overlayScale);
-
-        // Ensure the mixed sample is within the 16-bit range
-        if (mixedSample > 32767) mixedSample = 32767;
-        if (mixedSample < -32768) mixedSample = -32768;
-
-        baseAudio[index] = static_cast<int16_t>(mixedSample);
-    }
+    // Superimpose the overlay onto the base, clamping to the 16-bit range
+    parallelRanges(overlayAudio.size(), 1, [&](size_t begin, size_t end) {
+        kernels().mixAccumulate(baseAudio.data() + offsetSamples + begin, overlayAudio.data() + begin, end - begin,
+                                overlayScale);
+    });
 
     // Write the superimposed audio to the output file
     ofstream outFile(outputFilePath, ios::binary);
@@ -679,10 +848,103 @@ void superimposeWAVFiles(const string &baseFilePath, const string &overlayFilePa
     cout << "Output file created successfully." << endl;
     outFile.close();
 
-    return;
     cout << "Superimposed WAV file saved to: " << outputFilePath << endl;
 }
 
+// Scans the whole file for silences; the reader is left at the end
+vector<SilenceRegion> detectSilence(WavReader &reader, const SilenceSettings &settings) {
+    SilenceDetector detector(reader.channels(), reader.sampleRate(), settings);
+    PooledBuffer<int16_t> pcm(kParallelChunkFrames * reader.channels());
+    size_t frames;
+    while ((frames = reader.read(pcm.data(), kParallelChunkFrames)) > 0) {
+        detector.process(pcm.data(), frames);
+    }
+    return detector.finish();
+}
+
+// [threshold dBFS], [minimum silence ms] from params[first] on; blanks keep the defaults
+static SilenceSettings silenceSettingsFromParams(const vector<string> &params, size_t first, double minSilenceMs) {
+    SilenceSettings settings;
+    settings.minSilenceMs = minSilenceMs;
+    if (params.size() > first && !params[first].empty()) settings.thresholdDb = stod(params[first]);
+    if (params.size() > first + 1 && !params[first + 1].empty()) settings.minSilenceMs = stod(params[first + 1]);
+    return settings;
+}
+
+// Cuts silence out of the file. Without stripInternal only the leading and
+// trailing silence goes; with it every detected silence is cut as well.
+// padMs of each silence is kept next to the sound so attacks and decays are
+// not clipped, and each splice gets a short fade so it does not click.
+void removeSilence(const string &input, const string &output, const SilenceSettings &settings, bool stripInternal,
+                   double padMs) {
+    WavReader reader(input);
+    const size_t channels = reader.channels();
+    const uint64_t total = reader.totalFrames();
+    vector<SilenceRegion> regions = detectSilence(reader, settings);
+
+    // Complement of the cuts
+    const uint64_t pad = static_cast<uint64_t>(llround(max(0.0, padMs) * reader.sampleRate() / 1000.0));
+    vector<SilenceRegion> keep;
+    uint64_t position = 0;
+    size_t cuts = 0;
+    for (size_t i = 0; i < regions.size(); ++i) {
+        bool leading = regions[i].start == 0;
+        bool trailing = regions[i].end == total;
+        if (!stripInternal && !leading && !trailing) continue;
+        uint64_t cutStart = leading ? 0 : regions[i].start + pad;
+        uint64_t cutEnd = trailing ? total : (regions[i].end > pad ? regions[i].end - pad : 0);
+        if (cutEnd <= cutStart) continue;
+        ++cuts;
+        if (cutStart > position) {
+            SilenceRegion segment = {position, cutStart};
+            keep.push_back(segment);
+        }
+        position = cutEnd;
+    }
+    if (position < total) {
+        SilenceRegion segment = {position, total};
+        keep.push_back(segment);
+    }
+    if (keep.empty()) {
+        throw runtime_error("The whole file is silence.");
+    }
+
+    WavWriter writer(output, reader.header());
+    PooledBuffer<int16_t> pcm(kStreamBlockFrames * channels);
+    const uint64_t fadeFrames = max<uint64_t>(1, reader.sampleRate() / 200); // 5 ms
+    uint64_t kept = 0;
+    for (size_t k = 0; k < keep.size(); ++k) {
+        uint64_t length = keep[k].end - keep[k].start;
+        uint64_t fade = min(fadeFrames, length / 2);
+        uint64_t fadeIn = keep[k].start > 0 ? fade : 0;
+        uint64_t fadeOut = keep[k].end < total ? fade : 0;
+        reader.seekFrame(static_cast<size_t>(keep[k].start));
+        for (uint64_t done = 0; done < length;) {
+            size_t frames = reader.read(pcm.data(), static_cast<size_t>(min<uint64_t>(kStreamBlockFrames, length - done)));
+            if (frames == 0) break;
+            for (size_t f = 0; f < frames; ++f) {
+                uint64_t at = done + f;
+                float gain = 1.0f;
+                if (at < fadeIn) gain = (at + 0.5f) / fadeIn;
+                if (length - at <= fadeOut) gain = min(gain, (length - at - 0.5f) / fadeOut);
+                if (gain < 1.0f) {
+                    for (size_t c = 0; c < channels; ++c) {
+                        int16_t &sample = pcm[f * channels + c];
+                        sample = static_cast<int16_t>(lrintf(sample * gain));
+                    }
+                }
+            }
+            writer.write(pcm.data(), frames);
+            done += frames;
+        }
+        kept += length;
+    }
+    writer.close();
+
+    cout << "Removed " << (total - kept) * 1000.0 / reader.sampleRate() << " ms of silence in " << cuts
+         << (cuts == 1 ? " cut" : " cuts") << ". Output written to " << output << endl;
+}
+
 void blankWAV(const string &filename, double duration, int sample_rate = 44100, int num_channels = 2, int bits_per_sample = 16) {
 
     int num_samples = duration * sample_rate;
@@ -706,17 +968,17 @@ void blankWAV(const string &filename, double duration, int sample_rate = 44100,
     ofstream file(filename, ios::binary);
     file.write(reinterpret_cast<const char *>(&header), sizeof(header));
 
-    char *data = new char[data_size];
-    memset(data, 0, data_size);
-    file.write(data, data_size);
-    delete[] data;
+    PooledBuffer<char> data(data_size, 0);
+    file.write(data.data(), data_size);
 
     file.close();
     return;
 }
 
-void utilityBelt(int input, string inputFilePath, string outputFilePath, vector<string> params) {
+// Runs one op; false if it failed, in which case the output may be missing or partial
+bool utilityBelt(int input, string inputFilePath, string outputFilePath, vector<string> params) {
     streampos pos;
+    bool ok = true;
 
 //    cout << "0  : Details\n1  : Loop\n2  : Trim\n3  : Clip Gain\n4  : Frequency Scaling\n5  : Time Scaling\n6  : Compressing\n7  : Audio Filter\n8  : Normalize\n9  : Reverb\n10 : Superimposition\n11 : EXIT" << endl;
 //    cout << "Enter function: ";
@@ -730,6 +992,7 @@ void utilityBelt(int input, string inputFilePath, string outputFilePath, vector<
                 blankWAV(outputFilePath, dur);
             } catch (const exception &e) {
                 cerr << "Error: " << e.what() << endl;
+                ok = false;
             }
 
             break;
@@ -742,6 +1005,7 @@ void utilityBelt(int input, string inputFilePath, string outputFilePath, vector<
                 displayWAVHeader(header);
             } catch (const exception &e) {
                 cerr << "Error: " << e.what() << endl;
+                ok = false;
             }
 
             break;
@@ -755,6 +1019,7 @@ void utilityBelt(int input, string inputFilePath, string outputFilePath, vector<
 
             } catch (const exception &e) {
                 cerr << "Error: " << e.what() << endl;
+                ok = false;
             }
 
             break;
@@ -767,23 +1032,24 @@ void utilityBelt(int input, string inputFilePath, string outputFilePath, vector<
                 // Trim the audio file
                 trimAudio(inputFilePath, splitTimeMs, outputFilePath, choice);
 
-            } catch (const runtime_error &e) {
+            } catch (const exception &e) {
                 cerr << "Error: " << e.what() << endl;
+                ok = false;
             }
 
             break;
 
         case 3: // amp
         {
-
-            double factor = stod(params[0]);
-
             try {
+                double factor = stod(params.at(0));
+
                 ampScale(inputFilePath, outputFilePath, factor);
 
                 // displayWAVHeader(header);
             } catch (const exception &e) {
                 cerr << "Error: " << e.what() << endl;
+                ok = false;
             }
 
             break;
@@ -792,12 +1058,14 @@ void utilityBelt(int input, string inputFilePath, string outputFilePath, vector<
         case 4: // Frequency manupilator
 
             try {
-                float manipulationFactor = stod(params[0]);
+                double manipulationFactor = stod(params.at(0));
+                int quality = params.size() > 1 && !params[1].empty() ? stoi(params[1]) : RESAMPLE_HIGH;
 
-                frequencyManipulator(inputFilePath, outputFilePath, manipulationFactor);
+                frequencyManipulator(inputFilePath, outputFilePath, manipulationFactor, quality);
 
             } catch (const exception &e) {
                 cerr << "Error: " << e.what() << endl;
+                ok = false;
             }
 
             break;
@@ -806,67 +1074,79 @@ void utilityBelt(int input, string inputFilePath, string outputFilePath, vector<
 
             try {
 
-                float timeToBeScaled = stof(params[0]);
+                double targetDurationMs = stod(params.at(0));
 
-                frequencyManipulator(inputFilePath, outputFilePath, timeToBeScaled);
+                time_scalar(inputFilePath, outputFilePath, targetDurationMs);
 
             } catch (const exception &e) {
                 cerr << "Error: " << e.what() << endl;
+                ok = false;
             }
 
             break;
 
         case 6: // Compressor
         {
+            // threshold, ratio, [mode], [attack ms], [release ms], [lookahead ms], [knee dB], [makeup dB]
+            try {
+                DynamicsSettings settings = dynamicsSettingsFromParams(params);
 
-            double threshold = stod(params[0]);
-            double ratio = stod(params[1]);
-
-            applyCompression(inputFilePath, outputFilePath, threshold, ratio);
+                applyCompression(inputFilePath, outputFilePath, settings);
+            } catch (const exception &e) {
+                cerr << "Error: " << e.what() << endl;
+                ok = false;
+            }
             break;
         }
 
         case 7: // audiofilter
         {
-            double cutoffFrequency = stod(params[0]);
-            char filterType = (params[1][0]);
-
+            // cutoff, type, [Q], [gain dB], [sections]
             try {
-                if (filterType == 'L' || filterType == 'l') {
-                    applyLowPassFilter(inputFilePath, outputFilePath, cutoffFrequency);
-                } else if (filterType == 'H' || filterType == 'h') {
-                    applyHighPassFilter(inputFilePath, outputFilePath, cutoffFrequency);
-                } else {
-                    cerr << "Invalid filter type!" << endl;
-                }
+                applyBiquadFilter(inputFilePath, outputFilePath, params);
             } catch (const exception &e) {
                 cerr << "Error: " << e.what() << endl;
+                ok = false;
             }
             break;
         }
 
         case 8: // normalize
+            // [PEAK|LUFS], [target dBFS or LUFS], [true-peak ceiling dBTP]
             try {
-                normalize(inputFilePath, outputFilePath);
+                string mode = params.empty() || params[0].empty() ? "PEAK" : params[0];
+                for (size_t i = 0; i < mode.size(); ++i) mode[i] = static_cast<char>(toupper(mode[i]));
+                bool hasTarget = params.size() > 1 && !params[1].empty();
+                if (mode == "PEAK") {
+                    normalize(inputFilePath, outputFilePath, hasTarget ? stod(params[1]) : 0);
+                } else if (mode == "LUFS") {
+                    double ceiling = params.size() > 2 && !params[2].empty() ? stod(params[2]) : -1;
+                    normalizeLoudness(inputFilePath, outputFilePath, hasTarget ? stod(params[1]) : -16, ceiling);
+                } else {
+                    throw invalid_argument("Invalid normalize mode!");
+                }
 
                 // displayWAVHeader(header);
             } catch (const exception &e) {
                 cerr << "Error: " << e.what() << endl;
+                ok = false;
             }
             break;
 
         case 9: // reverb
         {
 
-            int reverbLevel = stoi(params[0]);
-
             try {
-                // Apply reverb
-                applyReverb(inputFilePath, outputFilePath, reverbLevel);
+                // Level 1-3 or an impulse response path, then an optional wet level
+                string reverb = params.at(0);
+                double wetGain = params.size() > 1 && !params[1].empty() ? stod(params[1]) : -1;
+
+                applyReverb(inputFilePath, outputFilePath, reverb, wetGain);
 
                 cout << "Reverb applied and file saved to: " << outputFilePath << endl;
             } catch (const exception &e) {
                 cerr << "Error: " << e.what() << endl;
+                ok = false;
             }
             break;
         }
@@ -874,19 +1154,161 @@ void utilityBelt(int input, string inputFilePath, string outputFilePath, vector<
         case 10: // superimposition
         {
 
-            string overlayFilePath = params[0];
-            int offsetMs = static_cast<int>(stof(params[1]));
-
             try {
+                string overlayFilePath = params.at(0);
+                int offsetMs = static_cast<int>(stof(params.at(1)));
+
                 superimposeWAVFiles(inputFilePath, overlayFilePath, outputFilePath, offsetMs);
             } catch (const exception &e) {
                 cerr << "Error: " << e.what() << endl;
+                ok = false;
+            }
+            break;
+        }
+
+        case 11: // pitch shift
+        {
+            try {
+                double semitones = stod(params.at(0));
+
+                pitchShift(inputFilePath, outputFilePath, semitones);
+            } catch (const exception &e) {
+                cerr << "Error: " << e.what() << endl;
+                ok = false;
             }
             break;
         }
+        case 12: // effect chain
+        {
+            try {
+                applyEffectChain(inputFilePath, outputFilePath, params);
+            } catch (const exception &e) {
+                cerr << "Error: " << e.what() << endl;
+                ok = false;
+            }
+            break;
+        }
+        case 13: // silence removal
+        {
+            // TRIM|STRIP, [threshold dBFS], [minimum silence ms], [pad ms]
+            try {
+                string mode = params.at(0);
+                for (size_t i = 0; i < mode.size(); ++i) mode[i] = static_cast<char>(toupper(mode[i]));
+                if (mode != "TRIM" && mode != "STRIP") {
+                    throw invalid_argument("Invalid silence removal mode!");
+                }
+                bool strip = mode == "STRIP";
+                SilenceSettings settings = silenceSettingsFromParams(params, 1, strip ? 500 : 100);
+                double padMs = params.size() > 3 && !params[3].empty() ? stod(params[3]) : 50;
+
+                removeSilence(inputFilePath, outputFilePath, settings, strip, padMs);
+            } catch (const exception &e) {
+                cerr << "Error: " << e.what() << endl;
+                ok = false;
+            }
+            break;
+        }
+        default:
+            cerr << "Error: Unknown operation " << input << endl;
+            ok = false;
     }
 
-    return;
+    return ok;
+}
+
+static string formatLevel(double value) {
+    if (!(value > -HUGE_VAL)) return "-inf";
+    ostringstream out;
+    out << fixed << setprecision(2) << value;
+    return out.str();
+}
+
+static string formatMs(double value) {
+    ostringstream out;
+    out << fixed << setprecision(1) << value;
+    return out.str();
+}
+
+// Read-only analyses; results go back to Java as "key=value" strings, or a
+// single "error=..." entry
+vector<string> analysisBelt(int operation, const string &inputFilePath, const vector<string> &params) {
+    vector<string> results;
+    try {
+        switch (operation) {
+            case 0: // loudness
+            {
+                LoudnessStats stats = measureLoudness(inputFilePath);
+                results.push_back("integratedLufs=" + formatLevel(stats.integrated));
+                results.push_back("momentaryMaxLufs=" + formatLevel(stats.momentaryMax));
+                results.push_back("shortTermMaxLufs=" + formatLevel(stats.shortTermMax));
+                results.push_back("loudnessRangeLu=" + formatLevel(stats.range));
+                results.push_back("truePeakDbtp=" + formatLevel(stats.truePeak));
+                results.push_back("samplePeakDbfs=" + formatLevel(stats.samplePeak));
+                break;
+            }
+            case 1: // silence: [threshold dBFS], [minimum silence ms]
+            {
+                SilenceSettings settings = silenceSettingsFromParams(params, 0, SilenceSettings().minSilenceMs);
+                WavReader reader(inputFilePath);
+                vector<SilenceRegion> regions = detectSilence(reader, settings);
+                double msPerFrame = 1000.0 / reader.sampleRate();
+                results.push_back("durationMs=" + formatMs(reader.totalFrames() * msPerFrame));
+                for (size_t i = 0; i < regions.size(); ++i) {
+                    results.push_back("silence=" + formatMs(regions[i].start * msPerFrame) + "," +
+                                      formatMs(regions[i].end * msPerFrame));
+                }
+                break;
+            }
+            case 2: // spectrogram: tile path, first column, columns, [FFT size], [hop]
+            {
+                SpectrogramSettings settings;
+                if (params.size() > 3) settings.fftSize = static_cast<size_t>(stoul(params[3]));
+                if (params.size() > 4) settings.hop = static_cast<size_t>(stoul(params[4]));
+                size_t first = params.size() > 1 ? static_cast<size_t>(stoull(params[1])) : 0;
+                size_t columns = params.size() > 2 ? static_cast<size_t>(stoull(params[2])) : 0;
+                size_t frames;
+                uint32_t sampleRate;
+                {
+                    WavReader reader(inputFilePath);
+                    frames = reader.totalFrames();
+                    sampleRate = reader.sampleRate();
+                }
+                size_t total = spectrogramColumns(frames, settings);
+                // With no tile path or no columns this only describes the file
+                if (!params.empty() && !params[0].empty() && columns > 0 && first < total) {
+                    writeSpectrogramTile(inputFilePath, params[0], first, min(columns, total - first), settings);
+                }
+                results.push_back("sampleRate=" + to_string(sampleRate));
+                results.push_back("frames=" + to_string(frames));
+                results.push_back("columns=" + to_string(total));
+                results.push_back("bins=" + to_string(settings.fftSize / 2 + 1));
+                results.push_back("hop=" + to_string(settings.hop));
+                break;
+            }
+            default:
+                results.push_back("error=Unknown analysis " + to_string(operation));
+        }
+    } catch (const exception &e) {
+        results.clear();
+        results.push_back(string("error=") + e.what());
+    }
+    return results;
+}
+
+// Buffer pool counters as "key=value" strings for the Java side
+vector<string> bufferPoolReport() {
+    BufferPoolStats stats = bufferPool().stats();
+    ostringstream hitRate;
+    hitRate << fixed << setprecision(2) << (stats.requests > 0 ? 100.0 * stats.hits / stats.requests : 0.0);
+    vector<string> results;
+    results.push_back("requests=" + to_string(stats.requests));
+    results.push_back("hits=" + to_string(stats.hits));
+    results.push_back("misses=" + to_string(stats.misses));
+    results.push_back("hitRatePercent=" + hitRate.str());
+    results.push_back("bytesInUse=" + to_string(stats.bytesInUse));
+    results.push_back("peakBytesInUse=" + to_string(stats.peakBytesInUse));
+    results.push_back("bytesCached=" + to_string(stats.bytesCached));
+    return results;
 }
 
 int main1() {
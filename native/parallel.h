@@ -0,0 +1,267 @@
+#ifndef AUDIOEDITOR_PARALLEL_H
+#define AUDIOEDITOR_PARALLEL_H
+
+#include <algorithm>
+#include <atomic>
+#include <condition_variable>
+#include <cstdint>
+#include <cstdlib>
+#include <exception>
+#include <functional>
+#include <memory>
+#include <mutex>
+#include <thread>
+#include <vector>
+
+// Multi-core processing of long files.
+//
+// One pool of worker threads lives for the lifetime of the library, so an
+// op pays no thread start-up cost. Stateless work (gain, conversion, peak
+// scans, mixing) is simply split into ranges. Effects with state (biquads,
+// dynamics) cut the file into chunks that are processed independently: the
+// engine for a chunk is started a warm-up region early and that output is
+// discarded, by which time its state has converged on what a single
+// sequential engine would hold at the chunk boundary.
+
+class ThreadPool {
+public:
+    // threads counts the calling thread, which always takes part in the work
+    explicit ThreadPool(size_t threads) : job(NULL), jobCount(0), nextIndex(0), active(0), generation(0),
+                                          stopping(false) {
+        for (size_t i = 1; i < threads; ++i) workers.push_back(thread(&ThreadPool::workerLoop, this));
+    }
+
+    ~ThreadPool() {
+        {
+            lock_guard<mutex> lock(stateMutex);
+            stopping = true;
+        }
+        wake.notify_all();
+        for (size_t i = 0; i < workers.size(); ++i) workers[i].join();
+    }
+
+    size_t size() const { return workers.size() + 1; }
+
+    // Runs task(i) for every i in [0, count) across the pool and returns once
+    // all have finished. The first exception thrown by a task is rethrown
+    // here. Calls from inside a task run inline instead of deadlocking.
+    void parallelFor(size_t count, const function<void(size_t)> &task) {
+        if (count == 0) return;
+        if (count == 1 || workers.empty() || insideWorker()) {
+            for (size_t i = 0; i < count; ++i) task(i);
+            return;
+        }
+
+        lock_guard<mutex> submit(submitMutex); // One job at a time
+        {
+            lock_guard<mutex> lock(stateMutex);
+            job = &task;
+            jobCount = count;
+            nextIndex = 0;
+            failure = exception_ptr();
+            ++generation;
+        }
+        wake.notify_all();
+
+        bool wasInside = insideWorker();
+        insideWorker() = true;
+        runTasks(task, count);
+        insideWorker() = wasInside;
+
+        unique_lock<mutex> lock(stateMutex);
+        finished.wait(lock, [this] { return active == 0; });
+        job = NULL;
+        exception_ptr error = failure;
+        failure = exception_ptr();
+        lock.unlock();
+        if (error) rethrow_exception(error);
+    }
+
+private:
+    ThreadPool(const ThreadPool &);
+    ThreadPool &operator=(const ThreadPool &);
+
+    static bool &insideWorker() {
+        static thread_local bool inside = false;
+        return inside;
+    }
+
+    void runTasks(const function<void(size_t)> &task, size_t count) {
+        size_t i;
+        while ((i = nextIndex.fetch_add(1)) < count) {
+            try {
+                task(i);
+            } catch (...) {
+                lock_guard<mutex> lock(stateMutex);
+                if (!failure) failure = current_exception();
+            }
+        }
+    }
+
+    void workerLoop() {
+        insideWorker() = true;
+        uint64_t seen = 0;
+        while (true) {
+            const function<void(size_t)> *task;
+            size_t count;
+            {
+                unique_lock<mutex> lock(stateMutex);
+                wake.wait(lock, [&] { return stopping || generation != seen; });
+                if (stopping) return;
+                seen = generation;
+                // The job may already be over by the time this thread wakes
+                if (job == NULL) continue;
+                task = job;
+                count = jobCount;
+                ++active;
+            }
+            runTasks(*task, count);
+            {
+                lock_guard<mutex> lock(stateMutex);
+                --active;
+            }
+            finished.notify_all();
+        }
+    }
+
+    vector<thread> workers;
+    mutex submitMutex;
+    mutex stateMutex;
+    condition_variable wake;
+    condition_variable finished;
+    const function<void(size_t)> *job;
+    size_t jobCount;
+    atomic<size_t> nextIndex;
+    size_t active;      // Workers currently inside runTasks
+    uint64_t generation;
+    bool stopping;
+    exception_ptr failure;
+};
+
+// The library-wide pool: one thread per core, or AUDIOEDITOR_THREADS
+static ThreadPool &threadPool() {
+    static ThreadPool pool([] {
+        const char *configured = getenv("AUDIOEDITOR_THREADS");
+        long threads = configured != NULL ? strtol(configured, NULL, 10) : 0;
+        if (threads <= 0) threads = static_cast<long>(thread::hardware_concurrency());
+        return static_cast<size_t>(threads > 0 ? threads : 1);
+    }());
+    return pool;
+}
+
+// Below this many samples a range is not worth handing to another thread
+static const size_t kParallelMinSamples = 1 << 16;
+
+// Runs task(begin, end) over [0, count) split into about one range per
+// thread. Range boundaries are multiples of grain (e.g. the channel count).
+static void parallelRanges(size_t count, size_t grain, const function<void(size_t, size_t)> &task) {
+    ThreadPool &pool = threadPool();
+    size_t ranges = min(pool.size(), max<size_t>(1, count / kParallelMinSamples));
+    size_t step = (count / ranges + grain - 1) / grain * grain;
+    if (step == 0) step = grain;
+    ranges = (count + step - 1) / step;
+    pool.parallelFor(ranges, [&](size_t r) {
+        size_t begin = r * step;
+        task(begin, min(count, begin + step));
+    });
+}
+
+// Frames per independently processed chunk; large enough that the warm-up
+// of a typical filter or compressor is a small fraction of it
+static const size_t kParallelChunkFrames = 1 << 18;
+
+// Streams reader into writer through a length-preserving stage on all cores.
+// Each chunk gets a fresh stage from makeStage that starts warmupFrames
+// before the chunk; lookaheadFrames of input past the chunk are fed so a
+// stage with latency delivers the whole chunk. With one thread, or a file
+// of a single chunk, one stage runs from start to end.
+static void processChunked(WavReader &reader, WavWriter &writer, size_t warmupFrames, size_t lookaheadFrames,
+                           const function<ChainStage *()> &makeStage) {
+    const size_t channels = reader.channels();
+    const uint64_t total = reader.totalFrames();
+    ThreadPool &pool = threadPool();
+    const size_t chunk = max<uint64_t>(kParallelChunkFrames, 8 * min<uint64_t>(warmupFrames, total));
+
+    if (pool.size() == 1 || total <= chunk) {
+        EffectChain chain(channels);
+        chain.add(makeStage());
+        WriterSink sink(writer, channels);
+        chain.run(reader, sink);
+        return;
+    }
+
+    const size_t tasks = pool.size();
+    PooledBuffer<int16_t> pcm;
+    PooledBuffer<float> window;  // Input frames from windowStart on
+    uint64_t windowStart = 0;
+    size_t windowFrames = 0;
+    vector<PooledBuffer<int16_t> > outputs(tasks);
+
+    for (uint64_t batchStart = 0; batchStart < total; batchStart += tasks * chunk) {
+        uint64_t batchEnd = min<uint64_t>(total, batchStart + tasks * chunk);
+        uint64_t keepFrom = batchStart > warmupFrames ? batchStart - warmupFrames : 0;
+        uint64_t readTo = min<uint64_t>(total, batchEnd + lookaheadFrames);
+
+        // Keep the warm-up region before the batch, read what the batch needs
+        size_t drop = static_cast<size_t>(keepFrom - windowStart);
+        if (drop > 0) {
+            windowFrames -= drop;
+            memmove(window.data(), window.data() + drop * channels, windowFrames * channels * sizeof(float));
+            windowStart = keepFrom;
+        }
+        size_t fresh = static_cast<size_t>(readTo - windowStart) - windowFrames;
+        window.resize((windowFrames + fresh) * channels);
+        pcm.resize(fresh * channels);
+        size_t got = reader.read(pcm.data(), fresh);
+        fill(pcm.begin() + got * channels, pcm.end(), 0);
+        float *incoming = window.data() + windowFrames * channels;
+        parallelRanges(fresh * channels, channels, [&](size_t begin, size_t end) {
+            kernels().int16ToFloat(pcm.data() + begin, incoming + begin, end - begin);
+        });
+        windowFrames += fresh;
+
+        size_t count = static_cast<size_t>((batchEnd - batchStart + chunk - 1) / chunk);
+        pool.parallelFor(count, [&](size_t k) {
+            uint64_t start = batchStart + k * chunk;
+            uint64_t end = min<uint64_t>(batchEnd, start + chunk);
+            uint64_t from = start > warmupFrames ? start - warmupFrames : 0;
+            uint64_t to = min<uint64_t>(total, end + lookaheadFrames);
+            size_t skip = static_cast<size_t>(start - from);
+            size_t wanted = static_cast<size_t>(end - start);
+            size_t inFrames = static_cast<size_t>(to - from);
+            const float *input = window.data() + (from - windowStart) * channels;
+
+            unique_ptr<ChainStage> stage(makeStage());
+            PooledBuffer<float> result;
+            if (stage->inPlace()) {
+                result.resize(inFrames * channels);
+                memcpy(result.data(), input, inFrames * channels * sizeof(float));
+                stage->processInPlace(result.data(), inFrames);
+            } else {
+                // Output lines up with the input, so it is collected in place
+                size_t needed = skip + wanted;
+                PooledBuffer<float> block(stage->maxOutputFrames(kStreamBlockFrames) * channels);
+                result.resize(needed * channels);
+                size_t collected = 0;
+                for (size_t done = 0; done < inFrames || collected < needed;) {
+                    size_t produced;
+                    if (done < inFrames) {
+                        size_t frames = min(kStreamBlockFrames, inFrames - done);
+                        produced = stage->process(input + done * channels, frames, block.data());
+                        done += frames;
+                    } else if ((produced = stage->flush(block.data())) == 0) {
+                        break; // The rest stays silent
+                    }
+                    produced = min(produced, needed - collected);
+                    memcpy(result.data() + collected * channels, block.data(), produced * channels * sizeof(float));
+                    collected += produced;
+                }
+            }
+            outputs[k].resize(wanted * channels);
+            kernels().floatToInt16(result.data() + skip * channels, outputs[k].data(), wanted * channels);
+        });
+        for (size_t k = 0; k < count; ++k) writer.write(outputs[k].data(), outputs[k].size() / channels);
+    }
+}
+
+#endif // AUDIOEDITOR_PARALLEL_H
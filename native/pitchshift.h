@@ -0,0 +1,290 @@
+#ifndef AUDIOEDITOR_PITCHSHIFT_H
+#define AUDIOEDITOR_PITCHSHIFT_H
+
+#include <algorithm>
+#include <cmath>
+#include <cstdint>
+#include <cstring>
+#include <stdexcept>
+#include <vector>
+
+// Phase vocoder time stretch and the pitch shifter built on it.
+//
+// The vocoder analyses Hann-windowed frames every hop / ratio input samples
+// and resynthesises them every hop output samples (75% overlap), advancing
+// each spectral peak's phase by its measured instantaneous frequency. The
+// other bins are locked to the peak they belong to (identity phase locking),
+// which keeps partials coherent and avoids the usual phasiness. The FFT
+// plan, window and every per-frame buffer are allocated once.
+//
+// PitchShifter stretches by the pitch ratio and resamples the result by the
+// same ratio, so the pitch moves while the duration stays the same.
+
+class PhaseVocoder {
+public:
+    // ratio is output duration / input duration
+    PhaseVocoder(size_t channels, uint32_t sampleRate, double ratio)
+        : numChannels(channels), fftSize(frameSize(sampleRate)), hop(fftSize / 4),
+          analysisHop(hop / ratio), fft(fftSize), frameIndex(0), previousPosition(0),
+          inputStart(0), skip(fftSize / 2) {
+        if (channels == 0) {
+            throw invalid_argument("Phase vocoder needs at least one channel.");
+        }
+        if (!(ratio >= 0.1 && ratio <= 10)) {
+            throw invalid_argument("Stretch ratio must be between 0.1 and 10.");
+        }
+        size_t bins = fft.bins();
+        window.resize(fftSize);
+        for (size_t n = 0; n < fftSize; ++n) {
+            window[n] = static_cast<float>(0.5 - 0.5 * cos(2 * M_PI * n / fftSize));
+        }
+        // Hann analysis * Hann synthesis at 75% overlap sums to 1.5
+        outputScale = 1.0f / 1.5f;
+
+        binFrequency.resize(bins);
+        for (size_t k = 0; k < bins; ++k) {
+            binFrequency[k] = static_cast<float>(2 * M_PI * k / fftSize);
+        }
+        frameBuffer.resize(fftSize);
+        spectrum.resize(bins);
+        power.resize(bins);
+        peaks.reserve(bins);
+        Complex zero = {0.0f, 0.0f};
+        lastInput.assign(numChannels, vector<Complex>(bins, zero));
+        lastOutput.assign(numChannels, vector<Complex>(bins, zero));
+
+        // Half a frame of leading zeros centres the first frame on sample 0;
+        // the matching output samples are skipped
+        input.assign(numChannels, vector<float>(fftSize / 2, 0.0f));
+        overlap.assign(numChannels, vector<float>(fftSize, 0.0f));
+    }
+
+    size_t channels() const { return numChannels; }
+
+    size_t maxOutputFrames(size_t inputFrames) const {
+        return (static_cast<size_t>(ceil((inputFrames + fftSize) / analysisHop)) + 2) * hop;
+    }
+
+    size_t process(const float *data, size_t frames, float *output) {
+        size_t held = input[0].size();
+        for (size_t ch = 0; ch < numChannels; ++ch) {
+            vector<float> &in = input[ch];
+            in.resize(held + frames);
+            const float *src = data + ch;
+            for (size_t i = 0; i < frames; ++i, src += numChannels) {
+                in[held + i] = *src;
+            }
+        }
+        return drain(output);
+    }
+
+    // Pushes a hop of silence past the end of the input; call until the
+    // caller has collected the output length it needs
+    size_t flush(float *output) {
+        vector<float> silence(hop * numChannels, 0.0f);
+        return process(silence.data(), hop, output);
+    }
+
+private:
+    // ~46 ms frames: 2048 at 44.1 kHz
+    static size_t frameSize(uint32_t sampleRate) {
+        size_t size = nextPowerOfTwo(static_cast<size_t>(sampleRate * 0.046));
+        return size < 512 ? 512 : size;
+    }
+
+    static inline float wrapPhase(float value) {
+        return value - static_cast<float>(2 * M_PI) * floorf((value + static_cast<float>(M_PI)) / static_cast<float>(2 * M_PI));
+    }
+
+    size_t drain(float *output) {
+        size_t produced = 0;
+        int64_t inputEnd = inputStart + static_cast<int64_t>(input[0].size());
+
+        while (true) {
+            int64_t position = static_cast<int64_t>(llround(frameIndex * analysisHop));
+            if (position + static_cast<int64_t>(fftSize) > inputEnd) break;
+
+            float actualHop = static_cast<float>(position - previousPosition);
+            size_t offset = static_cast<size_t>(position - inputStart);
+            for (size_t ch = 0; ch < numChannels; ++ch) {
+                synthesiseFrame(ch, &input[ch][offset], actualHop);
+            }
+            previousPosition = position;
+            ++frameIndex;
+
+            size_t from = skip < hop ? skip : hop;
+            skip -= from;
+            for (size_t n = from; n < hop; ++n, ++produced) {
+                for (size_t ch = 0; ch < numChannels; ++ch) {
+                    output[produced * numChannels + ch] = overlap[ch][n];
+                }
+            }
+            for (size_t ch = 0; ch < numChannels; ++ch) {
+                vector<float> &o = overlap[ch];
+                memmove(o.data(), o.data() + hop, (fftSize - hop) * sizeof(float));
+                fill(o.begin() + (fftSize - hop), o.end(), 0.0f);
+            }
+        }
+
+        int64_t keepFrom = static_cast<int64_t>(llround(frameIndex * analysisHop));
+        size_t held = input[0].size();
+        size_t drop = keepFrom > inputStart ? static_cast<size_t>(keepFrom - inputStart) : 0;
+        if (drop > held) drop = held;
+        if (drop > 0) {
+            for (size_t ch = 0; ch < numChannels; ++ch) {
+                vector<float> &in = input[ch];
+                memmove(in.data(), in.data() + drop, (held - drop) * sizeof(float));
+                in.resize(held - drop);
+            }
+            inputStart += static_cast<int64_t>(drop);
+        }
+        return produced;
+    }
+
+    void synthesiseFrame(size_t ch, const float *in, float actualHop) {
+        size_t bins = fft.bins();
+        for (size_t n = 0; n < fftSize; ++n) {
+            frameBuffer[n] = in[n] * window[n];
+        }
+        fft.forward(frameBuffer.data(), spectrum.data());
+
+        vector<Complex> &lastIn = lastInput[ch];
+        vector<Complex> &out = lastOutput[ch];
+        peaks.clear();
+        if (frameIndex > 0) {
+            float maxPower = 0;
+            for (size_t k = 0; k < bins; ++k) {
+                power[k] = spectrum[k].re * spectrum[k].re + spectrum[k].im * spectrum[k].im;
+                if (power[k] > maxPower) maxPower = power[k];
+            }
+            // Maxima more than 80 dB below the loudest bin are sidelobes or
+            // noise floor; leaving them to a neighbouring peak saves the trig
+            float floor = maxPower * 1e-8f;
+            for (size_t k = 1; k + 1 < bins; ++k) {
+                if (power[k] > floor && power[k] > power[k - 1] && power[k] >= power[k + 1]) peaks.push_back(k);
+            }
+        }
+
+        if (peaks.empty()) {
+            // First frame (or silence): the input phases are taken as they are
+            copy(spectrum.begin(), spectrum.end(), out.begin());
+        } else {
+            // Advance each peak by its instantaneous frequency, then rotate the
+            // bins of its region by the same amount (identity phase locking).
+            // Only peaks need trigonometry; every other bin is one complex multiply.
+            size_t regionStart = 0;
+            for (size_t p = 0; p < peaks.size(); ++p) {
+                size_t peak = peaks[p];
+                size_t regionEnd = p + 1 < peaks.size() ? (peak + peaks[p + 1]) / 2 + 1 : bins;
+                Complex rotation = peakRotation(peak, lastIn[peak], out[peak], actualHop);
+                for (size_t k = regionStart; k < regionEnd; ++k) {
+                    const Complex x = spectrum[k];
+                    out[k].re = x.re * rotation.re - x.im * rotation.im;
+                    out[k].im = x.re * rotation.im + x.im * rotation.re;
+                }
+                regionStart = regionEnd;
+            }
+        }
+        copy(spectrum.begin(), spectrum.end(), lastIn.begin());
+
+        fft.inverse(out.data(), frameBuffer.data());
+        float *o = overlap[ch].data();
+        for (size_t n = 0; n < fftSize; ++n) {
+            o[n] += frameBuffer[n] * window[n] * outputScale;
+        }
+    }
+
+    static inline Complex unit(const Complex &c) {
+        float length = sqrtf(c.re * c.re + c.im * c.im);
+        Complex u = {1.0f, 0.0f};
+        if (length > 0) {
+            u.re = c.re / length;
+            u.im = c.im / length;
+        }
+        return u;
+    }
+
+    // Unit rotation taking the peak's input phase to its new output phase:
+    // the previous output phase advanced by the measured instantaneous
+    // frequency over one synthesis hop. Works on phasors so each peak costs
+    // one atan2 and one sin/cos pair.
+    Complex peakRotation(size_t k, const Complex &previousIn, const Complex &previousOut, float actualHop) {
+        const Complex &x = spectrum[k];
+        float delta = atan2f(x.im * previousIn.re - x.re * previousIn.im, x.re * previousIn.re + x.im * previousIn.im);
+        float deviation = wrapPhase(delta - binFrequency[k] * actualHop);
+        float instantaneous = actualHop > 0 ? binFrequency[k] + deviation / actualHop : binFrequency[k];
+        float advance = wrapPhase(instantaneous * hop);
+        Complex step = {cosf(advance), sinf(advance)};
+
+        Complex out = unit(previousOut);
+        Complex target = {out.re * step.re - out.im * step.im, out.re * step.im + out.im * step.re};
+        Complex in = unit(x);
+        Complex rotation = {target.re * in.re + target.im * in.im, target.im * in.re - target.re * in.im};
+        return rotation;
+    }
+
+    size_t numChannels;
+    size_t fftSize;
+    size_t hop;            // Synthesis hop
+    double analysisHop;    // hop / ratio
+    RealFFT fft;
+    float outputScale;
+    vector<float> window;
+    vector<float> binFrequency;
+    vector<float> frameBuffer;
+    vector<Complex> spectrum;
+    vector<float> power;
+    vector<size_t> peaks;
+    vector<vector<Complex> > lastInput;  // Previous analysis spectrum per channel
+    vector<vector<Complex> > lastOutput; // Previous synthesis spectrum per channel
+    vector<vector<float> > input;
+    vector<vector<float> > overlap;
+    size_t frameIndex;
+    int64_t previousPosition;
+    int64_t inputStart;
+    size_t skip;
+};
+
+class PitchShifter {
+public:
+    PitchShifter(size_t channels, uint32_t sampleRate, double semitones, int quality = RESAMPLE_HIGH)
+        : numChannels(channels), ratio(pitchRatio(semitones)), vocoder(channels, sampleRate, ratio),
+          resampler(channels, ratio, quality) {
+    }
+
+    static double pitchRatio(double semitones) {
+        if (!(semitones >= -24 && semitones <= 24)) {
+            throw invalid_argument("Pitch shift must be between -24 and 24 semitones.");
+        }
+        return pow(2.0, semitones / 12.0);
+    }
+
+    size_t maxOutputFrames(size_t inputFrames) const {
+        return resampler.maxOutputFrames(vocoder.maxOutputFrames(inputFrames));
+    }
+
+    size_t process(const float *data, size_t frames, float *output) {
+        reserveStretched(vocoder.maxOutputFrames(frames));
+        size_t stretchedFrames = vocoder.process(data, frames, stretched.data());
+        return resampler.process(stretched.data(), stretchedFrames, output);
+    }
+
+    size_t flush(float *output) {
+        reserveStretched(vocoder.maxOutputFrames(0));
+        size_t stretchedFrames = vocoder.flush(stretched.data());
+        return resampler.process(stretched.data(), stretchedFrames, output);
+    }
+
+private:
+    void reserveStretched(size_t frames) {
+        if (stretched.size() < frames * numChannels) stretched.resize(frames * numChannels);
+    }
+
+    size_t numChannels;
+    double ratio;
+    PhaseVocoder vocoder;
+    PolyphaseResampler resampler;
+    vector<float> stretched;
+};
+
+#endif // AUDIOEDITOR_PITCHSHIFT_H
@@ -0,0 +1,230 @@
+#ifndef AUDIOEDITOR_RESAMPLER_H
+#define AUDIOEDITOR_RESAMPLER_H
+
+#include <cmath>
+#include <cstdint>
+#include <cstring>
+#include <stdexcept>
+#include <vector>
+
+// Streaming polyphase windowed-sinc resampler.
+//
+// The Kaiser-windowed sinc is tabulated once per phase. Ratios that are a
+// fraction with a small denominator (2, 0.5, 160/147, ...) step through the
+// table exactly; any other ratio tracks a 32-bit fractional position and
+// interpolates between neighbouring phases. Input is pushed in blocks of any
+// size and only taps-many frames of history are kept per channel, so memory
+// does not depend on the length of the file.
+
+enum ResampleQuality {
+    RESAMPLE_FAST = 0,
+    RESAMPLE_MEDIUM = 1,
+    RESAMPLE_HIGH = 2,
+    RESAMPLE_BEST = 3
+};
+
+struct ResampleQualitySpec {
+    int zeroCrossings; // Sinc lobes on each side of the centre tap
+    double rolloff;    // Passband edge relative to the output Nyquist
+    double kaiserBeta; // Window shape, higher means more stopband attenuation
+    int phases;        // Table resolution for non-rational ratios (power of two)
+};
+
+static const ResampleQualitySpec kResampleQualitySpecs[] = {
+    {4, 0.85, 5.0, 128},
+    {8, 0.90, 7.0, 256},
+    {16, 0.94, 9.0, 512},
+    {32, 0.96, 11.0, 1024},
+};
+
+static double besselI0(double x) {
+    double sum = 1.0, term = 1.0, half = x / 2;
+    for (int k = 1; k < 50 && term > sum * 1e-12; ++k) {
+        term *= (half / k) * (half / k);
+        sum += term;
+    }
+    return sum;
+}
+
+class PolyphaseResampler {
+public:
+    // step is the number of input frames consumed per output frame: 2.0
+    // halves the length (and raises the pitch an octave), 0.5 doubles it.
+    PolyphaseResampler(size_t channels, double step, int quality = RESAMPLE_HIGH)
+        : numChannels(channels), step(step), position(0), phase(0) {
+        if (channels == 0) {
+            throw invalid_argument("Resampler needs at least one channel.");
+        }
+        if (!(step > 0) || step > 64) {
+            throw invalid_argument("Manipulation factor must be between 0 and 64.");
+        }
+        if (quality < RESAMPLE_FAST) quality = RESAMPLE_FAST;
+        if (quality > RESAMPLE_BEST) quality = RESAMPLE_BEST;
+        const ResampleQualitySpec &spec = kResampleQualitySpecs[quality];
+
+        stepWhole = static_cast<uint64_t>(floor(step));
+        double fraction = step - stepWhole;
+        uint64_t denominator = rationalDenominator(fraction);
+        if (denominator != 0) {
+            phaseDenominator = denominator;
+            stepFraction = static_cast<uint64_t>(llround(fraction * denominator));
+            phases = static_cast<size_t>(denominator);
+            phaseShift = 0;
+        } else {
+            phaseDenominator = 1ULL << 32;
+            stepFraction = static_cast<uint64_t>(fraction * 4294967296.0);
+            phases = static_cast<size_t>(spec.phases);
+            phaseShift = 32 - static_cast<int>(log2(static_cast<double>(phases)));
+        }
+
+        // Lower the cutoff when decimating so the result does not alias
+        double cutoff = spec.rolloff * (step > 1 ? 1.0 / step : 1.0);
+        halfTaps = static_cast<size_t>(ceil(spec.zeroCrossings / cutoff));
+        taps = halfTaps * 2;
+        buildTable(cutoff, spec.kaiserBeta);
+
+        history.assign(numChannels, vector<float>());
+        for (size_t ch = 0; ch < numChannels; ++ch) {
+            history[ch].reserve(taps + kStreamBlockFrames);
+            history[ch].assign(halfTaps - 1, 0.0f); // Centre the first output on input frame 0
+        }
+        historyStart = -static_cast<int64_t>(halfTaps - 1);
+    }
+
+    size_t channels() const { return numChannels; }
+
+    // Capacity (in frames) the output buffer needs for a process() call
+    size_t maxOutputFrames(size_t inputFrames) const {
+        return static_cast<size_t>(ceil((inputFrames + taps) / step)) + 2;
+    }
+
+    // Output frames a whole stream of inputFrames frames resamples to
+    size_t totalOutputFrames(size_t inputFrames) const {
+        return static_cast<size_t>(ceil(inputFrames / step));
+    }
+
+    // Pushes interleaved input and writes every output frame that is now
+    // fully determined. Returns the number of frames written to output.
+    size_t process(const float *input, size_t frames, float *output) {
+        size_t held = history[0].size();
+        for (size_t ch = 0; ch < numChannels; ++ch) {
+            vector<float> &h = history[ch];
+            h.resize(held + frames);
+            const float *src = input + ch;
+            for (size_t i = 0; i < frames; ++i, src += numChannels) {
+                h[held + i] = *src;
+            }
+        }
+        return drain(output);
+    }
+
+    // Pushes the trailing zeros that complete the last output frames
+    size_t flush(float *output) {
+        size_t held = history[0].size();
+        for (size_t ch = 0; ch < numChannels; ++ch) {
+            history[ch].resize(held + halfTaps, 0.0f);
+        }
+        return drain(output);
+    }
+
+private:
+    // Denominator (<= 1024) that represents fraction exactly, 0 if none does
+    static uint64_t rationalDenominator(double fraction) {
+        if (fraction == 0) return 1;
+        for (uint64_t d = 2; d <= 1024; ++d) {
+            double n = fraction * d;
+            if (fabs(n - floor(n + 0.5)) < 1e-9 * d) return d;
+        }
+        return 0;
+    }
+
+    void buildTable(double cutoff, double beta) {
+        // One extra row so interpolation can read phase + 1
+        table.assign((phases + 1) * taps, 0.0f);
+        double windowNorm = besselI0(beta);
+        for (size_t p = 0; p <= phases; ++p) {
+            double offset = static_cast<double>(p) / phases;
+            double sum = 0;
+            vector<double> row(taps);
+            for (size_t k = 0; k < taps; ++k) {
+                double t = static_cast<double>(k) - (halfTaps - 1) - offset;
+                double u = t / halfTaps;
+                double window = fabs(u) >= 1 ? 0 : besselI0(beta * sqrt(1 - u * u)) / windowNorm;
+                double x = M_PI * cutoff * t;
+                double sinc = x == 0 ? 1.0 : sin(x) / x;
+                row[k] = cutoff * sinc * window;
+                sum += row[k];
+            }
+            // Unity DC gain at every phase avoids gain ripple across the output
+            for (size_t k = 0; k < taps; ++k) {
+                table[p * taps + k] = static_cast<float>(row[k] / sum);
+            }
+        }
+    }
+
+    size_t drain(float *output) {
+        const SampleKernels &k = kernels();
+        int64_t historyEnd = historyStart + static_cast<int64_t>(history[0].size());
+        size_t produced = 0;
+
+        while (position + static_cast<int64_t>(halfTaps) < historyEnd) {
+            size_t base = static_cast<size_t>(position - static_cast<int64_t>(halfTaps - 1) - historyStart);
+            float *out = output + produced * numChannels;
+            if (phaseShift == 0) {
+                const float *row = &table[static_cast<size_t>(phase) * taps];
+                for (size_t ch = 0; ch < numChannels; ++ch) {
+                    out[ch] = k.dot(&history[ch][base], row, taps);
+                }
+            } else {
+                size_t index = static_cast<size_t>(phase >> phaseShift);
+                float weight = static_cast<float>(phase & ((1ULL << phaseShift) - 1)) / static_cast<float>(1ULL << phaseShift);
+                const float *row = &table[index * taps];
+                for (size_t ch = 0; ch < numChannels; ++ch) {
+                    float a = k.dot(&history[ch][base], row, taps);
+                    float b = k.dot(&history[ch][base], row + taps, taps);
+                    out[ch] = a + (b - a) * weight;
+                }
+            }
+            ++produced;
+
+            phase += stepFraction;
+            position += static_cast<int64_t>(stepWhole);
+            if (phase >= phaseDenominator) {
+                phase -= phaseDenominator;
+                ++position;
+            }
+        }
+
+        // Drop history the next output no longer needs
+        int64_t keepFrom = position - static_cast<int64_t>(halfTaps - 1);
+        size_t held = history[0].size();
+        size_t drop = keepFrom > historyStart ? static_cast<size_t>(keepFrom - historyStart) : 0;
+        if (drop > held) drop = held;
+        if (drop > 0) {
+            for (size_t ch = 0; ch < numChannels; ++ch) {
+                vector<float> &h = history[ch];
+                memmove(h.data(), h.data() + drop, (held - drop) * sizeof(float));
+                h.resize(held - drop);
+            }
+            historyStart += static_cast<int64_t>(drop);
+        }
+        return produced;
+    }
+
+    size_t numChannels;
+    double step;
+    size_t halfTaps;
+    size_t taps;
+    size_t phases;
+    int phaseShift;            // 0 for exact rational stepping
+    uint64_t stepWhole;
+    uint64_t stepFraction;     // In units of 1 / phaseDenominator
+    uint64_t phaseDenominator;
+    vector<float> table;       // (phases + 1) rows of taps coefficients
+    vector<vector<float> > history;
+    int64_t historyStart;      // Absolute input frame of history[ch][0]
+    int64_t position;          // Integer input frame of the next output
+    uint64_t phase;            // Fractional part of the next output position
+};
+
+#endif // AUDIOEDITOR_RESAMPLER_H
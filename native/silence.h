@@ -0,0 +1,108 @@
+#ifndef AUDIOEDITOR_SILENCE_H
+#define AUDIOEDITOR_SILENCE_H
+
+#include <cmath>
+#include <cstdint>
+#include <stdexcept>
+#include <vector>
+
+// Silence detection by windowed RMS with hysteresis.
+//
+// The int16 samples of each window go straight through the sumSquares
+// kernel, and the result is compared against the thresholds in the energy
+// domain, so the scan does no float conversion and no logarithms and runs
+// as fast as the file can be read. A window quieter than the threshold
+// starts a silence; it only ends once a window is louder than the threshold
+// plus the hysteresis, so room tone hovering around the threshold does not
+// chop a silence into pieces.
+
+struct SilenceSettings {
+    double thresholdDb;   // RMS in dBFS below which a window is quiet
+    double hysteresisDb;  // A silence ends only this far above the threshold
+    double windowMs;
+    double minSilenceMs;  // Shorter quiet gaps are not reported
+
+    SilenceSettings() : thresholdDb(-50), hysteresisDb(6), windowMs(10), minSilenceMs(250) {}
+};
+
+// Frames [start, end)
+struct SilenceRegion {
+    uint64_t start;
+    uint64_t end;
+};
+
+class SilenceDetector {
+public:
+    SilenceDetector(size_t channels, uint32_t sampleRate, const SilenceSettings &settings)
+        : numChannels(channels), silent(false), silenceStart(0), windowStart(0), windowFrames(0),
+          windowEnergy(0) {
+        if (channels == 0 || sampleRate == 0) {
+            throw invalid_argument("Silence detection needs audio.");
+        }
+        if (!(settings.windowMs > 0) || settings.hysteresisDb < 0 || settings.minSilenceMs < 0) {
+            throw invalid_argument("Silence window must be positive, hysteresis and minimum length at least 0.");
+        }
+        window = static_cast<size_t>(settings.windowMs * sampleRate / 1000.0 + 0.5);
+        if (window == 0) window = 1;
+        minFrames = static_cast<uint64_t>(settings.minSilenceMs * sampleRate / 1000.0 + 0.5);
+        // Mean square per sample on the int16 scale
+        double fullScale = 32768.0 * 32768.0;
+        closeLevel = fullScale * pow(10.0, settings.thresholdDb / 10.0);
+        openLevel = fullScale * pow(10.0, (settings.thresholdDb + settings.hysteresisDb) / 10.0);
+    }
+
+    // Feeds interleaved int16 frames
+    void process(const int16_t *samples, size_t frames) {
+        while (frames > 0) {
+            size_t take = min(window - windowFrames, frames);
+            windowEnergy += kernels().sumSquares(samples, take * numChannels);
+            windowFrames += take;
+            samples += take * numChannels;
+            frames -= take;
+            if (windowFrames == window) closeWindow();
+        }
+    }
+
+    // Closes the last partial window and any open silence; call once at the end
+    const vector<SilenceRegion> &finish() {
+        if (windowFrames > 0) closeWindow();
+        if (silent) addRegion(windowStart);
+        silent = false;
+        return found;
+    }
+
+private:
+    void closeWindow() {
+        double meanSquare = static_cast<double>(windowEnergy) / (windowFrames * numChannels);
+        if (!silent && meanSquare < closeLevel) {
+            silent = true;
+            silenceStart = windowStart;
+        } else if (silent && meanSquare > openLevel) {
+            silent = false;
+            addRegion(windowStart);
+        }
+        windowStart += windowFrames;
+        windowFrames = 0;
+        windowEnergy = 0;
+    }
+
+    void addRegion(uint64_t end) {
+        if (end - silenceStart < minFrames) return;
+        SilenceRegion region = {silenceStart, end};
+        found.push_back(region);
+    }
+
+    size_t numChannels;
+    size_t window;
+    uint64_t minFrames;
+    double closeLevel;
+    double openLevel;
+    bool silent;
+    uint64_t silenceStart;
+    uint64_t windowStart;
+    size_t windowFrames;
+    uint64_t windowEnergy;
+    vector<SilenceRegion> found;
+};
+
+#endif // AUDIOEDITOR_SILENCE_H
@@ -0,0 +1,138 @@
+#ifndef AUDIOEDITOR_SPECTROGRAM_H
+#define AUDIOEDITOR_SPECTROGRAM_H
+
+#include <cmath>
+#include <cstdint>
+#include <cstdio>
+#include <fstream>
+#include <stdexcept>
+#include <string>
+#include <vector>
+
+// Short-time Fourier transform for the spectrogram view.
+//
+// The view asks for one tile of columns at a time, so a long file fills in
+// as it goes. A tile reads its stretch of the file once, mixed to mono, and
+// the columns are transformed across the thread pool. Each thread keeps a
+// Hann window and real FFT plan per size between tiles. Magnitudes are
+// stored as one byte per bin on a dB scale from floorDb (0) to 0 dBFS (255).
+
+struct SpectrogramSettings {
+    size_t fftSize;
+    size_t hop;
+    double floorDb;
+
+    SpectrogramSettings() : fftSize(2048), hop(512), floorDb(-100) {}
+};
+
+// Number of columns in a file of frames, one per hop, centred on frame c * hop
+inline size_t spectrogramColumns(size_t frames, const SpectrogramSettings &settings) {
+    return frames == 0 ? 0 : (frames + settings.hop - 1) / settings.hop;
+}
+
+// Per-thread window and plan, rebuilt only when the size changes
+struct SpectrogramPlan {
+    size_t size;
+    vector<float> window;
+    float scale; // Full-scale sine -> magnitude 1
+    RealFFT *fft;
+    vector<float> frame;
+    vector<Complex> spectrum;
+
+    SpectrogramPlan() : size(0), scale(1), fft(NULL) {}
+    ~SpectrogramPlan() { delete fft; }
+
+    void prepare(size_t fftSize) {
+        if (fftSize == size) return;
+        delete fft;
+        fft = new RealFFT(fftSize);
+        size = fftSize;
+        window.resize(fftSize);
+        double sum = 0;
+        for (size_t n = 0; n < fftSize; ++n) {
+            window[n] = static_cast<float>(0.5 - 0.5 * cos(2 * M_PI * n / fftSize));
+            sum += window[n];
+        }
+        scale = static_cast<float>(2.0 / sum);
+        frame.resize(fftSize);
+        spectrum.resize(fftSize / 2 + 1);
+    }
+};
+
+inline SpectrogramPlan &spectrogramPlan(size_t fftSize) {
+    static thread_local SpectrogramPlan plan;
+    plan.prepare(fftSize);
+    return plan;
+}
+
+// Writes columns [firstColumn, firstColumn + columns) of inputFilePath to
+// tilePath as columns * (fftSize / 2 + 1) bytes, column after column, low
+// bins first. The file appears atomically.
+inline void writeSpectrogramTile(const string &inputFilePath, const string &tilePath, size_t firstColumn,
+                                 size_t columns, const SpectrogramSettings &settings) {
+    const size_t n = settings.fftSize;
+    const size_t hop = settings.hop;
+    const size_t bins = n / 2 + 1;
+    if (hop == 0) throw invalid_argument("Spectrogram hop must be positive.");
+    spectrogramPlan(n); // Validates the size before any work
+
+    WavReader reader(inputFilePath);
+    const size_t channels = reader.channels();
+    const size_t total = reader.totalFrames();
+
+    // Mono samples under the tile; column c covers [c * hop - n / 2, c * hop + n / 2)
+    const int64_t start = static_cast<int64_t>(firstColumn * hop) - static_cast<int64_t>(n / 2);
+    const size_t span = columns == 0 ? 0 : (columns - 1) * hop + n;
+    vector<float> mono(span, 0.0f);
+    const int64_t readFrom = max<int64_t>(0, start);
+    const int64_t readTo = min<int64_t>(static_cast<int64_t>(total), start + static_cast<int64_t>(span));
+    if (readTo > readFrom) {
+        reader.seekFrame(static_cast<size_t>(readFrom));
+        vector<int16_t> chunk(static_cast<size_t>(readTo - readFrom) * channels);
+        size_t got = reader.read(chunk.data(), static_cast<size_t>(readTo - readFrom));
+        const float norm = 1.0f / (32768.0f * channels);
+        float *dst = &mono[static_cast<size_t>(readFrom - start)];
+        for (size_t i = 0; i < got; ++i) {
+            int sum = 0;
+            for (size_t ch = 0; ch < channels; ++ch) sum += chunk[i * channels + ch];
+            dst[i] = sum * norm;
+        }
+    }
+
+    vector<uint8_t> tile(columns * bins);
+    const float floorDb = static_cast<float>(settings.floorDb);
+    const float levels = 255.0f / -floorDb;
+    const size_t perTask = 8;
+    threadPool().parallelFor((columns + perTask - 1) / perTask, [&](size_t task) {
+        SpectrogramPlan &plan = spectrogramPlan(n);
+        size_t end = min(columns, (task + 1) * perTask);
+        for (size_t c = task * perTask; c < end; ++c) {
+            const float *in = &mono[c * hop];
+            for (size_t i = 0; i < n; ++i) plan.frame[i] = in[i] * plan.window[i];
+            plan.fft->forward(plan.frame.data(), plan.spectrum.data());
+            uint8_t *out = &tile[c * bins];
+            for (size_t k = 0; k < bins; ++k) {
+                float re = plan.spectrum[k].re * plan.scale;
+                float im = plan.spectrum[k].im * plan.scale;
+                float power = re * re + im * im;
+                float db = power > 0 ? 10.0f * log10f(power) : floorDb;
+                float level = (db - floorDb) * levels;
+                out[k] = static_cast<uint8_t>(level <= 0 ? 0 : level >= 255 ? 255 : level + 0.5f);
+            }
+        }
+    });
+
+    string temp = tilePath + ".tmp";
+    {
+        ofstream file(temp.c_str(), ios::binary | ios::trunc);
+        if (!file) throw runtime_error("Failed to write spectrogram tile.");
+        file.write(reinterpret_cast<const char *>(tile.data()), static_cast<streamsize>(tile.size()));
+        if (!file) throw runtime_error("Failed to write spectrogram tile.");
+    }
+    if (rename(temp.c_str(), tilePath.c_str()) != 0) {
+        remove(temp.c_str());
+        throw runtime_error("Failed to write spectrogram tile.");
+    }
+}
+
+#endif // AUDIOEDITOR_SPECTROGRAM_H
@@ -0,0 +1,238 @@
+#ifndef AUDIOEDITOR_TIMESTRETCH_H
+#define AUDIOEDITOR_TIMESTRETCH_H
+
+#include <algorithm>
+#include <cmath>
+#include <cstdint>
+#include <cstring>
+#include <stdexcept>
+#include <vector>
+
+// WSOLA (waveform similarity overlap-add) time stretching.
+//
+// Output is built from Hann-windowed frames laid down every hop samples with
+// 50% overlap. Frame k is read from the input near k * hop / ratio, shifted
+// by up to +-tolerance samples to the position whose waveform best continues
+// the previous frame. The cross-correlation over all candidate shifts is
+// computed with one real FFT round trip instead of tolerance * frame
+// multiply/adds. The similarity search runs on a mono mix and every channel
+// uses the chosen shift, so the stereo image is preserved. Only
+// frame + 2 * tolerance input frames are kept per channel.
+
+class WsolaStretcher {
+public:
+    // ratio is output duration / input duration (2.0 plays twice as long)
+    WsolaStretcher(size_t channels, uint32_t sampleRate, double ratio)
+        : numChannels(channels), ratio(ratio), frame(frameSize(sampleRate)), hop(frame / 2),
+          tolerance(frame / 2), analysisHop(hop / ratio), correlation(nextPowerOfTwo(frame + 2 * tolerance)),
+          frameIndex(0), previousPosition(0), inputStart(0), skip(0) {
+        if (channels == 0) {
+            throw invalid_argument("Time stretch needs at least one channel.");
+        }
+        if (!(ratio >= 0.1 && ratio <= 10)) {
+            throw invalid_argument("Time scale factor must be between 0.1 and 10.");
+        }
+
+        window.resize(frame);
+        for (size_t n = 0; n < frame; ++n) {
+            window[n] = static_cast<float>(0.5 - 0.5 * cos(2 * M_PI * n / frame)); // Periodic Hann sums to 1 at 50% overlap
+        }
+
+        size_t fftSize = correlation.size();
+        regionBuffer.assign(fftSize, 0.0f);
+        templateBuffer.assign(fftSize, 0.0f);
+        regionSpectrum.resize(correlation.bins());
+        templateSpectrum.resize(correlation.bins());
+        energyPrefix.resize(fftSize + 1);
+
+        // The input is viewed with hop leading zeros so the first frame is
+        // centred on sample 0; the matching hop output samples are skipped.
+        input.assign(numChannels, vector<float>(hop, 0.0f));
+        mono.assign(hop, 0.0f);
+        overlap.assign(numChannels, vector<float>(frame, 0.0f));
+        skip = hop;
+    }
+
+    size_t channels() const { return numChannels; }
+
+    // Capacity (in frames) the output buffer needs for a process() call
+    size_t maxOutputFrames(size_t inputFrames) const {
+        return (static_cast<size_t>(ceil((inputFrames + frame + 2 * tolerance) / analysisHop)) + 2) * hop;
+    }
+
+    // Pushes interleaved input, writes every completed output hop
+    size_t process(const float *data, size_t frames, float *output) {
+        size_t held = mono.size();
+        mono.resize(held + frames);
+        for (size_t ch = 0; ch < numChannels; ++ch) {
+            vector<float> &in = input[ch];
+            in.resize(held + frames);
+            const float *src = data + ch;
+            for (size_t i = 0; i < frames; ++i, src += numChannels) {
+                in[held + i] = *src;
+            }
+        }
+        const float channelScale = 1.0f / numChannels;
+        for (size_t i = 0; i < frames; ++i) {
+            float sum = 0;
+            for (size_t ch = 0; ch < numChannels; ++ch) sum += input[ch][held + i];
+            mono[held + i] = sum * channelScale;
+        }
+        return drain(output);
+    }
+
+    // Pushes a hop of silence past the end of the input; call until the
+    // caller has collected the output length it needs
+    size_t flush(float *output) {
+        vector<float> silence(hop * numChannels, 0.0f);
+        return process(silence.data(), hop, output);
+    }
+
+private:
+    // ~23 ms frames: 1024 at 44.1 kHz, 2048 at 96 kHz
+    static size_t frameSize(uint32_t sampleRate) {
+        size_t size = nextPowerOfTwo(static_cast<size_t>(sampleRate * 0.023));
+        return size < 256 ? 256 : size;
+    }
+
+    int64_t nominalPosition(size_t k) const {
+        return static_cast<int64_t>(llround(k * analysisHop));
+    }
+
+    size_t drain(float *output) {
+        size_t produced = 0;
+        int64_t inputEnd = inputStart + static_cast<int64_t>(mono.size());
+
+        while (true) {
+            int64_t nominal = nominalPosition(frameIndex);
+            int64_t needed = nominal + static_cast<int64_t>(tolerance + frame);
+            int64_t templateEnd = previousPosition + static_cast<int64_t>(hop + frame);
+            if (frameIndex > 0 && templateEnd > needed) needed = templateEnd;
+            if (needed > inputEnd) break;
+
+            int64_t position = frameIndex == 0 ? 0 : bestPosition(nominal);
+            addFrame(static_cast<size_t>(position - inputStart));
+            previousPosition = position;
+            ++frameIndex;
+
+            // Emit the hop samples no later frame will overlap
+            size_t from = skip < hop ? skip : hop;
+            skip -= from;
+            for (size_t n = from; n < hop; ++n, ++produced) {
+                for (size_t ch = 0; ch < numChannels; ++ch) {
+                    output[produced * numChannels + ch] = overlap[ch][n];
+                }
+            }
+            for (size_t ch = 0; ch < numChannels; ++ch) {
+                vector<float> &o = overlap[ch];
+                memmove(o.data(), o.data() + hop, (frame - hop) * sizeof(float));
+                fill(o.begin() + (frame - hop), o.end(), 0.0f);
+            }
+        }
+
+        // Keep what the next search region and template still need
+        int64_t keepFrom = nominalPosition(frameIndex) - static_cast<int64_t>(tolerance);
+        int64_t templateStart = previousPosition + static_cast<int64_t>(hop);
+        if (frameIndex > 0 && templateStart < keepFrom) keepFrom = templateStart;
+        size_t held = mono.size();
+        size_t drop = keepFrom > inputStart ? static_cast<size_t>(keepFrom - inputStart) : 0;
+        if (drop > held) drop = held;
+        if (drop > 0) {
+            memmove(mono.data(), mono.data() + drop, (held - drop) * sizeof(float));
+            mono.resize(held - drop);
+            for (size_t ch = 0; ch < numChannels; ++ch) {
+                vector<float> &in = input[ch];
+                memmove(in.data(), in.data() + drop, (held - drop) * sizeof(float));
+                in.resize(held - drop);
+            }
+            inputStart += static_cast<int64_t>(drop);
+        }
+        return produced;
+    }
+
+    // Shift within +-tolerance of nominal whose frame best matches the
+    // natural continuation of the previous frame (normalised cross-correlation)
+    int64_t bestPosition(int64_t nominal) {
+        int64_t low = nominal - static_cast<int64_t>(tolerance);
+        if (low < inputStart) low = inputStart;
+        int64_t high = nominal + static_cast<int64_t>(tolerance);
+        size_t lags = static_cast<size_t>(high - low) + 1;
+        size_t regionLength = lags + frame - 1;
+        size_t regionOffset = static_cast<size_t>(low - inputStart);
+        size_t templateOffset = static_cast<size_t>(previousPosition + static_cast<int64_t>(hop) - inputStart);
+
+        float templateEnergy = 0;
+        for (size_t n = 0; n < frame; ++n) {
+            templateBuffer[n] = mono[templateOffset + n];
+            templateEnergy += templateBuffer[n] * templateBuffer[n];
+        }
+        if (templateEnergy < 1e-9f) {
+            return nominal; // Silence matches anything equally well
+        }
+        fill(templateBuffer.begin() + frame, templateBuffer.end(), 0.0f);
+        memcpy(regionBuffer.data(), &mono[regionOffset], regionLength * sizeof(float));
+        fill(regionBuffer.begin() + regionLength, regionBuffer.end(), 0.0f);
+
+        correlation.forward(regionBuffer.data(), regionSpectrum.data());
+        correlation.forward(templateBuffer.data(), templateSpectrum.data());
+        for (size_t k = 0; k < regionSpectrum.size(); ++k) {
+            // region * conj(template) gives sum(template[i] * region[i + lag])
+            const Complex r = regionSpectrum[k];
+            const Complex &t = templateSpectrum[k];
+            regionSpectrum[k].re = r.re * t.re + r.im * t.im;
+            regionSpectrum[k].im = r.im * t.re - r.re * t.im;
+        }
+        correlation.inverse(regionSpectrum.data(), regionBuffer.data());
+
+        energyPrefix[0] = 0;
+        for (size_t n = 0; n < regionLength; ++n) {
+            double v = mono[regionOffset + n];
+            energyPrefix[n + 1] = energyPrefix[n] + v * v;
+        }
+
+        size_t best = static_cast<size_t>(nominal - low);
+        double bestScore = -1e30;
+        for (size_t lag = 0; lag < lags; ++lag) {
+            double energy = energyPrefix[lag + frame] - energyPrefix[lag];
+            double score = regionBuffer[lag] / sqrt(energy + 1e-9);
+            if (score > bestScore) {
+                bestScore = score;
+                best = lag;
+            }
+        }
+        return low + static_cast<int64_t>(best);
+    }
+
+    void addFrame(size_t offset) {
+        for (size_t ch = 0; ch < numChannels; ++ch) {
+            const float *in = &input[ch][offset];
+            float *o = overlap[ch].data();
+            for (size_t n = 0; n < frame; ++n) {
+                o[n] += window[n] * in[n];
+            }
+        }
+    }
+
+    size_t numChannels;
+    double ratio;
+    size_t frame;          // Frame length, power of two
+    size_t hop;            // Output hop (frame / 2)
+    size_t tolerance;      // Maximum shift from the nominal input position
+    double analysisHop;    // Input hop, hop / ratio
+    RealFFT correlation;
+    vector<float> window;
+    vector<float> regionBuffer;
+    vector<float> templateBuffer;
+    vector<Complex> regionSpectrum;
+    vector<Complex> templateSpectrum;
+    vector<double> energyPrefix;
+    vector<vector<float> > input;   // Per-channel input history
+    vector<float> mono;             // Channel average used for the search
+    vector<vector<float> > overlap; // Per-channel overlap-add accumulator
+    size_t frameIndex;
+    int64_t previousPosition;
+    int64_t inputStart;    // Input position of input[ch][0]
+    size_t skip;           // Leading output samples still to drop
+};
+
+#endif // AUDIOEDITOR_TIMESTRETCH_H
@@ -0,0 +1,120 @@
+#ifndef AUDIOEDITOR_WAVSTREAM_H
+#define AUDIOEDITOR_WAVSTREAM_H
+
+#include <cstdio>
+
+// Block-wise access to 16-bit PCM WAV data, so effects can run over files of
+// any length in constant memory. Relies on WAVHeader / readWAVFile /
+// writeWAVHeader from main.h.
+
+static const size_t kStreamBlockFrames = 4096;
+
+class WavReader {
+public:
+    explicit WavReader(const string &path) {
+        dataPos = readWAVFile(path, hdr);
+        if (hdr.bitsPerSample != 16 || hdr.numChannels == 0) {
+            throw runtime_error("Only 16-bit PCM WAV files are supported.");
+        }
+        file.open(path.c_str(), ios::binary);
+        if (!file.is_open()) {
+            throw runtime_error("Failed to open WAV file.");
+        }
+        file.seekg(dataPos);
+        frameCount = hdr.dataSize / (hdr.numChannels * sizeof(int16_t));
+        framesLeft = frameCount;
+    }
+
+    const WAVHeader &header() const { return hdr; }
+    size_t channels() const { return hdr.numChannels; }
+    uint32_t sampleRate() const { return hdr.sampleRate; }
+    size_t totalFrames() const { return frameCount; }
+
+    // Reads up to maxFrames interleaved frames, returns the number read
+    size_t read(int16_t *dst, size_t maxFrames) {
+        size_t frames = maxFrames < framesLeft ? maxFrames : framesLeft;
+        if (frames == 0) return 0;
+        file.read(reinterpret_cast<char *>(dst), frames * hdr.numChannels * sizeof(int16_t));
+        size_t got = static_cast<size_t>(file.gcount()) / (hdr.numChannels * sizeof(int16_t));
+        framesLeft = got < frames ? 0 : framesLeft - got;
+        return got;
+    }
+
+    void seekFrame(size_t frame) {
+        if (frame > frameCount) frame = frameCount;
+        file.clear();
+        file.seekg(dataPos + static_cast<streamoff>(frame * hdr.numChannels * sizeof(int16_t)));
+        framesLeft = frameCount - frame;
+    }
+
+private:
+    ifstream file;
+    WAVHeader hdr;
+    streampos dataPos;
+    size_t frameCount;
+    size_t framesLeft;
+};
+
+// Writes to a temporary file next to the target and renames it into place on
+// close(), so the output may safely be the same path as the input.
+class WavWriter {
+public:
+    WavWriter(const string &path, const WAVHeader &format) : target(path), temp(path + ".tmp"), dataBytes(0), closed(false) {
+        hdr = format;
+        memcpy(hdr.riffHeader, "RIFF", 4);
+        memcpy(hdr.waveHeader, "WAVE", 4);
+        memcpy(hdr.fmtHeader, "fmt ", 4);
+        memcpy(hdr.dataHeader, "data", 4);
+        hdr.fmtChunkSize = 16;
+        hdr.audioFormat = 1;
+        hdr.bitsPerSample = 16;
+        hdr.blockAlign = hdr.numChannels * sizeof(int16_t);
+        hdr.byteRate = hdr.sampleRate * hdr.blockAlign;
+        file.open(temp.c_str(), ios::binary | ios::trunc);
+        if (!file.is_open()) {
+            throw runtime_error("Failed to open output WAV file.");
+        }
+        writeWAVHeader(file, hdr); // Sizes are patched in close()
+    }
+
+    ~WavWriter() {
+        if (!closed) {
+            file.close();
+            remove(temp.c_str());
+        }
+    }
+
+    size_t channels() const { return hdr.numChannels; }
+
+    void write(const int16_t *src, size_t frames) {
+        size_t bytes = frames * hdr.numChannels * sizeof(int16_t);
+        file.write(reinterpret_cast<const char *>(src), bytes);
+        dataBytes += bytes;
+    }
+
+    void close() {
+        hdr.dataSize = static_cast<uint32_t>(dataBytes);
+        hdr.chunkSize = 36 + hdr.dataSize;
+        file.seekp(0);
+        writeWAVHeader(file, hdr);
+        file.close();
+        if (!file) {
+            throw runtime_error("Failed to write output WAV file.");
+        }
+        if (rename(temp.c_str(), target.c_str()) != 0) {
+            remove(temp.c_str());
+            throw runtime_error("Failed to replace output WAV file.");
+        }
+        closed = true;
+    }
+
+private:
+    string target;
+    string temp;
+    ofstream file;
+    WAVHeader hdr;
+    size_t dataBytes;
+    bool closed;
+};
+
+#endif // AUDIOEDITOR_WAVSTREAM_H
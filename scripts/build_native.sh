@@ -29,19 +29,19 @@ case "$OS" in
         echo "Detected Linux platform"
         LIB_NAME="libnative.so"
         COMPILER="g++"
-        COMPILER_FLAGS="-shared -fPIC -O2"
+        COMPILER_FLAGS="-shared -fPIC -O2 -pthread"
         ;;
     Darwin*)
         echo "Detected macOS platform"
         LIB_NAME="libnative.dylib"
         COMPILER="g++"
-        COMPILER_FLAGS="-shared -fPIC -O2"
+        COMPILER_FLAGS="-shared -fPIC -O2 -pthread"
         ;;
     CYGWIN*|MINGW*|MSYS*)
         echo "Detected Windows platform"
         LIB_NAME="native.dll"
         COMPILER="g++"
-        COMPILER_FLAGS="-shared -O2"
+        COMPILER_FLAGS="-shared -O2 -pthread"
         ;;
     *)
         echo "Error: Unsupported platform: $OS"
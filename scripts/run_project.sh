@@ -75,7 +75,7 @@ CLASSPATH="target/classes"
 LIBRARY_PATH="$(pwd)/native"
 
 # JVM options
-JVM_OPTS="-Djava.library.path=$LIBRARY_PATH"
+JVM_OPTS="-Djava.library.path=$LIBRARY_PATH --add-modules jdk.incubator.vector"
 
 # Check if we're in debug mode
 if [ "$1" = "--debug" ] || [ "$1" = "-d" ]; then
@@ -93,7 +93,7 @@ esac
 rm -f "$LIB_NAME"
 
 # Compile
-if g++ -shared -fPIC -o "$LIB_NAME" *.cpp 2>/dev/null; then
+if g++ -shared -fPIC -pthread -o "$LIB_NAME" *.cpp 2>/dev/null; then
     report_test "Native library compilation" "PASS" "Created $LIB_NAME"
 else
     report_test "Native library compilation" "FAIL" "Compilation failed"
@@ -1,18 +1,21 @@
 package com.meenigam.Components;
 
+import com.meenigam.Utils.MediaPool;
+import com.meenigam.Utils.PeakPyramid;
+
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.ComponentAdapter;
-import java.awt.event.ComponentEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 
 public class Clip extends JPanel {
     private final FileComponent fileComponent;
-    private float start;
+    private float start;  // Seconds from the start of the timeline
     private float end;
     private float size;
+    private final MediaPool.Entry media;  // Shared with every clip of the same file; released by dispose()
     private WaveformPanel waveformPanel;
+    private SpectrogramPanel spectrogramPanel;  // Created the first time the clip is switched to it
     private Track track;
     private final Clip thisClip;
 
@@ -20,7 +23,8 @@ public class Clip extends JPanel {
         this.thisClip = this;
         this.fileComponent = file;
         this.track = track;
-        this.waveformPanel = new WaveformPanel(file.getFile(), this);
+        this.media = MediaPool.shared().acquire(file.getFile());
+        this.waveformPanel = new WaveformPanel(media, this);
         this.waveformPanel.setSize(getWidth(), getHeight());
         setLayout(new BorderLayout());
         add(waveformPanel, BorderLayout.CENTER);
@@ -28,19 +32,12 @@ public class Clip extends JPanel {
         System.out.println(file.getDuration());
         setBackground(new Color(100, 100, 0)); // Visual indicator of a clip
         setBorder(BorderFactory.createLineBorder(Color.GRAY));
-        setPreferredSize(new Dimension((int) file.getDuration() * 10, track.getClipContainer().getHeight())); // Adjust as needed
+        setPreferredSize(new Dimension(Timeline.shared().toPixels(file.getDuration()), track.getClipContainer().getHeight())); // Adjust as needed
         setOpaque(true);
         this.size = file.getDuration();
         this.start = 0;
         this.end = size;
-        // Listen for changes in the parent's size
-        track.getClipContainer().addComponentListener(new ComponentAdapter() {
-            @Override
-            public void componentResized(ComponentEvent e) {
-                updateHeight();
-                setSize((int) file.getDuration() * 10, getHeight());
-            }
-        });
+        // The track's layout places and sizes the clip from its start time and duration
 
         // Make it draggable
         MouseAdapter mouseHandler = new MouseAdapter() {
@@ -53,22 +50,11 @@ public class Clip extends JPanel {
 
             @Override
             public void mouseDragged(MouseEvent e) {
-                Point location = getLocation();
-                Point newLocation = new Point(location);
-                newLocation.translate(e.getX() - offset.x, 0);
-                if (isOutOfBounds(newLocation)) {
-                    if (isLeft(newLocation)) {
-                        setLocation(new Point(0, location.y));
-                    } else if (isRight(newLocation)) {
-                        setLocation(new Point(track.getClipContainer().getWidth() - (int) size * 10, location.y));
-                    } else {
-                        setLocation(new Point(location.x, location.y));
-                    }
-                    return;
-                }
-                setPos(location.x * 10);
-                System.out.println("current location " + location.x);
-                setLocation(newLocation);
+                // The timeline grows to the right, so only the left edge is a bound
+                int x = Math.max(0, getX() + e.getX() - offset.x);
+                setPos((float) Timeline.shared().toSeconds(x));
+                setLocation(x, getY());
+                track.clipMoved(thisClip);
             }
         };
         addMouseListener(mouseHandler);
@@ -76,36 +62,58 @@ public class Clip extends JPanel {
     }
 
     public String getPath() { return this.fileComponent.getFilePath(); }
-    public float getStart() { return (this.start *10); }
+    public String getRenderedPath() { return this.fileComponent.getRenderedPath(); }
+    // Start in milliseconds, as the mixer takes it
+    public float getStart() { return (this.start * 1000); }
     public float getEnd() { return this.end; }
 
-    private void updateHeight() {
-        int newHeight = track.getClipContainer().getHeight();
-        setPreferredSize(new Dimension(getPreferredSize().width, newHeight));
-        revalidate(); // Notify Swing to update the layout
+    public float getStartSeconds() { return this.start; }
+    public float getDurationSeconds() { return Math.max(0, this.size); }
+
+    public void setStartSeconds(float seconds) {
+        setPos(Math.max(0, seconds));
     }
 
-    private boolean isOutOfBounds(Point location) {
-        int clipLeft = location.x;  // Left edge of the clip
-        int clipRight = clipLeft + (int) (size * 10);  // Right edge of the clip, based on size and scale
+    private void setPos(float loco) {
+        this.start = loco;
+        this.end = start + size;
+    }
 
-        // Check if the clip is out of bounds on the left or right
-        return clipLeft < -1 || clipRight > track.getWidth()+1;
+    public boolean isSpectrogramMode() {
+        return spectrogramPanel != null && spectrogramPanel.getParent() == this;
     }
 
-    private boolean isLeft(Point location) {
-        int clipLeft = location.x;
-        return clipLeft < 0;
+    /**
+     * Shows the clip as a spectrogram instead of a waveform, or back.
+     */
+    public void setSpectrogramMode(boolean spectrogram) {
+        if (spectrogram == isSpectrogramMode()) return;
+        if (spectrogram) {
+            if (spectrogramPanel == null) {
+                spectrogramPanel = new SpectrogramPanel(fileComponent.getFile());
+            }
+            remove(waveformPanel);
+            add(spectrogramPanel, BorderLayout.CENTER);
+        } else {
+            remove(spectrogramPanel);
+            add(waveformPanel, BorderLayout.CENTER);
+        }
+        revalidate();
+        repaint();
     }
 
-    private boolean isRight(Point location) {
-        int clipRight = location.x + (int) (size * 10);  // Right edge of the clip, based on size and scale
-        return clipRight > track.getWidth();
+    /**
+     * The clip's peaks as far as they have been read, or null before any.
+     */
+    public PeakPyramid getPeaks() {
+        return media.getPeaks();
     }
 
-    private void setPos(float loco) {
-        this.start = loco;
-        this.end = start + size;
+    /**
+     * Gives back the clip's media; call once the clip is off its track for good.
+     */
+    public void dispose() {
+        media.release();
     }
 
     // Additional methods for interacting with the fileComponent
@@ -128,7 +136,7 @@ public class Clip extends JPanel {
         this.end = size;
 
         // Update the preferred size of the clip based on the new file component's duration
-        this.setPreferredSize(new Dimension((int) (fileComponent.getDuration() * 10), track.getClipContainer().getHeight()));
+        this.setPreferredSize(new Dimension(Timeline.shared().toPixels(fileComponent.getDuration()), track.getClipContainer().getHeight()));
 
         // Resize the waveform panel accordingly
         waveformPanel.setSize(getWidth(), getHeight()); // Update the size of the waveform panel
@@ -0,0 +1,62 @@
+package com.meenigam.Components;
+
+/**
+ * A clip as its track keeps it: the file component holding its edits and
+ * where on the timeline it starts. Every clip on a track has one and it
+ * holds no media; the {@link Clip} component that draws it, with its
+ * samples and peaks, only exists while the clip is in view.
+ */
+public final class ClipModel {
+    private final FileComponent fileComponent;
+    private float startSeconds;
+    private boolean spectrogramMode;
+
+    public ClipModel(FileComponent fileComponent, float startSeconds) {
+        this.fileComponent = fileComponent;
+        setStartSeconds(startSeconds);
+    }
+
+    public FileComponent getFileComponent() {
+        return fileComponent;
+    }
+
+    public String getRenderedPath() {
+        return fileComponent.getRenderedPath();
+    }
+
+    public float getStartSeconds() {
+        return startSeconds;
+    }
+
+    // Start in milliseconds, as the mixer takes it
+    public float getStart() {
+        return startSeconds * 1000;
+    }
+
+    public float getDurationSeconds() {
+        return Math.max(0, fileComponent.getDuration());
+    }
+
+    public float getEndSeconds() {
+        return startSeconds + getDurationSeconds();
+    }
+
+    /**
+     * Set by the track, which keeps its clips in start order.
+     */
+    void setStartSeconds(float seconds) {
+        this.startSeconds = Math.max(0, seconds);
+    }
+
+    public boolean isSpectrogramMode() {
+        return spectrogramMode;
+    }
+
+    /**
+     * Whether the clip's component shows a spectrogram instead of a
+     * waveform; takes effect when the track next makes the component.
+     */
+    public void setSpectrogramMode(boolean spectrogram) {
+        this.spectrogramMode = spectrogram;
+    }
+}
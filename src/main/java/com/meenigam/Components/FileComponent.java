@@ -3,18 +3,17 @@ package com.meenigam.Components;
 
 import com.meenigam.Panels.StagingArea;
 import com.meenigam.Panels.TrackEditor;
+import com.meenigam.Utils.EditList;
+import com.meenigam.Utils.MediaPool;
+import com.meenigam.Utils.SilenceScan;
 
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.UnsupportedAudioFileException;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
-import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 public class FileComponent extends Button {
     private final String Name;
@@ -24,16 +23,21 @@ public class FileComponent extends Button {
     private float size;
     private File file;
     private Frame frame;
+    private volatile SilenceScan silence; // Set in the background after import
+    private final EditList edits; // filePath is never written; edits render into a cache
+    // file stays pinned in the edits' cache, so it is not evicted while shown; release() lets it go
     public FileComponent(String name, String filePath, Frame frame, StagingArea stagingArea) {
         float size1;
         this.Name = name;
         this.frame = frame;
         this.filePath = filePath;
         this.stagingArea = stagingArea;
+        this.edits = new EditList(filePath);
 
         // Calculate the duration of the wav file
         File file = new File(filePath);
         this.file = file;
+        edits.getCache().pin(filePath);
         resetDuration();
 
         this.addActionListener(new ActionListener() {
@@ -51,11 +55,14 @@ public class FileComponent extends Button {
         this.Name = fileComponent.Name;
         this.filePath = fileComponent.filePath;
         this.stagingArea = fileComponent.stagingArea;
+        this.edits = new EditList(fileComponent.edits);
+        this.silence = fileComponent.silence;
         Frame frame = fileComponent.frame;
         float size1;
-        File file = new File(filePath);
-        this.file = file;
-        resetDuration();
+        // The original's current render, so copying never renders on the event thread
+        this.file = fileComponent.file;
+        this.size = fileComponent.size;
+        edits.getCache().pin(file.getPath());
         this.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -71,15 +78,8 @@ public class FileComponent extends Button {
     private void resetDuration() {
         float size1;
         if (file.exists() && file.isFile()) {
-            try (AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(file)) {
-                AudioFormat format = audioInputStream.getFormat();
-                long frames = audioInputStream.getFrameLength();
-                size1 = (frames / format.getFrameRate()); // Duration in seconds
-            } catch (UnsupportedAudioFileException | IOException e) {
-//                e.printStackTrace();
-                System.out.println(e.getStackTrace());
-                size1 = 0; // Default size if an error occurs
-            }
+            // From the media pool, so copies of this file for clips read the header once
+            size1 = MediaPool.shared().durationOf(file); // Duration in seconds, 0 if unreadable
         } else {
             size1 = 0; // Default size if file does not exist or is not a valid file
         }
@@ -88,8 +88,44 @@ public class FileComponent extends Button {
     }
 
     public void resetFile() {
-        this.file = new File(filePath);
+        useRender(renderPinned());
+    }
+
+    /**
+     * Renders the edits, off the event thread, and pins the result so it
+     * stays on disk until useRender takes it.
+     */
+    public String renderPinned() {
+        String rendered = edits.render();
+        edits.getCache().pin(rendered);
+        return rendered;
+    }
+
+    /**
+     * Shows renderedPath, taking over the pin renderPinned() made for it;
+     * the file shown before is unpinned.
+     */
+    public void useRender(String renderedPath) {
+        File previous = file;
+        this.file = new File(renderedPath);
         resetDuration();
+        edits.getCache().unpin(previous.getPath());
+    }
+
+    /**
+     * Lets the cache evict the file shown, once this component is gone.
+     */
+    public void release() {
+        edits.getCache().unpin(file.getPath());
+    }
+
+    public EditList getEdits() {
+        return edits;
+    }
+
+    // The source with the edits applied, rendered again if it was evicted
+    public String getRenderedPath() {
+        return edits.render();
     }
 
     public File getFile() {
@@ -100,15 +136,36 @@ public class FileComponent extends Button {
         return size;
     }
 
+    public SilenceScan getSilence() {
+        return silence;
+    }
+
+    public void setSilence(SilenceScan silence) {
+        this.silence = silence;
+    }
+
+    private boolean hasEdgeSilence() {
+        SilenceScan scan = silence;
+        return scan != null && !scan.isAllSilence()
+                && (scan.getLeadingSilenceMs() > 0 || scan.getTrailingSilenceMs() > 0);
+    }
+
     public void clicked(StagingArea s) {
         System.out.println("Button Clicked");
 
-        Object[] options = {"delete", "Add to track"};
+        boolean offerTrim = hasEdgeSilence();
+        Object[] options = offerTrim
+                ? new Object[]{"delete", "Add to track", "Trim silence"}
+                : new Object[]{"delete", "Add to track"};
+        String message = "File: " + Name;
+        if (silence != null) {
+            message += "\nSilence: " + silence;
+        }
 
         // Use JOptionPane for dialog instead of AWT Dialog
         int result = JOptionPane.showOptionDialog(
                 s,
-                "File: " + Name,
+                message,
                 "Select option",
                 JOptionPane.YES_NO_CANCEL_OPTION,
                 JOptionPane.QUESTION_MESSAGE,
@@ -125,7 +182,13 @@ public class FileComponent extends Button {
             case JOptionPane.NO_OPTION: // this is add to track
                 openTrackSelectionDialogBox(s);
                 break;
-            case JOptionPane.CANCEL_OPTION:
+            case JOptionPane.CANCEL_OPTION: // the third button, trim silence when offered
+                if (offerTrim) {
+                    trimSilence(s);
+                } else {
+                    System.out.println("Canceled");
+                }
+                break;
             case JOptionPane.CLOSED_OPTION:
                 System.out.println("Canceled");
                 break;
@@ -135,8 +198,42 @@ public class FileComponent extends Button {
         }
     }
 
+    // Trims and scans the result off the event thread, then shows the trimmed
+    // file; a failure is reported in a dialog like the import scan's
+    private void trimSilence(StagingArea s) {
+        new SwingWorker<SilenceScan, Void>() {
+            private String rendered;
+
+            @Override
+            protected SilenceScan doInBackground() {
+                SilenceScan.autoTrim(edits);
+                rendered = renderPinned();
+                return SilenceScan.detect(rendered);
+            }
+
+            @Override
+            protected void done() {
+                if (rendered != null) {
+                    useRender(rendered);
+                }
+                try {
+                    silence = get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(
+                            s,
+                            cause.getMessage(),
+                            "Trim silence - " + Name,
+                            JOptionPane.ERROR_MESSAGE
+                    );
+                }
+            }
+        }.execute();
+    }
+
     private void delete() {
         this.stagingArea.delete(this);
+        release();
     }
 
     private void openTrackSelectionDialogBox(StagingArea s) {
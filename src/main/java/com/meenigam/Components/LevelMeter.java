@@ -0,0 +1,121 @@
+package com.meenigam.Components;
+
+import com.meenigam.Utils.FrameClock;
+import com.meenigam.Utils.LevelRing;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Horizontal peak/RMS meter over the last 60 dB: a bar for the RMS level,
+ * a lighter one for the peak and a tick holding the recent highest peak.
+ * The playback thread fills its ring and the UI calls sample() once per
+ * frame; between readings the bars fall back at a fixed rate.
+ */
+public class LevelMeter extends JComponent {
+
+    private static final float RANGE_DB = 60;
+    private static final float FALL_DB_PER_FRAME = 1.2f;   // About 70 dB a second
+    private static final int HOLD_FRAMES = 60;
+    private static final Color BACKGROUND = new Color(30, 30, 30);
+    private static final Color GREEN = new Color(60, 200, 80);
+    private static final Color YELLOW = new Color(230, 200, 40);
+    private static final Color RED = new Color(230, 60, 50);
+
+    private final LevelRing ring = new LevelRing(64);
+    private final float[] reading = new float[2];
+    // Displayed levels as fractions of the meter's width
+    private float peak;
+    private float rms;
+    private float held;
+    private int holdFrames;
+
+    public LevelMeter() {
+        setPreferredSize(new Dimension(90, 8));
+        setMaximumSize(new Dimension(90, 8));
+        setOpaque(true);
+    }
+
+    /**
+     * Where the playback thread leaves readings for this meter.
+     */
+    public LevelRing getRing() {
+        return ring;
+    }
+
+    /**
+     * Takes the readings since the last frame and lets the bars fall; returns
+     * false once the meter is at rest. Call on the event thread.
+     */
+    public boolean sample() {
+        float newPeak = 0;
+        float newRms = 0;
+        if (ring.drain(reading) > 0) {
+            newPeak = toFraction(reading[0]);
+            newRms = toFraction(reading[1]);
+        }
+        float fall = FALL_DB_PER_FRAME / RANGE_DB;
+        float nextPeak = Math.max(newPeak, peak - fall);
+        float nextRms = Math.max(newRms, rms - fall);
+        float nextHeld = held;
+        if (nextPeak >= held) {
+            nextHeld = nextPeak;
+            holdFrames = HOLD_FRAMES;
+        } else if (holdFrames > 0) {
+            holdFrames--;
+        } else {
+            nextHeld = Math.max(nextPeak, held - fall);
+        }
+        nextPeak = Math.max(0, nextPeak);
+        nextRms = Math.max(0, nextRms);
+        if (nextPeak != peak || nextRms != rms || nextHeld != held) {
+            peak = nextPeak;
+            rms = nextRms;
+            held = nextHeld;
+            FrameClock.shared().markDirty(this);
+        }
+        return peak > 0 || rms > 0 || held > 0;
+    }
+
+    public float getPeak() {
+        return peak;
+    }
+
+    public float getRms() {
+        return rms;
+    }
+
+    // Linear level to a fraction of the meter, 0 at -RANGE_DB and below
+    private static float toFraction(float level) {
+        if (level <= 0) return 0;
+        float db = (float) (20 * Math.log10(level));
+        return Math.max(0, Math.min(1, 1 + db / RANGE_DB));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        int width = getWidth();
+        int height = getHeight();
+        g.setColor(BACKGROUND);
+        g.fillRect(0, 0, width, height);
+
+        int peakX = Math.round(peak * width);
+        int rmsX = Math.round(rms * width);
+        g.setColor(colorAt(peak).darker());
+        g.fillRect(0, 0, peakX, height);
+        g.setColor(colorAt(rms));
+        g.fillRect(0, 0, rmsX, height);
+
+        if (held > 0) {
+            int heldX = Math.min(width - 1, Math.round(held * width));
+            g.setColor(colorAt(held));
+            g.fillRect(heldX, 0, 1, height);
+        }
+    }
+
+    // Green up to -12 dB, yellow to -3 dB, red above
+    private static Color colorAt(float fraction) {
+        float db = (fraction - 1) * RANGE_DB;
+        return db > -3 ? RED : db > -12 ? YELLOW : GREEN;
+    }
+}
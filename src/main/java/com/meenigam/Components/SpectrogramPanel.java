@@ -0,0 +1,232 @@
+package com.meenigam.Components;
+
+import com.meenigam.Utils.FrameClock;
+import com.meenigam.Utils.Spectrogram;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Spectrogram of a clip: time across, frequency up on a log scale from
+ * 20 Hz, brighter for louder. Only the tiles that come into view are
+ * computed, on a background thread, and drawn as they arrive; tiles
+ * already on disk are only read, and one scrolled past before its turn is
+ * skipped. Only the most recently drawn tiles are kept as images, the rest
+ * are read back when scrolled to.
+ */
+public class SpectrogramPanel extends JPanel {
+
+    public static final int ROWS = 128;
+    private static final double MIN_FREQUENCY = 20;
+    private static final int MAX_IMAGES = 256;
+    private static final IndexColorModel COLORS = colorMap();
+
+    // Computes tiles or reads them back from disk, shared by all panels
+    private static final ExecutorService reader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "spectrogram-tiles");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File audioFile;
+    private Spectrogram spectrogram;
+    private SwingWorker<Spectrogram, Void> opener;
+    private boolean complete;  // Opened, or failed to
+    private String failure;
+    // Tiles painted last; a queued tile outside them that is not on disk yet is skipped
+    private volatile int wantedFirst;
+    private volatile int wantedLast = -1;
+
+    private final Map<Integer, BufferedImage> images = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, BufferedImage> eldest) {
+            return size() > MAX_IMAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+
+    public SpectrogramPanel(File audioFile) {
+        this.audioFile = audioFile;
+        setBackground(Color.BLACK);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        startOpening();
+    }
+
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        // Same as WaveformPanel: only stop once the clip is still gone after this event
+        SwingUtilities.invokeLater(() -> {
+            if (!isDisplayable()) {
+                if (opener != null) {
+                    opener.cancel(true);
+                }
+                wantedFirst = 0;
+                wantedLast = -1;
+            }
+        });
+    }
+
+    // Reads the file's length in the background; painting asks for the tiles
+    private void startOpening() {
+        if (complete || (opener != null && !opener.isDone())) return;
+        opener = new SwingWorker<>() {
+            @Override
+            protected Spectrogram doInBackground() throws Exception {
+                return Spectrogram.open(audioFile);
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) return;
+                complete = true;
+                try {
+                    spectrogram = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    failure = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+                    e.printStackTrace();
+                }
+                FrameClock.shared().markDirty(SpectrogramPanel.this);
+            }
+        };
+        opener.execute();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        int width = getWidth();
+        int height = getHeight();
+        if (spectrogram == null || spectrogram.getColumns() == 0) {
+            g.setColor(Color.GRAY);
+            String message = failure != null ? "Spectrogram failed: " + failure
+                    : complete ? "No audio" : "Computing spectrogram...";
+            g.drawString(message, 6, Math.max(12, height / 2 - 6));
+            return;
+        }
+        Rectangle bounds = g.getClipBounds();
+        if (bounds == null) {
+            bounds = new Rectangle(0, 0, width, height);
+        }
+        int first = -1;
+        int last = -1;
+        for (int index = 0; index < spectrogram.getTileCount(); index++) {
+            Rectangle area = tileArea(index);
+            if (area.x >= bounds.x + bounds.width) break;
+            if (area.x + area.width <= bounds.x) continue;
+            if (first < 0) first = index;
+            last = index;
+        }
+        if (first < 0) return;
+        wantedFirst = first;
+        wantedLast = last;
+        for (int index = first; index <= last; index++) {
+            Rectangle area = tileArea(index);
+            BufferedImage image = images.get(index);
+            if (image != null) {
+                g.drawImage(image, area.x, 0, area.width, height, null);
+            } else {
+                load(index);
+            }
+        }
+    }
+
+    // Computes or reads a tile in the background, left to right as painted, and repaints its area
+    private void load(int index) {
+        if (!loading.add(index)) return;
+        Spectrogram source = spectrogram;
+        reader.execute(() -> {
+            BufferedImage image = null;
+            if ((index >= wantedFirst && index <= wantedLast) || source.isCached(index)) {
+                try {
+                    image = toImage(source, index, source.tile(index));
+                } catch (IOException e) {
+                    System.out.println("Failed to read spectrogram tile: " + e.getMessage());
+                }
+            }
+            BufferedImage loaded = image;
+            SwingUtilities.invokeLater(() -> {
+                loading.remove(index);
+                if (loaded != null && source == spectrogram) {
+                    images.put(index, loaded);
+                    FrameClock.shared().markDirty(this, tileArea(index));
+                }
+            });
+        });
+    }
+
+    private Rectangle tileArea(int index) {
+        if (spectrogram == null) return new Rectangle();
+        double pixelsPerColumn = getWidth() / (double) Math.max(1, spectrogram.getColumns());
+        int x0 = (int) Math.floor(index * Spectrogram.TILE_COLUMNS * pixelsPerColumn);
+        int x1 = (int) Math.ceil((index * Spectrogram.TILE_COLUMNS + spectrogram.tileColumns(index)) * pixelsPerColumn);
+        return new Rectangle(x0, 0, Math.max(1, x1 - x0), getHeight());
+    }
+
+    /**
+     * One tile as an image, a pixel per column and ROWS rows; each row takes
+     * the loudest bin in its band, low frequencies at the bottom.
+     */
+    public static BufferedImage toImage(Spectrogram spectrogram, int index, byte[] tile) {
+        int columns = spectrogram.tileColumns(index);
+        int bins = spectrogram.getBins();
+        double binHz = spectrogram.binFrequency(1);
+        double nyquist = spectrogram.getSampleRate() / 2.0;
+        double low = Math.min(MIN_FREQUENCY, nyquist / 2);
+        int[] firstBin = new int[ROWS];
+        int[] lastBin = new int[ROWS];
+        for (int band = 0; band < ROWS; band++) {
+            double from = low * Math.pow(nyquist / low, band / (double) ROWS);
+            double to = low * Math.pow(nyquist / low, (band + 1) / (double) ROWS);
+            firstBin[band] = Math.min(bins - 1, Math.max(1, (int) Math.floor(from / binHz)));
+            lastBin[band] = Math.min(bins, Math.max(firstBin[band] + 1, (int) Math.ceil(to / binHz)));
+        }
+
+        BufferedImage image = new BufferedImage(Math.max(1, columns), ROWS, BufferedImage.TYPE_BYTE_INDEXED, COLORS);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        for (int c = 0; c < columns; c++) {
+            int base = c * bins;
+            for (int band = 0; band < ROWS; band++) {
+                int level = 0;
+                for (int b = firstBin[band]; b < lastBin[band]; b++) {
+                    level = Math.max(level, tile[base + b] & 0xff);
+                }
+                pixels[(ROWS - 1 - band) * columns + c] = (byte) level;
+            }
+        }
+        return image;
+    }
+
+    // Black through blue, magenta and orange to pale yellow
+    private static IndexColorModel colorMap() {
+        float[][] stops = {{0, 0, 0}, {0.1f, 0.05f, 0.45f}, {0.6f, 0.1f, 0.55f}, {1, 0.5f, 0.1f}, {1, 1, 0.75f}};
+        byte[] r = new byte[256];
+        byte[] g = new byte[256];
+        byte[] b = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            float t = i / 255f * (stops.length - 1);
+            int s = Math.min(stops.length - 2, (int) t);
+            float f = t - s;
+            r[i] = (byte) Math.round(255 * (stops[s][0] + (stops[s + 1][0] - stops[s][0]) * f));
+            g[i] = (byte) Math.round(255 * (stops[s][1] + (stops[s + 1][1] - stops[s][1]) * f));
+            b[i] = (byte) Math.round(255 * (stops[s][2] + (stops[s + 1][2] - stops[s][2]) * f));
+        }
+        return new IndexColorModel(8, 256, r, g, b);
+    }
+}
@@ -0,0 +1,70 @@
+package com.meenigam.Components;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Horizontal scale of the track editor: how many pixels a second of audio
+ * takes. Clips are placed and sized from it by their start time and
+ * duration, and zooming changes it for every track at once.
+ */
+public final class Timeline {
+
+    public static final double DEFAULT_PIXELS_PER_SECOND = 10;
+    public static final double MIN_PIXELS_PER_SECOND = 0.5;
+    public static final double MAX_PIXELS_PER_SECOND = 2000;
+
+    private static Timeline shared;
+
+    private final List<ChangeListener> listeners = new ArrayList<>();
+    private double pixelsPerSecond = DEFAULT_PIXELS_PER_SECOND;
+
+    public static Timeline shared() {
+        if (shared == null) {
+            shared = new Timeline();
+        }
+        return shared;
+    }
+
+    public double getPixelsPerSecond() {
+        return pixelsPerSecond;
+    }
+
+    /**
+     * Sets the scale, kept within MIN_PIXELS_PER_SECOND and MAX_PIXELS_PER_SECOND.
+     */
+    public void setPixelsPerSecond(double pixelsPerSecond) {
+        double clamped = Math.max(MIN_PIXELS_PER_SECOND, Math.min(MAX_PIXELS_PER_SECOND, pixelsPerSecond));
+        if (clamped == this.pixelsPerSecond) return;
+        this.pixelsPerSecond = clamped;
+        ChangeEvent event = new ChangeEvent(this);
+        for (ChangeListener listener : new ArrayList<>(listeners)) {
+            listener.stateChanged(event);
+        }
+    }
+
+    /**
+     * Multiplies the scale by factor; above 1 zooms in.
+     */
+    public void zoom(double factor) {
+        setPixelsPerSecond(pixelsPerSecond * factor);
+    }
+
+    public int toPixels(double seconds) {
+        return (int) Math.round(seconds * pixelsPerSecond);
+    }
+
+    public double toSeconds(double pixels) {
+        return pixels / pixelsPerSecond;
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+}
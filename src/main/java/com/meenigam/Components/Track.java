@@ -13,8 +13,12 @@ import java.awt.event.MouseEvent;
 import javax.swing.SwingUtilities;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class Track extends JPanel {
     private final Color backgroundColor = new Color(50, 50, 50);
@@ -27,7 +31,13 @@ public class Track extends JPanel {
     private final JPanel clipContainer;  // Holds clips horizontally
     private final String title;
     private final TrackEditor trackEditor;
-    private final ArrayList<Clip> clips;
+    private final ArrayList<ClipModel> clips;  // Sorted by start time
+    private final Map<ClipModel, Clip> realized = new HashMap<>();  // Components of the clips in view
+    private float longestSeconds;  // How far before the view a clip in it can start
+    private final LevelMeter meter = new LevelMeter();  // Fed by the player while the mix plays
+    // Horizontal range of the editor on screen; only clips inside it have a component
+    private int visibleFrom;
+    private int visibleTo = Integer.MAX_VALUE;
 
     public Track(String title, List<Track> tracks, TrackEditor trackEditor) {
         this.tracks = tracks;
@@ -45,6 +55,7 @@ public class Track extends JPanel {
 
         JPanel topPanel = new JPanel(new BorderLayout());
         topPanel.setMaximumSize(new Dimension(10000, 35));
+        topPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
         topPanel.setBackground(new Color(0, 0, 0, 0));
 
         JLabel titleLabel = new JLabel(title);
@@ -53,6 +64,11 @@ public class Track extends JPanel {
         titleLabel.setFont(titleLabel.getFont().deriveFont(Font.BOLD, 10f));
         topPanel.add(titleLabel, BorderLayout.WEST);
 
+        JPanel meterPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 4));
+        meterPanel.setOpaque(false);
+        meterPanel.add(meter);
+        topPanel.add(meterPanel, BorderLayout.EAST);
+
 
         // Add track selection listener
         addMouseListener(new MouseAdapter() {
@@ -96,10 +112,13 @@ public class Track extends JPanel {
 
         add(topPanel, BorderLayout.NORTH);
 
-        // Container for clips aligned horizontally
+        // Container for clips, placed by their start time
         clipContainer = new JPanel();
-        clipContainer.setLayout(new FlowLayout(FlowLayout.LEFT)); // Left-align clips
+        clipContainer.setLayout(new ClipLayout());
         clipContainer.setOpaque(false); // Matches the background
+        // Zoomed in, tracks are wider than a JPanel's maximum; keep the clips from being centred
+        clipContainer.setMaximumSize(new Dimension(Integer.MAX_VALUE, Integer.MAX_VALUE));
+        clipContainer.setAlignmentX(Component.LEFT_ALIGNMENT);
         add(clipContainer, BorderLayout.CENTER);
 
         setPreferredSize(new Dimension(getWidth(), this.getHeight())); // Adjust dimensions as needed
@@ -107,34 +126,233 @@ public class Track extends JPanel {
     }
 
     public void addTracksToEditor(TrackEditor editor) {
-        for (Track track : tracks) {
-            editor.add(track);
-        }
+        // The editor only adds the tracks in view
+        editor.realize();
     }
 
-    public ArrayList<Clip> getClips() { return this.clips; }
+    /**
+     * Every clip on the track, in start order; off-screen ones have no component.
+     */
+    public List<ClipModel> getClips() { return Collections.unmodifiableList(this.clips); }
 
+    public LevelMeter getMeter() { return this.meter; }
+
+    /**
+     * Adds a clip for a copy of fileComponent after the last clip on the track.
+     */
     public void setClip(FileComponent fileComponent) {
-        Clip clip = new Clip(new FileComponent(fileComponent), this);
-        clips.add(clip);
-        clipContainer.add(clip); // Add to clip container for horizontal layout
-        revalidate();
-        repaint();
-        clip.repaint();
+        addClip(new FileComponent(fileComponent), getEndSeconds());
+    }
+
+    /**
+     * Adds a clip for fileComponent, which the track takes over, at startSeconds.
+     */
+    public ClipModel addClip(FileComponent fileComponent, float startSeconds) {
+        ClipModel clip = new ClipModel(fileComponent, startSeconds);
+        clips.add(firstStartingAt(clip.getStartSeconds()), clip);
+        clipsChanged();
+        return clip;
+    }
+
+    /**
+     * Makes clip's component again if it is in view, so it shows the file
+     * component's current render and the clip's spectrogram mode.
+     */
+    public void replaceClip(ClipModel clip) {
+        Clip previous = realized.remove(clip);
+        if (previous != null) {
+            clipContainer.remove(previous);
+            realize(clip);
+            previous.dispose();  // After the replacement took its media, so an unchanged file stays loaded
+        }
+        clipsChanged();
+    }
+
+    /**
+     * Takes clip off the track for good.
+     */
+    public void removeClip(ClipModel clip) {
+        if (!clips.remove(clip)) return;
+        unrealize(clip);
+        clip.getFileComponent().release();
+        clipsChanged();
+    }
+
+    /**
+     * The component drawing clip, or null while it is out of view.
+     */
+    public Clip getRealizedClip(ClipModel clip) {
+        return realized.get(clip);
+    }
+
+    /**
+     * Where the last clip on the track ends, in seconds.
+     */
+    public float getEndSeconds() {
+        float end = 0;
+        for (ClipModel clip : clips) {
+            end = Math.max(end, clip.getEndSeconds());
+        }
+        return end;
+    }
+
+    /**
+     * Gives the clips overlapping pixels [from, to) of the timeline a
+     * component in the clip container and drops the others', so off-screen
+     * clips hold no media and are neither laid out nor painted. Only the
+     * clips starting near the view are looked at.
+     */
+    public void realizeClips(int from, int to) {
+        visibleFrom = from;
+        visibleTo = to;
+        Timeline timeline = Timeline.shared();
+        // A pixel of slack either side for rounding, and clips drawn at least a pixel wide
+        double earliest = timeline.toSeconds(from - 2) - longestSeconds;
+        double latest = timeline.toSeconds(to + 1.0);
+        Set<ClipModel> visible = new LinkedHashSet<>();  // In start order, which is the painting order
+        for (int i = firstStartingAt(earliest); i < clips.size(); i++) {
+            ClipModel clip = clips.get(i);
+            if (clip.getStartSeconds() >= latest) break;
+            int left = timeline.toPixels(clip.getStartSeconds());
+            int right = left + Math.max(1, timeline.toPixels(clip.getDurationSeconds()));
+            if (right > from && left < to) {
+                visible.add(clip);
+            }
+        }
+        boolean changed = false;
+        for (ClipModel clip : new ArrayList<>(realized.keySet())) {
+            if (!visible.contains(clip)) {
+                unrealize(clip);
+                changed = true;
+            }
+        }
+        for (ClipModel clip : visible) {
+            if (!realized.containsKey(clip)) {
+                realize(clip);
+                changed = true;
+            }
+        }
+        if (changed) {
+            clipContainer.revalidate();
+            clipContainer.repaint();
+        }
+    }
+
+    // A dragged clip may have come into or left the view, or moved the end of the timeline
+    void clipMoved(Clip component) {
+        for (Map.Entry<ClipModel, Clip> entry : realized.entrySet()) {
+            if (entry.getValue() == component) {
+                ClipModel clip = entry.getKey();
+                clips.remove(clip);
+                clip.setStartSeconds(component.getStartSeconds());
+                clips.add(firstStartingAt(clip.getStartSeconds()), clip);
+                break;
+            }
+        }
+        realizeClips(visibleFrom, visibleTo);
+        if (trackEditor != null) {
+            trackEditor.revalidate();
+        }
+    }
+
+    // Index of the first clip starting at or after seconds
+    private int firstStartingAt(double seconds) {
+        int low = 0;
+        int high = clips.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (clips.get(middle).getStartSeconds() < seconds) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void realize(ClipModel clip) {
+        Clip component = new Clip(clip.getFileComponent(), this);
+        component.setStartSeconds(clip.getStartSeconds());
+        component.setSpectrogramMode(clip.isSpectrogramMode());
+        realized.put(clip, component);
+        clipContainer.add(component);
+    }
+
+    private void unrealize(ClipModel clip) {
+        Clip component = realized.remove(clip);
+        if (component != null) {
+            clipContainer.remove(component);
+            component.dispose();
+        }
+    }
+
+    /**
+     * X within the track of second 0 of the timeline: the clips are laid
+     * out inside the border and its padding.
+     */
+    public int getContentOrigin() {
+        return getInsets().left;
     }
 
     public JPanel getClipContainer() {
         return clipContainer;
     }
+    /**
+     * Makes the components of the clips in view again.
+     */
     public void resetClipContainer() {
-        clipContainer.removeAll();
-        for(Clip clip: clips) {
-            clipContainer.add(clip);
+        for (ClipModel clip : new ArrayList<>(realized.keySet())) {
+            unrealize(clip);
+        }
+        clipsChanged();
+    }
+
+    private void clipsChanged() {
+        longestSeconds = 0;
+        for (ClipModel clip : clips) {
+            longestSeconds = Math.max(longestSeconds, clip.getDurationSeconds());
         }
+        realizeClips(visibleFrom, visibleTo);
+        if (trackEditor != null) {
+            trackEditor.revalidate();
+        }
+        clipContainer.revalidate();
         revalidate();
         repaint();
     }
 
+    // Places each clip at its start time, as wide as its duration, filling the height
+    private static final class ClipLayout implements LayoutManager {
+        @Override
+        public void addLayoutComponent(String name, Component comp) {
+        }
+
+        @Override
+        public void removeLayoutComponent(Component comp) {
+        }
+
+        @Override
+        public Dimension preferredLayoutSize(Container parent) {
+            return new Dimension(0, 0);
+        }
+
+        @Override
+        public Dimension minimumLayoutSize(Container parent) {
+            return new Dimension(0, 0);
+        }
+
+        @Override
+        public void layoutContainer(Container parent) {
+            Timeline timeline = Timeline.shared();
+            for (Component component : parent.getComponents()) {
+                if (component instanceof Clip clip) {
+                    component.setBounds(timeline.toPixels(clip.getStartSeconds()), 0,
+                            Math.max(1, timeline.toPixels(clip.getDurationSeconds())), parent.getHeight());
+                }
+            }
+        }
+    }
+
     public void setSelected(boolean selected) {
         this.isSelected = selected;
         if (selected) {
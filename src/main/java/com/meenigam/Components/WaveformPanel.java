@@ -1,96 +1,130 @@
 package com.meenigam.Components;
 
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.UnsupportedAudioFileException;
+import com.meenigam.Utils.FrameClock;
+import com.meenigam.Utils.MediaPool;
+import com.meenigam.Utils.PeakPyramid;
+
 import javax.swing.*;
 import java.awt.*;
-import java.io.File;
-import java.io.IOException;
+import java.awt.image.BufferedImage;
 
 public class WaveformPanel extends JPanel {
 
-    private float[] audioSamples;
+    private final MediaPool.Entry media;
+    private PeakPyramid peaks;
     private Clip clip;
 
-    public WaveformPanel(File audioFile, Clip clip) {
+    // The pool reads the peaks once for every clip of the file; peaks holds
+    // the latest partial pyramid until it is done
+    private final MediaPool.PeaksListener listener = this::peaksChanged;
+    private long totalFrames = -1;
+    private boolean complete;
+
+    public WaveformPanel(MediaPool.Entry media, Clip clip) {
+        this.media = media;
         this.clip = clip;
-        try {
-            audioSamples = readAudioData(audioFile);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
         setSize(clip.getWidth(), clip.getHeight()); // Set the size of the panel
+        setBackground(WaveformTiles.BACKGROUND); // Set the background color to dark gray
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (!complete) {
+            media.addPeaksListener(listener);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        // Tracks take clips out and put them straight back when laying out, so
+        // only stop listening once the clip is still gone after this event.
+        // The read itself goes on while the clip holds the entry
+        SwingUtilities.invokeLater(() -> {
+            if (!isDisplayable()) {
+                media.removePeaksListener(listener);
+            }
+        });
+    }
+
+    private void peaksChanged(MediaPool.Entry entry) {
+        if (entry.getFailure() != null) {
+            complete = true;
+            System.out.println("Failed to read peaks: " + entry.getFailure().getMessage());
+        } else if (entry.getPeaks() != null) {
+            replacePeaks(entry.getPeaks());
+            totalFrames = entry.getTotalFrames();
+            complete = entry.isComplete();
+        }
+        if (complete) {
+            media.removePeaksListener(listener);
+        }
+        FrameClock.shared().markDirty(this);
+    }
 
-        // Start a timer to repaint the panel every second
-        Timer timer = new Timer(1000, e -> repaint());
-        timer.start(); // Start the timer
+    // Tiles of a partial pyramid are no use once a later one arrives
+    private void replacePeaks(PeakPyramid next) {
+        if (peaks != null && peaks != next) {
+            WaveformTiles.shared().invalidate(peaks);
+        }
+        peaks = next;
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        if (audioSamples == null) return;
-        setBackground(new Color(50, 50, 50)); // Set the background color to dark gray
 
         Graphics2D g2d = (Graphics2D) g;
-        g2d.setColor(Color.GREEN); // Set the waveform color to green
-
         int width = getWidth(); // Get the width of the panel
         int height = getHeight(); // Get the height of the panel
         int middle = height / 2; // Find the middle of the panel to center the waveform
 
-        g2d.fillRect(0, middle - 1, width, 2); // Draw the middle line
-
-        // Find the maximum sample value for scaling
-        float max = 0;
-        for (float audioSample : audioSamples) {
-            if (audioSample > max) {
-                max = audioSample;
+        if (peaks == null) {
+            // Placeholder until the first part of the file is decoded
+            g2d.setColor(Color.GRAY);
+            g2d.fillRect(0, middle, width, 1);
+            if (!complete) {
+                g2d.drawString("Loading waveform...", 6, Math.max(12, middle - 6));
             }
+            return;
         }
-
-        // Scale factor to fit the waveform within the panel height
-        float scale = height / (middle * max);
-
-        // Draw the waveform based on the audio samples
-        for (int i = 0; i < width; i++) {
-            // Map the screen width to the audio sample array
-            int sampleIndex = (int) ((i / (float) width) * audioSamples.length);
-            int amplitude = (int) (audioSamples[sampleIndex] * middle * scale); // Scale the sample
-
-            // Draw a line for each sample at the corresponding position
-            g2d.drawLine(i, middle - amplitude, i, middle + amplitude);
-        }
-    }
-
-    // Method to read audio data from the file and convert to PCM samples
-    private float[] readAudioData(File audioFile) throws UnsupportedAudioFileException, IOException {
-        AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(audioFile);
-        AudioFormat format = audioInputStream.getFormat();
-
-        if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED) {
-            throw new UnsupportedAudioFileException("Only PCM signed format supported");
+        if (width <= 0 || height <= 0) return;
+
+        // Copy the cached tiles under the clip; missing ones are drawn in the
+        // background and show the middle line until they arrive. While loading,
+        // the decoded part fills the left of the clip and the rest stays flat
+        long frames = Math.max(totalFrames, peaks.getFrames());
+        Rectangle bounds = g.getClipBounds();
+        if (bounds == null) {
+            bounds = new Rectangle(0, 0, width, height);
         }
-
-        byte[] audioBytes = audioInputStream.readAllBytes();
-        int sampleSizeInBits = format.getSampleSizeInBits();
-        int numSamples = audioBytes.length / (sampleSizeInBits / 8);
-
-        float[] audioData = new float[numSamples];
-
-        // Convert bytes to PCM samples
-        for (int i = 0; i < numSamples; i++) {
-            int sample;
-            if (sampleSizeInBits == 16) {
-                sample = (audioBytes[i * 2 + 1] << 8) | (audioBytes[i * 2] & 0xFF); // 16-bit PCM
+        WaveformTiles tiles = WaveformTiles.shared();
+        int first = Math.max(0, bounds.x / WaveformTiles.TILE_WIDTH);
+        int last = Math.min((width - 1) / WaveformTiles.TILE_WIDTH,
+                (bounds.x + bounds.width - 1) / WaveformTiles.TILE_WIDTH);
+        for (int index = first; index <= last; index++) {
+            WaveformTiles.Key key = new WaveformTiles.Key(peaks, frames, width, height, index);
+            BufferedImage tile = tiles.get(key);
+            if (tile != null) {
+                g2d.drawImage(tile, key.getX(), 0, null);
             } else {
-                sample = audioBytes[i]; // 8-bit PCM
+                g2d.setColor(WaveformTiles.PEAK_COLOR);
+                g2d.fillRect(key.getX(), middle - 1, key.getTileWidth(), 2);
+                Rectangle area = new Rectangle(key.getX(), 0, key.getTileWidth(), height);
+                tiles.request(key, () -> FrameClock.shared().markDirty(this, area));
             }
-            audioData[i] = sample / (float) (1 << (sampleSizeInBits - 1)); // Normalize to range [-1, 1]
         }
+    }
+
+    /**
+     * The waveform drawn so far; partial while it is still being decoded.
+     */
+    public PeakPyramid getPeaks() {
+        return peaks;
+    }
 
-        return audioData;
+    public boolean isLoaded() {
+        return complete;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,230 @@
+package com.meenigam.Components;
+
+import com.meenigam.Utils.PeakPyramid;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Waveforms pre-drawn into fixed-width image tiles, so painting a clip is
+ * a handful of image copies. Tiles are drawn from the peak pyramid on a
+ * background thread and kept per pyramid, zoom (the clip's width in pixels)
+ * and height; the least recently drawn are dropped once the images grow
+ * past the byte budget.
+ */
+public final class WaveformTiles {
+
+    public static final int TILE_WIDTH = 256;
+
+    static final Color BACKGROUND = new Color(50, 50, 50);
+    static final Color PEAK_COLOR = Color.GREEN;
+    static final Color RMS_COLOR = new Color(150, 255, 150);
+
+    private static final long DEFAULT_BUDGET_BYTES = 64L << 20;
+
+    private static WaveformTiles shared;
+
+    /**
+     * One tile: columns [index * TILE_WIDTH, (index + 1) * TILE_WIDTH) of
+     * frames drawn across width pixels.
+     */
+    public static final class Key {
+        final PeakPyramid peaks;
+        final long frames;
+        final int width;
+        final int height;
+        final int index;
+
+        public Key(PeakPyramid peaks, long frames, int width, int height, int index) {
+            this.peaks = peaks;
+            this.frames = frames;
+            this.width = width;
+            this.height = height;
+            this.index = index;
+        }
+
+        public int getX() {
+            return index * TILE_WIDTH;
+        }
+
+        public int getTileWidth() {
+            return Math.max(0, Math.min(TILE_WIDTH, width - getX()));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key other)) return false;
+            return peaks == other.peaks && frames == other.frames && width == other.width
+                    && height == other.height && index == other.index;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(peaks), frames, width, height, index);
+        }
+    }
+
+    private final long budgetBytes;
+    private final Map<Key, BufferedImage> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<Key> pending = new HashSet<>();
+    private final ExecutorService painter = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "waveform-tiles");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long totalBytes;
+
+    public WaveformTiles(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * The tiles used by waveform panels, within -Daudioeditor.waveformCacheMB
+     * megabytes (64 by default).
+     */
+    public static synchronized WaveformTiles shared() {
+        if (shared == null) {
+            long budget = DEFAULT_BUDGET_BYTES;
+            String configured = System.getProperty("audioeditor.waveformCacheMB");
+            if (configured != null) {
+                try {
+                    budget = Long.parseLong(configured.trim()) << 20;
+                } catch (NumberFormatException e) {
+                    System.out.println("Ignoring audioeditor.waveformCacheMB: " + configured);
+                }
+            }
+            shared = new WaveformTiles(budget);
+        }
+        return shared;
+    }
+
+    /**
+     * The tile if it has been drawn, otherwise null.
+     */
+    public synchronized BufferedImage get(Key key) {
+        return tiles.get(key);
+    }
+
+    /**
+     * Draws the tile in the background unless it is cached or already
+     * queued; onReady runs on the event thread once it is in the cache.
+     */
+    public synchronized void request(Key key, Runnable onReady) {
+        if (tiles.containsKey(key) || !pending.add(key)) return;
+        painter.execute(() -> {
+            synchronized (this) {
+                // Dropped by invalidate while it waited
+                if (!pending.contains(key)) return;
+            }
+            BufferedImage image = render(key);
+            synchronized (this) {
+                if (!pending.remove(key)) return;
+                put(key, image);
+            }
+            SwingUtilities.invokeLater(onReady);
+        });
+    }
+
+    public synchronized void put(Key key, BufferedImage image) {
+        BufferedImage previous = tiles.put(key, image);
+        if (previous != null) {
+            totalBytes -= bytes(previous);
+        }
+        totalBytes += bytes(image);
+        evict(key);
+    }
+
+    /**
+     * Drops every tile of peaks, drawn or queued.
+     */
+    public synchronized void invalidate(PeakPyramid peaks) {
+        Iterator<Map.Entry<Key, BufferedImage>> it = tiles.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, BufferedImage> entry = it.next();
+            if (entry.getKey().peaks == peaks) {
+                totalBytes -= bytes(entry.getValue());
+                it.remove();
+            }
+        }
+        pending.removeIf(key -> key.peaks == peaks);
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return tiles.size();
+    }
+
+    /**
+     * Draws one tile: a min/max line per column with the RMS band over it,
+     * scaled to the pyramid's peak.
+     */
+    public static BufferedImage render(Key key) {
+        int tileWidth = Math.max(1, key.getTileWidth());
+        int height = Math.max(1, key.height);
+        BufferedImage image = new BufferedImage(tileWidth, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setColor(BACKGROUND);
+            g2d.fillRect(0, 0, tileWidth, height);
+            int middle = height / 2;
+            g2d.setColor(PEAK_COLOR);
+            g2d.fillRect(0, middle - 1, tileWidth, 2); // Draw the middle line
+
+            // Scale to the clip's peak so quiet clips still fill the height
+            int peak = key.peaks.peak();
+            if (peak == 0 || key.width <= 0) return image;
+            float scale = middle / (float) peak;
+
+            short[] min = new short[tileWidth];
+            short[] max = new short[tileWidth];
+            short[] rms = new short[tileWidth];
+            double framesPerPixel = key.frames / (double) key.width;
+            long start = (long) (key.getX() * framesPerPixel);
+            long end = (long) ((key.getX() + tileWidth) * framesPerPixel);
+            key.peaks.summarize(start, end, tileWidth, min, max, rms);
+
+            for (int x = 0; x < tileWidth; x++) {
+                g2d.drawLine(x, middle - (int) (max[x] * scale), x, middle - (int) (min[x] * scale));
+            }
+            g2d.setColor(RMS_COLOR);
+            for (int x = 0; x < tileWidth; x++) {
+                int r = (int) (rms[x] * scale);
+                if (r > 0) {
+                    g2d.drawLine(x, middle - r, x, middle + r);
+                }
+            }
+        } finally {
+            g2d.dispose();
+        }
+        return image;
+    }
+
+    // Drops the least recently drawn tiles until the budget holds, never the one just added
+    private void evict(Key keep) {
+        Iterator<Map.Entry<Key, BufferedImage>> it = tiles.entrySet().iterator();
+        while (totalBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<Key, BufferedImage> oldest = it.next();
+            if (oldest.getKey().equals(keep)) {
+                continue;
+            }
+            totalBytes -= bytes(oldest.getValue());
+            it.remove();
+        }
+    }
+
+    private static long bytes(BufferedImage image) {
+        return 4L * image.getWidth() * image.getHeight();
+    }
+}
@@ -1,7 +1,7 @@
 package com.meenigam;
 
 
-import com.meenigam.Components.Clip;
+import com.meenigam.Components.ClipModel;
 import com.meenigam.Components.Track;
 import com.meenigam.Panels.ControlPanel;
 import com.meenigam.Panels.StagingArea;
@@ -13,17 +13,26 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.filechooser.FileSystemView;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class Frame extends JFrame {
 
+    // Edits and analyses of clips, one at a time and in the order they were asked for
+    private static final ExecutorService clipEditor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "clip-edits");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private Manager manager;
 
     private int mouseX, mouseY;
@@ -79,7 +88,7 @@ public class Frame extends JFrame {
 
         // Wrap both panels in JScrollPane
         JScrollPane stagingScrollPane = new JScrollPane(stagingArea);
-        JScrollPane trackScrollPane = new JScrollPane(trackEditor);
+        JScrollPane trackScrollPane = new JScrollPane(trackEditor.getPlayheadLayer());
 
         stagingScrollPane.setPreferredSize(new Dimension(200, this.getHeight()));
         stagingScrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
@@ -103,14 +112,6 @@ public class Frame extends JFrame {
         createFloatingEditButton();
 
         setVisible(true);
-        // Start the timer to trigger repaint every second
-        Timer timer = new Timer(1000, new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                repaint();
-            }
-        });
-        timer.start(); // Start the timer
     }
 
     public void setSlider(JSlider slider) {
@@ -252,9 +253,9 @@ public class Frame extends JFrame {
 
     private void updateMaster() {
         for (Track track : TrackEditor.getTracks()) {
-            ArrayList<Clip> clips = track.getClips();
-            for (Clip clip : clips) {
-                String[] param = {clip.getPath(), String.valueOf(clip.getStart())};
+            List<ClipModel> clips = track.getClips();
+            for (ClipModel clip : clips) {
+                String[] param = {clip.getRenderedPath(), String.valueOf(clip.getStart())};
                 System.out.println( "clip.getStanrt: " + clip.getStart() + " after multiplication: " + param[1]);
                 callNative.callCode(manager.finalFilePath, 10, param);
             }
@@ -267,10 +268,10 @@ public class Frame extends JFrame {
         Files.copy(oldLoc, newLoc, StandardCopyOption.REPLACE_EXISTING);
         float maxEnd = 0.0f;
         for (Track track : TrackEditor.getTracks()) {
-            ArrayList<Clip> clips = track.getClips();
-            for (Clip clip : clips) {
-                if (maxEnd < clip.getEnd())
-                    maxEnd = clip.getEnd();
+            List<ClipModel> clips = track.getClips();
+            for (ClipModel clip : clips) {
+                if (maxEnd < clip.getEndSeconds())
+                    maxEnd = clip.getEndSeconds();
             }
         }
         String[] param = {String.valueOf(maxEnd * 1000), String.valueOf(1)};
@@ -417,8 +418,9 @@ public class Frame extends JFrame {
         // Show the same menu as the original track button
         ArrayList<String> options = new ArrayList<>(java.util.Arrays.asList(
                 "Details", "Loop", "Trim", "Clip Gain", "Frequency Scaling", 
-                "Time Scaling", "Compressing", "Pitch Filter", "Normalize", 
-                "Reverb", "Delete Clip"
+                "Time Scaling", "Pitch Shift", "Compressing", "Audio Filter", "Normalize",
+                "Loudness Analysis", "Spectrogram", "Detect Silence", "Auto-Trim Silence", "Strip Silence", "Reverb",
+                "Effect Chain", "Undo", "Redo", "Delete Clip"
         ));
         String[] opts = options.toArray(new String[0]);
         
@@ -442,7 +444,7 @@ public class Frame extends JFrame {
     private void processAudioEditingOption(String selectedOption, Track track) {
         // This method contains the same logic as the original Track.java button handler
         // We'll extract the common logic to avoid duplication
-        java.util.ArrayList<com.meenigam.Components.Clip> clips = track.getClips();
+        List<ClipModel> clips = track.getClips();
         if (clips.isEmpty()) {
             JOptionPane.showMessageDialog(
                     null,
@@ -453,13 +455,20 @@ public class Frame extends JFrame {
             return;
         }
         
-        String filePath = clips.get(0).getFileComponent().getFilePath();
+        // Edits are recorded against the clip's source; only the analyses read the current render
+        com.meenigam.Components.FileComponent edited = clips.get(0).getFileComponent();
+        com.meenigam.Utils.EditList edits = edited.getEdits();
+        // Anything that renders or reads the render is left to run in the background
+        java.util.concurrent.Callable<String> task = null;
+        String title = selectedOption;
         
         try {
             switch (selectedOption) {
                 case "Details":
-                    String[] param = {};
-                    com.meenigam.Utils.callNative.callCode(filePath, 0, param);
+                    task = () -> {
+                        com.meenigam.Utils.callNative.callCode(edited.getRenderedPath(), 0, new String[0]);
+                        return null;
+                    };
                     break;
                 case "Loop":
                     String userInput = JOptionPane.showInputDialog(
@@ -471,7 +480,7 @@ public class Frame extends JFrame {
                     if (userInput != null) {
                         double loop = Integer.parseInt(userInput);
                         String[] loopParam = {String.valueOf(loop)};
-                        com.meenigam.Utils.callNative.callCode(filePath, 1, loopParam);
+                        task = applying(edits, 1, loopParam);
                     }
                     break;
                 case "Trim":
@@ -481,7 +490,7 @@ public class Frame extends JFrame {
                         double threshold = Double.parseDouble(input.get(params.get(0)));
                         double ratio = Double.parseDouble(input.get(params.get(1)));
                         String[] trimParam = {String.valueOf(threshold), String.valueOf(ratio)};
-                        com.meenigam.Utils.callNative.callCode(filePath, 2, trimParam);
+                        task = applying(edits, 2, trimParam);
                     }
                     break;
                 case "Clip Gain":
@@ -494,20 +503,18 @@ public class Frame extends JFrame {
                     if (gainInput != null) {
                         double factor = Double.parseDouble(gainInput);
                         String[] gainParam = {String.valueOf(factor)};
-                        com.meenigam.Utils.callNative.callCode(filePath, 3, gainParam);
+                        task = applying(edits, 3, gainParam);
                     }
                     break;
                 case "Frequency Scaling":
-                    String freqInput = JOptionPane.showInputDialog(
-                            null,
-                            "Please input amplitude factor: ",
-                            "Factor: ",
-                            JOptionPane.QUESTION_MESSAGE
-                    );
+                    java.util.ArrayList<String> freqParams = new java.util.ArrayList<>(java.util.Arrays.asList(
+                            "Factor", "Quality (0-3, optional)"));
+                    java.util.Map<String, String> freqInput = com.meenigam.Components.MultiInputDialog.getUserInputs(freqParams);
                     if (freqInput != null) {
-                        double freqFactor = Double.parseDouble(freqInput);
-                        String[] freqParam = {String.valueOf(freqFactor)};
-                        com.meenigam.Utils.callNative.callCode(filePath, 4, freqParam);
+                        double freqFactor = Double.parseDouble(freqInput.get(freqParams.get(0)));
+                        String quality = freqInput.get(freqParams.get(1)).trim();
+                        String[] freqParam = {String.valueOf(freqFactor), quality};
+                        task = applying(edits, 4, freqParam);
                     }
                     break;
                 case "Time Scaling":
@@ -521,35 +528,116 @@ public class Frame extends JFrame {
                         double duration = Double.parseDouble(timeInput);
                         duration = Math.round(duration * 1000) / 1000.0;
                         String[] timeParam = {String.valueOf(duration)};
-                        com.meenigam.Utils.callNative.callCode(filePath, 5, timeParam);
+                        task = applying(edits, 5, timeParam);
+                    }
+                    break;
+                case "Pitch Shift":
+                    String shiftInput = JOptionPane.showInputDialog(
+                            null,
+                            "Please input pitch shift: ",
+                            "Semitones (-24 to 24): ",
+                            JOptionPane.QUESTION_MESSAGE
+                    );
+                    if (shiftInput != null) {
+                        double semitones = Double.parseDouble(shiftInput);
+                        String[] shiftParam = {String.valueOf(semitones)};
+                        task = applying(edits, 11, shiftParam);
                     }
                     break;
                 case "Compressing":
-                    java.util.ArrayList<String> compressParams = new java.util.ArrayList<>(java.util.Arrays.asList("Threshold Frequency", "Compression Ratio"));
+                    java.util.ArrayList<String> compressParams = new java.util.ArrayList<>(java.util.Arrays.asList(
+                            "Threshold (dBFS, or 0-1)", "Ratio", "Mode (C/E/G/L)", "Attack ms (optional)",
+                            "Release ms (optional)", "Lookahead ms (optional)"));
                     java.util.Map<String, String> compressInput = com.meenigam.Components.MultiInputDialog.getUserInputs(compressParams);
                     if (compressInput != null) {
                         double threshold = Double.parseDouble(compressInput.get(compressParams.get(0)));
                         double ratio = Double.parseDouble(compressInput.get(compressParams.get(1)));
-                        String[] compressParam = {String.valueOf(threshold), String.valueOf(ratio)};
-                        com.meenigam.Utils.callNative.callCode(filePath, 6, compressParam);
+                        String mode = compressInput.get(compressParams.get(2)).trim();
+                        String attack = compressInput.get(compressParams.get(3)).trim();
+                        String release = compressInput.get(compressParams.get(4)).trim();
+                        String lookahead = compressInput.get(compressParams.get(5)).trim();
+                        String[] compressParam = {String.valueOf(threshold), String.valueOf(ratio), mode, attack, release, lookahead};
+                        task = applying(edits, 6, compressParam);
                     }
                     break;
-                case "Pitch Filter":
-                    java.util.ArrayList<String> pitchParams = new java.util.ArrayList<>(java.util.Arrays.asList("Cutoff Frequency", "Filter Type (H/L)"));
+                case "Audio Filter":
+                    java.util.ArrayList<String> pitchParams = new java.util.ArrayList<>(java.util.Arrays.asList(
+                            "Cutoff Frequency", "Filter Type (L/H/BP/N/LS/HS/PK)", "Q (optional)",
+                            "Gain dB (shelf/peak)", "Sections (optional)"));
                     java.util.Map<String, String> pitchInput = com.meenigam.Components.MultiInputDialog.getUserInputs(pitchParams);
                     if (pitchInput != null) {
                         double cutoff = Double.parseDouble(pitchInput.get(pitchParams.get(0)));
-                        String type = pitchInput.get(pitchParams.get(1));
-                        String[] pitchParam = {String.valueOf(cutoff), type};
-                        com.meenigam.Utils.callNative.callCode(filePath, 7, pitchParam);
+                        String type = pitchInput.get(pitchParams.get(1)).trim();
+                        String q = pitchInput.get(pitchParams.get(2)).trim();
+                        String gainDb = pitchInput.get(pitchParams.get(3)).trim();
+                        String sections = pitchInput.get(pitchParams.get(4)).trim();
+                        String[] pitchParam = {String.valueOf(cutoff), type, q, gainDb, sections};
+                        task = applying(edits, 7, pitchParam);
                     }
                     break;
                 case "Normalize":
-                    String[] normParam = {};
-                    com.meenigam.Utils.callNative.callCode(filePath, 8, normParam);
+                    String[] normModes = {"Peak (0 dBFS)", "Loudness (-16 LUFS)", "Loudness (-23 LUFS)"};
+                    String selectedNormMode = (String) JOptionPane.showInputDialog(null,
+                            "Normalize to:",
+                            "Normalize",
+                            JOptionPane.QUESTION_MESSAGE,
+                            null,
+                            normModes,
+                            normModes[0]);
+                    if (selectedNormMode != null) {
+                        String[] normParam;
+                        if (selectedNormMode.equals(normModes[1])) {
+                            normParam = new String[]{"LUFS", "-16"};
+                        } else if (selectedNormMode.equals(normModes[2])) {
+                            normParam = new String[]{"LUFS", "-23"};
+                        } else {
+                            normParam = new String[]{"PEAK"};
+                        }
+                        task = applying(edits, 8, normParam);
+                    }
+                    break;
+                case "Loudness Analysis":
+                    title = "Loudness - " + edited.getName();
+                    task = () -> String.join("\n",
+                            com.meenigam.Utils.callNative.callAnalysis(edited.getRenderedPath(), 0, new String[0]));
+                    break;
+                case "Detect Silence":
+                    title = "Silence - " + edited.getName();
+                    task = () -> {
+                        com.meenigam.Utils.SilenceScan scan = com.meenigam.Utils.SilenceScan.detect(edited.getRenderedPath());
+                        StringBuilder silenceReport = new StringBuilder(scan.toString());
+                        for (com.meenigam.Utils.SilenceScan.Region region : scan.getRegions()) {
+                            silenceReport.append('\n').append(region);
+                        }
+                        return silenceReport.toString();
+                    };
+                    break;
+                case "Auto-Trim Silence":
+                    task = () -> {
+                        com.meenigam.Utils.SilenceScan.autoTrim(edits);
+                        return null;
+                    };
+                    break;
+                case "Strip Silence":
+                    java.util.ArrayList<String> stripLabels = new java.util.ArrayList<>(java.util.Arrays.asList(
+                            "Threshold dBFS (default -50)", "Minimum silence ms (default 500)",
+                            "Kept padding ms (default 50)"));
+                    java.util.Map<String, String> stripInput = com.meenigam.Components.MultiInputDialog.getUserInputs(stripLabels);
+                    if (stripInput != null) {
+                        String threshold = stripInput.get(stripLabels.get(0)).trim();
+                        String minimum = stripInput.get(stripLabels.get(1)).trim();
+                        String padding = stripInput.get(stripLabels.get(2)).trim();
+                        double thresholdDb = threshold.isEmpty() ? -50 : Double.parseDouble(threshold);
+                        double minimumMs = minimum.isEmpty() ? 500 : Double.parseDouble(minimum);
+                        double paddingMs = padding.isEmpty() ? 50 : Double.parseDouble(padding);
+                        task = () -> {
+                            com.meenigam.Utils.SilenceScan.stripSilence(edits, thresholdDb, minimumMs, paddingMs);
+                            return null;
+                        };
+                    }
                     break;
                 case "Reverb":
-                    String[] reverbLevels = {"Low", "Medium", "High"};
+                    String[] reverbLevels = {"Low", "Medium", "High", "Custom IR..."};
                     String selectedReverbLevel = (String) JOptionPane.showInputDialog(null,
                             "Select Reverb Level:",
                             "Reverb Setting",
@@ -557,20 +645,65 @@ public class Frame extends JFrame {
                             null,
                             reverbLevels,
                             reverbLevels[1]);
-                    
-                    int reverbLevelInt = 1;
+
                     if (selectedReverbLevel != null) {
+                        String reverb = "1";
                         if (selectedReverbLevel.equals("Medium")) {
-                            reverbLevelInt = 2;
+                            reverb = "2";
                         } else if (selectedReverbLevel.equals("High")) {
-                            reverbLevelInt = 3;
+                            reverb = "3";
+                        } else if (selectedReverbLevel.equals("Custom IR...")) {
+                            // Impulse response recorded in a real space, convolved with the clip
+                            JFileChooser irChooser = new JFileChooser(FileSystemView.getFileSystemView().getHomeDirectory());
+                            irChooser.setDialogTitle("Select Impulse Response");
+                            irChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("WAV files", "wav"));
+                            if (irChooser.showOpenDialog(null) != JFileChooser.APPROVE_OPTION) {
+                                break;
+                            }
+                            reverb = irChooser.getSelectedFile().getAbsolutePath();
                         }
-                        String[] reverbParam = {String.valueOf(reverbLevelInt)};
-                        com.meenigam.Utils.callNative.callCode(filePath, 9, reverbParam);
+                        String[] reverbParam = {reverb};
+                        task = applying(edits, 9, reverbParam);
+                    }
+                    break;
+                case "Effect Chain":
+                    String chainInput = JOptionPane.showInputDialog(
+                            null,
+                            "Effects to run in one pass, separated by ';'\n"
+                                    + "(gain:0.5; filter:2000:L; compress:-18:4:C; normalize:lufs:-16)",
+                            "Effect Chain",
+                            JOptionPane.QUESTION_MESSAGE
+                    );
+                    if (chainInput != null && !chainInput.isBlank()) {
+                        com.meenigam.Utils.EffectChain chain = com.meenigam.Utils.EffectChain.parse(chainInput);
+                        task = () -> {
+                            chain.apply(edits);
+                            return null;
+                        };
                     }
                     break;
+                case "Spectrogram":
+                    // Toggles the clip between its waveform and its spectrogram
+                    clips.get(0).setSpectrogramMode(!clips.get(0).isSpectrogramMode());
+                    break;
+                case "Undo":
+                case "Redo":
+                    // Queued behind any edit still rendering, so it undoes that one
+                    boolean undo = selectedOption.equals("Undo");
+                    task = () -> {
+                        if (!(undo ? edits.canUndo() : edits.canRedo())) {
+                            return undo ? "Nothing to undo." : "Nothing to redo.";
+                        }
+                        if (undo) {
+                            edits.undo();
+                        } else {
+                            edits.redo();
+                        }
+                        return null;
+                    };
+                    break;
                 case "Delete Clip":
-                    clips.removeFirst();
+                    track.removeClip(clips.getFirst());
                     track.revalidate();
                     track.repaint();
                     break;
@@ -583,18 +716,10 @@ public class Frame extends JFrame {
                     );
             }
             
-            // Refresh the track after processing
-            track.resetClipContainer();
-            if (!clips.isEmpty()) {
-                com.meenigam.Components.Clip clip = clips.getFirst();
-                clips.removeFirst();
-                track.setClip(clip.getFileComponent());
-                track.resetClipContainer();
-                track.repaint();
-                if (!clips.isEmpty()) {
-                    clips.getFirst().reset();
-                    clips.getFirst().repaint();
-                }
+            if (task != null) {
+                editInBackground(track, edited, title, task);
+            } else {
+                refreshTrack(track);
             }
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(
@@ -613,6 +738,59 @@ public class Frame extends JFrame {
         }
     }
     
+    private static java.util.concurrent.Callable<String> applying(com.meenigam.Utils.EditList edits, int operation,
+                                                                  String... params) {
+        return () -> {
+            edits.apply(operation, params);
+            return null;
+        };
+    }
+
+    // Runs task and renders the edits off the event thread, then shows the
+    // render in the track and whatever the task reported, or its failure
+    private void editInBackground(Track track, com.meenigam.Components.FileComponent edited, String title,
+                                  java.util.concurrent.Callable<String> task) {
+        clipEditor.execute(new SwingWorker<String, Void>() {
+            private String rendered;
+
+            @Override
+            protected String doInBackground() throws Exception {
+                String message = task.call();
+                rendered = edited.renderPinned();
+                return message;
+            }
+
+            @Override
+            protected void done() {
+                if (rendered != null) {
+                    edited.useRender(rendered);
+                }
+                refreshTrack(track);
+                try {
+                    String message = get();
+                    if (message != null) {
+                        JOptionPane.showMessageDialog(null, message, title, JOptionPane.INFORMATION_MESSAGE);
+                    }
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(
+                            null,
+                            "An error occurred: " + cause.getMessage(),
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE
+                    );
+                }
+            }
+        });
+    }
+
+    // Refreshes the track after processing; the edited clip keeps its place on the timeline
+    private static void refreshTrack(Track track) {
+        if (!track.getClips().isEmpty()) {
+            track.replaceClip(track.getClips().getFirst());
+        }
+    }
+
     public void setSelectedTrack(Track track) {
         // Deselect previous track
         if (this.selectedTrack != null && this.selectedTrack != track) {
@@ -1,6 +1,11 @@
 package com.meenigam.Panels;
 
+import com.meenigam.Components.LevelMeter;
+import com.meenigam.Components.Track;
 import com.meenigam.Frame;
+import com.meenigam.Utils.FrameClock;
+import com.meenigam.Utils.MediaPool;
+import com.meenigam.Utils.Player;
 
 import javax.sound.sampled.*;
 import javax.swing.*;
@@ -11,6 +16,8 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 
 public class ControlPanel extends JPanel {
@@ -21,10 +28,16 @@ public class ControlPanel extends JPanel {
     private Frame frame;
     private final JLabel timerLabel;
 
-    private Clip audioClip;  // Clip for audio playback
+    private Player player;  // Plays the mix and feeds the meters
+    private MediaPool.Entry mix;  // The mix's samples, held while the player uses them
+    private final List<MediaPool.Entry> metered = new ArrayList<>();  // Clips the track meters read
+    // Keeps an entry's peaks being read while only the meters want them
+    private static final MediaPool.PeaksListener KEEP_READING = entry -> { };
+    private final LevelMeter masterMeter = new LevelMeter();
     private boolean isPaused = false;  // Track pause state
     private long clipPosition = 0;  // Store current clip position
-    private Timer progressTimer;  // Timer for updating slider progress
+    private final FrameClock.Animation playback = this::updateSlider;  // Moves the slider each frame while playing
+    private final FrameClock.Animation meters = this::updateMeters;  // Runs until the meters have fallen back
 
     public ControlPanel(Frame frame, String finalFilePath) {
         setLayout(new BorderLayout());
@@ -68,19 +81,25 @@ public class ControlPanel extends JPanel {
         // Add buttonSubPanel to the center of the buttonPanel
         buttonPanel.add(buttonSubPanel, BorderLayout.CENTER);
 
-        // Add the timer label to the right end of the buttonPanel
-        buttonPanel.add(timerLabel, BorderLayout.EAST);
+        // Add the master meter and timer label to the right end of the buttonPanel
+        JPanel statusPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+        statusPanel.setBackground(new Color(45, 45, 45));
+        masterMeter.setPreferredSize(new Dimension(120, 10));
+        masterMeter.setMaximumSize(new Dimension(120, 10));
+        statusPanel.add(masterMeter);
+        statusPanel.add(timerLabel);
+        buttonPanel.add(statusPanel, BorderLayout.EAST);
         loadAudio(finalFilePath);  // Specify the audio file path
 
 // Add the progress slider
-        progressSlider = new JSlider(0, (int) (audioClip.getMicrosecondLength() / 1000_000), 0);
+        progressSlider = new JSlider(0, (int) (player.getMicrosecondLength() / 1000_000), 0);
         progressSlider.setBackground(new Color(45, 45, 45));
         progressSlider.setForeground(Color.WHITE);
         progressSlider.setValue(0);
         progressSlider.setEnabled(true);
 
 // Calculate slider width (10x duration of the clip in seconds)
-        long clipDurationInSeconds = audioClip.getMicrosecondLength() / 1_000_000; // Convert microseconds to seconds
+        long clipDurationInSeconds = player.getMicrosecondLength() / 1_000_000; // Convert microseconds to seconds
         int sliderWidth = (int) clipDurationInSeconds * 10;
 
 // Set the slider's preferred size
@@ -90,22 +109,19 @@ public class ControlPanel extends JPanel {
         progressSlider.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseReleased(MouseEvent e) {
-                if (audioClip != null) {
+                if (player != null) {
                     int sliderValue = progressSlider.getValue();
-                    double newClipPosition = (sliderValue / 100.0) * audioClip.getMicrosecondLength();
-                    audioClip.setMicrosecondPosition((long) newClipPosition);
+                    double newClipPosition = (sliderValue / (double) progressSlider.getMaximum()) * player.getMicrosecondLength();
+                    player.setMicrosecondPosition((long) newClipPosition);
 
                     // Calculate current time (in seconds)
-                    long currentTimeInSeconds = audioClip.getMicrosecondPosition() / 1000000 * 5 / 8; // Convert microseconds to seconds
-                    double curTime = (frame.getTrackEditor().getSliderPos() / 10 ) * 30/31;
+                    double curTime = player.getMicrosecondPosition() / 1_000_000.0;
                     long minutes = (long) (curTime / 60);
                     long seconds = (long) (curTime % 60);
 
                     // Format the timer label as MM:SS
                     String formattedTime = (minutes < 10 ? "0" : "") + minutes + ":" + (seconds < 10 ? "0" : "") + seconds;
                     timerLabel.setText(formattedTime);
-                    System.out.println(currentTimeInSeconds);
-
                 }
             }
         });
@@ -142,20 +158,32 @@ public class ControlPanel extends JPanel {
                 throw new IOException("Audio file does not exist or is empty: " + filePath);
             }
             
-            AudioInputStream audioStream = AudioSystem.getAudioInputStream(audioFile);
-            AudioFormat format = audioStream.getFormat();
+            // Decoded once into the media pool, which holds it until the next mix replaces it
+            MediaPool.Entry media = MediaPool.shared().acquire(audioFile);
+            AudioFormat format = media.getFormat();
+            if (format == null) {
+                media.release();
+                throw new UnsupportedAudioFileException("Unreadable audio file: " + filePath);
+            }
             System.out.println("Audio format: " + format);
+            byte[] pcm;
+            try {
+                pcm = media.pcm();
+            } catch (IOException | UnsupportedAudioFileException e) {
+                media.release();
+                throw e;
+            }
             
             // Try to get a specific mixer for better audio output
             Mixer.Info[] mixers = AudioSystem.getMixerInfo();
             Mixer speakerMixer = null;
             
-            // Find the speaker mixer that supports Clip lines
+            // Find the speaker mixer that supports output lines
             for (Mixer.Info mixer : mixers) {
                 Mixer currentMixer = AudioSystem.getMixer(mixer);
-                // Check if this mixer supports Clip lines and is not a Port mixer
+                // Check if this mixer supports output lines and is not a Port mixer
                 if (!mixer.getName().contains("Port") && 
-                    currentMixer.isLineSupported(new Line.Info(Clip.class))) {
+                    currentMixer.isLineSupported(new Line.Info(SourceDataLine.class))) {
                     if (mixer.getName().contains("Speakers") || 
                         mixer.getName().contains("Built-in Output") ||
                         mixer.getName().contains("Default Audio Device")) {
@@ -166,25 +194,37 @@ public class ControlPanel extends JPanel {
                 }
             }
             
-            // Get clip from the appropriate mixer
+            // A reload replaces the player, so stop the old one first
+            if (player != null) {
+                player.close();
+                player = null;
+                releaseMetered();
+                FrameClock.shared().stopAnimating(playback);
+                isPaused = false;
+                clipPosition = 0;
+            }
+            if (mix != null) {
+                mix.release();
+            }
+            mix = media;
+
+            // Get a line from the appropriate mixer
             if (speakerMixer != null) {
                 try {
-                    audioClip = (Clip) speakerMixer.getLine(new Line.Info(Clip.class));
-                    System.out.println("Successfully got clip from speaker mixer");
+                    player = new Player(pcm, format, speakerMixer, masterMeter.getRing());
+                    System.out.println("Successfully got line from speaker mixer");
                 } catch (Exception e) {
-                    System.out.println("Failed to get clip from speaker mixer: " + e.getMessage());
-                    System.out.println("Falling back to default system clip");
-                    audioClip = AudioSystem.getClip();
+                    System.out.println("Failed to get line from speaker mixer: " + e.getMessage());
+                    System.out.println("Falling back to default system line");
+                    player = new Player(pcm, format, null, masterMeter.getRing());
                 }
             } else {
-                audioClip = AudioSystem.getClip();
-                System.out.println("Using default system clip");
+                player = new Player(pcm, format, null, masterMeter.getRing());
+                System.out.println("Using default system line");
             }
             
-            audioClip.open(audioStream);
-            
             // Add line listener to monitor playback state
-            audioClip.addLineListener(event -> {
+            player.getLine().addLineListener(event -> {
                 System.out.println("Line event: " + event.getType());
                 if (event.getType() == LineEvent.Type.START) {
                     System.out.println("Audio playback started");
@@ -196,10 +236,12 @@ public class ControlPanel extends JPanel {
             });
             
             System.out.println("Audio clip loaded successfully");
-            System.out.println("Clip duration (microseconds): " + audioClip.getMicrosecondLength());
-            System.out.println("Clip duration (seconds): " + (audioClip.getMicrosecondLength() / 1_000_000.0));
+            if (frame != null && frame.getTrackEditor() != null) {
+                frame.getTrackEditor().setMixSeconds(player.getMicrosecondLength() / 1_000_000.0);
+            }
+            System.out.println("Clip duration (microseconds): " + player.getMicrosecondLength());
+            System.out.println("Clip duration (seconds): " + (player.getMicrosecondLength() / 1_000_000.0));
 
-            progressTimer = new Timer(100, e -> updateSlider());
         } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
             System.err.println("Error loading audio file: " + e.getMessage());
             e.printStackTrace();
@@ -208,46 +250,48 @@ public class ControlPanel extends JPanel {
     }
 
     private void playAudio() {
-        if (audioClip != null) {
+        if (player != null) {
             System.out.println("Playing audio clip...");
-            System.out.println("Clip frame length: " + audioClip.getFrameLength());
-            System.out.println("Clip is running: " + audioClip.isRunning());
-            System.out.println("Clip frame position: " + audioClip.getFramePosition());
+            System.out.println("Clip frame length: " + player.getFrameLength());
+            System.out.println("Clip is running: " + player.isRunning());
+            System.out.println("Clip frame position: " + player.getFramePosition());
             
             // Check if the line is active and open
-            if (!audioClip.isOpen()) {
+            if (!player.isOpen()) {
                 System.err.println("Audio clip is not open!");
                 return;
             }
             
             // Get the line info to check if it's properly connected
-            Line.Info lineInfo = audioClip.getLineInfo();
+            Line.Info lineInfo = player.getLine().getLineInfo();
             System.out.println("Line info: " + lineInfo);
             
             if (isPaused) {
-                audioClip.setMicrosecondPosition(clipPosition);
+                player.setMicrosecondPosition(clipPosition);
                 isPaused = false;
                 System.out.println("Resuming from position: " + clipPosition);
             } else {
                 // Reset to beginning if not paused
-                audioClip.setFramePosition(0);
+                player.setFramePosition(0);
             }
             
             // Set volume to maximum (0.0 to 1.0)
-            if (audioClip.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
-                FloatControl gainControl = (FloatControl) audioClip.getControl(FloatControl.Type.MASTER_GAIN);
+            if (player.getLine().isControlSupported(FloatControl.Type.MASTER_GAIN)) {
+                FloatControl gainControl = (FloatControl) player.getLine().getControl(FloatControl.Type.MASTER_GAIN);
                 float maxGain = gainControl.getMaximum();
                 gainControl.setValue(maxGain);
                 System.out.println("Volume set to maximum: " + maxGain);
             }
             
-            audioClip.start();
-            progressTimer.start();
+            player.setMeters(meterSources());
+            player.start();
+            FrameClock.shared().animate(playback);
+            FrameClock.shared().animate(meters);
             System.out.println("Audio playback started - you should hear sound now!");
             
             // Check if playback actually started
             Timer checkTimer = new Timer(100, e -> {
-                if (audioClip.isRunning()) {
+                if (player.isRunning()) {
                     System.out.println("Playback confirmed - clip is running");
                 } else {
                     System.out.println("Warning: Clip is not running after start()");
@@ -257,60 +301,105 @@ public class ControlPanel extends JPanel {
             checkTimer.start();
             
         } else {
-            System.err.println("Cannot play: audioClip is null");
+            System.err.println("Cannot play: player is null");
         }
     }
 
     private void pauseAudio() {
-        if (audioClip != null && audioClip.isRunning()) {
-            clipPosition = audioClip.getMicrosecondPosition();
-            audioClip.stop();
+        if (player != null && player.isRunning()) {
+            clipPosition = player.getMicrosecondPosition();
+            player.stop();
+            releaseMetered();
             isPaused = true;
-            progressTimer.stop();
+            FrameClock.shared().stopAnimating(playback);
         }
     }
 
     private void stopAudio() {
-        if (audioClip != null) {
-            audioClip.stop();
-            audioClip.setMicrosecondPosition(0);  // Reset to the start
+        if (player != null) {
+            player.stop();
+            releaseMetered();
+            player.setMicrosecondPosition(0);  // Reset to the start
             isPaused = false;
             clipPosition = 0;
             progressSlider.setValue(0);
-            progressTimer.stop();
+            if (frame.getTrackEditor() != null) {
+                frame.getTrackEditor().setPlayheadFraction(0);
+            }
+            FrameClock.shared().stopAnimating(playback);
+        }
+    }
+
+    // Each track's clips for the player to meter, including those out of view,
+    // which have no component reading their peaks; a clip stays silent until
+    // its peaks are read. The media is held until playback is paused, stopped
+    // or started again.
+    private List<Player.MeterSource> meterSources() {
+        releaseMetered();
+        List<Player.MeterSource> sources = new ArrayList<>();
+        for (Track track : TrackEditor.getTracks()) {
+            List<MediaPool.Entry> media = new ArrayList<>();
+            List<Double> starts = new ArrayList<>();
+            for (com.meenigam.Components.ClipModel clip : track.getClips()) {
+                MediaPool.Entry entry = MediaPool.shared().acquire(clip.getFileComponent().getFile());
+                entry.addPeaksListener(KEEP_READING);
+                metered.add(entry);
+                media.add(entry);
+                starts.add((double) clip.getStartSeconds());
+            }
+            sources.add(new Player.MeterSource(track.getMeter().getRing(), media, starts));
         }
+        return sources;
+    }
+
+    // Only once the player has stopped reading them
+    private void releaseMetered() {
+        for (MediaPool.Entry entry : metered) {
+            entry.removePeaksListener(KEEP_READING);
+            entry.release();
+        }
+        metered.clear();
+    }
+
+    // Runs on the frame clock; keeps going after playback until every meter has fallen back
+    private boolean updateMeters() {
+        boolean moving = masterMeter.sample();
+        for (Track track : TrackEditor.getTracks()) {
+            moving |= track.getMeter().sample();
+        }
+        return moving || (player != null && player.isRunning());
     }
 
     private float getTime() {
         return progressSlider.getValue();
     }
 
-    private void updateSlider() {
-        if (audioClip != null && audioClip.isRunning()) {
-            SwingWorker<Void, Void> worker = new SwingWorker<>() {
-                @Override
-                protected Void doInBackground() {
-                    long currentPos = audioClip.getMicrosecondPosition(); // Current position in microseconds
-                    long totalLength = audioClip.getMicrosecondLength();  // Total length in microseconds
-
-                    // Update slider value (percentage progress)
-                    int progress = (int) ((currentPos / (double) totalLength) * 900);
-                    progressSlider.setValue(progress);
+    // Runs on the frame clock; the playhead only repaints when it moves a pixel
+    private boolean updateSlider() {
+        if (player == null || isPaused) {
+            return false;
+        }
+        long currentPos = player.getMicrosecondPosition(); // Current position in microseconds
+        long totalLength = player.getMicrosecondLength();  // Total length in microseconds
+
+        // The playhead takes the exact position, the slider the nearest of its steps
+        double fraction = currentPos / (double) totalLength;
+        TrackEditor trackEditor = frame.getTrackEditor();
+        if (trackEditor != null) {
+            trackEditor.setMixSeconds(totalLength / 1_000_000.0);
+            trackEditor.setPlayheadFraction(fraction);
+        }
+        progressSlider.setValue((int) Math.round(fraction * progressSlider.getMaximum()));
 
-                    // Calculate current time in seconds
-                    long currentTimeInSeconds = currentPos / 1_000_000; // Convert microseconds to seconds
-                    long minutes = currentTimeInSeconds / 60;
-                    long seconds = currentTimeInSeconds % 60;
+        // Calculate current time in seconds
+        long currentTimeInSeconds = currentPos / 1_000_000; // Convert microseconds to seconds
+        long minutes = currentTimeInSeconds / 60;
+        long seconds = currentTimeInSeconds % 60;
 
-                    // Ensure the arguments match the format specifiers (%02d expects int or long)
-                    String formattedTime = (minutes < 10 ? "0" : "") + minutes + ":" + (seconds < 10 ? "0" : "") + seconds;
-                    timerLabel.setText(formattedTime);
+        String formattedTime = (minutes < 10 ? "0" : "") + minutes + ":" + (seconds < 10 ? "0" : "") + seconds;
+        timerLabel.setText(formattedTime);
 
-                    return null;
-                }
-            };
-            worker.execute();
-        }
+        return currentPos < totalLength;
     }
 
     public JButton getPlayButton() {
@@ -13,8 +13,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
 
 import com.meenigam.Frame;
+import com.meenigam.Utils.SilenceScan;
 
 public class StagingArea extends JPanel {
 
@@ -82,7 +84,9 @@ public class StagingArea extends JPanel {
                         throw new RuntimeException(ex);
                     }
                     // Add the file name to the list
-                    listModel.addElement(new FileComponent(fileName, newLoc, frame, stagingArea));
+                    FileComponent fileComponent = new FileComponent(fileName, newLoc, frame, stagingArea);
+                    listModel.addElement(fileComponent);
+                    detectSilence(fileComponent);
                 } else {
                     JOptionPane.showMessageDialog(null, "Please select a valid file");
                 }
@@ -90,6 +94,33 @@ public class StagingArea extends JPanel {
         });
     }
 
+    // Scans a newly added file for silence off the event thread; the result
+    // shows up in the file's dialog, which then offers to trim it, and a
+    // failure is reported in a dialog like the other silence actions
+    private void detectSilence(FileComponent fileComponent) {
+        new SwingWorker<SilenceScan, Void>() {
+            @Override
+            protected SilenceScan doInBackground() {
+                return SilenceScan.detect(fileComponent.getFilePath());
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    fileComponent.setSilence(get());
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(
+                            StagingArea.this,
+                            cause.getMessage(),
+                            "Silence - " + fileComponent.getName(),
+                            JOptionPane.ERROR_MESSAGE
+                    );
+                }
+            }
+        }.execute();
+    }
+
     private JScrollPane getjScrollPane(DefaultListModel<FileComponent> listModel, StagingArea stagingArea) {
         JList<FileComponent> fileList = new JList<FileComponent>(listModel);
         fileList.setBackground(new Color(60, 60, 60));
@@ -1,62 +1,246 @@
 package com.meenigam.Panels;
 
 import com.meenigam.Components.FileComponent;
+import com.meenigam.Components.Timeline;
 import com.meenigam.Components.Track;
+import com.meenigam.Utils.FrameClock;
 
 import javax.swing.*;
+import javax.swing.event.ChangeListener;
+import javax.swing.plaf.LayerUI;
 import javax.swing.plaf.basic.BasicSliderUI;
 import java.awt.*;
+import java.awt.event.MouseWheelEvent;
 import java.util.ArrayList;
 import java.util.List;
 
-public class TrackEditor extends JPanel {
+/**
+ * The timeline: a playhead slider over a column of tracks, each a fixed
+ * height, with clips placed by start time at the {@link Timeline}'s scale.
+ * Only the tracks and clips inside the scroll pane's view are added as
+ * components; the rest are added back as they scroll into view, so a long
+ * session costs no more to lay out and paint than what is on screen.
+ * Ctrl (or Cmd) with the mouse wheel zooms around the pointer.
+ */
+public class TrackEditor extends JPanel implements Scrollable {
+
+    public static final int TRACK_HEIGHT = 110;
+    private static final int SLIDER_HEIGHT = 20;
+
+    // Room after the last clip, so there is somewhere to drag clips to
+    private static final double TAIL_SECONDS = 30;
+
+    // Half-width of the repainted strip around the 2px playhead line
+    private static final int PLAYHEAD_MARGIN = 3;
 
     private static final List<Track> tracks = new ArrayList<>();
     private StagingArea stagingArea;
     private JSlider slider;
-    private double sliderPos;
+    private double playhead;  // Fraction of the mix
+    private double mixSeconds;  // Length of the mix being played, which starts at second 0
+    private final JLayer<TrackEditor> layer = new JLayer<>(this, new PlayheadUI());
+    private JViewport viewport;
+    private final ChangeListener viewportListener = e -> realize();
 
     public TrackEditor(Frame frame, JSlider slider) {
         setBackground(new Color(30, 30, 30)); // Black background for track editor
-        setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+        setLayout(new TimelineLayout());
         this.slider = slider;
         slider.setUI(new CustomSliderUI(slider));
-        this.slider.addChangeListener(e -> {
-            setSliderPos();
-            repaint();
-        });
+        this.slider.addChangeListener(e -> sliderMoved());
 
         // Add the slider to the panel
-        this.add(slider, BorderLayout.NORTH);
+        this.add(slider);
 
         // Add some sample tracks
         for (int i = 1; i < 8; i++) {
-            Track track = new Track("Track" + i, tracks, this);
-            this.add(track);
+            new Track("Track" + i, tracks, this);
+        }
+
+        Timeline.shared().addChangeListener(e -> {
+            revalidate();
+            realize();
+            repaint();
+            layer.repaint();  // The playhead moves with the scale
+        });
+        addMouseWheelListener(this::mouseWheelMoved);
+        realize();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        // Inside the playhead layer, which is the scroll pane's view
+        if (SwingUtilities.getAncestorOfClass(JViewport.class, this) instanceof JViewport parent) {
+            viewport = parent;
+            viewport.addChangeListener(viewportListener);
         }
-        repaint();
     }
 
     @Override
-    public void paint(Graphics g) {
-        super.paint(g);
+    public void removeNotify() {
+        if (viewport != null) {
+            viewport.removeChangeListener(viewportListener);
+            viewport = null;
+        }
+        super.removeNotify();
+    }
+
+    /**
+     * Adds the tracks and clips in view as components and takes out the
+     * ones that have left it.
+     */
+    public void realize() {
+        Rectangle visible = getVisibleRect();
+        int first = Math.max(0, (visible.y - SLIDER_HEIGHT) / TRACK_HEIGHT);
+        int last = Math.min(tracks.size() - 1, (visible.y + visible.height - SLIDER_HEIGHT) / TRACK_HEIGHT);
+        boolean changed = false;
+        for (Component component : getComponents()) {
+            if (component instanceof Track track) {
+                int index = tracks.indexOf(track);
+                if (index < first || index > last) {
+                    remove(track);
+                    changed = true;
+                }
+            }
+        }
+        for (int i = first; i <= last; i++) {
+            Track track = tracks.get(i);
+            if (track.getParent() != this) {
+                add(track);
+                changed = true;
+            }
+            track.realizeClips(visible.x, visible.x + visible.width);
+        }
+        if (changed) {
+            revalidate();
+            repaint();
+        }
+    }
+
+    // Ctrl/Cmd + wheel zooms around the pointer; anything else scrolls as usual
+    private void mouseWheelMoved(MouseWheelEvent e) {
+        if (!e.isControlDown() && !e.isMetaDown()) {
+            Container pane = SwingUtilities.getAncestorOfClass(JScrollPane.class, this);
+            if (pane != null) {
+                pane.dispatchEvent(SwingUtilities.convertMouseEvent(this, e, pane));
+            }
+            return;
+        }
+        Timeline timeline = Timeline.shared();
+        double seconds = timeline.toSeconds(e.getX());
+        int offset = e.getX() - getVisibleRect().x;
+        timeline.zoom(Math.pow(1.25, -e.getPreciseWheelRotation()));
+        if (viewport != null) {
+            // Lay out at the new width first so the view position is not clamped to the old one
+            viewport.getParent().validate();
+            Point position = viewport.getViewPosition();
+            int x = Math.max(0, Math.min(timeline.toPixels(seconds) - offset, getWidth() - viewport.getWidth()));
+            viewport.setViewPosition(new Point(x, position.y));
+        }
+    }
+
+    // Length of the timeline in seconds, with room to spare after the last clip
+    private double timelineSeconds() {
+        double end = 0;
+        for (Track track : tracks) {
+            end = Math.max(end, track.getEndSeconds());
+        }
+        return end + TAIL_SECONDS;
+    }
 
-        // Cast Graphics to Graphics2D for better control
-        Graphics2D g2d = (Graphics2D) g;
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
 
-        // Enable antialiasing for smoother lines
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? TRACK_HEIGHT / 4 : 16;
+    }
 
-        // Set color and stroke for the red line
-        g2d.setColor(Color.RED);
-        g2d.setStroke(new BasicStroke(2)); // Adjust thickness if needed
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
 
-        // Calculate the line's x-position (center of the slider thumb)
-        setSliderPos();
-        int sliderCenterX = (int) sliderPos;
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return viewport != null && viewport.getWidth() > getPreferredSize().width;
+    }
 
-        // Draw the red line across the entire panel
-        g2d.drawLine(sliderCenterX, 13, sliderCenterX, getHeight());
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return viewport != null && viewport.getHeight() > getPreferredSize().height;
+    }
+
+    // The slider across the top, then one fixed-height row per track in the tracks list
+    private static final class TimelineLayout implements LayoutManager {
+        @Override
+        public void addLayoutComponent(String name, Component comp) {
+        }
+
+        @Override
+        public void removeLayoutComponent(Component comp) {
+        }
+
+        @Override
+        public Dimension preferredLayoutSize(Container parent) {
+            TrackEditor editor = (TrackEditor) parent;
+            return new Dimension(Timeline.shared().toPixels(editor.timelineSeconds()),
+                    SLIDER_HEIGHT + tracks.size() * TRACK_HEIGHT);
+        }
+
+        @Override
+        public Dimension minimumLayoutSize(Container parent) {
+            return new Dimension(0, SLIDER_HEIGHT);
+        }
+
+        @Override
+        public void layoutContainer(Container parent) {
+            int width = parent.getWidth();
+            for (Component component : parent.getComponents()) {
+                if (component instanceof Track track) {
+                    track.setBounds(0, SLIDER_HEIGHT + tracks.indexOf(track) * TRACK_HEIGHT, width, TRACK_HEIGHT);
+                } else {
+                    component.setBounds(0, 0, width, SLIDER_HEIGHT);
+                }
+            }
+        }
+    }
+
+    /**
+     * The editor wrapped in the layer that draws the playhead; this is what
+     * goes in the scroll pane.
+     */
+    public JLayer<TrackEditor> getPlayheadLayer() {
+        return layer;
+    }
+
+    // Draws the playhead over the tracks, so moving it only repaints the strips it leaves and enters
+    private static final class PlayheadUI extends LayerUI<TrackEditor> {
+        @Override
+        public void paint(Graphics g, JComponent c) {
+            super.paint(g, c);
+            TrackEditor editor = (TrackEditor) ((JLayer<?>) c).getView();
+
+            // Cast Graphics to Graphics2D for better control
+            Graphics2D g2d = (Graphics2D) g.create();
+            try {
+                // Enable antialiasing for smoother lines
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+                // Set color and stroke for the red line
+                g2d.setColor(Color.RED);
+                g2d.setStroke(new BasicStroke(2)); // Adjust thickness if needed
+
+                // Draw the red line across the entire panel at the playhead's time on the timeline
+                int x = (int) editor.getSliderPos();
+                g2d.drawLine(x, 13, x, c.getHeight());
+            } finally {
+                g2d.dispose();
+            }
+        }
     }
 
     static class CustomSliderUI extends BasicSliderUI {
@@ -105,12 +289,55 @@ public class TrackEditor extends JPanel {
         }
     }
 
-    private void setSliderPos() {
-        double width = ((double) slider.getValue() / (slider.getMaximum())) * (slider.getWidth() - 24);
-        sliderPos = width + 12;
+    /**
+     * Moves the playhead to fraction (0 to 1) of the mix. Playback calls
+     * this every frame with the exact position, finer than the slider's
+     * steps; only the strips under the old and new line repaint.
+     */
+    public void setPlayheadFraction(double fraction) {
+        int before = (int) getSliderPos();
+        playhead = Math.max(0, Math.min(1, fraction));
+        movePlayhead(before);
+    }
+
+    /**
+     * Sets the length of the mix the playhead moves through, so it stays
+     * over the same second of audio as the clips.
+     */
+    public void setMixSeconds(double seconds) {
+        int before = (int) getSliderPos();
+        mixSeconds = Math.max(0, seconds);
+        movePlayhead(before);
     }
+
+    private void movePlayhead(int before) {
+        int after = (int) getSliderPos();
+        if (after == before) return;
+        FrameClock clock = FrameClock.shared();
+        clock.markDirty(layer, playheadStrip(before));
+        clock.markDirty(layer, playheadStrip(after));
+    }
+
+    // Follows the slider when it is moved by hand; playback sets the slider
+    // to the step nearest the playhead, which is not a move
+    private void sliderMoved() {
+        double fraction = (double) slider.getValue() / slider.getMaximum();
+        if (Math.abs(fraction - playhead) * slider.getMaximum() >= 1) {
+            setPlayheadFraction(fraction);
+        }
+    }
+
+    private Rectangle playheadStrip(int x) {
+        return new Rectangle(x - PLAYHEAD_MARGIN, 0, 2 * PLAYHEAD_MARGIN, getHeight());
+    }
+
+    /**
+     * X of the playhead line: where its second of the mix falls on the
+     * timeline, inside the tracks' border like the clips.
+     */
     public double getSliderPos() {
-        return sliderPos;
+        int origin = tracks.isEmpty() ? 0 : tracks.get(0).getContentOrigin();
+        return origin + Timeline.shared().toPixels(playhead * mixSeconds);
     }
 
     public static List<Track> getTracks() {
@@ -125,7 +352,8 @@ public class TrackEditor extends JPanel {
         // Create a new clip and add it to the track
         Track track = new Track("Track" + tracks.size(), tracks, this);
         track.setClip(file);
-        this.add(track);
+        revalidate();
+        realize();
     }
 
     public void setSlider(JSlider slider) {
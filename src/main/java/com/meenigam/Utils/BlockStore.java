@@ -0,0 +1,280 @@
+package com.meenigam.Utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Content-addressed storage for audio files. A file is split into blocks,
+ * each stored once under the SHA-256 of its bytes, plus a manifest listing
+ * its blocks; the manifest's own hash is the file's id. Blocks are never
+ * modified, so versions of a file that differ in one region share every
+ * other block with each other and with their ancestors.
+ * <p>
+ * Blocks end where a rolling hash of the last 64 bytes matches a mask
+ * rather than at fixed offsets, so the boundaries follow the content: after
+ * an edit that inserts or removes audio, like a trim or a loop, the blocks
+ * on either side of it are the same as before and are shared too. The
+ * block size is the average; blocks run from a quarter of it to four times
+ * it.
+ * <p>
+ * Its one user is the {@link RenderCache} archive, for renders it evicts.
+ * Imported files and the renders in use stay plain files, which the native
+ * ops and the media pool read directly.
+ * <p>
+ * Layout: {@code blocks/ab/abcd...} and {@code manifests/<id>}, where a
+ * manifest is the file length on the first line and one block hash per line
+ * after it.
+ */
+public final class BlockStore {
+
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private static final long[] GEAR = gearTable();
+
+    private final Path blocks;
+    private final Path manifests;
+    private final int minBlock;
+    private final int maxBlock;
+    private final long boundaryMask;
+
+    public BlockStore(Path root) {
+        this(root, DEFAULT_BLOCK_SIZE);
+    }
+
+    public BlockStore(Path root, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.blocks = root.resolve("blocks");
+        this.manifests = root.resolve("manifests");
+        this.minBlock = Math.max(1, blockSize / 4);
+        this.maxBlock = blockSize * 4;
+        // The top bits, which depend on all 64 bytes the hash has seen
+        int bits = 31 - Integer.numberOfLeadingZeros(blockSize);
+        this.boundaryMask = bits == 0 ? 0 : -1L << (64 - bits);
+        try {
+            Files.createDirectories(blocks);
+            Files.createDirectories(manifests);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stores file and returns its id. Only blocks the store does not hold
+     * yet are written.
+     */
+    public String put(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        StringBuilder manifest = new StringBuilder();
+        byte[] buffer = new byte[maxBlock];
+        long length = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            int filled = 0;
+            while (true) {
+                filled += in.readNBytes(buffer, filled, maxBlock - filled);
+                if (filled == 0) {
+                    break;
+                }
+                int cut = boundary(buffer, filled);
+                digest.reset();
+                digest.update(buffer, 0, cut);
+                String hash = HexFormat.of().formatHex(digest.digest());
+                Path block = blockPath(hash);
+                if (!Files.exists(block)) {
+                    Files.createDirectories(block.getParent());
+                    writeAtomically(block, buffer, cut);
+                }
+                manifest.append(hash).append('\n');
+                length += cut;
+                filled -= cut;
+                System.arraycopy(buffer, cut, buffer, 0, filled);
+            }
+        }
+        byte[] text = (length + "\n" + manifest).getBytes(StandardCharsets.US_ASCII);
+        digest.reset();
+        String id = HexFormat.of().formatHex(digest.digest(text));
+        Path manifestPath = manifests.resolve(id);
+        if (!Files.exists(manifestPath)) {
+            writeAtomically(manifestPath, text, text.length);
+        }
+        return id;
+    }
+
+    public boolean contains(String id) {
+        return Files.isRegularFile(manifests.resolve(id));
+    }
+
+    /**
+     * Length in bytes of the stored file.
+     */
+    public long length(String id) throws IOException {
+        return Long.parseLong(readManifest(id).get(0));
+    }
+
+    /**
+     * Writes the stored file to target, replacing it.
+     */
+    public void materialize(String id, Path target) throws IOException {
+        List<String> manifest = readManifest(id);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            for (int i = 1; i < manifest.size(); i++) {
+                Files.copy(blockPath(manifest.get(i)), out);
+            }
+        }
+        moveAtomically(temp, target);
+    }
+
+    /**
+     * Forgets a stored file; its blocks go in the next collectGarbage().
+     */
+    public void remove(String id) throws IOException {
+        Files.deleteIfExists(manifests.resolve(id));
+    }
+
+    /**
+     * Deletes the blocks no manifest refers to and returns the bytes freed.
+     */
+    public long collectGarbage() throws IOException {
+        Set<String> live = new HashSet<>();
+        try (DirectoryStream<Path> ids = Files.newDirectoryStream(manifests)) {
+            for (Path manifest : ids) {
+                List<String> lines = Files.readAllLines(manifest, StandardCharsets.US_ASCII);
+                live.addAll(lines.subList(1, lines.size()));
+            }
+        }
+        long freed = 0;
+        for (Path block : listBlocks()) {
+            if (!live.contains(block.getFileName().toString())) {
+                long size = Files.size(block);
+                Files.delete(block);
+                freed += size;
+            }
+        }
+        return freed;
+    }
+
+    /**
+     * Bytes held in blocks, i.e. what the store really occupies.
+     */
+    public long storedBytes() throws IOException {
+        long total = 0;
+        for (Path block : listBlocks()) {
+            total += Files.size(block);
+        }
+        return total;
+    }
+
+    /**
+     * Sum of the lengths of all stored files, as if each were a plain copy.
+     */
+    public long logicalBytes() throws IOException {
+        long total = 0;
+        try (DirectoryStream<Path> ids = Files.newDirectoryStream(manifests)) {
+            for (Path manifest : ids) {
+                total += length(manifest.getFileName().toString());
+            }
+        }
+        return total;
+    }
+
+    // Length of the block at the start of data: up to the first boundary
+    // past minBlock, or all of it if there is none before maxBlock
+    private int boundary(byte[] data, int length) {
+        if (length <= minBlock) {
+            return length;
+        }
+        int end = Math.min(length, maxBlock);
+        long hash = 0;
+        for (int i = minBlock; i < end; i++) {
+            hash = (hash << 1) + GEAR[data[i] & 0xff];
+            if ((hash & boundaryMask) == 0) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    private Path blockPath(String hash) {
+        return blocks.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private List<String> readManifest(String id) throws IOException {
+        try {
+            return Files.readAllLines(manifests.resolve(id), StandardCharsets.US_ASCII);
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Unknown media id: " + id, e);
+        }
+    }
+
+    private List<Path> listBlocks() throws IOException {
+        List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> prefixes = Files.newDirectoryStream(blocks)) {
+            for (Path prefix : prefixes) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(prefix)) {
+                    for (Path block : files) {
+                        result.add(block);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // Readers never see a partly written block or manifest
+    private static void writeAtomically(Path target, byte[] data, int length) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), "put", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                out.write(data, 0, length);
+            }
+            moveAtomically(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Fixed, so the same content is cut the same way in every run
+    private static long[] gearTable() {
+        long[] table = new long[256];
+        Random random = new Random(0x5eedb10c5L);  // Its sequence is part of the Random spec
+        for (int i = 0; i < table.length; i++) {
+            table[i] = random.nextLong();
+        }
+        return table;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
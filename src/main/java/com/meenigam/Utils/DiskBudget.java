@@ -0,0 +1,145 @@
+package com.meenigam.Utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the cache files under a directory within a byte budget, deleting
+ * the least recently used first. Use is recorded as the file's modification
+ * time, so the order survives a restart: the directory is scanned once,
+ * when the budget is made, and after that callers report the files they
+ * write and read.
+ */
+public final class DiskBudget {
+
+    private final Path root;
+    private final long budgetBytes;
+    private final Map<Path, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    /**
+     * Covers the files under root that counted accepts, oldest first by
+     * modification time, and deletes the oldest if they are already over.
+     */
+    public DiskBudget(Path root, long budgetBytes, Predicate<Path> counted) {
+        this.root = root;
+        this.budgetBytes = budgetBytes;
+        if (Files.isDirectory(root)) {
+            try (Stream<Path> paths = Files.walk(root)) {
+                List<Path> found = paths.filter(Files::isRegularFile).filter(counted)
+                        .sorted(Comparator.comparingLong(DiskBudget::modified))
+                        .collect(Collectors.toList());
+                for (Path file : found) {
+                    long bytes = sizeOf(file);
+                    files.put(file, bytes);
+                    totalBytes += bytes;
+                }
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Failed to scan " + root + ": " + e.getMessage());
+            }
+        }
+        evict(null);
+    }
+
+    /**
+     * Records a file just written (or rewritten), then deletes the least
+     * recently used others until the budget holds.
+     */
+    public synchronized void added(Path file) {
+        Long previous = files.remove(file);
+        if (previous != null) {
+            totalBytes -= previous;
+        }
+        long bytes = sizeOf(file);
+        files.put(file, bytes);
+        totalBytes += bytes;
+        evict(file);
+    }
+
+    /**
+     * Marks a file as just read, so it is the last to go.
+     */
+    public synchronized void used(Path file) {
+        if (files.get(file) == null) {
+            added(file);
+            return;
+        }
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Still the newest for this run
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return files.size();
+    }
+
+    public synchronized boolean contains(Path file) {
+        return files.containsKey(file);
+    }
+
+    // Deletes the oldest files until the budget holds, never keep
+    private void evict(Path keep) {
+        Iterator<Map.Entry<Path, Long>> it = files.entrySet().iterator();
+        while (totalBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<Path, Long> oldest = it.next();
+            Path file = oldest.getKey();
+            if (file.equals(keep)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // Mapped or open elsewhere; it stays counted and is tried again next time
+                System.out.println("Failed to delete cache file " + file + ": " + e.getMessage());
+                continue;
+            }
+            totalBytes -= oldest.getValue();
+            it.remove();
+            deleteEmptyParents(file.getParent());
+        }
+    }
+
+    // Removes directories left empty between file and the root, like a tile directory
+    private void deleteEmptyParents(Path directory) {
+        while (directory != null && !directory.equals(root) && directory.startsWith(root)) {
+            try {
+                Files.delete(directory);
+            } catch (IOException e) {
+                return;  // Not empty
+            }
+            directory = directory.getParent();
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long modified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.meenigam.Utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Non-destructive edits of one source file: the source is never written,
+ * each edit is appended to an ordered list, and the audio for a point in the
+ * history is rendered only when someone asks for it.
+ * <p>
+ * The history is a chain of immutable versions, each pointing at its parent,
+ * so undo and redo just move the current pointer. Renders are kept per
+ * version in a {@link RenderCache}; going back to a version that was already
+ * rendered costs no native work at all. Copies share the versions and the
+ * cache, so a copy made after an edit finds the renders of the original.
+ */
+public final class EditList {
+
+    private static final int WAV_HEADER_BYTES = 44;
+
+    private static final class Version {
+        final Version parent;
+        final EditOperation operation;
+        final int depth;
+
+        Version(Version parent, EditOperation operation) {
+            this.parent = parent;
+            this.operation = operation;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
+    }
+
+    private final String sourcePath;
+    private final RenderCache cache;
+    private Version current;
+    private final Deque<Version> redoStack;
+
+    public EditList(String sourcePath) {
+        this(sourcePath, RenderCache.shared());
+    }
+
+    public EditList(String sourcePath, RenderCache cache) {
+        this.sourcePath = sourcePath;
+        this.cache = cache;
+        this.current = new Version(null, null);
+        this.redoStack = new ArrayDeque<>();
+    }
+
+    public EditList(EditList other) {
+        synchronized (other) {
+            this.sourcePath = other.sourcePath;
+            this.cache = other.cache;
+            this.current = other.current;
+            this.redoStack = new ArrayDeque<>(other.redoStack);
+        }
+    }
+
+    public String getSourcePath() {
+        return sourcePath;
+    }
+
+    public RenderCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Appends an edit after the current one; anything that was undone is
+     * dropped, as in any editor. The edit is recorded at once, so undo and
+     * redo see it while it renders, and rendered straight away outside the
+     * lock. If it produces no audio it is taken back out of the history, so
+     * one bad edit cannot break every later render. Run it off the event
+     * thread: rendering calls into the native code.
+     *
+     * @throws IllegalStateException if the edit could not be rendered
+     */
+    public void apply(int operation, String... params) {
+        Version edit;
+        List<Version> undone;
+        synchronized (this) {
+            undone = new ArrayList<>(redoStack);
+            edit = new Version(current, new EditOperation(operation, params));
+            current = edit;
+            redoStack.clear();
+        }
+        try {
+            render(edit);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                if (current == edit) {
+                    current = edit.parent;
+                    redoStack.clear();
+                    redoStack.addAll(undone);
+                } else {
+                    redoStack.remove(edit);  // Undone while it rendered
+                }
+            }
+            throw e;
+        }
+    }
+
+    public synchronized boolean canUndo() {
+        return current.parent != null;
+    }
+
+    public synchronized boolean canRedo() {
+        return !redoStack.isEmpty();
+    }
+
+    public synchronized void undo() {
+        if (current.parent == null) {
+            throw new IllegalStateException("Nothing to undo");
+        }
+        redoStack.push(current);
+        current = current.parent;
+    }
+
+    public synchronized void redo() {
+        if (redoStack.isEmpty()) {
+            throw new IllegalStateException("Nothing to redo");
+        }
+        current = redoStack.pop();
+    }
+
+    /**
+     * Number of edits in effect.
+     */
+    public synchronized int size() {
+        return current.depth;
+    }
+
+    /**
+     * The edits in effect, oldest first.
+     */
+    public synchronized List<EditOperation> getOperations() {
+        List<EditOperation> operations = new ArrayList<>(current.depth);
+        for (Version v = current; v.parent != null; v = v.parent) {
+            operations.add(v.operation);
+        }
+        Collections.reverse(operations);
+        return operations;
+    }
+
+    /**
+     * Path of a WAV file holding the source with the current edits applied.
+     * Only the edits after the newest cached ancestor are run, each into a
+     * fresh cache file; with no edits this is the source itself. The
+     * history is not locked while rendering.
+     */
+    public String render() {
+        Version target;
+        synchronized (this) {
+            target = current;
+        }
+        return render(target);
+    }
+
+    private String render(Version target) {
+        Deque<Version> pending = new ArrayDeque<>();
+        String base = sourcePath;
+        for (Version v = target; v.parent != null; v = v.parent) {
+            String cached = cache.get(v);
+            if (cached != null) {
+                base = cached;
+                break;
+            }
+            pending.push(v);
+        }
+        for (Version step : pending) {
+            // Copies share versions, so another list may be rendering this one too
+            synchronized (step) {
+                String done = cache.get(step);
+                if (done == null) {
+                    done = cache.newRenderPath();
+                    EditOperation edit = step.operation;
+                    // Rendered beside its final name, so a failed op never leaves a cached partial file
+                    Path partial = Paths.get(done + ".part");
+                    boolean rendered = callNative.callCode(base, partial.toString(), edit.getOperation(), edit.getParams());
+                    try {
+                        if (!rendered || Files.size(partial) <= WAV_HEADER_BYTES) {
+                            throw new IOException("no audio written");
+                        }
+                        Files.move(partial, Paths.get(done), StandardCopyOption.REPLACE_EXISTING);
+                    } catch (IOException e) {
+                        partial.toFile().delete();
+                        throw new IllegalStateException("Edit failed: " + edit);
+                    }
+                    cache.put(step, done);
+                }
+                base = done;
+            }
+        }
+        return base;
+    }
+}
@@ -0,0 +1,31 @@
+package com.meenigam.Utils;
+
+import java.util.Arrays;
+
+/**
+ * One native op (utilityBelt code plus its string parameters) recorded in an
+ * {@link EditList}. Immutable, so versions of an edit list can share it.
+ */
+public final class EditOperation {
+
+    private final int operation;
+    private final String[] params;
+
+    public EditOperation(int operation, String... params) {
+        this.operation = operation;
+        this.params = params == null ? new String[0] : params.clone();
+    }
+
+    public int getOperation() {
+        return operation;
+    }
+
+    public String[] getParams() {
+        return params.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "op " + operation + " " + Arrays.toString(params);
+    }
+}
@@ -0,0 +1,120 @@
+package com.meenigam.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A list of effects that the native side runs over a file in one streaming
+ * pass (op 12), instead of one read/write round trip per effect.
+ * Steps are "name:arg:arg" strings with the same arguments as the single
+ * ops, e.g. {@code gain:0.5}, {@code filter:2000:L}, {@code normalize:lufs:-16}.
+ */
+public final class EffectChain {
+
+    public static final int OPERATION = 12;
+
+    private static final List<String> STEP_NAMES = Arrays.asList(
+            "gain", "filter", "compress", "resample", "stretch", "pitch", "reverb", "normalize");
+
+    private final List<String> steps = new ArrayList<>();
+
+    public EffectChain gain(double factor) {
+        return add("gain:" + factor);
+    }
+
+    public EffectChain filter(double cutoff, String type) {
+        return add("filter:" + cutoff + ":" + type);
+    }
+
+    public EffectChain compress(double thresholdDb, double ratio, String mode) {
+        return add("compress:" + thresholdDb + ":" + ratio + ":" + mode);
+    }
+
+    public EffectChain resample(double factor) {
+        return add("resample:" + factor);
+    }
+
+    public EffectChain stretch(double ratio) {
+        return add("stretch:" + ratio);
+    }
+
+    public EffectChain pitch(double semitones) {
+        return add("pitch:" + semitones);
+    }
+
+    public EffectChain reverb(String level) {
+        return add("reverb:" + level);
+    }
+
+    public EffectChain normalizePeak(double targetDb) {
+        return add("normalize:peak:" + targetDb);
+    }
+
+    public EffectChain normalizeLoudness(double targetLufs) {
+        return add("normalize:lufs:" + targetLufs);
+    }
+
+    /**
+     * Appends a raw step; only the name is checked here, the arguments are
+     * validated by the native side.
+     */
+    public EffectChain add(String step) {
+        String trimmed = step.trim();
+        String name = trimmed.split(":", 2)[0].toLowerCase(Locale.ROOT);
+        if (!STEP_NAMES.contains(name)) {
+            throw new IllegalArgumentException("Unknown effect: " + name);
+        }
+        steps.add(trimmed);
+        return this;
+    }
+
+    /**
+     * Parses steps separated by ';' or new lines, ignoring blank ones.
+     */
+    public static EffectChain parse(String text) {
+        EffectChain chain = new EffectChain();
+        for (String step : text.split("[;\\n]")) {
+            if (!step.isBlank()) {
+                chain.add(step);
+            }
+        }
+        return chain;
+    }
+
+    public List<String> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    public boolean isEmpty() {
+        return steps.isEmpty();
+    }
+
+    public String[] toParams() {
+        return steps.toArray(new String[0]);
+    }
+
+    public void apply(String filePath) {
+        if (steps.isEmpty()) {
+            throw new IllegalStateException("Effect chain is empty");
+        }
+        callNative.callCode(filePath, OPERATION, toParams());
+    }
+
+    /**
+     * Records the chain as a single edit, rendered when the audio is needed.
+     */
+    public void apply(EditList edits) {
+        if (steps.isEmpty()) {
+            throw new IllegalStateException("Effect chain is empty");
+        }
+        edits.apply(OPERATION, toParams());
+    }
+
+    @Override
+    public String toString() {
+        return String.join("; ", steps);
+    }
+}
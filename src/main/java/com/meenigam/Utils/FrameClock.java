@@ -0,0 +1,123 @@
+package com.meenigam.Utils;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The one repaint clock shared by the editor. Components mark the
+ * rectangles that changed and animations (the playhead while playing)
+ * register to be stepped; once per frame the clock runs the animations and
+ * repaints the union of each component's dirty rectangles. With nothing
+ * dirty and nothing animating the timer is stopped, so an idle editor does
+ * no work however many clips it holds.
+ * <p>
+ * Everything here runs on the event dispatch thread.
+ */
+public final class FrameClock {
+
+    public static final int FRAME_MS = 16;
+
+    /**
+     * Stepped once per frame while registered.
+     */
+    public interface Animation {
+        /**
+         * Advances to the current time; returns false once finished.
+         */
+        boolean step();
+    }
+
+    private static FrameClock shared;
+
+    private final Timer timer;
+    private final Map<JComponent, Rectangle> dirty = new LinkedHashMap<>();
+    private final List<Animation> animations = new ArrayList<>();
+
+    public FrameClock() {
+        timer = new Timer(FRAME_MS, e -> runFrame());
+        timer.setCoalesce(true);
+    }
+
+    public static FrameClock shared() {
+        if (shared == null) {
+            shared = new FrameClock();
+        }
+        return shared;
+    }
+
+    /**
+     * Repaints all of component on the next frame.
+     */
+    public void markDirty(JComponent component) {
+        markDirty(component, new Rectangle(0, 0, component.getWidth(), component.getHeight()));
+    }
+
+    /**
+     * Repaints region (in component's coordinates) on the next frame,
+     * merged with anything else already marked on the same component.
+     */
+    public void markDirty(JComponent component, Rectangle region) {
+        if (region.isEmpty()) return;
+        dirty.merge(component, new Rectangle(region), (a, b) -> {
+            a.add(b);
+            return a;
+        });
+        wake();
+    }
+
+    public void animate(Animation animation) {
+        if (!animations.contains(animation)) {
+            animations.add(animation);
+        }
+        wake();
+    }
+
+    public void stopAnimating(Animation animation) {
+        animations.remove(animation);
+    }
+
+    /**
+     * Region waiting to be repainted on component, or null if it is clean.
+     */
+    public Rectangle dirtyRegion(JComponent component) {
+        Rectangle region = dirty.get(component);
+        return region == null ? null : new Rectangle(region);
+    }
+
+    public boolean isRunning() {
+        return timer.isRunning();
+    }
+
+    /**
+     * One frame: step the animations, then flush the dirty regions. Normally
+     * called by the timer.
+     */
+    public void runFrame() {
+        // Stepping may mark more regions dirty, so it goes first
+        for (Animation animation : new ArrayList<>(animations)) {
+            if (!animation.step()) {
+                animations.remove(animation);
+            }
+        }
+        if (!dirty.isEmpty()) {
+            List<Map.Entry<JComponent, Rectangle>> flush = new ArrayList<>(dirty.entrySet());
+            dirty.clear();
+            for (Map.Entry<JComponent, Rectangle> entry : flush) {
+                entry.getKey().repaint(entry.getValue());
+            }
+        }
+        if (animations.isEmpty() && dirty.isEmpty()) {
+            timer.stop();
+        }
+    }
+
+    private void wake() {
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.meenigam.Utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Peak and RMS readings handed from the playback thread to the meters.
+ * One thread offers and one thread drains; neither locks, and offering
+ * never allocates, so the playback thread cannot be held up by the UI.
+ * When the meters fall behind the ring fills and new readings are dropped
+ * rather than waited on.
+ * <p>
+ * Levels are linear, 1 being full scale.
+ */
+public final class LevelRing {
+
+    private final float[] peaks;
+    private final float[] rms;
+    private final int mask;
+    // Next slot to write, published by the producer with a release store
+    private final AtomicLong head = new AtomicLong();
+    // Next slot to read, published by the consumer the same way
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * A ring of at least capacity readings, rounded up to a power of two.
+     */
+    public LevelRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        peaks = new float[size];
+        rms = new float[size];
+        mask = size - 1;
+    }
+
+    public int capacity() {
+        return peaks.length;
+    }
+
+    /**
+     * Adds a reading; returns false, dropping it, if the ring is full.
+     * Producer thread only.
+     */
+    public boolean offer(float peak, float rms) {
+        long h = head.get();
+        if (h - tail.get() == peaks.length) {
+            return false;
+        }
+        int slot = (int) h & mask;
+        peaks[slot] = peak;
+        this.rms[slot] = rms;
+        head.lazySet(h + 1);
+        return true;
+    }
+
+    /**
+     * Takes every reading offered so far and folds them into out: out[0]
+     * the highest peak, out[1] the highest RMS. Returns how many were taken;
+     * out is left alone when none were. Consumer thread only.
+     */
+    public int drain(float[] out) {
+        long t = tail.get();
+        long h = head.get();
+        if (h == t) {
+            return 0;
+        }
+        float peak = 0;
+        float level = 0;
+        for (long i = t; i < h; i++) {
+            int slot = (int) i & mask;
+            peak = Math.max(peak, peaks[slot]);
+            level = Math.max(level, rms[slot]);
+        }
+        tail.lazySet(h);
+        out[0] = peak;
+        out[1] = level;
+        return (int) (h - t);
+    }
+}
@@ -0,0 +1,372 @@
+package com.meenigam.Utils;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import javax.swing.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * One entry per media file, shared by every clip that shows it: the file's
+ * format and length, its peak pyramid and, when asked for, its decoded
+ * samples. Placing a file on five tracks reads its header once, decodes or
+ * maps its peaks once and draws from the same pyramid, so waveform tiles
+ * are shared too.
+ * <p>
+ * Entries are reference counted. A held entry is never dropped; once the
+ * last holder releases it, it stays cached for a later acquire until the
+ * pool grows past its byte budget or idle entry count, and the least
+ * recently acquired go first. Releasing the last reference while the peaks
+ * are still being read stops the read.
+ */
+public final class MediaPool {
+
+    private static final long DEFAULT_BUDGET_BYTES = 256L << 20;
+    private static final int MAX_IDLE_ENTRIES = 256;
+
+    private static MediaPool shared;
+
+    /**
+     * Told on the event thread whenever an entry's peaks change: a larger
+     * partial pyramid, the finished one, or a failure.
+     */
+    public interface PeaksListener {
+        void peaksChanged(Entry entry);
+    }
+
+    public final class Entry {
+        private final File file;
+        private final AudioFormat format;   // Null when the header could not be read
+        private final long frames;
+        private int references;
+
+        private volatile PeakPyramid peaks;
+        private volatile long totalFrames = -1;
+        private volatile boolean complete;
+        private volatile Exception failure;
+        private Future<?> loading;
+        private final List<PeaksListener> listeners = new ArrayList<>();
+        private byte[] pcm;
+
+        private Entry(File file, AudioFormat format, long frames) {
+            this.file = file;
+            this.format = format;
+            this.frames = frames;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public AudioFormat getFormat() {
+            return format;
+        }
+
+        public long getFrames() {
+            return frames;
+        }
+
+        public float getDurationSeconds() {
+            return format == null || frames <= 0 ? 0 : frames / format.getFrameRate();
+        }
+
+        /**
+         * The peaks read so far; partial until isComplete().
+         */
+        public PeakPyramid getPeaks() {
+            return peaks;
+        }
+
+        /**
+         * Frames the finished pyramid will cover, or -1 before that is known.
+         */
+        public long getTotalFrames() {
+            return totalFrames;
+        }
+
+        public boolean isComplete() {
+            return complete;
+        }
+
+        public Exception getFailure() {
+            return failure;
+        }
+
+        /**
+         * Starts reading the peaks unless they are read or being read, and
+         * tells listener about every change from now on.
+         */
+        public void addPeaksListener(PeaksListener listener) {
+            loadPeaks(this, listener);
+        }
+
+        public void removePeaksListener(PeaksListener listener) {
+            synchronized (MediaPool.this) {
+                listeners.remove(listener);
+            }
+        }
+
+        /**
+         * The decoded file, read on first use and kept with the entry. The
+         * array is shared, so it must not be written to. Blocks.
+         */
+        public byte[] pcm() throws IOException, UnsupportedAudioFileException {
+            return decode(this);
+        }
+
+        public int getReferences() {
+            synchronized (MediaPool.this) {
+                return references;
+            }
+        }
+
+        /**
+         * Gives back one reference from {@link MediaPool#acquire}.
+         */
+        public void release() {
+            MediaPool.this.release(this);
+        }
+
+        private long bytes() {
+            return (peaks != null ? peaks.sizeInBytes() : 0) + (pcm != null ? pcm.length : 0);
+        }
+    }
+
+    private final PeakCache peakCache;
+    private final long budgetBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ExecutorService loader = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "media-pool");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MediaPool(PeakCache peakCache, long budgetBytes) {
+        this.peakCache = peakCache;
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * The pool used by clips, within -Daudioeditor.mediaCacheMB megabytes
+     * (256 by default), with peaks from the shared peak cache.
+     */
+    public static synchronized MediaPool shared() {
+        if (shared == null) {
+            long budget = DEFAULT_BUDGET_BYTES;
+            String configured = System.getProperty("audioeditor.mediaCacheMB");
+            if (configured != null) {
+                try {
+                    budget = Long.parseLong(configured.trim()) << 20;
+                } catch (NumberFormatException e) {
+                    System.out.println("Ignoring audioeditor.mediaCacheMB: " + configured);
+                }
+            }
+            shared = new MediaPool(PeakCache.shared(), budget);
+        }
+        return shared;
+    }
+
+    /**
+     * The entry for file's current content with one more reference, made
+     * if needed. An unreadable file still gets an entry, with no format and
+     * no frames. Call {@link Entry#release} when done with it.
+     */
+    public Entry acquire(File file) {
+        String key = keyFor(file);
+        synchronized (this) {
+            Entry known = entries.get(key);
+            if (known != null) {
+                known.references++;
+                return known;
+            }
+        }
+
+        // Reading the header outside the lock; another thread may get there first
+        AudioFormat format = null;
+        long frames = 0;
+        try (AudioInputStream stream = AudioSystem.getAudioInputStream(file)) {
+            format = stream.getFormat();
+            frames = Math.max(0, stream.getFrameLength());
+        } catch (UnsupportedAudioFileException | IOException e) {
+            System.out.println("Could not read " + file + ": " + e.getMessage());
+        }
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(file, format, frames);
+                entries.put(key, entry);
+            }
+            entry.references++;
+            return entry;
+        }
+    }
+
+    /**
+     * Length of file in seconds, from its entry; leaves no reference behind.
+     */
+    public float durationOf(File file) {
+        Entry entry = acquire(file);
+        float duration = entry.getDurationSeconds();
+        entry.release();
+        return duration;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized boolean contains(File file) {
+        return entries.containsKey(keyFor(file));
+    }
+
+    /**
+     * Bytes of peaks and samples held by all entries.
+     */
+    public synchronized long getTotalBytes() {
+        long total = 0;
+        for (Entry entry : entries.values()) {
+            total += entry.bytes();
+        }
+        return total;
+    }
+
+    private synchronized void release(Entry entry) {
+        if (entry.references <= 0) {
+            throw new IllegalStateException("Released more often than acquired: " + entry.file);
+        }
+        entry.references--;
+        if (entry.references == 0) {
+            // A read in progress sees no references and stops
+            entry.listeners.clear();
+        }
+        evict();
+    }
+
+    private synchronized boolean isIdle(Entry entry) {
+        return entry.references == 0;
+    }
+
+    private void loadPeaks(Entry entry, PeaksListener listener) {
+        boolean ready;
+        synchronized (this) {
+            if (!entry.listeners.contains(listener)) {
+                entry.listeners.add(listener);
+            }
+            ready = entry.complete || entry.peaks != null;
+            if (!entry.complete && entry.loading == null) {
+                entry.failure = null;
+                entry.loading = loader.submit(() -> readPeaks(entry));
+            }
+        }
+        if (ready) {
+            SwingUtilities.invokeLater(() -> listener.peaksChanged(entry));
+        }
+    }
+
+    private void readPeaks(Entry entry) {
+        PeakPyramid done = null;
+        Exception failure = null;
+        try {
+            // Mapped from the sidecar when this content was read before
+            done = peakCache.load(entry.file, new PeakPyramid.Progress() {
+                @Override
+                public void partial(PeakPyramid soFar, long totalFrames) {
+                    entry.totalFrames = totalFrames;
+                    entry.peaks = soFar;
+                    notifyPeaks(entry);
+                }
+
+                @Override
+                public boolean cancelled() {
+                    return isIdle(entry);
+                }
+            });
+        } catch (CancellationException e) {
+            synchronized (this) {
+                // Nobody wanted it; start over if someone has come back meanwhile
+                entry.peaks = null;
+                entry.loading = entry.listeners.isEmpty() ? null : loader.submit(() -> readPeaks(entry));
+            }
+            return;
+        } catch (Exception e) {
+            failure = e;
+        }
+        synchronized (this) {
+            entry.loading = null;
+            if (failure == null) {
+                entry.peaks = done;
+                entry.totalFrames = done.getFrames();
+                entry.complete = true;
+            } else {
+                entry.failure = failure;
+            }
+            evict();
+        }
+        notifyPeaks(entry);
+    }
+
+    private void notifyPeaks(Entry entry) {
+        SwingUtilities.invokeLater(() -> {
+            List<PeaksListener> listeners;
+            synchronized (this) {
+                listeners = new ArrayList<>(entry.listeners);
+            }
+            for (PeaksListener listener : listeners) {
+                listener.peaksChanged(entry);
+            }
+        });
+    }
+
+    private byte[] decode(Entry entry) throws IOException, UnsupportedAudioFileException {
+        synchronized (this) {
+            if (entry.pcm != null) {
+                return entry.pcm;
+            }
+        }
+        byte[] pcm;
+        try (AudioInputStream stream = AudioSystem.getAudioInputStream(entry.file)) {
+            pcm = stream.readAllBytes();
+        }
+        synchronized (this) {
+            if (entry.pcm == null) {
+                entry.pcm = pcm;
+                evict();
+            }
+            return entry.pcm;
+        }
+    }
+
+    // Drops the least recently acquired unheld entries until the budget and idle count hold
+    private void evict() {
+        long total = 0;
+        int idle = 0;
+        for (Entry entry : entries.values()) {
+            total += entry.bytes();
+            if (entry.references == 0) idle++;
+        }
+        Iterator<Entry> it = entries.values().iterator();
+        while ((total > budgetBytes || idle > MAX_IDLE_ENTRIES) && it.hasNext()) {
+            Entry oldest = it.next();
+            if (oldest.references > 0 || oldest.loading != null) continue;
+            total -= oldest.bytes();
+            idle--;
+            it.remove();
+        }
+    }
+
+    private static String keyFor(File file) {
+        File absolute = file.getAbsoluteFile();
+        return absolute.length() + " " + absolute.lastModified() + " " + absolute.getPath();
+    }
+}
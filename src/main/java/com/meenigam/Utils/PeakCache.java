@@ -0,0 +1,216 @@
+package com.meenigam.Utils;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Peak pyramids saved as sidecar files named after the SHA-256 of the
+ * audio they describe, and memory-mapped when the same content is opened
+ * again, so a waveform shows up without decoding the file. Spectrogram
+ * tiles are kept beside them the same way.
+ * <p>
+ * Hashing still reads the file once, so the hash of each file is
+ * remembered in an index keyed by path, size and modification time; a
+ * file seen before goes straight to its sidecar. The index is rewritten
+ * on opening without the files that are gone or have changed since, and
+ * sidecars count against a {@link DiskBudget}, the least recently loaded
+ * deleted first.
+ */
+public final class PeakCache {
+
+    private static final String INDEX = "index.txt";
+    private static final long DEFAULT_BUDGET_BYTES = 256L << 20;
+
+    private static PeakCache shared;
+
+    private final Path directory;
+    private final Map<String, String> hashes = new HashMap<>();
+    private final DiskBudget sidecars;
+
+    public PeakCache(Path directory) {
+        this(directory, DEFAULT_BUDGET_BYTES);
+    }
+
+    public PeakCache(Path directory, long budgetBytes) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            readIndex();
+        } catch (IOException e) {
+            System.out.println("Ignoring peak cache index: " + e.getMessage());
+        }
+        this.sidecars = new DiskBudget(directory, budgetBytes,
+                path -> path.getFileName().toString().endsWith(".peaks"));
+    }
+
+    /**
+     * The cache in ~/.audioeditor/peaks, or in -Daudioeditor.peakCache,
+     * within -Daudioeditor.peakCacheMB megabytes of sidecars (256 by default).
+     */
+    public static synchronized PeakCache shared() {
+        if (shared == null) {
+            String configured = System.getProperty("audioeditor.peakCache");
+            long budget = DEFAULT_BUDGET_BYTES;
+            String configuredBudget = System.getProperty("audioeditor.peakCacheMB");
+            if (configuredBudget != null) {
+                try {
+                    budget = Long.parseLong(configuredBudget.trim()) << 20;
+                } catch (NumberFormatException e) {
+                    System.out.println("Ignoring audioeditor.peakCacheMB: " + configuredBudget);
+                }
+            }
+            shared = new PeakCache(configured != null ? Path.of(configured)
+                    : Path.of(System.getProperty("user.home"), ".audioeditor", "peaks"), budget);
+        }
+        return shared;
+    }
+
+    // Loads the index, keeping one line per file as it is now, and rewrites it if anything was dropped
+    private void readIndex() throws IOException {
+        Path index = directory.resolve(INDEX);
+        if (!Files.isRegularFile(index)) return;
+        // "<size> <modified> <hash> <path>" per line
+        List<String> lines = Files.readAllLines(index, StandardCharsets.UTF_8);
+        Map<String, String> kept = new LinkedHashMap<>();
+        for (String line : lines) {
+            String[] fields = line.split(" ", 4);
+            if (fields.length != 4) continue;
+            try {
+                long size = Long.parseLong(fields[0]);
+                long modified = Long.parseLong(fields[1]);
+                File file = new File(fields[3]);
+                if (file.isFile() && file.length() == size && file.lastModified() == modified) {
+                    String key = indexKey(fields[3], size, modified);
+                    hashes.put(key, fields[2]);
+                    kept.put(key, line);
+                }
+            } catch (NumberFormatException e) {
+                // A damaged line; dropped with the rest
+            }
+        }
+        if (kept.size() == lines.size()) return;
+
+        Path rewritten = directory.resolve(INDEX + ".tmp");
+        Files.write(rewritten, kept.values(), StandardCharsets.UTF_8);
+        try {
+            Files.move(rewritten, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(rewritten, index, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * The pyramid of audioFile, mapped from its sidecar if the content was
+     * seen before, otherwise decoded and saved for next time.
+     */
+    public PeakPyramid load(File audioFile) throws UnsupportedAudioFileException, IOException {
+        return load(audioFile, null);
+    }
+
+    /**
+     * Like {@link #load(File)}; while decoding, partial pyramids go to
+     * progress (see {@link PeakPyramid#read(File, PeakPyramid.Progress)}).
+     * A cancelled decode saves nothing.
+     */
+    public PeakPyramid load(File audioFile, PeakPyramid.Progress progress)
+            throws UnsupportedAudioFileException, IOException {
+        Path sidecar = sidecarFor(audioFile);
+        if (Files.isRegularFile(sidecar)) {
+            try {
+                PeakPyramid mapped = PeakPyramid.map(sidecar);
+                sidecars.used(sidecar);
+                return mapped;
+            } catch (IOException e) {
+                System.out.println("Rebuilding damaged peak file " + sidecar + ": " + e.getMessage());
+            }
+        }
+        PeakPyramid pyramid = PeakPyramid.read(audioFile, progress);
+        try {
+            pyramid.write(sidecar);
+            sidecars.added(sidecar);
+        } catch (IOException e) {
+            System.out.println("Failed to save peak file " + sidecar + ": " + e.getMessage());
+        }
+        return pyramid;
+    }
+
+    /**
+     * Where the pyramid for audioFile's current content is (or would be) saved.
+     */
+    public Path sidecarFor(File audioFile) throws IOException {
+        return directory.resolve(contentHash(audioFile) + ".peaks");
+    }
+
+    /**
+     * Where the spectrogram tiles of audioFile's current content are kept
+     * (see {@link Spectrogram}).
+     */
+    public Path spectrogramDirectoryFor(File audioFile) throws IOException {
+        return directory.resolve(contentHash(audioFile) + ".spectrogram");
+    }
+
+    /**
+     * SHA-256 of the file's bytes, computed once per path, size and modification time.
+     */
+    public String contentHash(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long size = file.length();
+        long modified = file.lastModified();
+        String key = indexKey(path, size, modified);
+        synchronized (this) {
+            String known = hashes.get(key);
+            if (known != null) {
+                return known;
+            }
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[1 << 20];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+
+        synchronized (this) {
+            hashes.put(key, hash);
+            try {
+                Files.writeString(directory.resolve(INDEX), size + " " + modified + " " + hash + " " + path + "\n",
+                        StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                System.out.println("Failed to update peak cache index: " + e.getMessage());
+            }
+        }
+        return hash;
+    }
+
+    private static String indexKey(String path, long size, long modified) {
+        return size + " " + modified + " " + path;
+    }
+}
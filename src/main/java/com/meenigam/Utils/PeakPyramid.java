@@ -0,0 +1,443 @@
+package com.meenigam.Utils;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Min/max/RMS overview of a clip for drawing its waveform. Level 0 sums up
+ * every {@link #BASE_FRAMES} frames of each channel, and every level above
+ * it halves the resolution again, so any zoom can be drawn from the level
+ * whose buckets are just finer than a pixel. It is built in one streaming
+ * pass and takes about 1/70 of the memory of the samples as floats.
+ * <p>
+ * Each level is a run of buckets; a bucket holds min, max and RMS (on the
+ * int16 scale) for every channel in turn. A pyramid can be saved as a
+ * sidecar file and memory-mapped back, in which case the levels are views
+ * of the mapped file and nothing is decoded or copied onto the heap.
+ */
+public final class PeakPyramid {
+
+    public static final int BASE_FRAMES = 256;
+
+    // min, max, rms
+    static final int VALUES = 3;
+
+    private static final int CHUNK_FRAMES = 1 << 16;
+
+    private static final long PROGRESS_INTERVAL_NANOS = 100_000_000L;
+
+    // Sidecar layout, little-endian: magic, version, channels, sample rate,
+    // frames, base frames, level count, the length of each level in shorts,
+    // then the levels one after another
+    private static final int MAGIC = 0x4b504541; // "AEPK"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    private final int channels;
+    private final float sampleRate;
+    private final long frames;
+    private final ShortBuffer[] levels;
+
+    PeakPyramid(int channels, float sampleRate, long frames, ShortBuffer[] levels) {
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.frames = frames;
+        this.levels = levels;
+    }
+
+    /**
+     * Receives partial pyramids while a file is decoded.
+     */
+    public interface Progress {
+        /**
+         * Called every so often with everything decoded so far; totalFrames
+         * is the length of the whole file, or -1 if the header does not say.
+         */
+        void partial(PeakPyramid soFar, long totalFrames);
+
+        boolean cancelled();
+    }
+
+    /**
+     * Decodes a PCM WAV file in chunks and builds its pyramid.
+     */
+    public static PeakPyramid read(File file) throws UnsupportedAudioFileException, IOException {
+        return read(file, null);
+    }
+
+    /**
+     * Like {@link #read(File)}, handing partial pyramids to progress about
+     * ten times a second; throws CancellationException once it is cancelled.
+     */
+    public static PeakPyramid read(File file, Progress progress) throws UnsupportedAudioFileException, IOException {
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(file)) {
+            AudioFormat format = in.getFormat();
+            if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED) {
+                throw new UnsupportedAudioFileException("Only PCM signed format supported");
+            }
+            int channels = format.getChannels();
+            int bytesPerSample = format.getSampleSizeInBits() / 8;
+            int frameBytes = format.getFrameSize();
+            long totalFrames = in.getFrameLength();
+            Builder builder = new Builder(channels, format.getSampleRate());
+            byte[] bytes = new byte[CHUNK_FRAMES * frameBytes];
+            short[] samples = new short[CHUNK_FRAMES * channels];
+            long lastPublished = System.nanoTime();
+            int read;
+            while ((read = in.readNBytes(bytes, 0, bytes.length)) > 0) {
+                if (progress != null && progress.cancelled()) {
+                    throw new CancellationException("Peak generation cancelled");
+                }
+                int chunkFrames = read / frameBytes;
+                toShorts(bytes, chunkFrames * channels, bytesPerSample, format.isBigEndian(), samples);
+                builder.add(samples, chunkFrames);
+                if (progress != null && System.nanoTime() - lastPublished > PROGRESS_INTERVAL_NANOS) {
+                    progress.partial(builder.build(), totalFrames);
+                    lastPublished = System.nanoTime();
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    // Keeps the top 16 bits of wider samples; 8-bit samples are widened
+    private static void toShorts(byte[] bytes, int count, int bytesPerSample, boolean bigEndian, short[] out) {
+        if (bytesPerSample == 2) {
+            ByteBuffer.wrap(bytes, 0, count * 2)
+                    .order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN)
+                    .asShortBuffer()
+                    .get(out, 0, count);
+        } else if (bytesPerSample == 1) {
+            for (int i = 0; i < count; i++) {
+                out[i] = (short) (bytes[i] << 8);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                int at = i * bytesPerSample;
+                int high = bigEndian ? at : at + bytesPerSample - 1;
+                int next = bigEndian ? at + 1 : at + bytesPerSample - 2;
+                out[i] = (short) ((bytes[high] << 8) | (bytes[next] & 0xff));
+            }
+        }
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public float getSampleRate() {
+        return sampleRate;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    public long bucketFrames(int level) {
+        return (long) BASE_FRAMES << level;
+    }
+
+    public int bucketCount(int level) {
+        return levels[level].limit() / (channels * VALUES);
+    }
+
+    /**
+     * The coarsest level whose buckets still fit framesPerPixel.
+     */
+    public int levelFor(double framesPerPixel) {
+        int level = 0;
+        while (level + 1 < levels.length && bucketFrames(level + 1) <= framesPerPixel) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Largest absolute sample value over all channels, from the top level.
+     */
+    public int peak() {
+        ShortBuffer top = levels[levels.length - 1];
+        int peak = 0;
+        for (int i = 0; i < top.limit(); i += VALUES) {
+            peak = Math.max(peak, Math.max(-top.get(i), top.get(i + 1)));
+        }
+        return peak;
+    }
+
+    /**
+     * Fills min, max and rms (int16 scale, all channels combined) for width
+     * pixel columns spread over [startFrame, endFrame). The cost depends on
+     * the width only; columns past the end of the clip are 0.
+     */
+    public void summarize(long startFrame, long endFrame, int width, short[] min, short[] max, short[] rms) {
+        if (width <= 0) {
+            return;
+        }
+        double span = Math.max(1, endFrame - startFrame);
+        int level = levelFor(span / width);
+        ShortBuffer data = levels[level];
+        long bucketFrames = bucketFrames(level);
+        int count = bucketCount(level);
+        int stride = channels * VALUES;
+        for (int x = 0; x < width; x++) {
+            long from = startFrame + (long) (span * x / width);
+            long to = startFrame + (long) (span * (x + 1) / width);
+            long first = from / bucketFrames;
+            long last = Math.max(first + 1, (to + bucketFrames - 1) / bucketFrames);
+            if (from >= frames || first >= count) {
+                min[x] = 0;
+                max[x] = 0;
+                rms[x] = 0;
+                continue;
+            }
+            last = Math.min(last, count);
+            int lo = Short.MAX_VALUE;
+            int hi = Short.MIN_VALUE;
+            double squares = 0;
+            for (long b = first; b < last; b++) {
+                int base = (int) b * stride;
+                for (int c = 0; c < channels; c++) {
+                    int at = base + c * VALUES;
+                    lo = Math.min(lo, data.get(at));
+                    hi = Math.max(hi, data.get(at + 1));
+                    double r = data.get(at + 2);
+                    squares += r * r;
+                }
+            }
+            min[x] = (short) lo;
+            max[x] = (short) hi;
+            rms[x] = (short) Math.min(Short.MAX_VALUE, Math.round(Math.sqrt(squares / ((last - first) * channels))));
+        }
+    }
+
+    /**
+     * Saves the pyramid for {@link #map}; the file appears atomically.
+     */
+    public void write(Path file) throws IOException {
+        int dataShorts = 0;
+        for (ShortBuffer level : levels) {
+            dataShorts += level.limit();
+        }
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + 4 * levels.length + 2 * dataShorts)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putInt(VERSION).putInt(channels).putFloat(sampleRate).putLong(frames)
+                .putInt(BASE_FRAMES).putInt(levels.length);
+        for (ShortBuffer level : levels) {
+            out.putInt(level.limit());
+        }
+        for (ShortBuffer level : levels) {
+            for (int i = 0; i < level.limit(); i++) {
+                out.putShort(level.get(i));
+            }
+        }
+        Path temp = Files.createTempFile(file.getParent(), "peaks", ".tmp");
+        try {
+            Files.write(temp, out.array());
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Maps a file written by {@link #write} read-only.
+     */
+    public static PeakPyramid map(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer in = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IOException("Not a peak file: " + file);
+        }
+        int channels = in.getInt();
+        float sampleRate = in.getFloat();
+        long frames = in.getLong();
+        int baseFrames = in.getInt();
+        int levelCount = in.getInt();
+        if (baseFrames != BASE_FRAMES || channels <= 0 || levelCount <= 0
+                || in.remaining() < 4L * levelCount) {
+            throw new IOException("Unsupported peak file: " + file);
+        }
+        int[] lengths = new int[levelCount];
+        long total = 0;
+        for (int i = 0; i < levelCount; i++) {
+            lengths[i] = in.getInt();
+            total += lengths[i];
+        }
+        if (in.remaining() != 2 * total) {
+            throw new IOException("Truncated peak file: " + file);
+        }
+        ShortBuffer[] levels = new ShortBuffer[levelCount];
+        int offset = in.position();
+        for (int i = 0; i < levelCount; i++) {
+            levels[i] = in.slice(offset, 2 * lengths[i]).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+            offset += 2 * lengths[i];
+        }
+        return new PeakPyramid(channels, sampleRate, frames, levels);
+    }
+
+    /**
+     * Bytes held by the levels.
+     */
+    public long sizeInBytes() {
+        long total = 0;
+        for (ShortBuffer level : levels) {
+            total += 2L * level.limit();
+        }
+        return total;
+    }
+
+    /**
+     * Streams interleaved int16 frames into level 0; build() derives the
+     * coarser levels from it.
+     */
+    public static final class Builder {
+        private final int channels;
+        private final float sampleRate;
+        private final int[] bucketMin;
+        private final int[] bucketMax;
+        private final double[] bucketSquares;
+        private int bucketFill;
+        private long frames;
+        private short[] base = new short[1024];
+        private int baseLength;
+
+        public Builder(int channels, float sampleRate) {
+            if (channels <= 0) {
+                throw new IllegalArgumentException("Channel count must be positive");
+            }
+            this.channels = channels;
+            this.sampleRate = sampleRate;
+            this.bucketMin = new int[channels];
+            this.bucketMax = new int[channels];
+            this.bucketSquares = new double[channels];
+            resetBucket();
+        }
+
+        public void add(short[] interleaved, int frameCount) {
+            int at = 0;
+            for (int f = 0; f < frameCount; f++) {
+                for (int c = 0; c < channels; c++) {
+                    int sample = interleaved[at++];
+                    if (sample < bucketMin[c]) bucketMin[c] = sample;
+                    if (sample > bucketMax[c]) bucketMax[c] = sample;
+                    bucketSquares[c] += (double) sample * sample;
+                }
+                if (++bucketFill == BASE_FRAMES) {
+                    closeBucket();
+                }
+            }
+            frames += frameCount;
+        }
+
+        public long getFrames() {
+            return frames;
+        }
+
+        /**
+         * The pyramid of everything added so far; the builder stays usable.
+         */
+        public PeakPyramid build() {
+            short[] level0 = Arrays.copyOf(base, baseLength + (bucketFill > 0 ? channels * VALUES : 0));
+            if (bucketFill > 0) {
+                writeBucket(level0, baseLength);
+            }
+            int stride = channels * VALUES;
+            List<ShortBuffer> levels = new ArrayList<>();
+            levels.add(ShortBuffer.wrap(level0));
+            short[] current = level0;
+            long bucketFrames = BASE_FRAMES;
+            while (current.length > stride) {
+                current = halve(current, stride, bucketFrames);
+                levels.add(ShortBuffer.wrap(current));
+                bucketFrames *= 2;
+            }
+            return new PeakPyramid(channels, sampleRate, frames, levels.toArray(new ShortBuffer[0]));
+        }
+
+        // Pairs of buckets merged into one; RMS is weighted by the frames each covers
+        private short[] halve(short[] level, int stride, long bucketFrames) {
+            int buckets = level.length / stride;
+            int merged = (buckets + 1) / 2;
+            short[] out = new short[merged * stride];
+            for (int b = 0; b < merged; b++) {
+                int left = 2 * b;
+                int right = left + 1;
+                double leftFrames = framesIn(left, bucketFrames);
+                double rightFrames = right < buckets ? framesIn(right, bucketFrames) : 0;
+                for (int c = 0; c < channels; c++) {
+                    int l = left * stride + c * VALUES;
+                    int o = b * stride + c * VALUES;
+                    if (rightFrames == 0) {
+                        System.arraycopy(level, l, out, o, VALUES);
+                        continue;
+                    }
+                    int r = right * stride + c * VALUES;
+                    out[o] = (short) Math.min(level[l], level[r]);
+                    out[o + 1] = (short) Math.max(level[l + 1], level[r + 1]);
+                    double squares = leftFrames * level[l + 2] * level[l + 2]
+                            + rightFrames * level[r + 2] * level[r + 2];
+                    out[o + 2] = (short) Math.round(Math.sqrt(squares / (leftFrames + rightFrames)));
+                }
+            }
+            return out;
+        }
+
+        private double framesIn(int bucket, long bucketFrames) {
+            return Math.max(0, Math.min(bucketFrames, frames - bucket * bucketFrames));
+        }
+
+        private void closeBucket() {
+            if (base.length < baseLength + channels * VALUES) {
+                base = Arrays.copyOf(base, base.length * 2);
+            }
+            writeBucket(base, baseLength);
+            baseLength += channels * VALUES;
+            resetBucket();
+        }
+
+        private void writeBucket(short[] out, int at) {
+            for (int c = 0; c < channels; c++) {
+                out[at + c * VALUES] = (short) bucketMin[c];
+                out[at + c * VALUES + 1] = (short) bucketMax[c];
+                double rms = Math.sqrt(bucketSquares[c] / bucketFill);
+                out[at + c * VALUES + 2] = (short) Math.min(Short.MAX_VALUE, Math.round(rms));
+            }
+        }
+
+        private void resetBucket() {
+            Arrays.fill(bucketMin, Short.MAX_VALUE);
+            Arrays.fill(bucketMax, Short.MIN_VALUE);
+            Arrays.fill(bucketSquares, 0);
+            bucketFill = 0;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.meenigam.Utils;
+
+import javax.sound.sampled.*;
+import java.util.List;
+
+/**
+ * Plays a decoded WAV file through a SourceDataLine from its own
+ * "playback" thread, in the manner of a javax.sound Clip. Before each
+ * block goes to the line the thread measures its peak and RMS for the
+ * master meter, and for each track meter reads the same stretch of time
+ * from the clips' peak pyramids. Readings go through LevelRings and the
+ * thread allocates nothing while playing, so metering cannot stall it.
+ * <p>
+ * The line buffers two blocks, so readings lead what is heard by about
+ * 50 ms at 44.1 kHz.
+ * <p>
+ * Only the master meter measures what is played. Track meters are an
+ * approximation: the player has the mixdown, not each track's audio, so
+ * a track meter shows the level of its loudest clip's file at that time.
+ * Anything the mixdown does to the track's level is not seen, and while a
+ * clip's pyramid is still being read the part not read yet is silent.
+ */
+public final class Player {
+
+    private static final int BLOCK_FRAMES = 1024;
+
+    /**
+     * The clips of one track and the ring its meter reads; fixed once made,
+     * as the playback thread reads it without locking. Levels come from the
+     * clips' peak pyramids, not from the audio played (see above). The
+     * entries must stay acquired while the player may read them.
+     */
+    public static final class MeterSource {
+        private final LevelRing ring;
+        private final MediaPool.Entry[] media;
+        private final double[] startSeconds;
+
+        public MeterSource(LevelRing ring, List<MediaPool.Entry> media, List<Double> startSeconds) {
+            if (media.size() != startSeconds.size()) {
+                throw new IllegalArgumentException("Each clip needs a start");
+            }
+            this.ring = ring;
+            this.media = media.toArray(new MediaPool.Entry[0]);
+            this.startSeconds = new double[startSeconds.size()];
+            for (int i = 0; i < this.startSeconds.length; i++) {
+                this.startSeconds[i] = startSeconds.get(i);
+            }
+        }
+
+        // Loudest clip under [seconds, seconds + duration); scratch holds one column each
+        private void measure(double seconds, double duration, short[] min, short[] max, short[] rms) {
+            float peak = 0;
+            float level = 0;
+            for (int i = 0; i < media.length; i++) {
+                PeakPyramid clip = media[i].getPeaks();  // Grows while it is read
+                if (clip == null) continue;
+                double offset = seconds - startSeconds[i];
+                long from = (long) (offset * clip.getSampleRate());
+                long to = (long) ((offset + duration) * clip.getSampleRate());
+                if (to <= 0 || from >= clip.getFrames()) continue;
+                clip.summarize(Math.max(0, from), to, 1, min, max, rms);
+                peak = Math.max(peak, Math.max(-min[0], max[0]) / 32768f);
+                level = Math.max(level, rms[0] / 32768f);
+            }
+            ring.offer(peak, level);
+        }
+    }
+
+    private final SourceDataLine line;
+    private final AudioFormat format;
+    private final byte[] pcm;
+    private final int frameBytes;
+    private final long frameLength;
+    private final boolean measurable;  // 16-bit signed PCM; other formats play without a master level
+    private final LevelRing master;
+
+    private volatile boolean running;
+    private volatile MeterSource[] meters = new MeterSource[0];
+    private Thread thread;
+    private long position;     // Frame to play from next, while stopped
+    private long startFrame;   // Frame the current run started at
+    private long lineBase;     // Line position when it did
+
+    /**
+     * Plays pcm, which is not copied and must not change, on a line opened
+     * on mixer (the default when null). master receives the level of
+     * everything played.
+     */
+    public Player(byte[] pcm, AudioFormat format, Mixer mixer, LevelRing master) throws LineUnavailableException {
+        this.format = format;
+        this.pcm = pcm;
+        this.frameBytes = Math.max(1, format.getFrameSize());
+        this.frameLength = pcm.length / frameBytes;
+        this.measurable = format.getEncoding() == AudioFormat.Encoding.PCM_SIGNED && format.getSampleSizeInBits() == 16;
+        this.master = master;
+
+        DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
+        line = mixer != null ? (SourceDataLine) mixer.getLine(info) : (SourceDataLine) AudioSystem.getLine(info);
+        line.open(format, 2 * BLOCK_FRAMES * frameBytes);
+    }
+
+    public SourceDataLine getLine() {
+        return line;
+    }
+
+    /**
+     * Track meters fed from the next start on.
+     */
+    public void setMeters(List<MeterSource> sources) {
+        meters = sources.toArray(new MeterSource[0]);
+    }
+
+    public boolean isOpen() {
+        return line.isOpen();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getFrameLength() {
+        return (int) Math.min(Integer.MAX_VALUE, frameLength);
+    }
+
+    public long getMicrosecondLength() {
+        return (long) (frameLength * 1_000_000.0 / format.getFrameRate());
+    }
+
+    public synchronized long getLongFramePosition() {
+        if (!running) {
+            return position;
+        }
+        return Math.min(frameLength, startFrame + line.getLongFramePosition() - lineBase);
+    }
+
+    public int getFramePosition() {
+        return (int) Math.min(Integer.MAX_VALUE, getLongFramePosition());
+    }
+
+    public long getMicrosecondPosition() {
+        return (long) (getLongFramePosition() * 1_000_000.0 / format.getFrameRate());
+    }
+
+    public void setFramePosition(long frame) {
+        boolean wasRunning = running;
+        stop();
+        synchronized (this) {
+            position = Math.max(0, Math.min(frameLength, frame));
+        }
+        if (wasRunning) {
+            start();
+        }
+    }
+
+    public void setMicrosecondPosition(long microseconds) {
+        setFramePosition((long) (microseconds * (double) format.getFrameRate() / 1_000_000));
+    }
+
+    /**
+     * Plays from the current position on the playback thread.
+     */
+    public void start() {
+        Thread finished;
+        synchronized (this) {
+            if (running || position >= frameLength) return;
+            finished = thread;
+        }
+        joinQuietly(finished);  // A run that reached the end by itself
+        synchronized (this) {
+            running = true;
+            startFrame = position;
+            line.flush();
+            lineBase = line.getLongFramePosition();
+            line.start();
+            long from = position;
+            MeterSource[] sources = meters;
+            thread = new Thread(() -> play(from, sources), "playback");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MAX_PRIORITY);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops playing and keeps the position, like pausing.
+     */
+    public void stop() {
+        Thread playing;
+        synchronized (this) {
+            if (!running) return;
+            position = getLongFramePosition();
+            running = false;
+            playing = thread;
+            thread = null;
+        }
+        line.stop();
+        // Emptying the line releases a write blocked on it
+        while (playing != null && playing.isAlive()) {
+            line.flush();
+            joinQuietly(playing, 10);
+        }
+        line.flush();
+    }
+
+    public void close() {
+        stop();
+        line.close();
+    }
+
+    private void play(long from, MeterSource[] sources) {
+        short[] min = new short[1];
+        short[] max = new short[1];
+        short[] rms = new short[1];
+        double blockSeconds = BLOCK_FRAMES / (double) format.getFrameRate();
+        long frame = from;
+        while (running && frame < frameLength) {
+            int frames = (int) Math.min(BLOCK_FRAMES, frameLength - frame);
+            int offset = (int) (frame * frameBytes);
+            if (measurable) {
+                measure(offset, frames * format.getChannels());
+            }
+            double seconds = frame / (double) format.getFrameRate();
+            for (MeterSource source : sources) {
+                source.measure(seconds, blockSeconds, min, max, rms);
+            }
+            line.write(pcm, offset, frames * frameBytes);
+            frame += frames;
+        }
+        if (!running) return;
+        line.drain();
+        synchronized (this) {
+            if (running && thread == Thread.currentThread()) {
+                position = frameLength;
+                running = false;
+            }
+        }
+    }
+
+    // Peak and RMS of samples 16-bit values from offset, all channels together
+    private void measure(int offset, int samples) {
+        boolean bigEndian = format.isBigEndian();
+        int peak = 0;
+        double squares = 0;
+        for (int i = 0, at = offset; i < samples; i++, at += 2) {
+            int value = bigEndian
+                    ? (short) ((pcm[at] << 8) | (pcm[at + 1] & 0xff))
+                    : (short) ((pcm[at + 1] << 8) | (pcm[at] & 0xff));
+            peak = Math.max(peak, Math.abs(value));
+            squares += (double) value * value;
+        }
+        master.offer(peak / 32768f, (float) (Math.sqrt(squares / Math.max(1, samples)) / 32768));
+    }
+
+    private static void joinQuietly(Thread thread) {
+        joinQuietly(thread, 0);
+    }
+
+    private static void joinQuietly(Thread thread, long millis) {
+        if (thread == null) return;
+        try {
+            thread.join(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.meenigam.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Rendered edit versions on disk, keyed by the version they belong to.
+ * The least recently used renders are moved out once the plain files grow
+ * past the byte budget: into the archive {@link BlockStore} if there is one,
+ * where versions of a clip share their unchanged blocks, otherwise they are
+ * deleted and the version is simply rendered again when needed.
+ * <p>
+ * The archive holds its keys weakly: once no edit list can reach a version
+ * its archived render is removed from the store. The archive has a budget
+ * of its own, counted in file lengths; past it the least recently used
+ * archived renders are dropped and would be rendered again.
+ * <p>
+ * A render something still reads, like the file a clip shows, is pinned
+ * and stays on disk: eviction passes it over, and if its version is
+ * rendered again the old file is only deleted once the last pin is gone.
+ */
+public final class RenderCache {
+
+    private static final long DEFAULT_BUDGET_BYTES = 512L << 20;
+
+    private static RenderCache shared;
+
+    private static final class Entry {
+        final String path;
+        final long bytes;
+
+        Entry(String path, long bytes) {
+            this.path = path;
+            this.bytes = bytes;
+        }
+    }
+
+    private final Path directory;
+    private final long budgetBytes;
+    private final BlockStore archive;
+    private final long archiveBudgetBytes;
+    private final Map<Object, Entry> renders = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Object, Archived> archived = new WeakHashMap<>();
+    private final Map<String, Stored> stored = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReferenceQueue<Object> released = new ReferenceQueue<>();
+    private final Map<String, Integer> pinned = new HashMap<>();
+    private final Set<String> unlisted = new HashSet<>();  // Pinned files no entry holds any more
+    private final AtomicLong counter = new AtomicLong();
+    private long totalBytes;
+    private long archivedBytes;
+
+    // A version's render in the archive; enqueued once the version is unreachable
+    private static final class Archived extends WeakReference<Object> {
+        final String id;
+
+        Archived(Object key, String id, ReferenceQueue<Object> queue) {
+            super(key, queue);
+            this.id = id;
+        }
+    }
+
+    // A file in the archive and how many versions' renders it is
+    private static final class Stored {
+        final long bytes;
+        int users;
+
+        Stored(long bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    public RenderCache(Path directory, long budgetBytes) {
+        this(directory, budgetBytes, null);
+    }
+
+    /**
+     * A cache whose archive gets the same budget as the plain files.
+     */
+    public RenderCache(Path directory, long budgetBytes, BlockStore archive) {
+        this(directory, budgetBytes, archive, budgetBytes);
+    }
+
+    public RenderCache(Path directory, long budgetBytes, BlockStore archive, long archiveBudgetBytes) {
+        this.directory = directory;
+        this.budgetBytes = budgetBytes;
+        this.archive = archive;
+        this.archiveBudgetBytes = archiveBudgetBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The cache used by edit lists by default, in a temporary directory that
+     * is removed when the application exits.
+     */
+    public static synchronized RenderCache shared() {
+        if (shared == null) {
+            try {
+                Path directory = Files.createTempDirectory("audioeditor-renders");
+                RenderCache cache = new RenderCache(directory, DEFAULT_BUDGET_BYTES,
+                        new BlockStore(directory.resolve("archive")));
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    cache.clear();
+                    deleteTree(directory);
+                }));
+                shared = cache;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Path of the render for key, or null if there is none (any more). An
+     * archived render is written back out as a plain file first.
+     */
+    public synchronized String get(Object key) {
+        dropReleased();
+        Entry entry = renders.get(key);
+        if (entry != null) {
+            if (new File(entry.path).isFile()) {
+                return entry.path;
+            }
+            renders.remove(key);
+            totalBytes -= entry.bytes;
+        }
+        Archived kept = archived.get(key);
+        if (kept == null) {
+            return null;
+        }
+        stored.get(kept.id);  // Most recently used
+        String path = newRenderPath();
+        try {
+            archive.materialize(kept.id, Path.of(path));
+        } catch (IOException | IllegalArgumentException e) {
+            unarchive(key);
+            collectGarbage();
+            return null;
+        }
+        put(key, path);
+        return path;
+    }
+
+    public synchronized void put(Object key, String path) {
+        dropReleased();
+        Entry entry = new Entry(path, new File(path).length());
+        Entry previous = renders.put(key, entry);
+        if (previous != null) {
+            totalBytes -= previous.bytes;
+            if (!previous.path.equals(path)) {
+                deleteUnlessPinned(previous.path);
+            }
+        }
+        totalBytes += entry.bytes;
+        evict(entry);
+    }
+
+    /**
+     * Keeps the file at path on disk until a matching unpin. Pins are
+     * counted, so each holder pins and unpins once; any path may be
+     * pinned, not only renders.
+     */
+    public synchronized void pin(String path) {
+        pinned.merge(path, 1, Integer::sum);
+    }
+
+    public synchronized void unpin(String path) {
+        Integer count = pinned.get(path);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            pinned.put(path, count - 1);
+            return;
+        }
+        pinned.remove(path);
+        if (unlisted.remove(path)) {
+            delete(path);
+        }
+    }
+
+    public synchronized boolean isPinned(String path) {
+        return pinned.containsKey(path);
+    }
+
+    /**
+     * A path in the cache directory that no render uses yet.
+     */
+    public String newRenderPath() {
+        return directory.resolve("render-" + counter.incrementAndGet() + ".wav").toString();
+    }
+
+    /**
+     * Bytes of the renders kept as plain files.
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Number of renders kept as plain files.
+     */
+    public synchronized int size() {
+        return renders.size();
+    }
+
+    /**
+     * Number of versions that can be restored from the archive.
+     */
+    public synchronized int archivedSize() {
+        dropReleased();
+        return archived.size();
+    }
+
+    /**
+     * Sum of the lengths of the archived renders, which the archive budget
+     * bounds; the blocks they share take less on disk.
+     */
+    public synchronized long getArchivedBytes() {
+        dropReleased();
+        return archivedBytes;
+    }
+
+    public synchronized void clear() {
+        for (Entry entry : renders.values()) {
+            delete(entry.path);
+        }
+        for (String path : unlisted) {
+            delete(path);
+        }
+        renders.clear();
+        unlisted.clear();
+        totalBytes = 0;
+        if (archive != null) {
+            try {
+                for (String id : stored.keySet()) {
+                    archive.remove(id);
+                }
+                archive.collectGarbage();
+            } catch (IOException e) {
+                System.out.println("Failed to clear the render archive: " + e.getMessage());
+            }
+        }
+        for (Archived kept : archived.values()) {
+            kept.clear();
+        }
+        archived.clear();
+        stored.clear();
+        archivedBytes = 0;
+    }
+
+    // Moves the oldest renders out until the budget holds, never the one
+    // just added or one that is pinned
+    private void evict(Entry keep) {
+        Iterator<Map.Entry<Object, Entry>> it = renders.entrySet().iterator();
+        while (totalBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<Object, Entry> oldest = it.next();
+            Entry entry = oldest.getValue();
+            if (entry == keep || pinned.containsKey(entry.path)) {
+                continue;
+            }
+            if (archive != null) {
+                try {
+                    archive(oldest.getKey(), archive.put(Path.of(entry.path)), entry.bytes);
+                } catch (IOException e) {
+                    System.out.println("Failed to archive render: " + e.getMessage());
+                }
+            }
+            delete(entry.path);
+            totalBytes -= entry.bytes;
+            it.remove();
+        }
+        if (archive != null && archivedBytes > archiveBudgetBytes) {
+            trimArchive();
+        }
+    }
+
+    private void archive(Object key, String id, long bytes) {
+        Stored file = stored.computeIfAbsent(id, unused -> new Stored(bytes));
+        if (file.users++ == 0) {
+            archivedBytes += bytes;
+        }
+        Archived previous = archived.put(key, new Archived(key, id, released));
+        if (previous != null) {
+            previous.clear();
+            release(previous.id);
+        }
+    }
+
+    private void unarchive(Object key) {
+        Archived kept = archived.remove(key);
+        if (kept != null) {
+            kept.clear();
+            release(kept.id);
+        }
+    }
+
+    // Removes the file from the archive once no version's render is it; its
+    // blocks go in the next collectGarbage()
+    private boolean release(String id) {
+        Stored file = stored.get(id);
+        if (file == null || --file.users > 0) {
+            return false;
+        }
+        stored.remove(id);
+        archivedBytes -= file.bytes;
+        try {
+            archive.remove(id);
+        } catch (IOException e) {
+            System.out.println("Failed to remove archived render: " + e.getMessage());
+        }
+        return true;
+    }
+
+    // Lets go of the archived renders of versions no edit list can reach
+    private void dropReleased() {
+        boolean removed = false;
+        for (Reference<?> gone; (gone = released.poll()) != null; ) {
+            removed |= release(((Archived) gone).id);
+        }
+        if (removed) {
+            collectGarbage();
+        }
+    }
+
+    // Drops the least recently used archived renders until the archive budget holds
+    private void trimArchive() {
+        Iterator<Map.Entry<String, Stored>> it = stored.entrySet().iterator();
+        while (archivedBytes > archiveBudgetBytes && it.hasNext()) {
+            Map.Entry<String, Stored> oldest = it.next();
+            String id = oldest.getKey();
+            it.remove();
+            archivedBytes -= oldest.getValue().bytes;
+            archived.values().removeIf(kept -> {
+                if (!kept.id.equals(id)) return false;
+                kept.clear();
+                return true;
+            });
+            try {
+                archive.remove(id);
+            } catch (IOException e) {
+                System.out.println("Failed to remove archived render: " + e.getMessage());
+            }
+        }
+        collectGarbage();
+    }
+
+    private void collectGarbage() {
+        try {
+            archive.collectGarbage();
+        } catch (IOException e) {
+            System.out.println("Failed to collect the render archive: " + e.getMessage());
+        }
+    }
+
+    private void deleteUnlessPinned(String path) {
+        if (pinned.containsKey(path)) {
+            unlisted.add(path);
+        } else {
+            delete(path);
+        }
+    }
+
+    private static void delete(String path) {
+        new File(path).delete();
+    }
+
+    private static void deleteTree(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.out.println("Failed to delete " + root + ": " + e.getMessage());
+        }
+    }
+}
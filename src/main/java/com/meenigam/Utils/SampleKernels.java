@@ -0,0 +1,83 @@
+package com.meenigam.Utils;
+
+/**
+ * Entry point for the hot sample kernels (gain, mix, peak/RMS scan,
+ * int16 <-> float conversion and clamping).
+ * Dispatches to {@link VectorSampleKernels} when jdk.incubator.vector is
+ * available at runtime (run with --add-modules jdk.incubator.vector) and to
+ * {@link ScalarSampleKernels} otherwise. Set -Daudioeditor.scalarKernels=true
+ * to force the scalar path.
+ */
+public final class SampleKernels {
+
+    private static final boolean VECTOR = detectVectorSupport();
+
+    private SampleKernels() {
+    }
+
+    private static boolean detectVectorSupport() {
+        if (Boolean.getBoolean("audioeditor.scalarKernels")) {
+            return false;
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorSampleKernels.isSupported();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    public static boolean isVectorized() {
+        return VECTOR;
+    }
+
+    public static void gain(short[] samples, int offset, int length, float gain) {
+        if (VECTOR) VectorSampleKernels.gain(samples, offset, length, gain);
+        else ScalarSampleKernels.gain(samples, offset, length, gain);
+    }
+
+    public static void mix(short[] dst, int dstOffset, short[] src, int srcOffset, int length, float scale) {
+        if (VECTOR) VectorSampleKernels.mix(dst, dstOffset, src, srcOffset, length, scale);
+        else ScalarSampleKernels.mix(dst, dstOffset, src, srcOffset, length, scale);
+    }
+
+    /** Largest absolute sample value; -32768 reports 32768. */
+    public static int peak(short[] samples, int offset, int length) {
+        return VECTOR ? VectorSampleKernels.peak(samples, offset, length)
+                : ScalarSampleKernels.peak(samples, offset, length);
+    }
+
+    public static float peak(float[] samples, int offset, int length) {
+        return VECTOR ? VectorSampleKernels.peak(samples, offset, length)
+                : ScalarSampleKernels.peak(samples, offset, length);
+    }
+
+    /** Sum of squared int16 sample values. */
+    public static double sumSquares(short[] samples, int offset, int length) {
+        return VECTOR ? VectorSampleKernels.sumSquares(samples, offset, length)
+                : ScalarSampleKernels.sumSquares(samples, offset, length);
+    }
+
+    /** RMS level normalised to [0, 1]. */
+    public static double rms(short[] samples, int offset, int length) {
+        if (length <= 0) return 0;
+        return Math.sqrt(sumSquares(samples, offset, length) / length) / 32768.0;
+    }
+
+    public static void toFloat(short[] src, int srcOffset, float[] dst, int dstOffset, int length) {
+        if (VECTOR) VectorSampleKernels.toFloat(src, srcOffset, dst, dstOffset, length);
+        else ScalarSampleKernels.toFloat(src, srcOffset, dst, dstOffset, length);
+    }
+
+    public static void toShort(float[] src, int srcOffset, short[] dst, int dstOffset, int length) {
+        if (VECTOR) VectorSampleKernels.toShort(src, srcOffset, dst, dstOffset, length);
+        else ScalarSampleKernels.toShort(src, srcOffset, dst, dstOffset, length);
+    }
+
+    public static void clamp(float[] samples, int offset, int length, float min, float max) {
+        if (VECTOR) VectorSampleKernels.clamp(samples, offset, length, min, max);
+        else ScalarSampleKernels.clamp(samples, offset, length, min, max);
+    }
+}
@@ -0,0 +1,76 @@
+package com.meenigam.Utils;
+
+/**
+ * Scalar reference implementations of the hot sample kernels.
+ * These are the fallback when the Vector API is unavailable and the
+ * baseline the vectorised versions are checked against.
+ * Rounding is to nearest-even after clamping, matching native/kernels.h.
+ */
+public final class ScalarSampleKernels {
+
+    private ScalarSampleKernels() {
+    }
+
+    static short clampToShort(float value) {
+        if (value > 32767f) value = 32767f;
+        if (value < -32768f) value = -32768f;
+        return (short) Math.rint(value);
+    }
+
+    public static void gain(short[] samples, int offset, int length, float gain) {
+        for (int i = offset; i < offset + length; i++) {
+            samples[i] = clampToShort(samples[i] * gain);
+        }
+    }
+
+    public static void mix(short[] dst, int dstOffset, short[] src, int srcOffset, int length, float scale) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = clampToShort(dst[dstOffset + i] + src[srcOffset + i] * scale);
+        }
+    }
+
+    public static int peak(short[] samples, int offset, int length) {
+        int max = 0;
+        int min = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (samples[i] > max) max = samples[i];
+            if (samples[i] < min) min = samples[i];
+        }
+        return Math.max(max, -min);
+    }
+
+    public static float peak(float[] samples, int offset, int length) {
+        float max = 0f;
+        for (int i = offset; i < offset + length; i++) {
+            max = Math.max(max, Math.abs(samples[i]));
+        }
+        return max;
+    }
+
+    public static double sumSquares(short[] samples, int offset, int length) {
+        double sum = 0;
+        for (int i = offset; i < offset + length; i++) {
+            sum += (double) samples[i] * samples[i];
+        }
+        return sum;
+    }
+
+    public static void toFloat(short[] src, int srcOffset, float[] dst, int dstOffset, int length) {
+        final float scale = 1f / 32768f;
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = src[srcOffset + i] * scale;
+        }
+    }
+
+    public static void toShort(float[] src, int srcOffset, short[] dst, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = clampToShort(src[srcOffset + i] * 32768f);
+        }
+    }
+
+    public static void clamp(float[] samples, int offset, int length, float min, float max) {
+        for (int i = offset; i < offset + length; i++) {
+            samples[i] = Math.min(Math.max(samples[i], min), max);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.meenigam.Utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Silent regions of a WAV file as found by the native detector (analysis 1),
+ * which compares the RMS of 10 ms windows against a threshold with
+ * hysteresis. Also records the silence removal op (op 13) that trims leading
+ * and trailing silence or strips it out everywhere.
+ */
+public final class SilenceScan {
+
+    public static final int ANALYSIS = 1;
+    public static final int OPERATION = 13;
+
+    private final double durationMs;
+    private final List<Region> regions;
+
+    private SilenceScan(double durationMs, List<Region> regions) {
+        this.durationMs = durationMs;
+        this.regions = Collections.unmodifiableList(regions);
+    }
+
+    public static SilenceScan detect(String filePath) {
+        return fromResults(callNative.callAnalysis(filePath, ANALYSIS, new String[0]));
+    }
+
+    public static SilenceScan detect(String filePath, double thresholdDb, double minSilenceMs) {
+        return fromResults(callNative.callAnalysis(filePath, ANALYSIS,
+                new String[]{String.valueOf(thresholdDb), String.valueOf(minSilenceMs)}));
+    }
+
+    /**
+     * Builds a scan from the "durationMs=..." and "silence=start,end" entries
+     * of the analysis.
+     */
+    public static SilenceScan fromResults(String[] results) {
+        double duration = -1;
+        List<Region> regions = new ArrayList<>();
+        for (String entry : results) {
+            int eq = entry.indexOf('=');
+            String key = eq < 0 ? entry : entry.substring(0, eq);
+            String value = eq < 0 ? "" : entry.substring(eq + 1);
+            switch (key) {
+                case "error":
+                    throw new IllegalStateException("Silence detection failed: " + value);
+                case "durationMs":
+                    duration = Double.parseDouble(value);
+                    break;
+                case "silence":
+                    String[] bounds = value.split(",");
+                    regions.add(new Region(Double.parseDouble(bounds[0]), Double.parseDouble(bounds[1])));
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (duration < 0) {
+            throw new IllegalStateException("Silence detection returned no duration");
+        }
+        return new SilenceScan(duration, regions);
+    }
+
+    /**
+     * Records a cut of leading and trailing silence, keeping 50 ms next to the sound.
+     */
+    public static void autoTrim(EditList edits) {
+        edits.apply(OPERATION, "TRIM");
+    }
+
+    /**
+     * Records a cut of every silence of at least minSilenceMs, keeping padMs next to the sound.
+     */
+    public static void stripSilence(EditList edits, double thresholdDb, double minSilenceMs, double padMs) {
+        edits.apply(OPERATION, "STRIP", String.valueOf(thresholdDb), String.valueOf(minSilenceMs),
+                String.valueOf(padMs));
+    }
+
+    public double getDurationMs() {
+        return durationMs;
+    }
+
+    public List<Region> getRegions() {
+        return regions;
+    }
+
+    public double getLeadingSilenceMs() {
+        return !regions.isEmpty() && regions.get(0).getStartMs() == 0 ? regions.get(0).getLengthMs() : 0;
+    }
+
+    public double getTrailingSilenceMs() {
+        if (regions.isEmpty()) {
+            return 0;
+        }
+        Region last = regions.get(regions.size() - 1);
+        return last.getEndMs() >= durationMs ? last.getLengthMs() : 0;
+    }
+
+    public double getTotalSilenceMs() {
+        double total = 0;
+        for (Region region : regions) {
+            total += region.getLengthMs();
+        }
+        return total;
+    }
+
+    public boolean isAllSilence() {
+        return regions.size() == 1 && getLeadingSilenceMs() >= durationMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d silent regions, %.1f s in total (leading %.1f s, trailing %.1f s)",
+                regions.size(), getTotalSilenceMs() / 1000, getLeadingSilenceMs() / 1000,
+                getTrailingSilenceMs() / 1000);
+    }
+
+    public static final class Region {
+        private final double startMs;
+        private final double endMs;
+
+        public Region(double startMs, double endMs) {
+            this.startMs = startMs;
+            this.endMs = endMs;
+        }
+
+        public double getStartMs() {
+            return startMs;
+        }
+
+        public double getEndMs() {
+            return endMs;
+        }
+
+        public double getLengthMs() {
+            return endMs - startMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f-%.1f ms", startMs, endMs);
+        }
+    }
+}
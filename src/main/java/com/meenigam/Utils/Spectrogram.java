@@ -0,0 +1,205 @@
+package com.meenigam.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Short-time Fourier transform of a WAV file, computed by the native side
+ * (analysis 2) one tile of TILE_COLUMNS columns at a time and kept on disk,
+ * so a long file can be shown as it is computed and is not computed again.
+ * A column is one byte per frequency bin, on a dB scale from -100 dBFS (0)
+ * to 0 dBFS (255). Tiles count against a {@link DiskBudget}, so the least
+ * recently viewed are deleted once they add up to more than it.
+ */
+public final class Spectrogram {
+
+    public static final int ANALYSIS = 2;
+    public static final int FFT_SIZE = 2048;
+    public static final int HOP = 512;
+    public static final int TILE_COLUMNS = 256;
+    public static final double FLOOR_DB = -100;
+
+    private static final long DEFAULT_TILE_BUDGET_BYTES = 512L << 20;
+
+    private static DiskBudget sharedTiles;
+
+    private final File audioFile;
+    private final Path directory;
+    private final int sampleRate;
+    private final long frames;
+    private final int columns;
+    private final int bins;
+    private final DiskBudget tiles;  // Null for no limit
+
+    private Spectrogram(File audioFile, Path directory, DiskBudget tiles, int sampleRate, long frames, int columns,
+                        int bins) {
+        this.audioFile = audioFile;
+        this.directory = directory;
+        this.tiles = tiles;
+        this.sampleRate = sampleRate;
+        this.frames = frames;
+        this.columns = columns;
+        this.bins = bins;
+    }
+
+    /**
+     * The spectrogram of audioFile, with tiles kept beside its peak file
+     * within the shared tile budget.
+     */
+    public static Spectrogram open(File audioFile) throws IOException {
+        return open(audioFile, PeakCache.shared().spectrogramDirectoryFor(audioFile), sharedTiles());
+    }
+
+    /**
+     * The spectrogram of audioFile, with tiles kept in directory and no
+     * limit on them.
+     */
+    public static Spectrogram open(File audioFile, Path directory) throws IOException {
+        return open(audioFile, directory, null);
+    }
+
+    /**
+     * The spectrogram of audioFile, with tiles kept in directory within
+     * tiles (no limit when null); reads the file's length only, no tile is
+     * computed yet.
+     */
+    public static Spectrogram open(File audioFile, Path directory, DiskBudget tiles) throws IOException {
+        Files.createDirectories(directory);
+        String[] results = callNative.callAnalysis(audioFile.getAbsolutePath(), ANALYSIS,
+                new String[]{"", "0", "0", String.valueOf(FFT_SIZE), String.valueOf(HOP)});
+        int sampleRate = 0;
+        long frames = -1;
+        int columns = 0;
+        int bins = 0;
+        for (String entry : results) {
+            int eq = entry.indexOf('=');
+            String key = eq < 0 ? entry : entry.substring(0, eq);
+            String value = eq < 0 ? "" : entry.substring(eq + 1);
+            switch (key) {
+                case "error":
+                    throw new IOException("Spectrogram failed: " + value);
+                case "sampleRate":
+                    sampleRate = Integer.parseInt(value);
+                    break;
+                case "frames":
+                    frames = Long.parseLong(value);
+                    break;
+                case "columns":
+                    columns = Integer.parseInt(value);
+                    break;
+                case "bins":
+                    bins = Integer.parseInt(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (frames < 0 || bins == 0) {
+            throw new IOException("Spectrogram analysis returned no length");
+        }
+        return new Spectrogram(audioFile, directory, tiles, sampleRate, frames, columns, bins);
+    }
+
+    /**
+     * The budget for tiles in the shared peak cache's directory,
+     * -Daudioeditor.spectrogramCacheMB megabytes (512 by default).
+     */
+    public static synchronized DiskBudget sharedTiles() {
+        if (sharedTiles == null) {
+            long budget = DEFAULT_TILE_BUDGET_BYTES;
+            String configured = System.getProperty("audioeditor.spectrogramCacheMB");
+            if (configured != null) {
+                try {
+                    budget = Long.parseLong(configured.trim()) << 20;
+                } catch (NumberFormatException e) {
+                    System.out.println("Ignoring audioeditor.spectrogramCacheMB: " + configured);
+                }
+            }
+            sharedTiles = new DiskBudget(PeakCache.shared().getDirectory(), budget,
+                    path -> path.getFileName().toString().endsWith(".tile"));
+        }
+        return sharedTiles;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getBins() {
+        return bins;
+    }
+
+    public int getTileCount() {
+        return (columns + TILE_COLUMNS - 1) / TILE_COLUMNS;
+    }
+
+    public int tileColumns(int index) {
+        return Math.max(0, Math.min(TILE_COLUMNS, columns - index * TILE_COLUMNS));
+    }
+
+    /**
+     * Centre frequency of bin in Hz.
+     */
+    public double binFrequency(int bin) {
+        return bin * (double) sampleRate / FFT_SIZE;
+    }
+
+    public boolean isCached(int index) {
+        Path file = tileFile(index);
+        try {
+            return Files.isRegularFile(file) && Files.size(file) == (long) tileColumns(index) * bins;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Columns of tile index, one after the other, low bins first; computed
+     * and saved on first use. Blocks, so call it off the event thread.
+     */
+    public byte[] tile(int index) throws IOException {
+        if (index < 0 || index >= getTileCount()) {
+            throw new IllegalArgumentException("No spectrogram tile " + index);
+        }
+        Path file = tileFile(index);
+        boolean computed = !isCached(index);
+        if (computed) {
+            // The budget removes a directory once its last tile goes
+            Files.createDirectories(directory);
+            String[] results = callNative.callAnalysis(audioFile.getAbsolutePath(), ANALYSIS, new String[]{
+                    file.toString(), String.valueOf((long) index * TILE_COLUMNS), String.valueOf(TILE_COLUMNS),
+                    String.valueOf(FFT_SIZE), String.valueOf(HOP)});
+            for (String entry : results) {
+                if (entry.startsWith("error=")) {
+                    throw new IOException("Spectrogram failed: " + entry.substring(6));
+                }
+            }
+        }
+        byte[] data = Files.readAllBytes(file);
+        if (data.length != tileColumns(index) * bins) {
+            throw new IOException("Spectrogram tile " + file + " is damaged");
+        }
+        if (tiles != null) {
+            if (computed) {
+                tiles.added(file);
+            } else {
+                tiles.used(file);
+            }
+        }
+        return data;
+    }
+
+    private Path tileFile(int index) {
+        return directory.resolve(FFT_SIZE + "-" + HOP + "-" + index + ".tile");
+    }
+}
@@ -0,0 +1,132 @@
+package com.meenigam.Utils;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * jdk.incubator.vector implementations of the hot sample kernels.
+ * Only loaded by {@link SampleKernels} when the incubator module is present,
+ * so callers must go through the facade rather than use this class directly.
+ */
+public final class VectorSampleKernels {
+
+    private static final VectorSpecies<Float> F = FloatVector.SPECIES_PREFERRED;
+    // Same lane count as F, so short <-> float conversions need no splitting
+    private static final VectorSpecies<Short> S =
+            VectorSpecies.of(short.class, VectorShape.forBitSize(F.vectorBitSize() / 2));
+    private static final VectorSpecies<Short> SW = ShortVector.SPECIES_PREFERRED;
+    // Same bit size as F, so each float vector converts into two of these
+    private static final VectorSpecies<Double> D = VectorSpecies.of(double.class, F.vectorShape());
+    // Adding and subtracting 1.5 * 2^23 rounds to nearest-even, like Math.rint
+    private static final float ROUND = 12582912f;
+
+    private VectorSampleKernels() {
+    }
+
+    static boolean isSupported() {
+        return F.vectorBitSize() >= 128;
+    }
+
+    private static FloatVector widen(short[] src, int index) {
+        return (FloatVector) ShortVector.fromArray(S, src, index).convertShape(VectorOperators.S2F, F, 0);
+    }
+
+    private static ShortVector narrow(FloatVector v) {
+        FloatVector rounded = v.max(-32768f).min(32767f).add(ROUND).sub(ROUND);
+        return (ShortVector) rounded.convertShape(VectorOperators.F2S, S, 0);
+    }
+
+    public static void gain(short[] samples, int offset, int length, float gain) {
+        int i = 0;
+        int bound = F.loopBound(length);
+        for (; i < bound; i += F.length()) {
+            narrow(widen(samples, offset + i).mul(gain)).intoArray(samples, offset + i);
+        }
+        ScalarSampleKernels.gain(samples, offset + i, length - i, gain);
+    }
+
+    public static void mix(short[] dst, int dstOffset, short[] src, int srcOffset, int length, float scale) {
+        int i = 0;
+        int bound = F.loopBound(length);
+        for (; i < bound; i += F.length()) {
+            FloatVector mixed = widen(dst, dstOffset + i).add(widen(src, srcOffset + i).mul(scale));
+            narrow(mixed).intoArray(dst, dstOffset + i);
+        }
+        ScalarSampleKernels.mix(dst, dstOffset + i, src, srcOffset + i, length - i, scale);
+    }
+
+    public static int peak(short[] samples, int offset, int length) {
+        ShortVector max = ShortVector.zero(SW);
+        ShortVector min = ShortVector.zero(SW);
+        int i = 0;
+        int bound = SW.loopBound(length);
+        for (; i < bound; i += SW.length()) {
+            ShortVector v = ShortVector.fromArray(SW, samples, offset + i);
+            max = max.max(v);
+            min = min.min(v);
+        }
+        int result = Math.max(max.reduceLanes(VectorOperators.MAX), -min.reduceLanes(VectorOperators.MIN));
+        return Math.max(result, ScalarSampleKernels.peak(samples, offset + i, length - i));
+    }
+
+    public static float peak(float[] samples, int offset, int length) {
+        FloatVector max = FloatVector.zero(F);
+        int i = 0;
+        int bound = F.loopBound(length);
+        for (; i < bound; i += F.length()) {
+            max = max.max(FloatVector.fromArray(F, samples, offset + i).abs());
+        }
+        return Math.max(max.reduceLanes(VectorOperators.MAX), ScalarSampleKernels.peak(samples, offset + i, length - i));
+    }
+
+    // Squares are whole numbers below 2^30 and add up exactly in double lanes
+    // until the total passes 2^53, so this equals the scalar sum for any
+    // block of fewer than 2^23 samples
+    public static double sumSquares(short[] samples, int offset, int length) {
+        DoubleVector low = DoubleVector.zero(D);
+        DoubleVector high = DoubleVector.zero(D);
+        int i = 0;
+        int bound = F.loopBound(length);
+        for (; i < bound; i += F.length()) {
+            FloatVector v = widen(samples, offset + i);
+            DoubleVector first = (DoubleVector) v.convertShape(VectorOperators.F2D, D, 0);
+            DoubleVector second = (DoubleVector) v.convertShape(VectorOperators.F2D, D, 1);
+            low = first.fma(first, low);
+            high = second.fma(second, high);
+        }
+        double sum = low.add(high).reduceLanes(VectorOperators.ADD);
+        return sum + ScalarSampleKernels.sumSquares(samples, offset + i, length - i);
+    }
+
+    public static void toFloat(short[] src, int srcOffset, float[] dst, int dstOffset, int length) {
+        final float scale = 1f / 32768f;
+        int i = 0;
+        int bound = F.loopBound(length);
+        for (; i < bound; i += F.length()) {
+            widen(src, srcOffset + i).mul(scale).intoArray(dst, dstOffset + i);
+        }
+        ScalarSampleKernels.toFloat(src, srcOffset + i, dst, dstOffset + i, length - i);
+    }
+
+    public static void toShort(float[] src, int srcOffset, short[] dst, int dstOffset, int length) {
+        int i = 0;
+        int bound = F.loopBound(length);
+        for (; i < bound; i += F.length()) {
+            narrow(FloatVector.fromArray(F, src, srcOffset + i).mul(32768f)).intoArray(dst, dstOffset + i);
+        }
+        ScalarSampleKernels.toShort(src, srcOffset + i, dst, dstOffset + i, length - i);
+    }
+
+    public static void clamp(float[] samples, int offset, int length, float min, float max) {
+        int i = 0;
+        int bound = F.loopBound(length);
+        for (; i < bound; i += F.length()) {
+            FloatVector.fromArray(F, samples, offset + i).max(min).min(max).intoArray(samples, offset + i);
+        }
+        ScalarSampleKernels.clamp(samples, offset + i, length - i, min, max);
+    }
+}
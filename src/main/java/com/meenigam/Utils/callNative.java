@@ -34,4 +34,33 @@ public class callNative {
     }
 
     private native void sayHello(String msg, int operation, String[] params);
+
+    // Runs an op on inputPath and writes the result to outputPath, leaving
+    // the input untouched. callCode(path, ...) overwrites the file in place.
+    // False if the op failed; outputPath may then be missing or partial.
+    public static boolean callCode(String inputPath, String outputPath, int operation, String[] params) {
+        return new callNative().process(inputPath, outputPath, operation, params == null ? new String[0] : params);
+    }
+
+    private native boolean process(String inputPath, String outputPath, int operation, String[] params);
+
+    // Read-only analysis of a WAV file (0 = EBU R128 loudness, 1 = silence,
+    // 2 = spectrogram tile, see Spectrogram). Each entry is
+    // "key=value"; a single "error=..." entry reports a failure.
+    public static String[] callAnalysis(String filePath, int operation, String[] params) {
+        return new callNative().analyze(filePath, operation, params == null ? new String[0] : params);
+    }
+
+    private native String[] analyze(String filePath, int operation, String[] params);
+
+    // Native buffer pool counters as "key=value" entries: requests, hits,
+    // misses, hitRatePercent, bytesInUse, peakBytesInUse and bytesCached
+    public static native String[] bufferPoolStats();
+
+    // native/kernels.h counterparts of SampleKernels, exposed for benchmarking
+    public static native void gainKernel(short[] samples, float gain);
+
+    public static native void mixKernel(short[] dst, short[] src, float scale);
+
+    public static native int peakKernel(short[] samples);
 }
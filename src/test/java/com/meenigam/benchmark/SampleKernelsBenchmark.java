@@ -0,0 +1,152 @@
+package com.meenigam.benchmark;
+
+import com.meenigam.Utils.ScalarSampleKernels;
+import com.meenigam.Utils.VectorSampleKernels;
+import com.meenigam.Utils.callNative;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the sample kernels: scalar Java loops, Vector API
+ * and the native main.h kernels reached through JNI.
+ * Run with: make bench BENCH=SampleKernelsBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class SampleKernelsBenchmark {
+
+    // One second of stereo at 44.1 kHz, and a larger buffer that spills out of cache
+    @Param({"88200", "4194304"})
+    public int samples;
+
+    private short[] data;
+    private short[] overlay;
+    private short[] mixed;
+    private float[] floats;
+    // A field, not a constant, so the JIT cannot fold the multiply away
+    private float mixScale = 0.5f;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        data = new short[samples];
+        overlay = new short[samples];
+        floats = new float[samples];
+        for (int i = 0; i < samples; i++) {
+            data[i] = (short) (random.nextGaussian() * 4000);
+            overlay[i] = (short) (random.nextGaussian() * 4000);
+        }
+        ScalarSampleKernels.toFloat(data, 0, floats, 0, samples);
+    }
+
+    // Mixing adds into its destination, so start each iteration from the original
+    // samples; repeated mixes drift towards the clamp, which every path handles alike
+    @Setup(Level.Iteration)
+    public void resetMix() {
+        mixed = data.clone();
+    }
+
+    // Gain of 1.0 keeps the buffer stable across invocations
+
+    @Benchmark
+    public short[] gainScalar() {
+        ScalarSampleKernels.gain(data, 0, samples, 1.0f);
+        return data;
+    }
+
+    @Benchmark
+    public short[] gainVector() {
+        VectorSampleKernels.gain(data, 0, samples, 1.0f);
+        return data;
+    }
+
+    @Benchmark
+    public short[] gainNative() {
+        callNative.gainKernel(data, 1.0f);
+        return data;
+    }
+
+    @Benchmark
+    public short[] mixScalar() {
+        ScalarSampleKernels.mix(mixed, 0, overlay, 0, samples, mixScale);
+        return mixed;
+    }
+
+    @Benchmark
+    public short[] mixVector() {
+        VectorSampleKernels.mix(mixed, 0, overlay, 0, samples, mixScale);
+        return mixed;
+    }
+
+    @Benchmark
+    public short[] mixNative() {
+        callNative.mixKernel(mixed, overlay, mixScale);
+        return mixed;
+    }
+
+    @Benchmark
+    public int peakScalar() {
+        return ScalarSampleKernels.peak(data, 0, samples);
+    }
+
+    @Benchmark
+    public int peakVector() {
+        return VectorSampleKernels.peak(data, 0, samples);
+    }
+
+    @Benchmark
+    public int peakNative() {
+        return callNative.peakKernel(data);
+    }
+
+    @Benchmark
+    public double sumSquaresScalar() {
+        return ScalarSampleKernels.sumSquares(data, 0, samples);
+    }
+
+    @Benchmark
+    public double sumSquaresVector() {
+        return VectorSampleKernels.sumSquares(data, 0, samples);
+    }
+
+    @Benchmark
+    public float[] toFloatScalar() {
+        ScalarSampleKernels.toFloat(data, 0, floats, 0, samples);
+        return floats;
+    }
+
+    @Benchmark
+    public float[] toFloatVector() {
+        VectorSampleKernels.toFloat(data, 0, floats, 0, samples);
+        return floats;
+    }
+
+    @Benchmark
+    public short[] toShortScalar() {
+        ScalarSampleKernels.toShort(floats, 0, overlay, 0, samples);
+        return overlay;
+    }
+
+    @Benchmark
+    public short[] toShortVector() {
+        VectorSampleKernels.toShort(floats, 0, overlay, 0, samples);
+        return overlay;
+    }
+}
@@ -0,0 +1,40 @@
+package com.meenigam.unit;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Audio fixtures shared by the unit tests
+ */
+final class TestAudio {
+
+    static final int SAMPLE_RATE = 44100;
+
+    private TestAudio() {
+    }
+
+    /**
+     * Writes frames of a 16-bit stereo sine at frequency Hz to file as a
+     * WAV, at SAMPLE_RATE; amplitude is in sample units (full scale 32767).
+     */
+    static File writeTone(File file, int frames, double frequency, int amplitude) throws IOException {
+        AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, 2, true, false);
+        byte[] data = new byte[frames * 4];
+        for (int i = 0; i < frames; i++) {
+            short value = (short) Math.round(amplitude * Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE));
+            for (int c = 0; c < 2; c++) {
+                data[4 * i + 2 * c] = (byte) value;
+                data[4 * i + 2 * c + 1] = (byte) (value >> 8);
+            }
+        }
+        try (AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(data), format, frames)) {
+            AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,182 @@
+package com.meenigam.unit;
+
+import com.meenigam.Utils.BlockStore;
+import com.meenigam.Utils.RenderCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BlockStore
+ * Tests content addressing, block sharing between versions and garbage collection
+ */
+class TestBlockStore {
+
+    private static final int BLOCK = 4096;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("A stored file should come back byte for byte")
+    void testRoundTrip() throws IOException {
+        BlockStore store = new BlockStore(tempDir.resolve("store"), BLOCK);
+        byte[] data = randomBytes(10 * BLOCK + 123, 1);
+        Path source = write("source.bin", data);
+
+        String id = store.put(source);
+        assertTrue(store.contains(id));
+        assertEquals(data.length, store.length(id));
+
+        Path restored = tempDir.resolve("restored.bin");
+        store.materialize(id, restored);
+        assertArrayEquals(data, Files.readAllBytes(restored));
+        assertEquals(id, store.put(restored), "Same content should get the same id");
+    }
+
+    @Test
+    @DisplayName("Versions differing in one region should share all other blocks")
+    void testVersionsShareBlocks() throws IOException {
+        BlockStore store = new BlockStore(tempDir.resolve("store"), BLOCK);
+        byte[] original = randomBytes(64 * BLOCK, 2);
+        store.put(write("v0.bin", original));
+
+        for (int v = 1; v < 10; v++) {
+            byte[] edited = original.clone();
+            for (int i = 0; i < BLOCK; i++) {
+                edited[v * 5 * BLOCK + i] ^= (byte) v;
+            }
+            store.put(write("v" + v + ".bin", edited));
+        }
+        assertEquals(10L * original.length, store.logicalBytes());
+        // Each edit only costs the few blocks around it
+        assertTrue(store.storedBytes() < original.length + 9L * 4 * BLOCK);
+    }
+
+    @Test
+    @DisplayName("Versions of different lengths should share the blocks around the change")
+    void testLengthChangesShareBlocks() throws IOException {
+        BlockStore store = new BlockStore(tempDir.resolve("store"), BLOCK);
+        byte[] original = randomBytes(64 * BLOCK, 8);
+        store.put(write("original.bin", original));
+        long stored = store.storedBytes();
+
+        // Audio inserted at the front, as a loop or superimposition would
+        byte[] longer = new byte[original.length + 1000];
+        System.arraycopy(randomBytes(1000, 9), 0, longer, 0, 1000);
+        System.arraycopy(original, 0, longer, 1000, original.length);
+        String id = store.put(write("longer.bin", longer));
+        assertTrue(store.storedBytes() - stored < 4L * BLOCK);
+        stored = store.storedBytes();
+
+        // And trimmed off it, at an offset that is no multiple of anything
+        byte[] shorter = Arrays.copyOfRange(original, 3 * BLOCK + 17, original.length);
+        store.put(write("shorter.bin", shorter));
+        assertTrue(store.storedBytes() - stored < 4L * BLOCK);
+
+        store.materialize(id, tempDir.resolve("restored.bin"));
+        assertArrayEquals(longer, Files.readAllBytes(tempDir.resolve("restored.bin")));
+    }
+
+    @Test
+    @DisplayName("Garbage collection should free only unreferenced blocks")
+    void testCollectGarbage() throws IOException {
+        BlockStore store = new BlockStore(tempDir.resolve("store"), BLOCK);
+        byte[] shared = randomBytes(4 * BLOCK, 3);
+        byte[] other = shared.clone();
+        other[0] ^= 1;
+        String keep = store.put(write("a.bin", shared));
+        String drop = store.put(write("b.bin", other));
+
+        store.remove(drop);
+        // Only the first block differs
+        assertTrue(store.collectGarbage() > 0);
+        assertEquals(shared.length, store.storedBytes());
+        assertFalse(store.contains(drop));
+        store.materialize(keep, tempDir.resolve("a2.bin"));
+        assertArrayEquals(shared, Files.readAllBytes(tempDir.resolve("a2.bin")));
+        assertThrows(IllegalArgumentException.class, () -> store.length(drop));
+    }
+
+    @Test
+    @DisplayName("Renders evicted from the cache should be restored from the archive")
+    void testRenderCacheArchive() throws IOException {
+        RenderCache cache = new RenderCache(tempDir.resolve("renders"), 3 * BLOCK,
+                new BlockStore(tempDir.resolve("archive"), BLOCK));
+        byte[] first = randomBytes(2 * BLOCK, 4);
+        String path = cache.newRenderPath();
+        Files.write(Path.of(path), first);
+        cache.put("v1", path);
+        String second = cache.newRenderPath();
+        Files.write(Path.of(second), randomBytes(2 * BLOCK, 5));
+        cache.put("v2", second);
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.archivedSize());
+        assertFalse(Files.exists(Path.of(path)));
+
+        String restored = cache.get("v1");
+        assertNotNull(restored);
+        assertArrayEquals(first, Files.readAllBytes(Path.of(restored)));
+    }
+
+    @Test
+    @DisplayName("Archived renders should be removed once their version is unreachable")
+    void testArchiveReleasesUnreachableVersions() throws IOException, InterruptedException {
+        BlockStore store = new BlockStore(tempDir.resolve("archive"), BLOCK);
+        RenderCache cache = new RenderCache(tempDir.resolve("renders"), 3 * BLOCK, store);
+        Object version = new Object();
+        String path = cache.newRenderPath();
+        Files.write(Path.of(path), randomBytes(2 * BLOCK, 6));
+        cache.put(version, path);
+        String second = cache.newRenderPath();
+        Files.write(Path.of(second), randomBytes(2 * BLOCK, 7));
+        cache.put("v2", second);
+        assertEquals(1, cache.archivedSize());
+
+        version = null;
+        for (int i = 0; i < 100 && cache.archivedSize() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, cache.archivedSize());
+        assertEquals(0, store.logicalBytes());
+        assertEquals(0, store.storedBytes());
+    }
+
+    @Test
+    @DisplayName("The archive should drop its oldest renders beyond its own budget")
+    void testArchiveBudget() throws IOException {
+        BlockStore store = new BlockStore(tempDir.resolve("archive"), BLOCK);
+        RenderCache cache = new RenderCache(tempDir.resolve("renders"), 3 * BLOCK, store, 3 * BLOCK);
+        for (int i = 1; i <= 3; i++) {
+            String path = cache.newRenderPath();
+            Files.write(Path.of(path), randomBytes(2 * BLOCK, 10 + i));
+            cache.put("v" + i, path);
+        }
+
+        assertEquals(1, cache.archivedSize());
+        assertEquals(2 * BLOCK, cache.getArchivedBytes());
+        assertEquals(2 * BLOCK, store.logicalBytes());
+        assertNull(cache.get("v1"));
+        assertNotNull(cache.get("v2"));
+    }
+
+    private Path write(String name, byte[] data) throws IOException {
+        return Files.write(tempDir.resolve(name), data);
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
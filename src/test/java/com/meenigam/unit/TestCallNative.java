@@ -187,6 +187,29 @@ class TestCallNative {
         });
     }
     
+    @Test
+    @DisplayName("callAnalysis should report a missing file as an error entry")
+    void testCallAnalysisWithMissingFile() {
+        String[] results = callNative.callAnalysis("/nonexistent/file.wav", 0, null);
+
+        assertNotNull(results, "Analysis results should not be null");
+        assertEquals(1, results.length, "A failed analysis should return a single entry");
+        assertTrue(results[0].startsWith("error="), "The entry should describe the error");
+    }
+
+    @Test
+    @DisplayName("bufferPoolStats should report every counter")
+    void testBufferPoolStats() {
+        String[] stats = callNative.bufferPoolStats();
+
+        assertNotNull(stats, "Pool counters should not be null");
+        String joined = String.join(",", stats);
+        for (String key : new String[]{"requests=", "hits=", "misses=", "hitRatePercent=",
+                "bytesInUse=", "peakBytesInUse=", "bytesCached="}) {
+            assertTrue(joined.contains(key), "Missing counter " + key);
+        }
+    }
+
     @Test
     @DisplayName("Native library should be available")
     @EnabledOnOs({OS.LINUX, OS.MAC, OS.WINDOWS})
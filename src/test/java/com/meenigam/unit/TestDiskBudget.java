@@ -0,0 +1,88 @@
+package com.meenigam.unit;
+
+import com.meenigam.Utils.DiskBudget;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DiskBudget
+ * Tests that cache files are deleted least recently used first, across restarts
+ */
+class TestDiskBudget {
+
+    @TempDir
+    Path tempDir;
+
+    private static Path write(Path file, int bytes) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[bytes]);
+        return file;
+    }
+
+    @Test
+    @DisplayName("The least recently used file should go first, never the one just added")
+    void testEviction() throws IOException {
+        DiskBudget budget = new DiskBudget(tempDir, 250, path -> true);
+        Path a = write(tempDir.resolve("a.cache"), 100);
+        budget.added(a);
+        Path b = write(tempDir.resolve("b.cache"), 100);
+        budget.added(b);
+        budget.used(a);
+        Path c = write(tempDir.resolve("c.cache"), 100);
+        budget.added(c);
+
+        assertTrue(Files.exists(a));
+        assertFalse(Files.exists(b));
+        assertTrue(Files.exists(c));
+        assertEquals(200, budget.getTotalBytes());
+
+        // A file larger than the budget is kept until something newer comes
+        Path big = write(tempDir.resolve("big.cache"), 400);
+        budget.added(big);
+        assertTrue(Files.exists(big));
+        assertEquals(1, budget.size());
+    }
+
+    @Test
+    @DisplayName("Files left from before should be ordered by modification time")
+    void testRestart() throws IOException {
+        Path old = write(tempDir.resolve("old.cache"), 100);
+        Path recent = write(tempDir.resolve("recent.cache"), 100);
+        Path other = write(tempDir.resolve("index.txt"), 100);
+        Files.setLastModifiedTime(old, FileTime.fromMillis(1_000_000));
+        Files.setLastModifiedTime(recent, FileTime.fromMillis(2_000_000));
+
+        DiskBudget budget = new DiskBudget(tempDir, 150, path -> path.toString().endsWith(".cache"));
+        assertFalse(Files.exists(old));
+        assertTrue(Files.exists(recent));
+        assertTrue(Files.exists(other), "files it does not count are left alone");
+        assertEquals(100, budget.getTotalBytes());
+
+        // Use is written back, so the next run sees recent as newer than a later write
+        Path later = write(tempDir.resolve("later.cache"), 10);
+        Files.setLastModifiedTime(later, FileTime.fromMillis(3_000_000));
+        budget.used(recent);
+        assertTrue(Files.getLastModifiedTime(recent).toMillis() > 3_000_000);
+    }
+
+    @Test
+    @DisplayName("A directory emptied by eviction should be removed, the root kept")
+    void testEmptyDirectories() throws IOException {
+        DiskBudget budget = new DiskBudget(tempDir, 100, path -> true);
+        Path tile = write(tempDir.resolve("abc.spectrogram").resolve("0.tile"), 100);
+        budget.added(tile);
+        budget.added(write(tempDir.resolve("next.tile"), 100));
+
+        assertFalse(Files.exists(tile.getParent()));
+        assertTrue(Files.isDirectory(tempDir));
+        assertFalse(budget.contains(tile));
+    }
+}
@@ -0,0 +1,183 @@
+package com.meenigam.unit;
+
+import com.meenigam.Utils.EditList;
+import com.meenigam.Utils.EffectChain;
+import com.meenigam.Utils.RenderCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EditList and RenderCache
+ * Tests the undo/redo history and lazy rendering of non-destructive edits
+ */
+class TestEditList {
+
+    @TempDir
+    Path tempDir;
+
+    private RenderCache cache;
+    private String source;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cache = new RenderCache(tempDir.resolve("renders"), 1L << 30);
+        // Edits are rendered as they are applied, so the history needs real audio
+        source = TestAudio.writeTone(tempDir.resolve("source.wav").toFile(), TestAudio.SAMPLE_RATE, 440, 8000)
+                .getAbsolutePath();
+    }
+
+    @Test
+    @DisplayName("Undo and redo should move through the history")
+    void testUndoRedo() {
+        EditList edits = new EditList(source, cache);
+        assertFalse(edits.canUndo());
+        edits.apply(3, "0.5");
+        edits.apply(8, "PEAK");
+        assertEquals(2, edits.size());
+
+        edits.undo();
+        assertEquals(1, edits.size());
+        assertTrue(edits.canRedo());
+        assertEquals(3, edits.getOperations().get(0).getOperation());
+
+        edits.redo();
+        assertEquals(2, edits.size());
+        assertEquals(8, edits.getOperations().get(1).getOperation());
+        assertFalse(edits.canRedo());
+    }
+
+    @Test
+    @DisplayName("A new edit after an undo should drop the redo history")
+    void testApplyClearsRedo() {
+        EditList edits = new EditList(source, cache);
+        edits.apply(3, "0.5");
+        edits.undo();
+        edits.apply(3, "2");
+        assertFalse(edits.canRedo());
+        assertArrayEquals(new String[]{"2"}, edits.getOperations().get(0).getParams());
+        assertThrows(IllegalStateException.class, edits::redo);
+    }
+
+    @Test
+    @DisplayName("Copies should keep their own position in a shared history")
+    void testCopy() {
+        EditList edits = new EditList(source, cache);
+        edits.apply(3, "0.5");
+        EditList copy = new EditList(edits);
+        copy.undo();
+        assertEquals(1, edits.size());
+        assertEquals(0, copy.size());
+        assertTrue(copy.canRedo());
+    }
+
+    @Test
+    @DisplayName("An edit that renders nothing should not be recorded")
+    void testFailedEditIsDropped() {
+        EditList edits = new EditList(source, cache);
+        edits.apply(3, "0.5");
+        edits.apply(3, "2");
+        edits.undo();
+        String before = edits.render();
+
+        // Trim with a choice that is neither the left nor the right part
+        assertThrows(IllegalStateException.class, () -> edits.apply(2, "1000", "3"));
+        assertEquals(1, edits.size());
+        assertTrue(edits.canRedo());
+        assertEquals(before, edits.render());
+        edits.redo();
+        assertEquals(2, edits.size());
+    }
+
+    @Test
+    @DisplayName("A failed edit should leave no file behind in the cache directory")
+    void testFailedEditLeavesNoFile() throws IOException {
+        EditList edits = new EditList(source, cache);
+        edits.apply(3, "0.5");
+
+        // The native side reports an unknown chain step as a failed op
+        assertThrows(IllegalStateException.class, () -> edits.apply(EffectChain.OPERATION, "bogus:1"));
+        try (Stream<Path> files = Files.list(tempDir.resolve("renders"))) {
+            assertEquals(1, files.count());
+        }
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("Without edits the source itself should be the render")
+    void testRenderWithoutEdits() {
+        EditList edits = new EditList("source.wav", cache);
+        assertEquals("source.wav", edits.render());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Rendering should leave the source untouched and reuse cached versions")
+    void testRenderIsNonDestructive() throws IOException {
+        File source = TestAudio.writeTone(tempDir.resolve("tone.wav").toFile(), TestAudio.SAMPLE_RATE, 440, 8000);
+        byte[] original = Files.readAllBytes(source.toPath());
+
+        EditList edits = new EditList(source.getAbsolutePath(), cache);
+        edits.apply(3, "0.5");
+        String rendered = edits.render();
+        assertNotEquals(source.getAbsolutePath(), rendered);
+        assertTrue(new File(rendered).isFile());
+        assertArrayEquals(original, Files.readAllBytes(source.toPath()));
+
+        edits.undo();
+        assertEquals(source.getAbsolutePath(), edits.render());
+        edits.redo();
+        assertEquals(rendered, edits.render());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("The cache should evict the oldest renders beyond its budget")
+    void testEviction() throws IOException {
+        RenderCache small = new RenderCache(tempDir.resolve("small"), 150);
+        for (int i = 0; i < 3; i++) {
+            String path = small.newRenderPath();
+            Files.write(Path.of(path), new byte[100]);
+            small.put("v" + i, path);
+        }
+        assertEquals(1, small.size());
+        assertNull(small.get("v0"));
+        assertNotNull(small.get("v2"));
+        assertEquals(100, small.getTotalBytes());
+    }
+
+    @Test
+    @DisplayName("Pinned renders should stay on disk until they are unpinned")
+    void testPinnedRendersAreKept() throws IOException {
+        RenderCache small = new RenderCache(tempDir.resolve("small"), 150);
+        String shown = small.newRenderPath();
+        Files.write(Path.of(shown), new byte[100]);
+        small.put("v0", shown);
+        small.pin(shown);
+
+        // Over budget, the pinned render is passed over
+        String next = small.newRenderPath();
+        Files.write(Path.of(next), new byte[100]);
+        small.put("v1", next);
+        assertTrue(Files.exists(Path.of(shown)));
+        assertEquals(shown, small.get("v0"));
+
+        // Rendered again, the old file outlives its entry while pinned
+        String again = small.newRenderPath();
+        Files.write(Path.of(again), new byte[10]);
+        small.put("v0", again);
+        assertTrue(Files.exists(Path.of(shown)));
+        small.unpin(shown);
+        assertFalse(Files.exists(Path.of(shown)));
+        assertFalse(small.isPinned(shown));
+    }
+}
@@ -0,0 +1,86 @@
+package com.meenigam.unit;
+
+import com.meenigam.Utils.EffectChain;
+import com.meenigam.Utils.callNative;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioSystem;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EffectChain
+ * Tests building and parsing of the op 12 step list
+ */
+class TestEffectChain {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Builder should produce native step strings in order")
+    void testBuilder() {
+        EffectChain chain = new EffectChain()
+                .gain(0.5)
+                .filter(2000, "L")
+                .normalizeLoudness(-16);
+        assertArrayEquals(new String[]{"gain:0.5", "filter:2000.0:L", "normalize:lufs:-16.0"}, chain.toParams());
+    }
+
+    @Test
+    @DisplayName("Parse should split on ';' and new lines and skip blanks")
+    void testParse() {
+        EffectChain chain = EffectChain.parse(" gain:0.5 ;\nfilter:100:H;; reverb:2 \n");
+        assertEquals(3, chain.getSteps().size());
+        assertEquals("gain:0.5", chain.getSteps().get(0));
+        assertEquals("filter:100:H", chain.getSteps().get(1));
+        assertEquals("reverb:2", chain.getSteps().get(2));
+    }
+
+    @Test
+    @DisplayName("Step names should be case-insensitive")
+    void testCaseInsensitiveNames() {
+        EffectChain chain = EffectChain.parse("Normalize:LUFS:-23");
+        assertEquals("Normalize:LUFS:-23", chain.toParams()[0]);
+    }
+
+    @Test
+    @DisplayName("Unknown effects should be rejected")
+    void testUnknownEffect() {
+        assertThrows(IllegalArgumentException.class, () -> EffectChain.parse("gain:0.5; echo:3"));
+    }
+
+    @Test
+    @DisplayName("Applying an empty chain should fail")
+    void testApplyEmpty() {
+        EffectChain chain = EffectChain.parse("  ;  ");
+        assertTrue(chain.isEmpty());
+        assertThrows(IllegalStateException.class, () -> chain.apply("missing.wav"));
+    }
+
+    @Test
+    @DisplayName("A reverb impulse response path with ':' in it should reach the native side whole")
+    void testReverbPathWithColons() throws Exception {
+        Path irDirectory = Files.createDirectories(tempDir.resolve("C:rooms"));
+        File ir = TestAudio.writeTone(irDirectory.resolve("hall:1.wav").toFile(), 2205, 440, 8000);
+        File source = TestAudio.writeTone(tempDir.resolve("dry.wav").toFile(), 22050, 440, 8000);
+
+        EffectChain chain = EffectChain.parse("reverb:" + ir.getAbsolutePath() + ":0.5");
+        assertEquals("reverb:" + ir.getAbsolutePath() + ":0.5", chain.toParams()[0]);
+        for (String step : new String[]{chain.toParams()[0], "reverb:" + ir.getAbsolutePath()}) {
+            File wet = tempDir.resolve("wet.wav").toFile();
+            Files.deleteIfExists(wet.toPath());
+            callNative.callCode(source.getAbsolutePath(), wet.getAbsolutePath(), EffectChain.OPERATION,
+                    new String[]{step});
+            assertTrue(wet.isFile(), step);
+            // The impulse response was loaded, so the output carries its tail
+            long frames = AudioSystem.getAudioInputStream(wet).getFrameLength();
+            assertTrue(frames > 22050, step + " gave " + frames + " frames");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.meenigam.unit;
+
+import com.meenigam.Utils.FrameClock;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.awt.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FrameClock
+ * Tests that dirty regions are merged and that the clock stops when idle
+ */
+class TestFrameClock {
+
+    @Test
+    @DisplayName("Dirty regions on one component should merge and flush once")
+    void testDirtyRegions() throws Exception {
+        FrameClock clock = new FrameClock();
+        JPanel panel = new JPanel();
+        panel.setSize(200, 50);
+        SwingUtilities.invokeAndWait(() -> {
+            assertFalse(clock.isRunning());
+            clock.markDirty(panel, new Rectangle(10, 0, 4, 50));
+            clock.markDirty(panel, new Rectangle(20, 0, 4, 50));
+            assertTrue(clock.isRunning());
+            assertEquals(new Rectangle(10, 0, 14, 50), clock.dirtyRegion(panel));
+
+            clock.runFrame();
+            assertNull(clock.dirtyRegion(panel));
+            assertFalse(clock.isRunning());
+        });
+    }
+
+    @Test
+    @DisplayName("Empty regions should not wake the clock")
+    void testEmptyRegion() throws Exception {
+        FrameClock clock = new FrameClock();
+        SwingUtilities.invokeAndWait(() -> {
+            clock.markDirty(new JPanel());
+            assertFalse(clock.isRunning());
+        });
+    }
+
+    @Test
+    @DisplayName("Animations should run every frame until they finish")
+    void testAnimation() throws Exception {
+        FrameClock clock = new FrameClock();
+        int[] steps = new int[1];
+        SwingUtilities.invokeAndWait(() -> {
+            clock.animate(() -> ++steps[0] < 3);
+            for (int i = 0; i < 5; i++) {
+                clock.runFrame();
+            }
+            assertEquals(3, steps[0]);
+            assertFalse(clock.isRunning());
+        });
+    }
+}
@@ -0,0 +1,87 @@
+package com.meenigam.unit;
+
+import com.meenigam.Utils.LevelRing;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LevelRing
+ * Tests the single-producer, single-consumer hand-over of meter readings
+ */
+class TestLevelRing {
+
+    @Test
+    @DisplayName("Draining should fold the readings into the highest peak and RMS")
+    void testDrain() {
+        LevelRing ring = new LevelRing(8);
+        float[] out = {-1, -1};
+        assertEquals(0, ring.drain(out));
+        assertEquals(-1, out[0]);
+
+        assertTrue(ring.offer(0.5f, 0.1f));
+        assertTrue(ring.offer(0.25f, 0.3f));
+        assertEquals(2, ring.drain(out));
+        assertEquals(0.5f, out[0]);
+        assertEquals(0.3f, out[1]);
+        assertEquals(0, ring.drain(out));
+    }
+
+    @Test
+    @DisplayName("A full ring should drop new readings instead of waiting")
+    void testFull() {
+        LevelRing ring = new LevelRing(5);
+        assertEquals(8, ring.capacity());
+        for (int i = 0; i < 8; i++) {
+            assertTrue(ring.offer(i / 10f, 0));
+        }
+        assertFalse(ring.offer(1, 1));
+
+        float[] out = new float[2];
+        assertEquals(8, ring.drain(out));
+        assertEquals(0.7f, out[0]);
+        // Space again after a drain, across the wrap
+        for (int i = 0; i < 5; i++) {
+            assertTrue(ring.offer(0.1f, 0.05f));
+        }
+        assertEquals(5, ring.drain(out));
+        assertEquals(0.1f, out[0]);
+    }
+
+    @Test
+    @DisplayName("Every accepted reading should reach the consumer thread once, in order")
+    void testConcurrent() throws InterruptedException {
+        LevelRing ring = new LevelRing(16);
+        int readings = 200_000;
+        AtomicInteger accepted = new AtomicInteger();
+        Thread producer = new Thread(() -> {
+            for (int i = 1; i <= readings; i++) {
+                // Increasing values, so a later drain can never report less
+                if (ring.offer(i, i)) {
+                    accepted.incrementAndGet();
+                }
+            }
+        });
+        producer.start();
+
+        float[] out = new float[2];
+        float last = 0;
+        int taken = 0;
+        while (producer.isAlive() || taken < accepted.get()) {
+            int count = ring.drain(out);
+            if (count > 0) {
+                assertTrue(out[0] > last);
+                assertEquals(out[0], out[1]);
+                last = out[0];
+                taken += count;
+            }
+        }
+        producer.join();
+        taken += ring.drain(out);
+        assertEquals(accepted.get(), taken);
+        assertTrue(taken > 0);
+    }
+}
@@ -0,0 +1,110 @@
+package com.meenigam.unit;
+
+import com.meenigam.Utils.MediaPool;
+import com.meenigam.Utils.PeakCache;
+import com.meenigam.Utils.PeakPyramid;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MediaPool
+ * Tests that clips of one file share an entry and that idle entries are evicted
+ */
+class TestMediaPool {
+
+    @TempDir
+    Path tempDir;
+
+    private PeakCache peakCache;
+
+    @BeforeEach
+    void setUp() {
+        peakCache = new PeakCache(tempDir.resolve("peaks"));
+    }
+
+    @Test
+    @DisplayName("Acquiring a file twice should share one counted entry")
+    void testSharedEntry() throws IOException {
+        MediaPool pool = new MediaPool(peakCache, 1L << 30);
+        File audio = TestAudio.writeTone(tempDir.resolve("tone.wav").toFile(), 22050, 440, 8000);
+
+        MediaPool.Entry first = pool.acquire(audio);
+        MediaPool.Entry second = pool.acquire(new File(audio.getPath()));
+        assertSame(first, second);
+        assertEquals(2, first.getReferences());
+        assertEquals(0.5f, first.getDurationSeconds(), 1e-6);
+        assertEquals(1, pool.size());
+
+        first.release();
+        second.release();
+        assertEquals(0, first.getReferences());
+        assertTrue(pool.contains(audio));
+        assertThrows(IllegalStateException.class, first::release);
+    }
+
+    @Test
+    @DisplayName("Every listener should get the same pyramid from one read")
+    void testSharedPeaks() throws Exception {
+        MediaPool pool = new MediaPool(peakCache, 1L << 30);
+        File audio = TestAudio.writeTone(tempDir.resolve("tone.wav").toFile(), 44100, 440, 8000);
+        MediaPool.Entry entry = pool.acquire(audio);
+
+        AtomicReference<PeakPyramid> seenByA = new AtomicReference<>();
+        AtomicReference<PeakPyramid> seenByB = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(2);
+        entry.addPeaksListener(e -> {
+            if (e.isComplete() && seenByA.getAndSet(e.getPeaks()) == null) done.countDown();
+        });
+        entry.addPeaksListener(e -> {
+            if (e.isComplete() && seenByB.getAndSet(e.getPeaks()) == null) done.countDown();
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertNotNull(seenByA.get());
+        assertSame(seenByA.get(), seenByB.get());
+        assertSame(entry.getPeaks(), seenByA.get());
+        assertEquals(44100, entry.getPeaks().getFrames());
+        entry.release();
+    }
+
+    @Test
+    @DisplayName("Idle entries should be evicted past the budget, held ones kept")
+    void testEviction() throws Exception {
+        // Room for one decoded file of 44100 * 4 bytes, not two
+        MediaPool pool = new MediaPool(peakCache, 250_000);
+        File held = TestAudio.writeTone(tempDir.resolve("held.wav").toFile(), 44100, 440, 8000);
+        File idle = TestAudio.writeTone(tempDir.resolve("idle.wav").toFile(), 44100, 440, 8000);
+
+        MediaPool.Entry keep = pool.acquire(held);
+        byte[] samples = keep.pcm();
+        assertEquals(44100 * 4, samples.length);
+        assertSame(samples, keep.pcm());
+
+        MediaPool.Entry drop = pool.acquire(idle);
+        drop.pcm();
+        assertEquals(2, pool.size());
+        drop.release();
+        assertFalse(pool.contains(idle));
+        assertTrue(pool.contains(held));
+        assertEquals(44100 * 4, pool.getTotalBytes());
+
+        // Over budget with only held entries: nothing is dropped
+        MediaPool.Entry again = pool.acquire(idle);
+        again.pcm();
+        assertEquals(2, pool.size());
+        keep.release();
+        assertFalse(pool.contains(held));
+        again.release();
+    }
+}
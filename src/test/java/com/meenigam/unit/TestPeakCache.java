@@ -0,0 +1,169 @@
+package com.meenigam.unit;
+
+import com.meenigam.Utils.PeakCache;
+import com.meenigam.Utils.PeakPyramid;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PeakCache and the peak sidecar format
+ * Tests that sidecars round-trip and are found again by content
+ */
+class TestPeakCache {
+
+    @TempDir
+    Path tempDir;
+
+    // 64 samples a period, so a sample falls on each crest and the peak is the amplitude
+    private static final double PERIOD_64 = TestAudio.SAMPLE_RATE / 64.0;
+
+    @Test
+    @DisplayName("A mapped sidecar should describe the same waveform")
+    void testWriteAndMap() throws Exception {
+        File audio = TestAudio.writeTone(tempDir.resolve("tone.wav").toFile(), 3000, PERIOD_64, 20000);
+        PeakPyramid decoded = PeakPyramid.read(audio);
+        Path sidecar = tempDir.resolve("tone.peaks");
+        decoded.write(sidecar);
+        PeakPyramid mapped = PeakPyramid.map(sidecar);
+
+        assertEquals(decoded.getFrames(), mapped.getFrames());
+        assertEquals(decoded.getChannels(), mapped.getChannels());
+        assertEquals(decoded.getLevelCount(), mapped.getLevelCount());
+        assertEquals(decoded.peak(), mapped.peak());
+        assertEquals(decoded.sizeInBytes(), mapped.sizeInBytes());
+        assertSummariesEqual(decoded, mapped, 500);
+        assertSummariesEqual(decoded, mapped, 7);
+    }
+
+    @Test
+    @DisplayName("Damaged sidecars should be rejected")
+    void testDamagedSidecar() throws IOException {
+        Path sidecar = tempDir.resolve("bad.peaks");
+        Files.write(sidecar, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> PeakPyramid.map(sidecar));
+    }
+
+    @Test
+    @DisplayName("Identical content should share one sidecar, found again after a restart")
+    void testLoadByContent() throws Exception {
+        Path cacheDir = tempDir.resolve("peaks");
+        File first = TestAudio.writeTone(tempDir.resolve("a.wav").toFile(), 3000, PERIOD_64, 8000);
+        File copy = tempDir.resolve("b.wav").toFile();
+        Files.copy(first.toPath(), copy.toPath());
+
+        PeakCache cache = new PeakCache(cacheDir);
+        PeakPyramid built = cache.load(first);
+        Path sidecar = cache.sidecarFor(first);
+        assertTrue(Files.isRegularFile(sidecar));
+        assertEquals(sidecar, cache.sidecarFor(copy));
+
+        PeakCache reopened = new PeakCache(cacheDir);
+        assertEquals(sidecar, reopened.sidecarFor(first));
+        assertEquals(built.peak(), reopened.load(copy).peak());
+    }
+
+    @Test
+    @DisplayName("Changed content should get a new sidecar")
+    void testChangedContent() throws Exception {
+        PeakCache cache = new PeakCache(tempDir.resolve("peaks"));
+        File audio = TestAudio.writeTone(tempDir.resolve("a.wav").toFile(), 3000, PERIOD_64, 8000);
+        Path before = cache.sidecarFor(audio);
+        TestAudio.writeTone(audio, 3000, PERIOD_64, 16000);
+        audio.setLastModified(audio.lastModified() + 2000);
+        assertNotEquals(before, cache.sidecarFor(audio));
+        assertEquals(16000, cache.load(audio).peak());
+    }
+
+    @Test
+    @DisplayName("A cancelled decode should stop and save no sidecar")
+    void testCancelledLoad() throws Exception {
+        PeakCache cache = new PeakCache(tempDir.resolve("peaks"));
+        File audio = TestAudio.writeTone(tempDir.resolve("a.wav").toFile(), 3000, PERIOD_64, 8000);
+        PeakPyramid.Progress cancelled = new PeakPyramid.Progress() {
+            @Override
+            public void partial(PeakPyramid soFar, long totalFrames) {
+                fail("no partial pyramid after cancelling");
+            }
+
+            @Override
+            public boolean cancelled() {
+                return true;
+            }
+        };
+        assertThrows(CancellationException.class, () -> cache.load(audio, cancelled));
+        assertFalse(Files.exists(cache.sidecarFor(audio)));
+        assertEquals(8000, cache.load(audio).peak());
+    }
+
+    @Test
+    @DisplayName("Sidecars past the budget should be deleted least recently loaded first")
+    void testBudget() throws Exception {
+        Path cacheDir = tempDir.resolve("peaks");
+        File a = TestAudio.writeTone(tempDir.resolve("a.wav").toFile(), 3000, PERIOD_64, 8000);
+        File b = TestAudio.writeTone(tempDir.resolve("b.wav").toFile(), 3000, PERIOD_64, 9000);
+        File c = TestAudio.writeTone(tempDir.resolve("c.wav").toFile(), 3000, PERIOD_64, 10000);
+        PeakCache measure = new PeakCache(tempDir.resolve("measure"));
+        measure.load(a);
+        long sidecarBytes = Files.size(measure.sidecarFor(a));
+
+        PeakCache cache = new PeakCache(cacheDir, 2 * sidecarBytes + sidecarBytes / 2);
+        cache.load(a);
+        cache.load(b);
+        cache.load(a);
+        cache.load(c);
+        assertTrue(Files.exists(cache.sidecarFor(a)));
+        assertFalse(Files.exists(cache.sidecarFor(b)));
+        assertTrue(Files.exists(cache.sidecarFor(c)));
+
+        // Rebuilt when needed again
+        assertEquals(9000, cache.load(b).peak());
+        assertTrue(Files.exists(cache.sidecarFor(b)));
+    }
+
+    @Test
+    @DisplayName("Opening should drop index lines for files that are gone or changed")
+    void testIndexCompaction() throws Exception {
+        Path cacheDir = tempDir.resolve("peaks");
+        File kept = TestAudio.writeTone(tempDir.resolve("kept.wav").toFile(), 3000, PERIOD_64, 8000);
+        File deleted = TestAudio.writeTone(tempDir.resolve("deleted.wav").toFile(), 3000, PERIOD_64, 8000);
+        File changed = TestAudio.writeTone(tempDir.resolve("changed.wav").toFile(), 3000, PERIOD_64, 8000);
+        PeakCache cache = new PeakCache(cacheDir);
+        String hash = cache.contentHash(kept);
+        cache.contentHash(deleted);
+        cache.contentHash(changed);
+        Files.delete(deleted.toPath());
+        changed.setLastModified(changed.lastModified() + 2000);
+        Path index = cacheDir.resolve("index.txt");
+        Files.writeString(index, "garbage\n", java.nio.file.StandardOpenOption.APPEND);
+
+        PeakCache reopened = new PeakCache(cacheDir);
+        List<String> lines = Files.readAllLines(index);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).endsWith(" " + kept.getAbsolutePath()));
+        assertEquals(hash, reopened.contentHash(kept));
+    }
+
+    private static void assertSummariesEqual(PeakPyramid a, PeakPyramid b, int width) {
+        short[][] left = summary(a, width);
+        short[][] right = summary(b, width);
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(left[i], right[i]);
+        }
+    }
+
+    private static short[][] summary(PeakPyramid pyramid, int width) {
+        short[][] out = new short[3][width];
+        pyramid.summarize(0, pyramid.getFrames(), width, out[0], out[1], out[2]);
+        return out;
+    }
+}
@@ -0,0 +1,102 @@
+package com.meenigam.unit;
+
+import com.meenigam.Utils.PeakPyramid;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PeakPyramid
+ * Tests the min/max/RMS levels and the per-pixel summaries drawn by WaveformPanel
+ */
+class TestPeakPyramid {
+
+    private static PeakPyramid build(short[] interleaved, int channels, int chunkFrames) {
+        PeakPyramid.Builder builder = new PeakPyramid.Builder(channels, 44100);
+        int frames = interleaved.length / channels;
+        short[] chunk = new short[chunkFrames * channels];
+        for (int start = 0; start < frames; start += chunkFrames) {
+            int n = Math.min(chunkFrames, frames - start);
+            System.arraycopy(interleaved, start * channels, chunk, 0, n * channels);
+            builder.add(chunk, n);
+        }
+        return builder.build();
+    }
+
+    @Test
+    @DisplayName("Levels should halve down to a single bucket")
+    void testLevels() {
+        int frames = PeakPyramid.BASE_FRAMES * 10 + 17;
+        PeakPyramid pyramid = build(new short[frames * 2], 2, 1000);
+        assertEquals(frames, pyramid.getFrames());
+        assertEquals(11, pyramid.bucketCount(0));
+        assertEquals(6, pyramid.bucketCount(1));
+        assertEquals(1, pyramid.bucketCount(pyramid.getLevelCount() - 1));
+        assertEquals(0, pyramid.levelFor(1));
+        assertEquals(2, pyramid.levelFor(PeakPyramid.BASE_FRAMES * 5));
+    }
+
+    @Test
+    @DisplayName("Peaks and per-column min/max should match the samples")
+    void testSummaries() {
+        int frames = PeakPyramid.BASE_FRAMES * 64;
+        short[] samples = new short[frames * 2];
+        samples[2 * 100] = 1000;                 // left, first quarter
+        samples[2 * (frames / 2) + 1] = -20000;  // right, third quarter
+        samples[2 * (frames - 1)] = Short.MIN_VALUE;
+        PeakPyramid pyramid = build(samples, 2, 777);
+
+        assertEquals(32768, pyramid.peak());
+
+        short[] min = new short[4];
+        short[] max = new short[4];
+        short[] rms = new short[4];
+        pyramid.summarize(0, frames, 4, min, max, rms);
+        assertEquals(1000, max[0]);
+        assertEquals(0, min[0]);
+        assertEquals(-20000, min[2]);
+        assertEquals(Short.MIN_VALUE, min[3]);
+        assertEquals(0, max[1]);
+        assertEquals(0, rms[1]);
+        assertTrue(rms[2] > 0);
+    }
+
+    @Test
+    @DisplayName("RMS of a full-scale square wave should survive every level")
+    void testRms() {
+        int frames = PeakPyramid.BASE_FRAMES * 33;
+        short[] samples = new short[frames];
+        for (int i = 0; i < frames; i++) {
+            samples[i] = (short) (i % 2 == 0 ? 16384 : -16384);
+        }
+        PeakPyramid pyramid = build(samples, 1, 4096);
+        short[] min = new short[1];
+        short[] max = new short[1];
+        short[] rms = new short[1];
+        pyramid.summarize(0, frames, 1, min, max, rms);
+        assertEquals(16384, rms[0]);
+        assertEquals(-16384, min[0]);
+    }
+
+    @Test
+    @DisplayName("The pyramid should be far smaller than the samples")
+    void testSize() {
+        int frames = 44100 * 60;
+        PeakPyramid pyramid = build(new short[frames * 2], 2, 65536);
+        long floatBytes = 4L * frames * 2;
+        assertTrue(pyramid.sizeInBytes() * 50 < floatBytes, "pyramid is " + pyramid.sizeInBytes() + " bytes");
+    }
+
+    @Test
+    @DisplayName("Columns past the end of the clip should be empty")
+    void testPastEnd() {
+        PeakPyramid pyramid = build(new short[]{100, 200, 300}, 1, 3);
+        short[] min = new short[4];
+        short[] max = new short[4];
+        short[] rms = new short[4];
+        pyramid.summarize(0, 12, 4, min, max, rms);
+        assertEquals(300, max[0]);
+        assertEquals(0, max[3]);
+    }
+}
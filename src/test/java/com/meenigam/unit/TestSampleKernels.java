@@ -0,0 +1,114 @@
+package com.meenigam.unit;
+
+import com.meenigam.Utils.SampleKernels;
+import com.meenigam.Utils.ScalarSampleKernels;
+import com.meenigam.Utils.VectorSampleKernels;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the sample kernels
+ * Checks the Vector API versions against the scalar reference
+ */
+class TestSampleKernels {
+
+    // Odd length so every kernel also exercises its scalar tail
+    private static final int LENGTH = 1027;
+
+    private short[] samples;
+    private short[] overlay;
+    private float[] floats;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(7);
+        samples = new short[LENGTH];
+        overlay = new short[LENGTH];
+        floats = new float[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            samples[i] = (short) random.nextInt(65536);
+            overlay[i] = (short) random.nextInt(65536);
+            floats[i] = random.nextFloat() * 2.4f - 1.2f;
+        }
+        samples[3] = Short.MIN_VALUE;
+    }
+
+    @Test
+    @DisplayName("Gain should clamp and match the scalar reference")
+    void testGain() {
+        short[] expected = samples.clone();
+        short[] actual = samples.clone();
+        ScalarSampleKernels.gain(expected, 0, LENGTH, 1.7f);
+        VectorSampleKernels.gain(actual, 0, LENGTH, 1.7f);
+        assertArrayEquals(expected, actual);
+        assertEquals(Short.MIN_VALUE, expected[3], "Gain should clamp to the int16 range");
+    }
+
+    @Test
+    @DisplayName("Mix should match the scalar reference")
+    void testMix() {
+        short[] expected = samples.clone();
+        short[] actual = samples.clone();
+        ScalarSampleKernels.mix(expected, 1, overlay, 2, LENGTH - 2, 0.8f);
+        VectorSampleKernels.mix(actual, 1, overlay, 2, LENGTH - 2, 0.8f);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("Peak should report 32768 for a -32768 sample")
+    void testPeak() {
+        assertEquals(32768, ScalarSampleKernels.peak(samples, 0, LENGTH));
+        assertEquals(32768, VectorSampleKernels.peak(samples, 0, LENGTH));
+        assertEquals(ScalarSampleKernels.peak(samples, 5, 700), VectorSampleKernels.peak(samples, 5, 700));
+        assertEquals(ScalarSampleKernels.peak(floats, 0, LENGTH), VectorSampleKernels.peak(floats, 0, LENGTH));
+    }
+
+    @Test
+    @DisplayName("Sum of squares should match the scalar reference exactly")
+    void testSumSquares() {
+        double expected = ScalarSampleKernels.sumSquares(samples, 0, LENGTH);
+        double actual = VectorSampleKernels.sumSquares(samples, 0, LENGTH);
+        assertEquals(expected, actual);
+        assertEquals(ScalarSampleKernels.sumSquares(samples, 3, 1001), VectorSampleKernels.sumSquares(samples, 3, 1001));
+        assertTrue(SampleKernels.rms(samples, 0, LENGTH) > 0.0);
+        assertEquals(0.0, SampleKernels.rms(samples, 0, 0));
+    }
+
+    @Test
+    @DisplayName("Conversions should round-trip and match the scalar reference")
+    void testConversions() {
+        float[] expectedFloats = new float[LENGTH];
+        float[] actualFloats = new float[LENGTH];
+        ScalarSampleKernels.toFloat(samples, 0, expectedFloats, 0, LENGTH);
+        VectorSampleKernels.toFloat(samples, 0, actualFloats, 0, LENGTH);
+        assertArrayEquals(expectedFloats, actualFloats);
+
+        short[] roundTrip = new short[LENGTH];
+        SampleKernels.toShort(actualFloats, 0, roundTrip, 0, LENGTH);
+        assertArrayEquals(samples, roundTrip);
+
+        short[] expectedShorts = new short[LENGTH];
+        short[] actualShorts = new short[LENGTH];
+        ScalarSampleKernels.toShort(floats, 0, expectedShorts, 0, LENGTH);
+        VectorSampleKernels.toShort(floats, 0, actualShorts, 0, LENGTH);
+        assertArrayEquals(expectedShorts, actualShorts);
+    }
+
+    @Test
+    @DisplayName("Clamp should bound every sample")
+    void testClamp() {
+        float[] expected = floats.clone();
+        float[] actual = floats.clone();
+        ScalarSampleKernels.clamp(expected, 0, LENGTH, -1f, 1f);
+        VectorSampleKernels.clamp(actual, 0, LENGTH, -1f, 1f);
+        assertArrayEquals(expected, actual);
+        for (float sample : actual) {
+            assertTrue(sample >= -1f && sample <= 1f, "No sample should exceed the bound");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.meenigam.unit;
+
+import com.meenigam.Utils.SilenceScan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SilenceScan
+ * Tests parsing of the native silence analysis results
+ */
+class TestSilenceScan {
+
+    @Test
+    @DisplayName("Results should parse into regions with leading and trailing silence")
+    void testParseRegions() {
+        SilenceScan scan = SilenceScan.fromResults(new String[]{
+                "durationMs=7600.0", "silence=0.0,1000.0", "silence=3000.0,4500.0", "silence=6800.0,7600.0"});
+        assertEquals(7600.0, scan.getDurationMs());
+        assertEquals(3, scan.getRegions().size());
+        assertEquals(3000.0, scan.getRegions().get(1).getStartMs());
+        assertEquals(1000.0, scan.getLeadingSilenceMs());
+        assertEquals(800.0, scan.getTrailingSilenceMs());
+        assertEquals(3300.0, scan.getTotalSilenceMs(), 1e-9);
+        assertFalse(scan.isAllSilence());
+    }
+
+    @Test
+    @DisplayName("Internal silence only should report no edge silence")
+    void testInternalOnly() {
+        SilenceScan scan = SilenceScan.fromResults(new String[]{"durationMs=5000.0", "silence=2000.0,2500.0"});
+        assertEquals(0.0, scan.getLeadingSilenceMs());
+        assertEquals(0.0, scan.getTrailingSilenceMs());
+        assertEquals(500.0, scan.getTotalSilenceMs(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("A file of nothing but silence should be recognised")
+    void testAllSilence() {
+        SilenceScan scan = SilenceScan.fromResults(new String[]{"durationMs=1000.0", "silence=0.0,1000.0"});
+        assertTrue(scan.isAllSilence());
+        assertTrue(SilenceScan.fromResults(new String[]{"durationMs=1000.0"}).getRegions().isEmpty());
+    }
+
+    @Test
+    @DisplayName("An error entry should raise an exception")
+    void testError() {
+        assertThrows(IllegalStateException.class,
+                () -> SilenceScan.fromResults(new String[]{"error=Only 16-bit PCM WAV files are supported."}));
+        assertThrows(IllegalStateException.class, () -> SilenceScan.fromResults(new String[0]));
+    }
+}
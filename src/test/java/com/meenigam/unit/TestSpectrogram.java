@@ -0,0 +1,95 @@
+package com.meenigam.unit;
+
+import com.meenigam.Components.SpectrogramPanel;
+import com.meenigam.Utils.DiskBudget;
+import com.meenigam.Utils.Spectrogram;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for Spectrogram and SpectrogramPanel
+ * Tests the tiled short-time Fourier transform and its images
+ */
+class TestSpectrogram {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Opening should report the length without computing tiles")
+    void testOpen() throws IOException {
+        File audio = TestAudio.writeTone(tempDir.resolve("tone.wav").toFile(), 44100 * 2, 1000, 16384);
+        Spectrogram spectrogram = Spectrogram.open(audio, tempDir.resolve("spec"));
+
+        assertEquals(44100, spectrogram.getSampleRate());
+        assertEquals(44100 * 2, spectrogram.getFrames());
+        assertEquals(Spectrogram.FFT_SIZE / 2 + 1, spectrogram.getBins());
+        assertEquals((44100 * 2 + Spectrogram.HOP - 1) / Spectrogram.HOP, spectrogram.getColumns());
+        assertEquals(1, spectrogram.getTileCount());
+        assertFalse(spectrogram.isCached(0));
+    }
+
+    @Test
+    @DisplayName("A tone should be loudest in the bin at its frequency, and the tile cached")
+    void testTonePeak() throws IOException {
+        File audio = TestAudio.writeTone(tempDir.resolve("tone.wav").toFile(), 44100 * 2, 1000, 16384);
+        Spectrogram spectrogram = Spectrogram.open(audio, tempDir.resolve("spec"));
+        byte[] tile = spectrogram.tile(0);
+        assertEquals(spectrogram.tileColumns(0) * spectrogram.getBins(), tile.length);
+        assertTrue(spectrogram.isCached(0));
+
+        // A column in the middle, clear of the edges of the file
+        int base = spectrogram.getColumns() / 2 * spectrogram.getBins();
+        int loudest = 0;
+        for (int bin = 1; bin < spectrogram.getBins(); bin++) {
+            if ((tile[base + bin] & 0xff) > (tile[base + loudest] & 0xff)) {
+                loudest = bin;
+            }
+        }
+        assertEquals(1000, spectrogram.binFrequency(loudest), spectrogram.binFrequency(1));
+        assertArrayEquals(tile, spectrogram.tile(0));
+    }
+
+    @Test
+    @DisplayName("Tile images should be a pixel per column and ROWS high")
+    void testImage() throws IOException {
+        File audio = TestAudio.writeTone(tempDir.resolve("tone.wav").toFile(), 44100, 1000, 16384);
+        Spectrogram spectrogram = Spectrogram.open(audio, tempDir.resolve("spec"));
+        BufferedImage image = SpectrogramPanel.toImage(spectrogram, 0, spectrogram.tile(0));
+        assertEquals(spectrogram.tileColumns(0), image.getWidth());
+        assertEquals(SpectrogramPanel.ROWS, image.getHeight());
+    }
+
+    @Test
+    @DisplayName("Tiles past the budget should be deleted least recently used first")
+    void testTileBudget() throws IOException {
+        // Three tiles of 256 columns at a hop of 512 frames
+        File audio = TestAudio.writeTone(tempDir.resolve("tone.wav").toFile(), 3 * 256 * 512, 1000, 16384);
+        Path directory = tempDir.resolve("spec");
+        int tileBytes = Spectrogram.TILE_COLUMNS * (Spectrogram.FFT_SIZE / 2 + 1);
+        DiskBudget tiles = new DiskBudget(directory, 2L * tileBytes, path -> true);
+        Spectrogram spectrogram = Spectrogram.open(audio, directory, tiles);
+        assertEquals(3, spectrogram.getTileCount());
+
+        spectrogram.tile(0);
+        spectrogram.tile(1);
+        spectrogram.tile(0);
+        spectrogram.tile(2);
+        assertTrue(spectrogram.isCached(0));
+        assertFalse(spectrogram.isCached(1));
+        assertTrue(spectrogram.isCached(2));
+        assertEquals(2L * tileBytes, tiles.getTotalBytes());
+
+        // Computed again when scrolled back to
+        assertEquals(tileBytes, spectrogram.tile(1).length);
+        assertFalse(spectrogram.isCached(0));
+    }
+}
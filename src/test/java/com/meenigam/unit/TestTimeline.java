@@ -0,0 +1,50 @@
+package com.meenigam.unit;
+
+import com.meenigam.Components.Timeline;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for Timeline
+ * Tests the seconds/pixels scale and zooming
+ */
+class TestTimeline {
+
+    @Test
+    @DisplayName("The default scale should be 10 pixels per second")
+    void testDefaultScale() {
+        Timeline timeline = new Timeline();
+        assertEquals(100, timeline.toPixels(10));
+        assertEquals(2.5, timeline.toSeconds(25), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Zooming should scale positions and notify listeners")
+    void testZoom() {
+        Timeline timeline = new Timeline();
+        int[] changes = new int[1];
+        timeline.addChangeListener(e -> changes[0]++);
+        timeline.zoom(4);
+        assertEquals(400, timeline.toPixels(10));
+        assertEquals(1, changes[0]);
+        timeline.zoom(0.5);
+        assertEquals(20, timeline.getPixelsPerSecond(), 1e-9);
+        assertEquals(2, changes[0]);
+    }
+
+    @Test
+    @DisplayName("Zoom should stay within its limits")
+    void testZoomLimits() {
+        Timeline timeline = new Timeline();
+        timeline.zoom(1e9);
+        assertEquals(Timeline.MAX_PIXELS_PER_SECOND, timeline.getPixelsPerSecond());
+        int[] changes = new int[1];
+        timeline.addChangeListener(e -> changes[0]++);
+        timeline.zoom(2);
+        assertEquals(0, changes[0], "no change, no event");
+        timeline.zoom(1e-12);
+        assertEquals(Timeline.MIN_PIXELS_PER_SECOND, timeline.getPixelsPerSecond());
+    }
+}
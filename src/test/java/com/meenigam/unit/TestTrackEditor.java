@@ -0,0 +1,158 @@
+package com.meenigam.unit;
+
+import com.meenigam.Components.Clip;
+import com.meenigam.Components.ClipModel;
+import com.meenigam.Components.FileComponent;
+import com.meenigam.Components.Timeline;
+import com.meenigam.Components.Track;
+import com.meenigam.Panels.TrackEditor;
+import com.meenigam.Utils.FrameClock;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TrackEditor
+ * Tests that the playhead sits on the clips' time axis and only dirties the strips it crosses,
+ * and that tracks only make components for the clips in view
+ */
+class TestTrackEditor {
+
+    @TempDir
+    Path tempDir;
+
+    // A 100 second mix, so at the default scale a tenth of it is 100 pixels
+    private static TrackEditor layOut(JSlider slider) {
+        TrackEditor editor = new TrackEditor(null, slider);
+        editor.getPlayheadLayer().setSize(1024, 400);
+        editor.setSize(1024, 400);
+        editor.doLayout();
+        editor.setMixSeconds(100);
+        return editor;
+    }
+
+    private static int origin() {
+        return TrackEditor.getTracks().get(0).getContentOrigin();
+    }
+
+    @Test
+    @DisplayName("The playhead should repaint a narrow strip of the overlay")
+    void testPlayheadStrip() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            TrackEditor editor = layOut(new JSlider(0, 100, 0));
+            FrameClock clock = FrameClock.shared();
+            clock.runFrame();
+
+            editor.setPlayheadFraction(0.5);
+            assertEquals(origin() + 500, (int) editor.getSliderPos());
+            Rectangle dirty = clock.dirtyRegion(editor.getPlayheadLayer());
+            assertNotNull(dirty);
+            assertTrue(dirty.contains(origin(), 10) && dirty.contains(origin() + 500, 10));
+            assertNull(clock.dirtyRegion(editor), "the tracks themselves are not invalidated");
+            clock.runFrame();
+
+            editor.setPlayheadFraction(0.5001);
+            assertNull(clock.dirtyRegion(editor.getPlayheadLayer()), "no repaint without a pixel of movement");
+        });
+    }
+
+    @Test
+    @DisplayName("Moving the slider by hand should move the playhead")
+    void testSliderMovesPlayhead() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            JSlider slider = new JSlider(0, 100, 0);
+            TrackEditor editor = layOut(slider);
+            slider.setValue(20);
+            assertEquals(origin() + 200, (int) editor.getSliderPos());
+
+            // Playback sets the playhead exactly and the slider to its nearest step
+            editor.setPlayheadFraction(0.2512);
+            slider.setValue(25);
+            assertEquals(origin() + 251, (int) editor.getSliderPos());
+            FrameClock.shared().runFrame();
+        });
+    }
+
+    @Test
+    @DisplayName("After zooming the playhead should still meet the clip edge at the same second")
+    void testPlayheadMeetsClipAfterZoom() throws Exception {
+        File audio = tempDir.resolve("clip.wav").toFile();
+        Files.createFile(audio.toPath());
+        FileComponent file = mock(FileComponent.class);
+        when(file.getFile()).thenReturn(audio);
+        when(file.getDuration()).thenReturn(4.0f);
+
+        SwingUtilities.invokeAndWait(() -> {
+            TrackEditor editor = layOut(new JSlider(0, 100, 0));
+            Track track = TrackEditor.getTracks().get(TrackEditor.getTracks().size() - 1);
+            ClipModel model = track.addClip(file, 12.5f);
+            Clip clip = track.getRealizedClip(model);
+            Timeline timeline = Timeline.shared();
+            try {
+                editor.setPlayheadFraction(0.125);
+                for (double scale : new double[]{Timeline.DEFAULT_PIXELS_PER_SECOND, 37, 450}) {
+                    timeline.setPixelsPerSecond(scale);
+                    track.setBounds(0, 0, timeline.toPixels(200), TrackEditor.TRACK_HEIGHT);
+                    track.doLayout();
+                    track.getClipContainer().doLayout();
+                    int edge = SwingUtilities.convertPoint(clip, 0, 0, track).x;
+                    assertEquals(edge, (int) editor.getSliderPos(), "at " + scale + " px/s");
+                }
+            } finally {
+                timeline.setPixelsPerSecond(Timeline.DEFAULT_PIXELS_PER_SECOND);
+                track.removeClip(model);
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("A track should only make components for the clips in view")
+    void testOnlyClipsInViewAreRealized() throws Exception {
+        File audio = tempDir.resolve("clip.wav").toFile();
+        Files.createFile(audio.toPath());
+        FileComponent file = mock(FileComponent.class);
+        when(file.getFile()).thenReturn(audio);
+        when(file.getDuration()).thenReturn(2.0f);
+
+        SwingUtilities.invokeAndWait(() -> {
+            layOut(new JSlider(0, 100, 0));
+            Track track = TrackEditor.getTracks().get(TrackEditor.getTracks().size() - 1);
+            List<ClipModel> added = new ArrayList<>();
+            try {
+                // Added last to first, so the track has to put them in order
+                for (int i = 299; i >= 0; i--) {
+                    added.add(track.addClip(file, i * 3f));
+                }
+                // Seconds 30 to 60 at the default scale
+                track.realizeClips(300, 600);
+
+                int inView = 0;
+                float previous = -1;
+                for (ClipModel clip : track.getClips()) {
+                    assertTrue(clip.getStartSeconds() > previous, "clips in start order");
+                    previous = clip.getStartSeconds();
+                    boolean shown = clip.getEndSeconds() > 30 && clip.getStartSeconds() < 60;
+                    assertEquals(shown, track.getRealizedClip(clip) != null, "clip at " + clip.getStartSeconds());
+                    inView += shown ? 1 : 0;
+                }
+                assertEquals(10, inView);
+                assertEquals(inView, track.getClipContainer().getComponentCount());
+            } finally {
+                for (ClipModel clip : added) {
+                    track.removeClip(clip);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package com.meenigam.unit;
+
+import com.meenigam.Components.WaveformTiles;
+import com.meenigam.Utils.PeakPyramid;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for WaveformTiles
+ * Tests tile drawing, background requests and the LRU byte budget
+ */
+class TestWaveformTiles {
+
+    private static final int HEIGHT = 40;
+
+    // A loud first half and a silent second half
+    private static PeakPyramid halfLoud(int frames) {
+        short[] samples = new short[frames];
+        for (int i = 0; i < frames / 2; i++) {
+            samples[i] = (short) (i % 2 == 0 ? 20000 : -20000);
+        }
+        PeakPyramid.Builder builder = new PeakPyramid.Builder(1, 44100);
+        builder.add(samples, frames);
+        return builder.build();
+    }
+
+    private static WaveformTiles.Key key(PeakPyramid peaks, int width, int index) {
+        return new WaveformTiles.Key(peaks, peaks.getFrames(), width, HEIGHT, index);
+    }
+
+    @Test
+    @DisplayName("Tiles should cover their own columns of the clip")
+    void testRender() {
+        PeakPyramid peaks = halfLoud(PeakPyramid.BASE_FRAMES * 400);
+        int width = 2 * WaveformTiles.TILE_WIDTH + 10;
+
+        BufferedImage loud = WaveformTiles.render(key(peaks, width, 0));
+        assertEquals(WaveformTiles.TILE_WIDTH, loud.getWidth());
+        assertEquals(HEIGHT, loud.getHeight());
+
+        BufferedImage quiet = WaveformTiles.render(key(peaks, width, 2));
+        assertEquals(10, quiet.getWidth());
+        int background = quiet.getRGB(5, 2);
+        assertNotEquals(background, quiet.getRGB(5, HEIGHT / 2), "the middle line is drawn");
+        assertNotEquals(background, loud.getRGB(10, 2), "loud columns reach the top");
+    }
+
+    @Test
+    @DisplayName("Requested tiles should be drawn in the background and cached")
+    void testRequest() throws InterruptedException {
+        WaveformTiles tiles = new WaveformTiles(1 << 20);
+        WaveformTiles.Key key = key(halfLoud(PeakPyramid.BASE_FRAMES * 8), 300, 1);
+        assertNull(tiles.get(key));
+        CountDownLatch ready = new CountDownLatch(1);
+        tiles.request(key, ready::countDown);
+        assertTrue(ready.await(10, TimeUnit.SECONDS));
+        assertNotNull(tiles.get(key));
+        assertEquals(4L * 44 * HEIGHT, tiles.getTotalBytes());
+    }
+
+    @Test
+    @DisplayName("The least recently used tiles should go once over budget")
+    void testEviction() {
+        long tileBytes = 4L * WaveformTiles.TILE_WIDTH * HEIGHT;
+        WaveformTiles tiles = new WaveformTiles(3 * tileBytes);
+        PeakPyramid peaks = halfLoud(PeakPyramid.BASE_FRAMES * 8);
+        int width = 10 * WaveformTiles.TILE_WIDTH;
+        for (int i = 0; i < 3; i++) {
+            tiles.put(key(peaks, width, i), WaveformTiles.render(key(peaks, width, i)));
+        }
+        assertNotNull(tiles.get(key(peaks, width, 0)));
+        tiles.put(key(peaks, width, 3), WaveformTiles.render(key(peaks, width, 3)));
+
+        assertEquals(3, tiles.size());
+        assertNull(tiles.get(key(peaks, width, 1)));
+        assertNotNull(tiles.get(key(peaks, width, 0)));
+        assertTrue(tiles.getTotalBytes() <= 3 * tileBytes);
+
+        tiles.invalidate(peaks);
+        assertEquals(0, tiles.size());
+        assertEquals(0, tiles.getTotalBytes());
+    }
+}